@@ -0,0 +1,70 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.benchmarks;
+
+import kodkod.engine.satlab.SATFactory;
+import kodkod.engine.satlab.SATSolver;
+
+/**
+ * A SAT solver that only counts the variables and clauses that it is given,
+ * used to measure the generation of CNF apart from the cost of loading
+ * the clauses into an actual solver.
+ */
+public final class CountingSolver implements SATSolver {
+	private int vars, clauses;
+	
+	/**
+	 * A factory of counting solvers.
+	 */
+	public static final SATFactory FACTORY = new SATFactory() {
+		public SATSolver instance() { return new CountingSolver(); }
+		public String toString() { return "CountingSolver"; }
+	};
+	
+	public int numberOfVariables() { return vars; }
+
+	public int numberOfClauses() { return clauses; }
+
+	public void addVariables(int numVars) { vars += numVars; }
+
+	public boolean addClause(int[] lits) {
+		clauses++;
+		return true;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException  always
+	 */
+	public boolean solve() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @throws UnsupportedOperationException  always
+	 */
+	public boolean valueOf(int variable) {
+		throw new UnsupportedOperationException();
+	}
+
+	public void free() { }
+}
@@ -0,0 +1,104 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kodkod.ast.Formula;
+import kodkod.engine.Evaluator;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.config.Options;
+import kodkod.instance.Instance;
+import kodkod.util.nodes.Nodes;
+
+/**
+ * Benchmarks the evaluation of the formulas of the satisfiable {@link Problem problems}
+ * against one of their solutions, either with a fresh evaluator per query or with
+ * an evaluator shared by the queries on the top-level conjuncts of the formula.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+	@Param({"HANDSHAKE", "LATIN_SQUARE", "MAGIC_SERIES"})
+	public Problem problem;
+	
+	@Param({"false", "true"})
+	public boolean compiled;
+	
+	private Formula formula;
+	private Formula[] conjuncts;
+	private Instance instance;
+	private Options options;
+	private Evaluator evaluator;
+	
+	@Setup(Level.Trial)
+	public void solve() {
+		formula = problem.formula();
+		options = problem.options();
+		final Solution sol = new Solver(options).solve(formula, problem.bounds());
+		if (sol.instance()==null)
+			throw new IllegalStateException(problem + " has no solution");
+		instance = sol.instance();
+		conjuncts = Nodes.roots(formula).toArray(new Formula[0]);
+		evaluator = new Evaluator(instance, options, compiled);
+	}
+	
+	@TearDown(Level.Trial)
+	public void check() {
+		if (!evaluate()) 
+			throw new IllegalStateException(problem + " solution does not satisfy the formula");
+	}
+	
+	@Benchmark
+	public boolean evaluate() {
+		return new Evaluator(instance, options, compiled).evaluate(formula);
+	}
+	
+	@Benchmark
+	public boolean reevaluate() {
+		boolean ret = true;
+		for(Formula conjunct : conjuncts)
+			ret &= evaluator.evaluate(conjunct);
+		return ret;
+	}
+}
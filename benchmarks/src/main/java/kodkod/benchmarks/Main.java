@@ -0,0 +1,51 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks with the given command line options, writing
+ * the results in JSON to {@code jmh-result.json} unless another result 
+ * format ({@code -rf}) or file ({@code -rff}) is given, so that results of
+ * different releases can be compared.
+ */
+public final class Main {
+	
+	private Main() {}
+	
+	public static void main(String[] args) throws Exception {
+		final List<String> opts = new ArrayList<String>(Arrays.asList(args));
+		if (!opts.contains("-rf")) {
+			opts.add("-rf");
+			opts.add("json");
+		}
+		if (!opts.contains("-rff")) {
+			opts.add("-rff");
+			opts.add("jmh-result.json");
+		}
+		org.openjdk.jmh.Main.main(opts.toArray(new String[opts.size()]));
+	}
+}
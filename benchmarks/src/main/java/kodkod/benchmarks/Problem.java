@@ -0,0 +1,122 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.benchmarks;
+
+import kodkod.ast.Formula;
+import kodkod.engine.config.Options;
+import kodkod.examples.alloy.CeilingsAndFloors;
+import kodkod.examples.alloy.Handshake;
+import kodkod.examples.alloy.Pigeonhole;
+import kodkod.examples.csp.LatinSquare;
+import kodkod.examples.csp.MagicSeries;
+import kodkod.examples.tptp.ALG195;
+import kodkod.examples.tptp.NUM374;
+import kodkod.instance.Bounds;
+
+/**
+ * The static problems over which the benchmarks are run, built from the
+ * Alloy, TPTP and CSP examples.  The scopes are chosen so that each problem
+ * is translated in well under a second and solved by SAT4J in a few seconds.
+ */
+public enum Problem {
+	
+	/** CeilingsAndFloors, checking belowToo'' for 6 platforms and 6 men (unsat). */
+	CEILINGS_AND_FLOORS {
+		public Formula formula() { return ceilings.checkBelowTooDoublePrime(); }
+		public Bounds bounds() { return ceilings.bounds(6, 6); }
+	},
+	
+	/** Handshake, running the puzzle for 8 persons. */
+	HANDSHAKE {
+		public Formula formula() { return handshake.runPuzzle(); }
+		public Bounds bounds() { return handshake.bounds(8); }
+	},
+	
+	/** Pigeonhole, with 7 pigeons and 6 holes (unsat). */
+	PIGEONHOLE {
+		public Formula formula() { return pigeonhole.declarations().and(pigeonhole.pigeonPerHole()); }
+		public Bounds bounds() { return pigeonhole.bounds(7, 6); }
+	},
+	
+	/** TPTP ALG195, checking CO1 (unsat). */
+	ALG195 {
+		public Formula formula() { return alg195.checkCO1(); }
+		public Bounds bounds() { return alg195.bounds(); }
+	},
+	
+	/** TPTP NUM374, checking Wilkie's identity for 3 atoms. */
+	NUM374 {
+		public Formula formula() { return num374.checkWilkie(); }
+		public Bounds bounds() { return num374.bounds(3); }
+	},
+	
+	/** CSP latin square of size 5 satisfying qg5. */
+	LATIN_SQUARE {
+		public Formula formula() { return latin.latin().and(latin.qg5()).and(latin.idempotent()); }
+		public Bounds bounds() { return latin.bounds(5); }
+		void configure(Options options) { options.setSymmetryBreaking(5*5*5); }
+	},
+	
+	/** CSP magic series of length 8, with integer arithmetic. */
+	MAGIC_SERIES {
+		public Formula formula() { return magic.magic(); }
+		public Bounds bounds() { return magic.bounds(8); }
+		void configure(Options options) { options.setBitwidth(5); }
+	};
+	
+	private static final CeilingsAndFloors ceilings = new CeilingsAndFloors();
+	private static final Handshake handshake = new Handshake();
+	private static final Pigeonhole pigeonhole = new Pigeonhole();
+	private static final ALG195 alg195 = new ALG195();
+	private static final NUM374 num374 = new NUM374();
+	private static final LatinSquare latin = new LatinSquare();
+	private static final MagicSeries magic = new MagicSeries();
+	
+	/**
+	 * Returns the formula of this problem, over the relations bound by {@link #bounds()}.
+	 * @return the formula of this problem
+	 */
+	public abstract Formula formula();
+	
+	/**
+	 * Returns fresh bounds for this problem.
+	 * @return fresh bounds for this problem
+	 */
+	public abstract Bounds bounds();
+	
+	/**
+	 * Adapts the given options to this problem.
+	 * @ensures options may be changed for this problem
+	 */
+	void configure(Options options) { }
+	
+	/**
+	 * Returns fresh options for translating and solving this problem.
+	 * @return the options for this problem
+	 */
+	public final Options options() {
+		final Options options = new Options();
+		configure(options);
+		return options;
+	}
+}
@@ -0,0 +1,96 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kodkod.engine.config.Options;
+import kodkod.engine.fol2sat.Translation;
+import kodkod.engine.fol2sat.Translator;
+import kodkod.engine.satlab.SATFactory;
+
+/**
+ * Benchmarks the solving of the CNF of the {@link Problem problems} by each
+ * SAT solver.  The solvers are named after the constants of {@link SATFactory};
+ * those whose native libraries are not available fail at setup.  Only the
+ * SAT4J solvers are run by default; others may be selected with, for instance,
+ * {@code -p solver=MiniSat,Glucose}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SolvingBenchmark {
+
+	@Param({"CEILINGS_AND_FLOORS", "HANDSHAKE", "PIGEONHOLE", "ALG195", "NUM374", "LATIN_SQUARE", "MAGIC_SERIES"})
+	public Problem problem;
+	
+	@Param({"DefaultSAT4J", "LightSAT4J"})
+	public String solver;
+	
+	private Options options;
+	private Translation.Whole translation;
+	
+	@Setup(Level.Trial)
+	public void setupSolver() throws ReflectiveOperationException {
+		final SATFactory factory = (SATFactory) SATFactory.class.getField(solver).get(null);
+		if (factory==null || !SATFactory.available(factory))
+			throw new IllegalStateException("Solver not available: " + solver);
+		options = problem.options();
+		options.setSolver(factory);
+	}
+	
+	/**
+	 * Translates the problem anew, since solvers are not reused.
+	 */
+	@Setup(Level.Invocation)
+	public void translate() {
+		translation = Translator.translate(problem.formula(), problem.bounds(), options);
+	}
+	
+	@TearDown(Level.Invocation)
+	public void free() {
+		translation.cnf().free();
+	}
+	
+	@Benchmark
+	public boolean solve() {
+		return translation.cnf().solve();
+	}
+}
@@ -0,0 +1,97 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kodkod.ast.Formula;
+import kodkod.engine.PardinusSolver;
+import kodkod.engine.Solution;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.examples.pardinus.temporal.RingT;
+import kodkod.instance.PardinusBounds;
+
+/**
+ * Benchmarks temporal model finding, from the expansion of the bounds into 
+ * traces to the SAT solving, over the ring leader election example.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TemporalBenchmark {
+
+	@Param({"3"})
+	public String processes;
+	
+	@Param({"GOODSAFETY", "BADLIVENESS"})
+	public String property;
+	
+	@Param({"5"})
+	public int traceLength;
+	
+	private Formula formula;
+	private PardinusBounds bounds;
+	private PardinusSolver solver;
+	
+	@Setup(Level.Invocation)
+	public void setup() {
+		final RingT model = new RingT(new String[] { processes, property, "STATIC" });
+		formula = model.partition1().and(model.partition2());
+		bounds = model.bounds1();
+		bounds.merge(model.bounds2());
+		final ExtendedOptions options = new ExtendedOptions();
+		options.setSolver(SATFactory.DefaultSAT4J);
+		options.setRunTemporal(true);
+		options.setRunDecomposed(false);
+		options.setMaxTraceLength(traceLength);
+		solver = new PardinusSolver(options);
+	}
+	
+	@TearDown(Level.Invocation)
+	public void free() {
+		solver.free();
+	}
+	
+	@Benchmark
+	public Solution solve() {
+		return solver.solve(formula, bounds);
+	}
+}
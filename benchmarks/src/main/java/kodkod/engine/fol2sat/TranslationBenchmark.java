@@ -0,0 +1,138 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.fol2sat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kodkod.ast.Formula;
+import kodkod.benchmarks.CountingSolver;
+import kodkod.benchmarks.Problem;
+import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.bool.BooleanValue;
+import kodkod.engine.config.Options;
+import kodkod.engine.satlab.SATSolver;
+import kodkod.instance.Bounds;
+import kodkod.util.nodes.AnnotatedNode;
+
+/**
+ * Benchmarks the translation of the {@link Problem problems}, as a whole and
+ * by phase: the translation of the formula into a boolean circuit, the 
+ * generation of symmetry breaking predicates, and the translation of the 
+ * circuit into CNF.  Lives in the translator's package to reach its phases.
+ * The clauses are fed to a {@link CountingSolver}, so that loading them into
+ * a SAT solver is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslationBenchmark {
+
+	@Param({"CEILINGS_AND_FLOORS", "HANDSHAKE", "PIGEONHOLE", "ALG195", "NUM374", "LATIN_SQUARE", "MAGIC_SERIES"})
+	public Problem problem;
+	
+	private Formula formula;
+	private Bounds bounds;
+	private Options options;
+	private AnnotatedNode<Formula> annotated;
+	private BooleanFormula circuit;
+	private int maxPrimaryVar;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		formula = problem.formula();
+		bounds = problem.bounds();
+		options = problem.options();
+		options.setSolver(CountingSolver.FACTORY);
+		annotated = AnnotatedNode.annotateRoots(formula);
+		final LeafInterpreter interpreter = LeafInterpreter.exact(bounds, options, false);
+		final BooleanValue value = FOL2BoolTranslator.translate(annotated, interpreter);
+		if (!(value instanceof BooleanFormula))
+			throw new IllegalStateException(problem + " translates to a constant");
+		circuit = (BooleanFormula) value;
+		maxPrimaryVar = interpreter.factory().maxVariable();
+	}
+	
+	/**
+	 * The whole translation, including bounds and formula optimizations.
+	 */
+	@Benchmark
+	public SATSolver translate() {
+		return Translator.translate(formula, bounds, options).cnf();
+	}
+	
+	/**
+	 * The translation of the formula into a boolean circuit.
+	 */
+	@Benchmark
+	public BooleanValue fol2bool() {
+		return FOL2BoolTranslator.translate(annotated, LeafInterpreter.exact(bounds, options, false));
+	}
+	
+	/**
+	 * The translation of the boolean circuit into CNF.
+	 */
+	@Benchmark
+	public SATSolver bool2cnf() {
+		return Bool2CNFTranslator.translate(circuit, maxPrimaryVar, CountingSolver.FACTORY);
+	}
+	
+	/**
+	 * The generation of symmetry breaking predicates, over a fresh factory 
+	 * so that no gates are shared with previous invocations.
+	 */
+	@Benchmark
+	public BooleanValue generateSBP(Symmetries symmetries) {
+		return symmetries.breaker.generateSBP(symmetries.interpreter, options);
+	}
+	
+	/**
+	 * The symmetries of the problem and a fresh interpreter, for each invocation.
+	 */
+	@State(Scope.Thread)
+	public static class Symmetries {
+		SymmetryBreaker breaker;
+		LeafInterpreter interpreter;
+		
+		@Setup(Level.Invocation)
+		public void setup(TranslationBenchmark benchmark) {
+			breaker = new SymmetryBreaker(benchmark.bounds, benchmark.options.reporter());
+			interpreter = LeafInterpreter.exact(benchmark.bounds, benchmark.options, false);
+		}
+	}
+}
@@ -65,6 +65,30 @@ JNIEXPORT jboolean JNICALL Java_kodkod_engine_satlab_Glucose_addClause
 	return solverPtr->okay();
 }
 
+/*
+ * Class:     kodkod_engine_satlab_Glucose
+ * Method:    addClauses
+ * Signature: (JLjava/nio/IntBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_kodkod_engine_satlab_Glucose_addClauses
+(JNIEnv * env, jobject, jlong solver, jobject clauses, jint length) {
+	jint* buf = (jint*) env->GetDirectBufferAddress(clauses);
+	Solver* solverPtr = ((Solver*)solver);
+	vec<Lit> lits;
+	jint added = 0;
+	for(int i = 0; i < length; ++i) {
+		int var = *(buf+i);
+		if (var == 0) {
+			solverPtr->addClause(lits);
+			if (solverPtr->okay()) ++added;
+			lits.clear();
+		} else {
+			lits.push((var > 0) ?  mkLit(var-1) : ~mkLit(-var-1));
+		}
+	}
+	return added;
+}
+
 /*
  * Class:     kodkod_engine_satlab_Glucose
  * Method:    solve
@@ -76,6 +100,44 @@ JNIEXPORT jboolean JNICALL Java_kodkod_engine_satlab_Glucose_solve
 	return ((Solver*)solver)->solve();
 }
 
+/*
+ * Class:     kodkod_engine_satlab_Glucose
+ * Method:    solveAssuming
+ * Signature: (J[I)Z
+ */
+JNIEXPORT jboolean JNICALL Java_kodkod_engine_satlab_Glucose_solveAssuming
+(JNIEnv * env, jobject, jlong solver, jintArray assumptions) {
+	jsize length = env->GetArrayLength(assumptions);
+	jint* buf = env->GetIntArrayElements(assumptions, JNI_FALSE);
+	vec<Lit> lits;
+	for(int i = 0; i < length; ++i) {
+		int var = *(buf+i);
+		lits.push((var > 0) ?  mkLit(var-1) : ~mkLit(-var-1));
+	}
+	env->ReleaseIntArrayElements(assumptions, buf, JNI_ABORT);
+	return ((Solver*)solver)->solve(lits);
+}
+
+/*
+ * Class:     kodkod_engine_satlab_Glucose
+ * Method:    failed
+ * Signature: (J[I)[I
+ */
+JNIEXPORT jintArray JNICALL Java_kodkod_engine_satlab_Glucose_failed
+(JNIEnv * env, jobject, jlong solver, jintArray) {
+	Solver* solverPtr = ((Solver*)solver);
+	// the final conflict holds the negations of the failed assumptions
+	int size = solverPtr->conflict.size();
+	jintArray failed = env->NewIntArray(size);
+	jint* buf = env->GetIntArrayElements(failed, JNI_FALSE);
+	for(int i = 0; i < size; ++i) {
+		Lit lit = ~(solverPtr->conflict[i]);
+		*(buf+i) = sign(lit) ? -(var(lit)+1) : var(lit)+1;
+	}
+	env->ReleaseIntArrayElements(failed, buf, 0);
+	return failed;
+}
+
 /*
  * Class:     kodkod_engine_satlab_Glucose
  * Method:    valueOf
@@ -33,11 +33,20 @@ JNIEXPORT void JNICALL Java_kodkod_engine_satlab_Lingeling_free
  */
 JNIEXPORT void JNICALL Java_kodkod_engine_satlab_Lingeling_addVariables
   (JNIEnv * env, jobject obj, jlong lgl, jint nvars) {
-	// ignore calls to addVariables since
-	// lingeling dynamically adds variables as they appear in clauses.
-	// this means we have to compensate for it in the value_of method
+	// lingeling dynamically adds variables as they appear in clauses,
+	// so we have to compensate for it in the value_of method
 	// and just return false when passed a variable that has not appeared
 	// in any clause.
+	// [HASLab] any variable may be assumed by a later call to solveAssuming,
+	// and lingeling only accepts assumptions on variables that were frozen 
+	// before they could be eliminated, so new variables are frozen (once)
+	// as they are added.  freezing a variable imports it, so the variables
+	// added so far are exactly [1..lglmaxvar].
+	LGL* lglPtr = (LGL*)lgl;
+	int first = lglmaxvar(lglPtr) + 1, var;
+	for(var = first; var < first + nvars; var++) {
+		lglfreeze (lglPtr, var);
+	}
 }
 
 /*
@@ -62,6 +71,25 @@ JNIEXPORT jboolean JNICALL Java_kodkod_engine_satlab_Lingeling_addClause
 	return JNI_TRUE;
 }
 
+/*
+ * Class:     kodkod_engine_satlab_Lingeling
+ * Method:    addClauses
+ * Signature: (JLjava/nio/IntBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_kodkod_engine_satlab_Lingeling_addClauses
+  (JNIEnv * env, jobject obj, jlong lgl, jobject clauses, jint length) {
+	jint* buf = (jint*) (*env)->GetDirectBufferAddress(env, clauses);
+	LGL* lglPtr = (LGL*)lgl;
+	jint added = 0;
+	int i;
+	for(i = 0; i < length; i++) {
+		int lit = *(buf+i);
+		lgladd (lglPtr, lit);
+		if (lit == 0) added++;
+	}
+	return added;
+}
+
 /*
  * Class:     kodkod_engine_satlab_Lingeling
  * Method:    solve
@@ -73,6 +101,49 @@ JNIEXPORT jboolean JNICALL Java_kodkod_engine_satlab_Lingeling_solve
 	return lglsat(lglPtr)==10;
 }
 
+/*
+ * Class:     kodkod_engine_satlab_Lingeling
+ * Method:    solveAssuming
+ * Signature: (J[I)Z
+ */
+JNIEXPORT jboolean JNICALL Java_kodkod_engine_satlab_Lingeling_solveAssuming
+  (JNIEnv * env, jobject obj, jlong lgl, jintArray assumptions) {
+	jsize length = (*env)->GetArrayLength(env, assumptions);
+	jint* buf = (*env)->GetIntArrayElements(env, assumptions, JNI_FALSE);
+	LGL* lglPtr = (LGL*)lgl;
+	int i;
+	for(i = 0; i < length; i++) {
+		// [HASLab] assumed variables were frozen by addVariables
+		lglassume (lglPtr, *(buf+i));
+	}
+	(*env)->ReleaseIntArrayElements(env, assumptions, buf, JNI_ABORT);
+	return lglsat(lglPtr)==10;
+}
+
+/*
+ * Class:     kodkod_engine_satlab_Lingeling
+ * Method:    failed
+ * Signature: (J[I)[I
+ */
+JNIEXPORT jintArray JNICALL Java_kodkod_engine_satlab_Lingeling_failed
+  (JNIEnv * env, jobject obj, jlong lgl, jintArray assumptions) {
+	jsize length = (*env)->GetArrayLength(env, assumptions);
+	jint* buf = (*env)->GetIntArrayElements(env, assumptions, JNI_FALSE);
+	jint* lits = (jint*) malloc(length * sizeof(jint));
+	LGL* lglPtr = (LGL*)lgl;
+	jint size = 0;
+	int i;
+	for(i = 0; i < length; i++) {
+		if (lglfailed (lglPtr, *(buf+i))) 
+			*(lits+(size++)) = *(buf+i);
+	}
+	(*env)->ReleaseIntArrayElements(env, assumptions, buf, JNI_ABORT);
+	jintArray failed = (*env)->NewIntArray(env, size);
+	(*env)->SetIntArrayRegion(env, failed, 0, size, lits);
+	free(lits);
+	return failed;
+}
+
 /*
  * Class:     kodkod_engine_satlab_Lingeling
  * Method:    valueOf
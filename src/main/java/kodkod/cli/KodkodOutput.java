@@ -46,4 +46,12 @@ public interface KodkodOutput {
 	void writeInfo(String info);
 	void writeAck(String id);
 
+	/**
+	 * Outputs the value of an evaluated expression of the given kind
+	 * ({@code expression}, {@code int-expression} or {@code formula}), or
+	 * that there was no instance to evaluate against if {@code value} is null.
+	 */
+	// [HASLab]
+	void writeEvaluation(String kind, String value);
+
  }
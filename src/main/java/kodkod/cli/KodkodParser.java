@@ -107,6 +107,18 @@ public class KodkodParser extends BaseParser<Object> {
 	 * All KodkodProblems created by this parser instance will have a specific type
 	 */
 	final KodkodServer.Feature type;
+	/**
+	 * Whether this parser serves one session of a multi-session server, in which
+	 * case exiting ends the session rather than the JVM; and whether it has ended
+	 */
+	// [HASLab]
+	boolean session = false, ended = false;
+	/**
+	 * Whether enumerated tuple sets are parsed by the hand-written
+	 * {@link TupleSetMatcher} rather than by {@link #TupleSetEnum()}
+	 */
+	// [HASLab]
+	boolean fastTuples = false;
 
 
 	/**
@@ -136,6 +148,18 @@ public class KodkodParser extends BaseParser<Object> {
 		info("parser created for type: "+type);
 	}
 
+	/**
+	 * Sets whether enumerated tuple sets are parsed by a hand-written scanner,
+	 * which is faster on large bounds, rather than by the grammar rules. Both
+	 * produce the same tuple sets and report the same errors.
+	 *
+	 * @ensures this.fastTuples' = fastTuples
+	 */
+	// [HASLab]
+	public void setFastTuples(boolean fastTuples) {
+		this.fastTuples = fastTuples;
+	}
+
 	/**
 	 * Returns the {@link KodkodProblem} (to be) populated by this parser.
 	 *
@@ -145,16 +169,31 @@ public class KodkodParser extends BaseParser<Object> {
 		return currentProblem;
 	}
 
+	/**
+	 * Returns the {@link KodkodProblem} with the given id, if any.
+	 *
+	 * @return this.problems[id]
+	 */
+	// [HASLab]
+	public KodkodProblem problem(String id) {
+		return problems.get(id);
+	}
+
 	/**
 	 * Sets {@code this.problem} to the given problem and returns true. Setting the
 	 * problem to <code>null</code> causes this method to terminate the current JVM
 	 * instance with a 0 exit code. So basically, when a solve() returns null,
-	 * that's our cue to end the process.
+	 * that's our cue to end the process. If this parser serves a session, only the
+	 * session is ended.
 	 *
 	 * @return true
 	 * @ensures this.problem' = problem
 	 */
 	public boolean setProblem(KodkodProblem problem) {
+		if (problem == null && session) { // [HASLab]
+			ended = true;
+			return true;
+		}
 		if (problem == null)
 			System.exit(0);
 		this.currentProblem = problem;            // update current problem context
@@ -440,7 +479,18 @@ public class KodkodParser extends BaseParser<Object> {
 	Rule TupleSet() {
 		return FirstOf(Sequence(Use('r'), push(valueOf(popRelation(), currentProblem.allBounds()))),
 				Sequence(Use('x'), push(valueOf(popRelation(), currentProblem.allBounds()))),
-				Sequence(ExprLiteral(), push(valueOf(popExpr(), currentProblem.allBounds()))), TupleSetEnum(), TupleSetExpr());
+				Sequence(ExprLiteral(), push(valueOf(popExpr(), currentProblem.allBounds()))),
+				FastTupleSetEnum(), TupleSetEnum(), TupleSetExpr()); // [HASLab]
+	}
+
+	/**
+	 * Matches what {@link #TupleSetEnum()} does, without the grammar overhead, if
+	 * {@link #fastTuples} is set; otherwise never matches.
+	 * @return LWING Tuple* RWING
+	 */
+	// [HASLab]
+	Rule FastTupleSetEnum() {
+		return new TupleSetMatcher(this);
 	}
 
 	/**
@@ -557,9 +607,9 @@ public class KodkodParser extends BaseParser<Object> {
 	 */
 	Rule Evaluate() {
 		return Sequence(LPAR, EVALUATE, FirstOf(
-				Sequence(Use('e'), currentProblem.evaluate(popExpr())),
-				Sequence(Use('i'), currentProblem.evaluate(popIntExpr())),
-				Sequence(Use('f'), currentProblem.evaluate(popFormula()))),
+				Sequence(Use('e'), currentProblem.evaluate(popExpr(), out)),
+				Sequence(Use('i'), currentProblem.evaluate(popIntExpr(), out)),
+				Sequence(Use('f'), currentProblem.evaluate(popFormula(), out))),
 				RPAR);
 	}
 
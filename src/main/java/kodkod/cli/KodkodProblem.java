@@ -771,21 +771,21 @@ public abstract class KodkodProblem {
 	/**
 	 *
 	 */
-	boolean evaluate(kodkod.ast.Expression expression) {
+	boolean evaluate(kodkod.ast.Expression expression, KodkodOutput out) {
 		throw new ActionException("Can only evaluate for stepper problems.");
 	}
 
 	/**
 	 *
 	 */
-	boolean evaluate(kodkod.ast.IntExpression expression) {
+	boolean evaluate(kodkod.ast.IntExpression expression, KodkodOutput out) {
 		throw new ActionException("Can only evaluate for stepper problems.");
 	}
 
 	/**
 	 *
 	 */
-	boolean evaluate(Formula formula) {
+	boolean evaluate(Formula formula, KodkodOutput out) {
 		throw new ActionException("Can only evaluate for stepper problems.");
 	}
 
@@ -877,6 +877,8 @@ public abstract class KodkodProblem {
 
 		// Used to print new solutions from the first solved model.
 		private Explorer<Solution> solutions;
+		// Whether the solutions are shared through the translation cache, which then owns the solver.
+		private boolean cached = false;
 
 		Stepper(String id) {
 			// Do not create the solver yet. Options have yet to be set!
@@ -923,7 +925,9 @@ public abstract class KodkodProblem {
 		}
 
 		public KodkodProblem clear(KodkodOutput out) {
-			if (solver != null)
+			if (solutions != null)
+				solutions.free();
+			if (solver != null && !cached)
 				solver.free();
 			out.writeInfo("closing solver state for <"+this.id+">");
 			return new Stepper(this.id);
@@ -931,11 +935,6 @@ public abstract class KodkodProblem {
 
 		public KodkodProblem solve(KodkodOutput out, String params) {
 			//out.writeInfo("stepper solving; hash="+this.hashCode()+"; solved="+isSolved());
-			if(this.solver == null) {
-				// Create solver only when needed; at this point all options should be set.
-				this.solver = new PardinusSolver(super.options);
-				//out.writeInfo("stepper solver created");
-			}
 
 			//System.err.println("solver is pardinus: "+solver.solver.getClass());
 			if (isSolved()) {
@@ -1008,12 +1007,23 @@ public abstract class KodkodProblem {
 			} // end if is solved
 
 			try {
-				// In case the solver is not incremental, but Stepper is being used
-				//   (e.g. for Temporal or Target-oriented mode), mock enumeration.
-				if(options.solver().incremental()) {
-					this.solutions = solver.solveAll(asserts(), bounds());
+				final TranslationCache cache = KodkodServer.translationCache;
+				if (cache != null && isCacheable()) {
+					// Reuse the translation of a problem with the same fingerprint, if any
+					final String key = TranslationCache.fingerprint(asserts(), bounds(), options);
+					final TranslationCache.Run hit = cache.get(key);
+					TranslationCache.Cursor cursor = hit == null ? null : hit.cursor(env());
+					if (cursor == null) {
+						final TranslationCache.Run run = new TranslationCache.Run(env(), explore());
+						cursor = run.cursor(env());
+						this.cached = cache.put(key, run);
+					} else {
+						out.writeInfo("stepper solving: reusing cached translation for <"+this.id+">");
+						this.cached = true;
+					}
+					this.solutions = cursor;
 				} else {
-					this.solutions = new OneSolutionIterator(solver.solve(asserts(), bounds()));
+					this.solutions = explore();
 				}
 				this.issolved = true;
 				out.writeInfo("stepper solving: initial solve call with params: "+params+" finished.");
@@ -1023,10 +1033,38 @@ public abstract class KodkodProblem {
 			}
 		}
 
-		public boolean evaluate(kodkod.ast.Expression expression) {
+		/**
+		 * Creates the solver and returns an explorer over the solutions of this
+		 * problem.
+		 */
+		private Explorer<Solution> explore() {
+			if(this.solver == null) {
+				// Create solver only when needed; at this point all options should be set.
+				this.solver = new PardinusSolver(super.options);
+				//out.writeInfo("stepper solver created");
+			}
+			// In case the solver is not incremental, but Stepper is being used
+			//   (e.g. for Temporal or Target-oriented mode), mock enumeration.
+			if(options.solver().incremental()) {
+				return solver.solveAll(asserts(), bounds());
+			} else {
+				return new OneSolutionIterator(solver.solve(asserts(), bounds()));
+			}
+		}
+
+		/**
+		 * Whether the solutions of this problem may be shared through the
+		 * translation cache. Temporal and target-oriented exploration is not
+		 * replayable, and unsat cores refer to the formulas of the original problem.
+		 */
+		private boolean isCacheable() {
+			return !isTemporal() && !isTargetOriented() && options.logTranslation() == 0;
+		}
+
+		public boolean evaluate(kodkod.ast.Expression expression, KodkodOutput out) {
 			//Logger.getGlobal().severe("Evaluating " + expression);
 			if(evaluator == null) {
-				System.out.println("(unsat)");
+				out.writeEvaluation(null, null);
 				return true;
 			}
 
@@ -1067,26 +1105,26 @@ public abstract class KodkodProblem {
 				str.append(")");
 			}
 			str.append("}");
-			System.out.println("(evaluated :expression " + str + ")");
+			out.writeEvaluation("expression", str.toString());
 
 			return true;
 		}
 
-		public boolean evaluate(kodkod.ast.IntExpression expression) {
+		public boolean evaluate(kodkod.ast.IntExpression expression, KodkodOutput out) {
 			if(evaluator == null) {
-				System.out.println("(unsat)");
+				out.writeEvaluation(null, null);
 				return true;
 			}
-			System.out.println("(evaluated :int-expression " + evaluator.evaluate(expression) + ")");
+			out.writeEvaluation("int-expression", String.valueOf(evaluator.evaluate(expression)));
 			return true;
 		}
 
-		public boolean evaluate(Formula formula) {
+		public boolean evaluate(Formula formula, KodkodOutput out) {
 			if(evaluator == null) {
-				System.out.println("(unsat)");
+				out.writeEvaluation(null, null);
 				return true;
 			}
-			System.out.println("(evaluated :formula " + evaluator.evaluate(formula) + ")");
+			out.writeEvaluation("formula", String.valueOf(evaluator.evaluate(formula)));
 			return true;
 		}
 
@@ -21,12 +21,12 @@
  */
 package kodkod.cli;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -47,14 +47,6 @@ import org.parboiled.parserunners.ErrorLocatingParseRunner;
 import org.parboiled.support.Chars;
 import org.parboiled.support.ParsingResult;
 
-import java.util.Iterator;
-import kodkod.engine.Solution;
-
-
-import kodkod.ast.Relation;
-
-import kodkod.ast.Formula;
-
 /**
  * Provides a server interface to Kodkod.  A {@link KodkodServer} can be used
  *  either in batch or online mode.  In batch more, a set of problem
@@ -90,6 +82,11 @@ import kodkod.ast.Formula;
  * specifications.  This mode is more efficient, supports minimal core extraction, and should
  * be used when incremental solving is not needed by client code.</p>
  *
+ * <p>In online mode, the server can also multiplex independent problem sessions onto a pool of
+ * threads, so that a single JVM serves many clients.  In that case, each batch of problems must
+ * start with a {@code (session id)} header, and the output of each batch is tagged with the id of
+ * its session.  See {@link KodkodSessions} for details.</p>
+ *
  * @specfield problem: {@link KodkodProblem} // the problem being processed
  *
  * @author Emina Torlak
@@ -113,11 +110,15 @@ public final class KodkodServer {
 	private final boolean fastParsing;
 	private final String errorOut;
 	private final KodkodParser parser;
+	// [HASLab] the kind of parser created for each session
+	private final Feature parserType;
+
+	/** Default limits of the translation cache. */
+	static final int CACHE_ENTRIES = 8;
+	static final long CACHE_CLAUSES = 10000000;
 
-	public static Iterator<Solution> lastModel;
-	public static Defs<Relation> lastRDefs;
-	public static Defs<Formula> lastFDefs;
-	public static boolean lastModelAvailable = false;
+	/** Translations shared by the problems served, or null if caching is disabled. */
+	static TranslationCache translationCache = new TranslationCache(CACHE_ENTRIES, CACHE_CLAUSES);
 
 
 	/**
@@ -126,7 +127,7 @@ public final class KodkodServer {
 	 * the server will execute in incremental mode; otherwise it will run in standard
 	 * mode. If the {@code fastParsing} flag is on, the server will use a fast
 	 * parser that will not output any information about parsing errors, except that
-	 * they occurred. With the flag off, the solver will use a slower parser that will
+	 * they occurred, and that scans enumerated tuple sets by hand. With the flag off, the solver will use a slower parser that will
 	 * report detailed parsing errors. The {@code errorOut} parameter, if not false, specifies the name of
 	 * the file to which to dump error-causing input, if any, before exiting.
 	 */
@@ -150,15 +151,16 @@ public final class KodkodServer {
 		}
 
 		if (features.contains(Feature.TARGET_ORIENTED)) {
-			this.parser = Parboiled.createParser(KodkodParser.class, Feature.TARGET_ORIENTED, out);
+			this.parserType = Feature.TARGET_ORIENTED;
 		} else if (features.contains(Feature.TEMPORAL)) {
-			this.parser = Parboiled.createParser(KodkodParser.class, Feature.TEMPORAL, out);
+			this.parserType = Feature.TEMPORAL;
 		} else if (Mode.STEPPER.equals(mode)){
-			this.parser = Parboiled.createParser(KodkodParser.class, Feature.PLAIN_STEPPER, out);
+			this.parserType = Feature.PLAIN_STEPPER;
 		} else {
 			throw new UnsupportedOperationException("non stepper/target-oriented/temporal problems not supported");
 		}
 		this.fastParsing = fastParsing;
+		this.parser = parser(out);
 		this.errorOut = errorOut;
 	}
 
@@ -168,7 +170,7 @@ public final class KodkodServer {
 	 * the server will execute in incremental mode; otherwise it will run in standard
 	 * mode. If the {@code fastParsing} flag is on, the server will use a fast
 	 * parser that will not output any information about parsing errors, except that
-	 * they occurred. With the flag off, the solver will use a slower parser that will
+	 * they occurred, and that scans enumerated tuple sets by hand. With the flag off, the solver will use a slower parser that will
 	 * report detailed parsing errors.  The {@code errorOut} parameter, if not false, specifies the name of
 	 * the file to which to dump error-causing input, if any, before exiting.
 	 */
@@ -177,11 +179,31 @@ public final class KodkodServer {
 		this(mode, features, fastParsing, new StandardKodkodOutput(), errorOut);
 	}
 
+	/**
+	 * Creates a new parser of the kind served by this server, writing to the given output.
+	 */
+	// [HASLab]
+	KodkodParser parser(KodkodOutput out) {
+		final KodkodParser parser = Parboiled.createParser(KodkodParser.class, parserType, out);
+		parser.setFastTuples(fastParsing);
+		return parser;
+	}
+
 	/**
 	 * Parses and executes an EOI-terminated block. The block should contain only one EOI.
 	 *
 	 */
 	public void serve(String block) {
+		if (!parse(parser, block))
+			System.exit(1);
+	}
+
+	/**
+	 * Parses and executes an EOI-terminated block with the given parser, logging
+	 * any parsing errors. Returns whether the block was parsed successfully.
+	 */
+	// [HASLab] sessions do not terminate the server on errors
+	boolean parse(KodkodParser parser, String block) {
 		//final KodkodProblem problem = parser.currentProblem;
 		final Rule rule;
 
@@ -245,8 +267,9 @@ public final class KodkodServer {
 					Logger.getGlobal().severe(Arrays.toString(e.getStackTrace()));
 				}
 			}
-			System.exit(1);
+			return false;
 		}
+		return true;
 	}
 
 	/**
@@ -255,6 +278,8 @@ public final class KodkodServer {
 	public void serve(File file) {
 		try(FileReader fr = new FileReader(file)) {
 			String toParse = read(fr);
+			if (toParse == null)
+				System.exit(0);
 			String[] toParseSplit = toParse.split(String.valueOf(Chars.EOI));
 			for(String p : toParseSplit) {
 				serve(p);
@@ -273,6 +298,8 @@ public final class KodkodServer {
 		try(InputStreamReader ir = new InputStreamReader(System.in, StandardCharsets.UTF_8)) {
 			while(true) {
 				String toParse = read(ir); // read will return a string that _ends_ with EOI
+				if (toParse == null)
+					System.exit(0);
 				String[] toParseSplit = toParse.split(String.valueOf(Chars.EOI));
 				for(String p : toParseSplit) {
 					serve(p);
@@ -286,22 +313,64 @@ public final class KodkodServer {
 		}
 	}
 
+	/**
+	 * Parses and executes blocks received from the {@link System#in standard input}
+	 * stream, each belonging to the session identified by its header, using the given
+	 * number of threads. Exits once the end of the stream is reached and all received
+	 * blocks have been processed.
+	 * @see KodkodSessions
+	 */
+	// [HASLab]
+	public void serveSessions(int threads) {
+		try(InputStreamReader ir = new InputStreamReader(System.in, StandardCharsets.UTF_8)) {
+			serveSessions(ir, System.out, threads);
+			System.exit(0);
+		} catch (IOException e) {
+			Logger.getGlobal().severe(e.getMessage());
+			Logger.getGlobal().severe(Arrays.toString(e.getStackTrace()));
+			System.exit(2);
+		} catch (InterruptedException e) {
+			Logger.getGlobal().severe(e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Parses and executes blocks received from the given reader, each belonging to
+	 * the session identified by its header, using the given number of threads, and
+	 * writes their output to the given stream. Returns once the end of the input is
+	 * reached and all received blocks have been processed.
+	 * @see KodkodSessions
+	 */
+	// [HASLab]
+	public void serveSessions(Reader in, PrintStream out, int threads) throws IOException, InterruptedException {
+		final KodkodSessions sessions = new KodkodSessions(this, threads, out);
+		String toParse;
+		while((toParse = read(in)) != null) {
+			for(String p : toParse.split(String.valueOf(Chars.EOI))) {
+				sessions.dispatch(p);
+			}
+		}
+		sessions.shutdown();
+	}
+
 	/**
 	 * Returns an input buffer with the data from the given reader.
 	 * This method reads data from the reader into an intermediate
 	 * character buffer until the reader returns -1 or until the
 	 * last character read on a given read attempt is {@link Chars#EOI},
 	 * whichever comes first.
-	 * @return a String containing the result of reading from the reader to this point
+	 * @return a String containing the result of reading from the reader to this point,
+	 * or null if the end of the stream was reached without reading any data
 	 */
 	private String read(Reader r) throws IOException {
 		final char[] buf = new char[1024];
-		BufferedReader br = new BufferedReader(r);
 		final StringBuilder str = new StringBuilder();
 		int len;
-		// br.read will not stop at EOI; it may trigger _before_ EOI, and it may keep reading past
-		// it. Thus, this call to br.read() may extract multiple command sequences at once.
-		while((len=br.read(buf))>0) {
+		// r.read will not stop at EOI; it may trigger _before_ EOI, and it may keep reading past
+		// it. Thus, this call to r.read() may extract multiple command sequences at once.  the
+		// reader is not wrapped in a fresh buffered reader, whose read-ahead would be lost between calls.
+		while((len=r.read(buf))>0) {
 			str.append(buf, 0, len);
 			if (buf[len-1]==Chars.EOI)
 				break;
@@ -310,9 +379,9 @@ public final class KodkodServer {
 		// if we've reached the end of the stream without reading any data, we
 		// were either given an empty problem file or the standard input
 		// stream to this process has been closed externally.  in either case,
-		// we just exit normally.
+		// the caller just exits normally.
 		if (len<0 && str.length()==0) {
-			System.exit(0);
+			return null;
 		}
 
 		//final char[] tmp = new char[str.length()];
@@ -336,11 +405,21 @@ public final class KodkodServer {
 						"  -help                 Show usage and exit\n" +
 						"  -version              Show version number and exit\n" +
 						"  -incremental          Run the solver in incremental model\n" +
-						"  -fast-parsing         Use a fast parser with no error localizing\n" +
-						"  -error-out <filename> Write failure causing input to the specified file before exiting\n");
+						"  -fast-parsing         Use a fast parser with no error localizing and hand-scanned tuple sets\n" +
+						"  -error-out <filename> Write failure causing input to the specified file before exiting\n" +
+						"  -sessions <n>         Serve independent (session id) blocks with n threads\n" +
+						"  -cache <n>            Cache the translations of the last n problems (default " + CACHE_ENTRIES + ", 0 disables)\n" +
+						"  -cache-clauses <n>    Evict cached translations beyond n clauses in total (default " + CACHE_CLAUSES + ")\n");
 		System.exit(code);
 	}
 
+	/** Returns a translation cache with the given limits, or null if disabled. */
+	private static TranslationCache cache(int entries, long clauses) {
+		if (entries < 0 || clauses < 1)
+			usage(1);
+		return entries == 0 ? null : new TranslationCache(entries, clauses);
+	}
+
 	/**
 	 * Creates and executes an instance of KodkodServer.  Run
 	 * {@code java kodkod.cli.KodkodServer -help} for usage options.
@@ -350,6 +429,9 @@ public final class KodkodServer {
 				stepper = false, targetOriented = false,
 				temporal = false;
 		String errorOut = null;
+		int sessions = 0;
+		int cacheEntries = CACHE_ENTRIES;
+		long cacheClauses = CACHE_CLAUSES;
 
 		// Parse options until we reach an unrecognized option, which must be a filename.
 		for(int i = 0, len = args.length; i < len; i++) {
@@ -370,8 +452,37 @@ public final class KodkodServer {
 					usage(1);
 				}
 				break;
+			case "-sessions"    :
+				if (++i < len) {
+					try {
+						sessions = Integer.parseInt(args[i]);
+					} catch (NumberFormatException e) {
+						usage(1);
+					}
+					if (sessions < 1)
+						usage(1);
+				} else {
+					usage(1);
+				}
+				break;
+			case "-cache"       :
+			case "-cache-clauses" :
+				if (++i < len) {
+					try {
+						if (args[i-1].equals("-cache"))
+							cacheEntries = Integer.parseInt(args[i]);
+						else
+							cacheClauses = Long.parseLong(args[i]);
+					} catch (NumberFormatException e) {
+						usage(1);
+					}
+				} else {
+					usage(1);
+				}
+				break;
 			case ""             : break;
 			default :
+				translationCache = cache(cacheEntries, cacheClauses);
 				if (i+1 < len) {
 					usage(1);
 				} else {
@@ -386,6 +497,7 @@ public final class KodkodServer {
 			System.err.println("Incremental and stepper modes are mutually exclusive.");
 			System.exit(1);
 		}
+		translationCache = cache(cacheEntries, cacheClauses);
 		Mode mode = incremental ? Mode.INCREMENTAL :
 				(stepper ? Mode.STEPPER : Mode.COMPLETE);
 		Set<Feature> features = new HashSet<>();
@@ -393,7 +505,10 @@ public final class KodkodServer {
 		if(targetOriented) features.add(Feature.TARGET_ORIENTED);
 
 		KodkodServer server = new KodkodServer(mode, features, fastParsing, errorOut);
-		server.serve();
+		if (sessions > 0)
+			server.serveSessions(sessions);
+		else
+			server.serve();
 	}
 }
 
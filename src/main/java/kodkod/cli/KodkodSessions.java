@@ -0,0 +1,252 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Multiplexes independent problem sessions onto a fixed pool of threads within
+ * a single {@link KodkodServer}. Each EOI-terminated block received by the
+ * server must start with a {@code (session id)} header, and is parsed by the
+ * {@link KodkodParser parser} of that session, which is created on first use
+ * and holds all the state of the session. The header may instead be
+ * {@code (session id :cancel)}, which drops the pending blocks of the session
+ * and discards the output of the running one, or {@code (session id :close)},
+ * which also ends the session. A session also ends when it receives the
+ * {@code (exit)} command or its input fails to parse.
+ *
+ * <p>
+ * The blocks of a session are processed in order, one at a time. Sessions are
+ * scheduled fairly: a session with pending blocks is re-queued behind the other
+ * sessions after each block. The output of each block is written atomically to
+ * the server's output as {@code (session id output*)}, and the end of a session
+ * is signalled by {@code (session-closed id)}. The translation cache of the
+ * server is shared by all sessions.
+ * </p>
+ */
+final class KodkodSessions {
+
+	private static final Pattern HEADER = Pattern.compile("\\s*\\(session\\s+([^\\s()]+)(?:\\s+:(cancel|close))?\\s*\\)");
+
+	private final KodkodServer server;
+	private final PrintStream out;
+	private final ExecutorService pool;
+	private final Map<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+	/** Number of sessions with blocks queued or running. */
+	private int busy = 0;
+
+	/**
+	 * Creates a multiplexer of the sessions of the given server, with the given
+	 * number of threads, writing the output of all sessions to the given stream.
+	 */
+	KodkodSessions(KodkodServer server, int threads, PrintStream out) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads < 1: " + threads);
+		this.server = server;
+		this.out = out;
+		this.pool = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Dispatches the given block to the session identified by its header. Blocks
+	 * without a valid header are logged and ignored.
+	 */
+	void dispatch(String block) {
+		final Matcher m = HEADER.matcher(block);
+		if (!m.lookingAt()) {
+			if (!block.trim().isEmpty())
+				Logger.getGlobal().severe("Missing session header in block: " + block);
+			return;
+		}
+		final String id = m.group(1);
+		if (m.group(2) != null) {
+			final Session s = sessions.get(id);
+			if (s != null) {
+				s.cancel();
+				if (m.group(2).equals("close"))
+					s.end();
+			}
+			return;
+		}
+		final String rest = block.substring(m.end());
+		Session s = sessions.get(id);
+		if (s == null || !s.submit(rest)) {
+			s = new Session(id);
+			sessions.put(id, s);
+			s.submit(rest);
+		}
+	}
+
+	/**
+	 * Returns the number of open sessions.
+	 */
+	int size() {
+		return sessions.size();
+	}
+
+	/**
+	 * Waits until all blocks dispatched so far have been processed and releases
+	 * the thread pool.
+	 */
+	void shutdown() throws InterruptedException {
+		synchronized (this) {
+			while (busy > 0)
+				wait();
+		}
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void scheduled(boolean more) {
+		busy += more ? 1 : -1;
+		if (busy == 0)
+			notifyAll();
+	}
+
+	/**
+	 * Writes the given s-expression to the output, atomically with respect to
+	 * other sessions.
+	 */
+	private void write(String sexpr) {
+		synchronized (out) {
+			out.println(sexpr);
+			out.flush();
+		}
+	}
+
+	/**
+	 * A problem session, with its own parser and output buffer.
+	 */
+	private final class Session implements Runnable {
+		private final String id;
+		private final KodkodParser parser;
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private final Deque<String> pending = new ArrayDeque<String>();
+		private boolean scheduled = false, ended = false, running = false, discard = false;
+
+		Session(String id) {
+			this.id = id;
+			PrintStream stream;
+			try {
+				stream = new PrintStream(buffer, true, StandardCharsets.UTF_8.name());
+			} catch (UnsupportedEncodingException e) {
+				throw new AssertionError(e); // UTF-8 is always supported
+			}
+			this.parser = server.parser(new StandardKodkodOutput(Logger.getGlobal(), stream));
+			this.parser.session = true;
+		}
+
+		/**
+		 * Queues the given block, scheduling this session if idle. Returns false
+		 * if the session has already ended.
+		 */
+		synchronized boolean submit(String block) {
+			if (ended)
+				return false;
+			pending.add(block);
+			if (!scheduled) {
+				scheduled = true;
+				scheduled(true);
+				pool.execute(this);
+			}
+			return true;
+		}
+
+		/**
+		 * Drops the pending blocks and discards the output of the running one.
+		 * The running block is not interrupted, since solvers do not respond to
+		 * interrupts and an aborted block would leave the parser in the middle of
+		 * a problem; it runs to completion, so the session stays usable.
+		 */
+		synchronized void cancel() {
+			pending.clear();
+			if (running)
+				discard = true;
+		}
+
+		/**
+		 * Ends this session, so that its id may be reused by a new session.
+		 */
+		synchronized void end() {
+			if (!ended) {
+				ended = true;
+				pending.clear();
+				sessions.remove(id, this);
+				write("(session-closed " + id + ")");
+			}
+		}
+
+		/**
+		 * Processes the next pending block and re-queues this session behind the
+		 * others if there are more.
+		 */
+		public void run() {
+			final String block;
+			synchronized (this) {
+				block = pending.poll();
+				if (block == null) {
+					scheduled = false;
+					scheduled(false);
+					return;
+				}
+				running = true;
+				discard = false;
+			}
+			boolean ok;
+			try {
+				ok = server.parse(parser, block);
+			} catch (RuntimeException e) {
+				Logger.getGlobal().severe("Session " + id + " failed: " + e);
+				ok = false;
+			}
+			final String output = new String(buffer.toByteArray(), StandardCharsets.UTF_8).trim();
+			buffer.reset();
+			synchronized (this) {
+				running = false;
+				if (!discard)
+					write(output.isEmpty() ? "(session " + id + ")" : "(session " + id + "\n" + output + ")");
+				if (!ok || parser.ended)
+					end();
+				if (pending.isEmpty()) {
+					scheduled = false;
+					scheduled(false);
+				} else {
+					pool.execute(this);
+				}
+			}
+		}
+	}
+}
@@ -21,6 +21,7 @@
  */
 package kodkod.cli;
 
+import java.io.PrintStream;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.logging.Logger;
@@ -66,12 +67,32 @@ import kodkod.instance.TupleSet;
  */
 public final class StandardKodkodOutput implements KodkodOutput {
 	private final Logger logger;
+	// [HASLab] null if writing to the current standard output
+	private final PrintStream stream;
 
 	/**
 	 * Creates an instance of {@link StandardKodkodOutput}.
 	 * @ensures this.logger' = logger
 	 */
-	StandardKodkodOutput(Logger logger) {  this.logger = logger; }
+	StandardKodkodOutput(Logger logger) {  this(logger, null); }
+
+	/**
+	 * Creates an instance of {@link StandardKodkodOutput} that writes to the given
+	 * stream rather than to standard output.
+	 * @ensures this.logger' = logger
+	 */
+	// [HASLab]
+	StandardKodkodOutput(Logger logger, PrintStream stream) {
+		this.logger = logger;
+		this.stream = stream;
+	}
+
+	/**
+	 * Returns the stream to which s-expressions are written, which is
+	 * {@link System#out} at the time of writing unless a stream was given.
+	 */
+	// [HASLab]
+	private PrintStream out() { return stream == null ? System.out : stream; }
 
 	/**
 	 * Creates an instance of {@link StandardKodkodOutput} that will use the
@@ -136,11 +157,11 @@ public final class StandardKodkodOutput implements KodkodOutput {
 			}
 			str.append(")"); // end of metadata
 			str.append(")"); // end of sat
-			System.out.println(str);
+			out().println(str);
 		}
 		else {
 			// Was originally sat, but there are no more instances left.
-			System.out.println("(no-more-instances :name "+problem.id+")");
+			out().println("(no-more-instances :name "+problem.id+")");
 		}
 	}
 
@@ -241,7 +262,7 @@ public final class StandardKodkodOutput implements KodkodOutput {
 		writeStats(problem, sol, str);
 
 		str.append(")");
-        System.out.println(str.toString());
+        out().println(str.toString());
     }
 
 	String buildPathToTop(KodkodProblem problem, StringDefs<Formula> defs, Node f) {
@@ -333,7 +354,7 @@ public final class StandardKodkodOutput implements KodkodOutput {
 	 * ignored by the caller, except for info/debugging purposes.
 	 */
 	public void writeInfo(String info) {
-		System.out.println(
+		out().println(
 						"(info \""+
 							info.replaceAll("[()]", "")
 									.replaceAll("\"", "'")+
@@ -345,7 +366,16 @@ public final class StandardKodkodOutput implements KodkodOutput {
 	 * The caller may wait to send (solve), etc. commands until receiving this.
 	 */
 	public void writeAck(String id) {
-		System.out.println("(ack "+id+")");
+		out().println("(ack "+id+")");
+	}
+
+	/**
+	 * Writes the result of an evaluation, or {@code (unsat)} if there was no
+	 * instance to evaluate against.
+	 */
+	// [HASLab]
+	public void writeEvaluation(String kind, String value) {
+		out().println(value == null ? "(unsat)" : "(evaluated :"+kind+" "+value+")");
 	}
 
 	/**
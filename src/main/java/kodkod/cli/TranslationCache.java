@@ -0,0 +1,693 @@
+/*
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.cli;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+import kodkod.ast.BinaryExpression;
+import kodkod.ast.BinaryFormula;
+import kodkod.ast.BinaryIntExpression;
+import kodkod.ast.BinaryTempFormula;
+import kodkod.ast.ComparisonFormula;
+import kodkod.ast.ConstantExpression;
+import kodkod.ast.ConstantFormula;
+import kodkod.ast.Decl;
+import kodkod.ast.Decls;
+import kodkod.ast.ExprToIntCast;
+import kodkod.ast.Formula;
+import kodkod.ast.IntComparisonFormula;
+import kodkod.ast.IntConstant;
+import kodkod.ast.IntToExprCast;
+import kodkod.ast.MultiplicityFormula;
+import kodkod.ast.NaryExpression;
+import kodkod.ast.NaryFormula;
+import kodkod.ast.NaryIntExpression;
+import kodkod.ast.Node;
+import kodkod.ast.ProjectExpression;
+import kodkod.ast.QuantifiedFormula;
+import kodkod.ast.Relation;
+import kodkod.ast.RelationPredicate;
+import kodkod.ast.TempExpression;
+import kodkod.ast.UnaryExpression;
+import kodkod.ast.UnaryIntExpression;
+import kodkod.ast.UnaryTempFormula;
+import kodkod.ast.Variable;
+import kodkod.ast.visitor.AbstractVoidVisitor;
+import kodkod.engine.Explorer;
+import kodkod.engine.Solution;
+import kodkod.engine.config.Options;
+import kodkod.instance.Bounds;
+import kodkod.instance.Instance;
+import kodkod.instance.Tuple;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+import kodkod.util.ints.IntIterator;
+
+/**
+ * A cache of solved problems shared by the problems of a {@link KodkodServer}.
+ * Problems are keyed by a structural fingerprint of their options, bounds and
+ * asserted formulas, computed over relation names rather than identities, so
+ * that a specification that is resent by the client (for instance, to be
+ * solved under a different id) hits the entry of the original one.
+ *
+ * <p>
+ * Each entry is a {@link Run} that holds the solution explorer of the original
+ * problem, and thus its translation and incremental SAT state, together with
+ * the solutions enumerated so far. Problems that hit an entry replay these
+ * solutions and then continue the enumeration, without being translated again.
+ * Only problems whose explorers support plain iteration alone are cached.
+ * </p>
+ *
+ * <p>
+ * Entries are evicted in least-recently-used order once there are more than
+ * {@code maxEntries} of them, or once they weigh more than {@code maxClauses}
+ * in total. A run weighs the clauses of its translation plus one per tuple of
+ * the instances it has recorded. An evicted run is freed as soon as the last
+ * of the problems still enumerating it releases its cursor.
+ * </p>
+ *
+ * @specfield maxEntries: int
+ * @specfield maxClauses: long
+ * @specfield entries: String -> lone Run
+ */
+final class TranslationCache {
+	private final int maxEntries;
+	private final long maxClauses;
+	private final LinkedHashMap<String, Run> entries;
+	private long clauses;
+
+	/**
+	 * Creates an empty cache with the given limits.
+	 * 
+	 * @requires maxEntries > 0 && maxClauses > 0
+	 * @ensures this.maxEntries' = maxEntries && this.maxClauses' = maxClauses
+	 *          && no this.entries'
+	 */
+	TranslationCache(int maxEntries, long maxClauses) {
+		if (maxEntries < 1 || maxClauses < 1)
+			throw new IllegalArgumentException("Expected positive cache limits, given " + maxEntries + " entries and "
+					+ maxClauses + " clauses.");
+		this.maxEntries = maxEntries;
+		this.maxClauses = maxClauses;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.clauses = 0;
+	}
+
+	/**
+	 * Returns the run cached for the given fingerprint, if any, marking it as the
+	 * most recently used.
+	 * 
+	 * @return this.entries[key]
+	 */
+	synchronized Run get(String key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Caches the given run under the given fingerprint, evicting the least
+	 * recently used entries while the limits are exceeded. Solves the run for its
+	 * first solution to measure its translation. A run that alone exceeds the
+	 * limits is not cached, and is freed once its cursors are.
+	 * 
+	 * @requires run is not cached
+	 * @return true iff the run was cached
+	 */
+	boolean put(String key, Run run) {
+		final long size = run.clauses();
+		synchronized (this) {
+			if (size > maxClauses) {
+				run.evicted();
+				return false;
+			}
+			final Run old = entries.put(key, run);
+			if (old != null)
+				evict(old);
+			run.cache = this;
+			run.charged = run.weight();
+			clauses += run.charged;
+			evict();
+			return run.charged >= 0;
+		}
+	}
+
+	/**
+	 * Charges the given amount to the given run, if it is still cached, and
+	 * evicts entries while the limits are exceeded.
+	 */
+	private synchronized void charge(Run run, long weight) {
+		if (run.charged >= 0) {
+			run.charged += weight;
+			clauses += weight;
+			evict();
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entries while the limits are exceeded.
+	 */
+	private void evict() {
+		final Iterator<Run> it = entries.values().iterator();
+		while (entries.size() > maxEntries || clauses > maxClauses) {
+			final Run run = it.next();
+			it.remove();
+			evict(run);
+		}
+	}
+
+	/**
+	 * Discounts the given run, that has been removed from the entries, and frees
+	 * it if no longer used.
+	 */
+	private void evict(Run run) {
+		clauses -= run.charged;
+		run.charged = -1;
+		run.evicted();
+	}
+
+	/**
+	 * Returns the number of cached runs.
+	 * 
+	 * @return #this.entries
+	 */
+	synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the weight of the cached runs.
+	 * 
+	 * @return sum this.entries[String].weight
+	 */
+	synchronized long clauses() {
+		return clauses;
+	}
+
+	/**
+	 * Returns a structural fingerprint of the problem defined by the given
+	 * formula, bounds and options. Relations are identified by their names, and
+	 * only the options that affect the solutions are considered. The formula is
+	 * hashed by a traversal that visits each shared node once, referring back to
+	 * it by its position thereafter, and numbers variables by identity in the
+	 * order in which they are first visited.
+	 * 
+	 * @return a fingerprint of the given problem
+	 */
+	static String fingerprint(Formula formula, Bounds bounds, Options options) {
+		final Digest digest = new Digest();
+		digest.add(options.solver() + " " + options.intEncoding() + " " + options.bitwidth() + " "
+				+ options.sharing() + " " + options.symmetryBreaking() + " " + options.skolemDepth() + " "
+				+ options.noOverflow());
+		final Universe universe = bounds.universe();
+		digest.add(universe.size());
+		for (Object atom : universe)
+			digest.add(String.valueOf(atom));
+		final List<Relation> rels = new ArrayList<>(bounds.relations());
+		Collections.sort(rels, (r0, r1) -> r0.name().equals(r1.name()) ? Integer.compare(r0.arity(), r1.arity())
+				: r0.name().compareTo(r1.name()));
+		for (Relation r : rels) {
+			digest.add(r.name());
+			digest.add(r.arity());
+			digest.add(bounds.lowerBound(r));
+			digest.add(bounds.upperBound(r));
+		}
+		for (IntIterator it = bounds.ints().iterator(); it.hasNext();) {
+			final int i = it.next();
+			digest.add(i);
+			digest.add(bounds.exactBound(i));
+		}
+		formula.accept(new AbstractVoidVisitor() {
+			final Map<Node, Integer> nodes = new IdentityHashMap<>();
+			final Map<Variable, Integer> vars = new IdentityHashMap<>();
+
+			@Override
+			protected boolean visited(Node n) {
+				final Integer id = nodes.get(n);
+				if (id != null) {
+					digest.add("@" + id);
+					return true;
+				}
+				nodes.put(n, nodes.size());
+				digest.add(label(n));
+				return false;
+			}
+
+			@Override
+			public void visit(Relation relation) {
+				digest.add("r " + relation.arity() + " " + relation.name());
+			}
+
+			@Override
+			public void visit(Variable variable) {
+				Integer id = vars.get(variable);
+				if (id == null)
+					vars.put(variable, id = vars.size());
+				digest.add("v " + variable.arity() + " " + id);
+			}
+
+			@Override
+			public void visit(ConstantExpression constExpr) {
+				digest.add("c " + constExpr);
+			}
+
+			@Override
+			public void visit(IntConstant intConst) {
+				digest.add("i " + intConst.value());
+			}
+
+			@Override
+			public void visit(ConstantFormula constant) {
+				digest.add("f " + constant.booleanValue());
+			}
+		});
+		return digest.hex();
+	}
+
+	/**
+	 * Returns the label of the given inner node: its kind, operator, and number of
+	 * children where that varies, which determine how many of the nodes that
+	 * follow it in a preorder traversal are its children.
+	 */
+	private static String label(Node n) {
+		final String kind = n.getClass().getSimpleName();
+		if (n instanceof Decls)
+			return kind + " " + ((Decls) n).size();
+		if (n instanceof Decl)
+			return kind + " " + ((Decl) n).multiplicity();
+		if (n instanceof UnaryExpression)
+			return kind + " " + ((UnaryExpression) n).op();
+		if (n instanceof BinaryExpression)
+			return kind + " " + ((BinaryExpression) n).op();
+		if (n instanceof NaryExpression)
+			return kind + " " + ((NaryExpression) n).op() + " " + ((NaryExpression) n).size();
+		if (n instanceof ProjectExpression)
+			return kind + " " + ((ProjectExpression) n).arity();
+		if (n instanceof IntToExprCast)
+			return kind + " " + ((IntToExprCast) n).op();
+		if (n instanceof ExprToIntCast)
+			return kind + " " + ((ExprToIntCast) n).op();
+		if (n instanceof UnaryIntExpression)
+			return kind + " " + ((UnaryIntExpression) n).op();
+		if (n instanceof BinaryIntExpression)
+			return kind + " " + ((BinaryIntExpression) n).op();
+		if (n instanceof NaryIntExpression)
+			return kind + " " + ((NaryIntExpression) n).op() + " " + ((NaryIntExpression) n).size();
+		if (n instanceof IntComparisonFormula)
+			return kind + " " + ((IntComparisonFormula) n).op();
+		if (n instanceof QuantifiedFormula)
+			return kind + " " + ((QuantifiedFormula) n).quantifier();
+		if (n instanceof NaryFormula)
+			return kind + " " + ((NaryFormula) n).op() + " " + ((NaryFormula) n).size();
+		if (n instanceof BinaryFormula)
+			return kind + " " + ((BinaryFormula) n).op();
+		if (n instanceof ComparisonFormula)
+			return kind + " " + ((ComparisonFormula) n).op();
+		if (n instanceof MultiplicityFormula)
+			return kind + " " + ((MultiplicityFormula) n).multiplicity();
+		if (n instanceof RelationPredicate)
+			return kind + " " + ((RelationPredicate) n).name();
+		if (n instanceof UnaryTempFormula)
+			return kind + " " + ((UnaryTempFormula) n).op();
+		if (n instanceof BinaryTempFormula)
+			return kind + " " + ((BinaryTempFormula) n).op();
+		if (n instanceof TempExpression)
+			return kind + " " + ((TempExpression) n).op();
+		// comprehensions, sums, ifs and negations have a fixed number of children
+		return kind;
+	}
+
+	/**
+	 * A SHA-256 digest of a sequence of strings, longs and tuple sets. Each item
+	 * is prefixed by its length, so that distinct sequences are not confused.
+	 */
+	private static final class Digest {
+		private final MessageDigest md;
+		private final ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+
+		Digest() {
+			try {
+				md = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				// every Java platform provides SHA-256
+				throw new IllegalStateException(e);
+			}
+		}
+
+		void add(long l) {
+			buf.clear();
+			md.update(buf.putLong(l).array());
+		}
+
+		void add(String s) {
+			final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			add(bytes.length);
+			md.update(bytes);
+		}
+
+		/**
+		 * Adds the indices of the given tuples, which are long indices if the
+		 * tuples cannot be indexed by an int.
+		 */
+		void add(TupleSet tuples) {
+			add(tuples.longSize());
+			if (tuples.longCapacity() <= Integer.MAX_VALUE) {
+				for (IntIterator it = tuples.indexView().iterator(); it.hasNext();)
+					add(it.next());
+			} else {
+				for (Tuple t : tuples)
+					add(t.longIndex());
+			}
+		}
+
+		String hex() {
+			final byte[] digest = md.digest();
+			final StringBuilder hex = new StringBuilder(2 * digest.length);
+			for (byte b : digest)
+				hex.append(String.format("%02x", b));
+			return hex.toString();
+		}
+	}
+
+	/**
+	 * The solutions of a cached problem, enumerated on demand from the explorer
+	 * of the problem that was first solved and recorded to be replayed by
+	 * subsequent problems with the same fingerprint. Solutions refer to the
+	 * relations of the original problem's environment.
+	 * 
+	 * <p>
+	 * Once evicted, a run no longer records the solutions that all its cursors
+	 * have moved past, and frees its explorer when its last cursor is freed.
+	 * </p>
+	 * 
+	 * @specfield env: StringDefEnv // the environment of the original problem
+	 * @specfield source: Explorer<Solution>
+	 * @specfield solutions: seq Solution // the solutions enumerated so far
+	 * @specfield cursors: set Cursor
+	 */
+	static final class Run {
+		private final StringDefEnv env;
+		private final Explorer<Solution> source;
+		private final List<Solution> solutions;
+		private final Set<Cursor> cursors;
+		// the index in this.solutions of the first recorded solution
+		private int first;
+		private long tuples;
+		private boolean evicted, freed;
+		private volatile long clauses = -1;
+		// guarded by the cache: the weight charged to the cache, or -1 if not cached
+		private TranslationCache cache;
+		private long charged = -1;
+
+		/**
+		 * Creates a run over the given solutions of a problem with the given
+		 * environment.
+		 * 
+		 * @ensures this.env' = env && this.source' = source && no this.solutions'
+		 *          && no this.cursors'
+		 */
+		Run(StringDefEnv env, Explorer<Solution> source) {
+			this.env = env;
+			this.source = source;
+			this.solutions = new ArrayList<>();
+			this.cursors = Collections.newSetFromMap(new IdentityHashMap<>());
+			this.first = 0;
+			this.tuples = 0;
+		}
+
+		/**
+		 * Returns the number of clauses in the translation of this run.
+		 * 
+		 * @return this.solutions[0].stats.clauses
+		 */
+		long clauses() {
+			if (clauses < 0) {
+				synchronized (this) {
+					if (clauses < 0)
+						clauses = get(0).stats().clauses();
+				}
+			}
+			return clauses;
+		}
+
+		/**
+		 * Returns the weight of this run, that is, the number of clauses of its
+		 * translation plus the number of tuples in its recorded instances.
+		 */
+		synchronized long weight() {
+			return clauses() + tuples;
+		}
+
+		/**
+		 * Returns true iff this run has a solution at the given index, possibly
+		 * still to be enumerated.
+		 */
+		synchronized boolean has(int idx) {
+			return idx < first + solutions.size() || (!freed && source.hasNext());
+		}
+
+		/**
+		 * Returns the solution at the given index, enumerating and recording it
+		 * if needed.
+		 * 
+		 * @requires this.has(idx) && idx >= this.first
+		 * @return this.solutions[idx]
+		 */
+		private Solution get(int idx) {
+			while (idx >= first + solutions.size()) {
+				final Solution sol = source.next();
+				solutions.add(sol);
+				if (sol.sat())
+					tuples += size(sol.instance());
+			}
+			return solutions.get(idx - first);
+		}
+
+		/**
+		 * Returns the next solution of the given cursor, and advances it.
+		 * 
+		 * @requires cursor.run = this && this.has(cursor.next)
+		 * @return this.solutions[cursor.next]
+		 */
+		Solution next(Cursor cursor) {
+			final Solution sol;
+			final long weight;
+			synchronized (this) {
+				if (cursor.freed)
+					throw new NoSuchElementException();
+				final long before = tuples;
+				sol = get(cursor.next++);
+				weight = tuples - before;
+				trim();
+			}
+			// charged outside the lock of this run, since the cache locks runs
+			// while holding its own
+			final TranslationCache cache = this.cache;
+			if (weight > 0 && cache != null)
+				cache.charge(this, weight);
+			return sol;
+		}
+
+		/**
+		 * Returns the number of tuples in the given instance.
+		 */
+		private static long size(Instance instance) {
+			long size = 0;
+			for (TupleSet tuples : instance.relationTuples().values())
+				size += tuples.size();
+			return size;
+		}
+
+		/**
+		 * Marks this run as evicted, and frees it if it has no cursors.
+		 */
+		private synchronized void evicted() {
+			evicted = true;
+			trim();
+		}
+
+		/**
+		 * If this run is evicted, drops the solutions that no cursor will return
+		 * again, and frees the source if no cursors remain.
+		 */
+		private void trim() {
+			if (!evicted)
+				return;
+			if (cursors.isEmpty()) {
+				if (!freed) {
+					freed = true;
+					source.free();
+				}
+				first += solutions.size();
+				solutions.clear();
+				return;
+			}
+			int min = Integer.MAX_VALUE;
+			for (Cursor c : cursors)
+				min = Math.min(min, c.next);
+			if (min > first) {
+				final int drop = Math.min(min, first + solutions.size()) - first;
+				solutions.subList(0, drop).clear();
+				first += drop;
+			}
+		}
+
+		/**
+		 * Returns an explorer that replays this run from its first solution for
+		 * a problem with the given environment. The relations of the given
+		 * environment are bound in copies of the replayed instances to the tuples
+		 * of the same-named relations of the original problem. Returns null if
+		 * this run has been evicted.
+		 */
+		synchronized Cursor cursor(StringDefEnv target) {
+			if (evicted)
+				return null;
+			final Map<Relation, Relation> rebind = new IdentityHashMap<>();
+			if (target != env) {
+				for (char reg : new char[] { 'r', 'x', 'a' }) {
+					for (String key : target.keys(reg)) {
+						final Relation from = (Relation) env.defs(reg).use(key);
+						final Relation to = (Relation) target.defs(reg).use(key);
+						if (from != null && to != null && from != to)
+							rebind.put(from, to);
+					}
+				}
+			}
+			final Cursor cursor = new Cursor(this, rebind, first);
+			cursors.add(cursor);
+			return cursor;
+		}
+
+		/**
+		 * Removes the given cursor from this run.
+		 */
+		private synchronized void release(Cursor cursor) {
+			if (cursors.remove(cursor))
+				trim();
+		}
+
+		/**
+		 * Applies the given explorer operation to the source of this run, which
+		 * does not affect its plain iteration.
+		 */
+		private synchronized <T> T source(Function<Explorer<Solution>, T> op) {
+			return op.apply(source);
+		}
+	}
+
+	/**
+	 * An explorer over the solutions of a run. Plain iteration replays the
+	 * recorded solutions of the run; other exploration modes are delegated to
+	 * the explorer of the run.
+	 */
+	static final class Cursor implements Explorer<Solution> {
+		private final Run run;
+		private final Map<Relation, Relation> rebind;
+		// guarded by the run
+		private int next;
+		private boolean freed;
+
+		private Cursor(Run run, Map<Relation, Relation> rebind, int next) {
+			this.run = run;
+			this.rebind = rebind;
+			this.next = next;
+		}
+
+		/**
+		 * Returns a copy of the given solution whose instance also binds the
+		 * relations of the problem of this cursor to the tuples of the same-named
+		 * relations of the original problem.
+		 * 
+		 * @requires sol.sat()
+		 */
+		private Solution rebind(Solution sol) {
+			final Instance instance = sol.instance().clone();
+			for (Map.Entry<Relation, Relation> e : rebind.entrySet()) {
+				final TupleSet tuples = instance.tuples(e.getKey());
+				if (tuples != null && instance.tuples(e.getValue()) == null)
+					instance.add(e.getValue(), tuples);
+			}
+			return sol.withInstance(instance);
+		}
+
+		@Override
+		public boolean hasNext() {
+			synchronized (run) {
+				return !freed && run.has(next);
+			}
+		}
+
+		@Override
+		public Solution next() {
+			final Solution sol = run.next(this);
+			return sol.sat() && !rebind.isEmpty() ? rebind(sol) : sol;
+		}
+
+		@Override
+		public Solution nextC() {
+			return run.source(Explorer::nextC);
+		}
+
+		@Override
+		public Solution nextP() {
+			return run.source(Explorer::nextP);
+		}
+
+		@Override
+		public Solution nextS(int state, int delta, Set<Relation> change) {
+			return run.source(s -> s.nextS(state, delta, change));
+		}
+
+		@Override
+		public boolean hasNextC() {
+			return run.source(Explorer::hasNextC);
+		}
+
+		@Override
+		public boolean hasNextP() {
+			return run.source(Explorer::hasNextP);
+		}
+
+		/**
+		 * Releases this cursor; the run is freed once evicted and released by
+		 * all its cursors.
+		 */
+		@Override
+		public void free() {
+			synchronized (run) {
+				freed = true;
+				run.release(this);
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.cli;
+
+import java.util.Arrays;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.matchers.CustomMatcher;
+import org.parboiled.support.Chars;
+
+import kodkod.instance.TupleFactory;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+import kodkod.util.ints.ChunkedIntSet;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.Ints;
+
+/**
+ * A hand-written scanner for enumerated tuple set literals,
+ * {@code LWING Tuple* RWING}, which dominate the size of problem
+ * specifications with large bounds. Rather than going through the
+ * {@link KodkodParser#TupleSetEnum() grammar rules}, which box every atom and
+ * allocate a list and a tuple per tuple literal, the scanner reads the input
+ * buffer directly, accumulates the index of each tuple as a primitive and adds
+ * it to the index set of the resulting tuple set.
+ *
+ * <p>
+ * The scanner is enabled by {@link KodkodParser#fastTuples}. It only handles
+ * well-formed enumerations of int-indexed tuples over the atoms of the current
+ * universe. It fails without consuming any input on anything else, including
+ * ranges and areas, so that the {@link KodkodParser#TupleSetEnum() reference
+ * rule} parses it instead and reports the same results and errors as without
+ * the scanner.
+ * </p>
+ */
+final class TupleSetMatcher extends CustomMatcher {
+
+	private final KodkodParser parser;
+	/** The universe last scanned against, and the index of each of its integer atoms. */
+	private Universe universe;
+	private int[] atomIndex;
+
+	/**
+	 * Creates a scanner for the tuple sets of the problems of the given parser.
+	 */
+	TupleSetMatcher(KodkodParser parser) {
+		super("TupleSetEnum");
+		this.parser = parser;
+	}
+
+	@Override
+	public boolean isSingleCharMatcher() {
+		return false;
+	}
+
+	@Override
+	public boolean canMatchEmpty() {
+		return false;
+	}
+
+	@Override
+	public boolean isStarterChar(char c) {
+		return c == '{';
+	}
+
+	@Override
+	public char getStarterChar() {
+		return '{';
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V> boolean match(MatcherContext<V> context) {
+		if (!parser.fastTuples || parser.currentProblem == null)
+			return false;
+		final InputBuffer in = context.getInputBuffer();
+		final int start = context.getCurrentIndex();
+		if (in.charAt(start) != '{')
+			return false;
+		final TupleFactory f = parser.currentProblem.allBounds().universe().factory();
+		final int[] atoms = atomIndex(f.universe());
+		final long base = atoms.length;
+
+		int i = space(in, start + 1);
+		IntSet indices = null;
+		int arity = 0;
+		while (in.charAt(i) == '(') {
+			i = space(in, i + 1);
+			long index = 0;
+			int n = 0;
+			char c;
+			while ((c = in.charAt(i)) >= '0' && c <= '9') {
+				long atom = 0;
+				do {
+					atom = atom * 10 + (c - '0');
+					if (atom >= base)
+						return false; // not an atom of the universe
+				} while ((c = in.charAt(++i)) >= '0' && c <= '9');
+				if (atoms[(int) atom] < 0)
+					return false;
+				index = index * base + atoms[(int) atom];
+				if (index > Integer.MAX_VALUE)
+					return false; // long-indexed tuple
+				n++;
+				i = space(in, i);
+			}
+			if (n == 0 || in.charAt(i) != ')')
+				return false;
+			i = space(in, i + 1);
+			if (indices == null) {
+				if (StrictMath.pow(base, n) > Integer.MAX_VALUE)
+					return false;
+				arity = n;
+				indices = f.chunkedIndices() ? new ChunkedIntSet() : Ints.bestSet((int) StrictMath.pow(base, n));
+			} else if (n != arity)
+				return false;
+			indices.add((int) index);
+		}
+		if (in.charAt(i) != '}')
+			return false; // ranges, areas and malformed sets
+		i = space(in, i + 1);
+
+		final TupleSet ts = indices == null ? f.noneOf(1) : f.setOf(arity, indices);
+		context.getValueStack().push((V) ts);
+		context.advanceIndex(i - start);
+		context.createNode();
+		return true;
+	}
+
+	/**
+	 * Returns the index in the given universe of each of the integer atoms in
+	 * [0..universe.size()), or -1 if there is no such atom.
+	 */
+	private int[] atomIndex(Universe u) {
+		if (u != universe) {
+			final int[] idx = new int[u.size()];
+			Arrays.fill(idx, -1);
+			for (int j = 0; j < u.size(); j++) {
+				final Object atom = u.atom(j);
+				if (atom instanceof Integer && (Integer) atom >= 0 && (Integer) atom < idx.length)
+					idx[(Integer) atom] = j;
+			}
+			universe = u;
+			atomIndex = idx;
+		}
+		return atomIndex;
+	}
+
+	/**
+	 * Returns the index of the first character at or after i that is neither
+	 * white space nor part of a line comment, as skipped by
+	 * {@link KodkodParser#Space()}.
+	 */
+	private static int space(InputBuffer in, int i) {
+		while (true) {
+			final char c = in.charAt(i);
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f') {
+				i++;
+			} else if (c == ';') {
+				char d;
+				while ((d = in.charAt(++i)) != '\r' && d != '\n' && d != Chars.EOI);
+			} else {
+				return i;
+			}
+		}
+	}
+}
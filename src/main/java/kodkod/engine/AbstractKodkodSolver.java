@@ -217,7 +217,7 @@ public abstract class AbstractKodkodSolver<B extends Bounds, O extends Options>
 		final SATSolver cnf = translation.cnf();
 		final TranslationLog log = translation.log();
 		if (cnf instanceof SATProver && log != null) {
-			return Solution.unsatisfiable(stats, new ResolutionBasedProof((SATProver) cnf, log));
+			return Solution.unsatisfiable(stats, new ResolutionBasedProof((SATProver) cnf, log, translation.options()));
 		} else { // can free memory
 			final Solution sol = Solution.unsatisfiable(stats, null);
 			cnf.free();
@@ -28,8 +28,11 @@ import java.util.NoSuchElementException;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
@@ -67,10 +70,9 @@ abstract public class DProblemExecutor<S extends AbstractSolver<PardinusBounds,
 	public final S solver_integrated;
 
 	/**
-	 * the executor managing the launching of the threads
-	 * 
-	 * TODO: replace by new ThreadPoolExecutor(corePoolSize, maximumPoolSize,
-	 * keepAliveTime, unit, workQueue) to manage LIFO
+	 * the executor managing the launching of the threads, each solver thread
+	 * picks the next queued problem as soon as it is free and reports its
+	 * solving and idle times to the monitor
 	 */
 	public final ExecutorService executor;
 
@@ -105,8 +107,50 @@ abstract public class DProblemExecutor<S extends AbstractSolver<PardinusBounds,
 		this.bounds = bounds;
 		this.solver_partial = solver1;
 		this.solver_integrated = solver2;
-		this.executor = Executors.newFixedThreadPool(n);
 		this.monitor = rep;
+		this.executor = new ThreadPoolExecutor(n, n, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new WorkerFactory()) {
+			@Override
+			protected void beforeExecute(Thread t, Runnable r) {
+				((Worker) t).started = System.currentTimeMillis();
+			}
+
+			@Override
+			protected void afterExecute(Runnable r, Throwable t) {
+				Worker w = (Worker) Thread.currentThread();
+				long now = System.currentTimeMillis();
+				monitor.workerDone(w.index, now - w.started, w.started - w.finished);
+				w.finished = now;
+			}
+		};
+	}
+
+	/**
+	 * A solver thread of the executor, identified by its index for the
+	 * per-thread statistics.
+	 */
+	private static final class Worker extends Thread {
+		private final int index;
+		private long started, finished;
+
+		private Worker(Runnable r, int index) {
+			super(r, "pardinus-decomposed-" + index);
+			this.index = index;
+			this.finished = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Creates the solver threads of the executor, numbered in order of
+	 * creation.
+	 */
+	private static final class WorkerFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(Runnable r) {
+			return new Worker(r, count.getAndIncrement());
+		}
 	}
 
 	/**
@@ -27,6 +27,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import kodkod.ast.Formula;
@@ -44,6 +45,11 @@ import kodkod.instance.PardinusBounds;
  * integrated problems or the amalgamated problem. Is UNSAT if every integrated
  * problem is UNSAT or the amalagamated problem.
  * 
+ * Configurations are enumerated by a dedicated thread ahead of the solver
+ * threads, which pick the next integrated problem as soon as they are free.
+ * The enumeration blocks once the prefetch limit of integrated problems are
+ * waiting to be solved or for their SAT solution to be consumed.
+ * 
  * @param <S>
  *            The solver that will be used to handle integrated problems.
  *
@@ -53,14 +59,18 @@ import kodkod.instance.PardinusBounds;
 public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, ExtendedOptions>>
 		extends DProblemExecutor<S> {
 
-	final static public int BATCH_SIZE = 20;
-
 	/** a buffer for solutions, popped by the hasNext test */
 	private Entry<Solution,Iterator<Solution>> buffer;
 
-	/** the number of effectively running solvers */
+	/** the number of launched integrated problems not yet terminated */
 	private final AtomicInteger running = new AtomicInteger(0);
 
+	/**
+	 * permits to enumerate further configurations, released when an
+	 * integrated problem is UNSAT or its SAT solution is consumed
+	 */
+	private final Semaphore prefetch;
+
 	/** the queue of found SAT solutions (or poison) */
 	private final BlockingQueue<Entry<Solution,Iterator<Solution>>> solution_queue;
 
@@ -70,6 +80,12 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 	/** the amalgamated problem, if in hybrid mode */
 	private DProblem<S> amalgamated;
 
+	/** the thread enumerating the configurations */
+	private final Thread enumerator;
+
+	/** whether the last solution (or poison) has been queued */
+	private volatile boolean finished = false;
+
 	/**
 	 * Constructs an effective decomposed problem executor for a decomposed
 	 * model finding problem and the number of desired parallel solvers.
@@ -89,15 +105,21 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 	 *            the solver for the integrated problem.
 	 * @param n
 	 *            the number of solver threads.
+	 * @param prefetch
+	 *            the number of configurations enumerated ahead of the solver
+	 *            threads.
 	 * @param hybrid
 	 *            whether to run in hybrid mode.
 	 */
 	public DProblemExecutorImpl(Reporter rep, Formula formula,
 			PardinusBounds bounds, ExtendedSolver solver1,
-			S solver2, int n, boolean hybrid) {
+			S solver2, int n, int prefetch, boolean hybrid) {
 		super(new DMonitorImpl(rep), formula, bounds, solver1, solver2, n);
-		this.solution_queue = new LinkedBlockingQueue<Entry<Solution,Iterator<Solution>>>(BATCH_SIZE+1);
+		this.solution_queue = new LinkedBlockingQueue<Entry<Solution,Iterator<Solution>>>();
+		this.prefetch = new Semaphore(n + prefetch);
 		this.hybrid = hybrid;
+		this.enumerator = new Thread(this::enumerate, "pardinus-configs");
+		this.enumerator.setDaemon(true);
 	}
 
 	/**
@@ -111,56 +133,42 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 			monitor.newSolution(sol);
 			// if the amalgamated terminates...
 			if (!(sol instanceof IProblem)) {
+				if (finished)
+					return;
 				// store the sat or unsat solution
 				solution_queue.put(sol.getSolutions());
-//				running.set(1);
+				finished = true;
 				monitor.amalgamatedWon();
-//				 terminate the integrated problems
+				// terminate the integrated problems
 				if (!executor.isTerminated())
 					terminate();
-				running.decrementAndGet();
 			}
 			// if an integrated terminates...
 			else {
+				running.decrementAndGet();
 				// if it is sat...
 				if (sol.getSolutions().getKey().sat()) {
-
 					// store the sat solution
 					solution_queue.put(sol.getSolutions());
 					// terminate the amalgamated problem
 					if (hybrid && amalgamated.isAlive() && !monitor.isAmalgamated()) {
 						amalgamated.interrupt();
 					}
-
-					if (running.get() == 1 && !monitor.isAmalgamated())
-						if (monitor.isConfigsDone()) {
-							solution_queue.put(poison(null));
-						}
-					running.decrementAndGet();
-
 				}
-				// if it is unsat...
+				// if it is unsat, there is room for another configuration
 				else {
-					running.decrementAndGet();
-					// if last running integrated...
-					if ((running.get() == 0 && !hybrid) || (running.get() == 1 && hybrid))
-						if (monitor.isConfigsDone())
-							// store the unsat solution
-							solution_queue.put(sol.getSolutions());
-						else
-							launchBatch();
+					last_unsat = sol.getSolutions();
+					prefetch.release();
 				}
+				// if last running integrated...
+				if (monitor.isConfigsDone() && running.get() == 0)
+					finish();
 			}
 		} catch (InterruptedException | IllegalThreadStateException e1) {
 			// was interrupted in the meantime
-//			e1.printStackTrace();
-		} catch (RejectedExecutionException e) {
-			// was shutdown in the meantime
-			e.printStackTrace();
 		}
 	}
 
-
 	/**
 	 * {@inheritDoc}
 	 */
@@ -168,20 +176,22 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 	public void failed(Throwable e) {
 		solver_partial.options().reporter().warning("Integrated solver failed.");
 		solver_partial.options().reporter().debug(e.getStackTrace().toString());
-		running.decrementAndGet();
-		// if last running integrated...
-		if (monitor.isConfigsDone()
-				&& (running.get() == 0 || (amalgamated != null && running
-						.get() == 1))) {
-			try {
-				solution_queue.put(poison(null));
-				terminate();
-			} catch (InterruptedException e1) {
-				// was interrupted in the meantime
+		synchronized (this) {
+			running.decrementAndGet();
+			prefetch.release();
+			// if last running integrated...
+			if (monitor.isConfigsDone() && running.get() == 0 && !finished) {
+				try {
+					solution_queue.put(poison(null));
+					finished = true;
+					terminate();
+				} catch (InterruptedException e1) {
+					// was interrupted in the meantime
+				}
 			}
 		}
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -192,61 +202,67 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 		if (hybrid) {
 			DProblem<S> amalg = new DProblem<S>(this);
 			executor.execute(amalg);
-			running.incrementAndGet();
 			amalgamated = amalg;
-		} 
-		
-		launchBatch();
+		}
 
+		enumerator.start();
 	}
-	Iterator<Solution> configs = solver_partial.solveAll(formula, bounds);
 
-	private boolean first_config = true;
+	private final Iterator<Solution> configs = solver_partial.solveAll(formula, bounds);
+
+	private Solution last_config;
+	private Entry<Solution,Iterator<Solution>> last_unsat;
 	private Entry<Solution,Iterator<Solution>> last_sol;
-	
-	synchronized void launchBatch() {
-		
-		BlockingQueue<DProblem<S>> problem_queue = new LinkedBlockingQueue<DProblem<S>>(BATCH_SIZE);
-		// collects a batch of configurations
-		Solution config = null;
-		while (configs.hasNext() && problem_queue.size() < BATCH_SIZE) {
-			config = configs.next();
 
-			if (config.sat()) {
+	/**
+	 * Enumerates the configurations and launches an integrated problem for
+	 * each, until the UNSAT configuration is reached. Runs on its own thread,
+	 * blocking while no prefetch permits are available.
+	 */
+	private void enumerate() {
+		try {
+			while (!executor.isShutdown()) {
+				prefetch.acquire();
+				if (!configs.hasNext())
+					break;
+				Solution config = configs.next();
+				last_config = config;
 				monitor.newConfig(config);
-
-				DProblem<S> problem = new IProblem<S>(config, this);
-				problem_queue.add(problem);
+				if (!config.sat())
+					break;
+				running.incrementAndGet();
+				executor.execute(new IProblem<S>(config, this));
 			}
-			first_config = false;
-		}
-		// launches a batch of integrated problems
-		while (!problem_queue.isEmpty() && !executor.isShutdown()) {
-			DProblem<S> problem = problem_queue.remove();
-			try {
-				executor.execute(problem);
-			} catch (RejectedExecutionException e) {
-				// if it was shutdown in the meantime
-				e.printStackTrace();
+			if (executor.isShutdown())
+				return;
+			synchronized (this) {
+				monitor.configsDone(false);
+				// when no integrated problem is running none will ever
+				// callback so it must be finished here
+				if (running.get() == 0)
+					finish();
 			}
-			running.incrementAndGet();
+		} catch (InterruptedException | RejectedExecutionException e) {
+			// was terminated in the meantime
 		}
-		
-		if (!config.sat()) {
-			// when there is no configuration no solver will ever
-			// callback so it must be terminated here
-			if ((running.get() == 0 && !hybrid) || (running.get() == 1 && hybrid))
-				try {
-					// get the stats from the unsat
-					monitor.newConfig(config);
-//					terminate();
-					solution_queue.put(poison(config));
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-		}
-			
-		monitor.configsDone(configs.hasNext());
+	}
+
+	/**
+	 * Stores the last answer once every configuration was enumerated and
+	 * every integrated problem terminated: the last UNSAT integrated solution,
+	 * a poison after the SAT solutions, or the UNSAT configuration if there
+	 * was no integrated problem.
+	 */
+	private void finish() throws InterruptedException {
+		if (finished || monitor.isAmalgamated())
+			return;
+		if (last_unsat != null)
+			solution_queue.put(last_unsat);
+		else if (monitor.getNumSATs() > 0)
+			solution_queue.put(poison(null));
+		else
+			solution_queue.put(poison(last_config));
+		finished = true;
 	}
 
 	/**
@@ -258,11 +274,12 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 			last_sol = buffer;
 			buffer = null;
 		} else {
-			if (!monitor.isConfigsDone() && running.get() == 0)
-				launchBatch();
 			last_sol = solution_queue.take();
 		}
 		monitor.gotNext(false);
+		// a consumed integrated SAT solution makes room for another configuration
+		if (last_sol.getKey().sat() && !monitor.isAmalgamated())
+			prefetch.release();
 		// if UNSAT, terminate execution
 		if (last_sol.getValue() == null || !last_sol.getValue().hasNext())
 			terminate();
@@ -279,10 +296,8 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 			// for an output
 			if (buffer != null)
 				return true;
-			if (monitor.isConfigsDone() && running.get() == 0)
+			if (finished)
 				return !solution_queue.isEmpty();
-			if (!monitor.isConfigsDone() && running.get() == 0)
-				launchBatch();
 		}
 		// if there are integrated problems still running, can't just test for
 		// emptyness must wait for the next output
@@ -290,4 +305,13 @@ public class DProblemExecutorImpl<S extends AbstractSolver<PardinusBounds, Exten
 		return true;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void terminate() throws InterruptedException {
+		enumerator.interrupt();
+		super.terminate();
+	}
+
 }
@@ -118,7 +118,7 @@ public class DecomposedPardinusSolver<S extends AbstractSolver<PardinusBounds, E
 		if (!options.configOptions().solver().incremental())
 			throw new IllegalArgumentException("An incremental solver is required to iterate the configurations.");
 
-		executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), options.decomposedMode() == DMode.HYBRID);
+		executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), options.configPrefetch(), options.decomposedMode() == DMode.HYBRID);
 		ExecutorService ex = Executors.newSingleThreadExecutor();
 		Future<?> fut = ex.submit(executor);
 		try {
@@ -184,9 +184,9 @@ public class DecomposedPardinusSolver<S extends AbstractSolver<PardinusBounds, E
 		DSolutionIterator(Formula formula, PardinusBounds bounds, DecomposedOptions options, ExtendedSolver solver1, S solver2) {
 			reporter = options.reporter();
 			if (options.decomposedMode() == DMode.HYBRID)
-				executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), true);
+				executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), options.configPrefetch(), true);
 			else
-				executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), false);
+				executor = new DProblemExecutorImpl<S>(options.reporter(), formula, bounds, solver1, solver2, options.threads(), options.configPrefetch(), false);
 			ExecutorService ex = Executors.newSingleThreadExecutor();
 			Future<?> fut = ex.submit(executor);
 			try {
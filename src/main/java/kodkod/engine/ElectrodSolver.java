@@ -23,15 +23,20 @@
 package kodkod.engine;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
@@ -214,24 +219,69 @@ public class ElectrodSolver implements UnboundedSolver<ExtendedOptions>,
 		if (!dir.exists()) dir.mkdir();
 		
 		String file = dir.toString()+File.separatorChar+String.format("%05d", bounds.integration);
-		PrintWriter writer;
+		File elo = new File(file+".elo");
+		File xml = new File(file+".xml");
 		try {
+			// the problem is printed directly into the file rather than into a string
+			try (Writer writer = new BufferedWriter(new FileWriter(elo))) {
+				ElectrodPrinter.print(formula, bounds, rep, writer);
+				writer.write(System.lineSeparator());
+			} catch (IOException e) {
+				rep.debug(e.getMessage());
+				throw new AbortedException("Electrod problem generation failed.", e);
+			}
+			rep.debug("New Electrod problem at "+dir+".");
+			return run(file, bounds, options);
+		} finally {
+			// [HASLab] delete eagerly rather than on exit, as the latter keeps 
+			// track of every file generated during the lifetime of the JVM
 			if (!Options.isDebug()) {
-				new File(file+".elo").deleteOnExit();
+				elo.delete();
+				xml.delete();
 			}
-			writer = new PrintWriter(file+".elo");
-		} catch (Exception e) {
-			rep.debug(e.getMessage());
-			throw new AbortedException("Electrod problem generation failed.", e);
 		}
-		String electrod = ElectrodPrinter.print(formula, bounds, rep);
-		writer.println(electrod);
-		writer.close();
-		rep.debug("New Electrod problem at "+dir+".");
+	}
+
+	/**
+	 * Live Electrod processes, to be destroyed if the JVM shuts down while
+	 * they are running. A single shutdown hook is shared by all processes, so
+	 * that solving does not register a new hook per problem.
+	 */
+	// [HASLab]
+	private static final Set<Process> processes = Collections.synchronizedSet(new HashSet<Process>());
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				synchronized (processes) {
+					for (Process p : processes)
+						p.destroy();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs Electrod over a problem already printed into <code>file.elo</code>
+	 * and reads the solution back from <code>file.xml</code>.
+	 * 
+	 * @param file
+	 *            the problem file, without the extension.
+	 * @param bounds
+	 *            the bounds of the problem.
+	 * @param options
+	 *            the solving options.
+	 * @return a solution to the problem
+	 */
+	// [HASLab]
+	private static Solution run(String file, PardinusBounds bounds, ExtendedOptions options) {
+		Reporter rep = options.reporter();
 		ProcessBuilder builder;
+		ExternalSolver solver = (ExternalSolver) options.solver().instance();
 		List<String> args = new ArrayList<String>();
-		args.add(((ExternalSolver) options.solver().instance()).executable);
-		args.addAll(Arrays.asList(((ExternalSolver) options.solver().instance()).options));
+		args.add(solver.executable);
+		args.addAll(Arrays.asList(solver.options));
 		if (!options.unbounded()) {
 			if (options.minTraceLength() != 1) throw new InvalidSolverParamException("Electrod bounded model checking must start at length 1.");
 			args.add("--bmc"); args.add(options.maxTraceLength()+"");
@@ -245,31 +295,28 @@ public class ElectrodSolver implements UnboundedSolver<ExtendedOptions>,
 		builder.redirectErrorStream(true);
 		int ret = -1;
 		final Process p;
-		String op = "";
+		StringBuilder op = new StringBuilder();
 		try {
 			options.reporter().solvingCNF(-1, -1, -1, -1);
 			p = builder.start();
-			// stores the pid so that it can be correctly terminated
-			Runtime.getRuntime().addShutdownHook(new Thread() {
-				@Override
-				public void run() {
-					p.destroy();
-				}
-			});
+			// stores the process so that it can be correctly terminated
+			processes.add(p);
 			
 			try {
 				BufferedReader output = new BufferedReader(new InputStreamReader(
-						p.getErrorStream()));
+						p.getInputStream()));
 
 				String oline = "";
 				while ((oline = output.readLine()) != null)
-					op += oline;
-				rep.debug(op);
+					op.append(oline);
+				rep.debug(op.toString());
 
 				ret = p.waitFor();
 			} catch (InterruptedException e) {
 				p.destroy();
 				throw new AbortedException("Electrod problem interrupted.", e);
+			} finally {
+				processes.remove(p);
 			}
 		} catch (IOException e1) {
 			throw new AbortedException("Electrod problem failed.", e1);
@@ -284,9 +331,6 @@ public class ElectrodSolver implements UnboundedSolver<ExtendedOptions>,
 		
 		File xml = new File(file+".xml");
 		
-		if (!Options.isDebug())
-			xml.deleteOnExit();
-
 		if (!xml.exists())
 			throw new AbortedException("XML solution file not found: "+file+".xml.");
 		else {
@@ -32,6 +32,7 @@ import kodkod.ast.IntExpression;
 import kodkod.engine.bool.BooleanMatrix;
 import kodkod.engine.bool.Int;
 import kodkod.engine.config.Options;
+import kodkod.engine.fol2sat.InstanceInterpreter;
 import kodkod.engine.fol2sat.Translator;
 import kodkod.engine.ltl2fol.LTL2FOLTranslator;
 import kodkod.engine.ltl2fol.TemporalBoundsExpander;
@@ -54,6 +55,15 @@ import kodkod.instance.TupleSet;
  * is an Options object with different integer settings than o, 
  * e.evalate(f) may return false. </p>
  * 
+ * <p>A <i>compiled</i> evaluator interprets the instance once and memoizes the
+ * values of closed subformulas and subexpressions across calls, which pays off 
+ * when issuing many queries against the same instance.  Compiled evaluation 
+ * applies to static instances when overflow is not being prevented, and to
+ * queries whose tuples can be indexed by an int; otherwise the evaluator falls
+ * back to the translator.  Since a compiled evaluator 
+ * assumes that neither this.instance nor this.options change, it should not
+ * be used while those are being modified. </p>
+ * 
  * @specfield options: Options
  * @specfield instance: Instance
  * @author Emina Torlak
@@ -63,6 +73,7 @@ public final class Evaluator {
 	private final Instance instance;
 	private final Options options;
 	private boolean wasOverflow; // [AM] was overflow detected during evaluation
+	private final InstanceInterpreter interpreter; // [HASLab] null unless compiled
 
 	/**
 	 * Constructs a new Evaluator for the given instance, using a 
@@ -80,9 +91,23 @@ public final class Evaluator {
 	 * @throws NullPointerException  instance = null || options = null
 	 */
 	public Evaluator(Instance instance, Options options) {
+		this(instance, options, false);
+	}
+	
+	/**
+	 * Constructs a new Evaluator for the given instance and options, which is
+	 * compiled if so requested, this.instance is static and this.options does 
+	 * not prevent overflows.
+	 * @ensures this.instance' = instance && this.options' = options
+	 * @throws NullPointerException  instance = null || options = null
+	 */
+	// [HASLab] compiled evaluation
+	public Evaluator(Instance instance, Options options, boolean compiled) {
 		if (instance==null || options==null) throw new NullPointerException();
 		this.instance = instance;
 		this.options = options;
+		this.interpreter = compiled && !(instance instanceof TemporalInstance) && !options.noOverflow() ? 
+				new InstanceInterpreter(instance, options) : null;
 	}
 	
 	/**
@@ -91,9 +116,17 @@ public final class Evaluator {
 	 */
 	public Options options() { return options; }
 	
+	/**
+	 * Returns whether this evaluator is compiled.
+	 * @return true if this evaluator interprets this.instance only once
+	 */
+	// [HASLab] compiled evaluation
+	public boolean compiled() { return interpreter != null; }
+	
 	/**
 	 * Returns this.instance.  Any modifications to the returned object
-	 * will be reflected in the behavior of the evaluate methods.
+	 * will be reflected in the behavior of the evaluate methods, unless 
+	 * this evaluator is compiled.
 	 * 
 	 * @return this.instance
 	 */
@@ -118,6 +151,11 @@ public final class Evaluator {
 		// relations may however be evaluated statically for non temporal instances
 		if (TemporalTranslator.hasTemporalOps(formula) || instance instanceof TemporalInstance)
 			return evaluate(formula,0);
+		if (interpreter != null) { // [HASLab]
+			try {
+				return interpreter.evaluate(formula);
+			} catch (CapacityExceededException e) { } // long-indexed, so translate
+		}
 		return (Translator.evaluate(formula, instance, options)).booleanValue();
 	}
 	
@@ -175,7 +213,14 @@ public final class Evaluator {
 		// relations may however be evaluated statically for non temporal instances
 		if (TemporalTranslator.hasTemporalOps(expression) || instance instanceof TemporalInstance)
 			return evaluate(expression,0);
+		if (interpreter != null) { // [HASLab]
+			try {
+				return interpreter.evaluate(expression);
+			} catch (CapacityExceededException e) { } // long-indexed, so translate
+		}
 		final BooleanMatrix sol = Translator.evaluate(expression,instance,options);
+		if (sol.dimensions().isLong()) // [HASLab]
+			return instance.universe().factory().setOf(expression.arity(), sol.longDenseIndices());
 		return instance.universe().factory().setOf(expression.arity(), sol.denseIndices());
 	}
 
@@ -240,7 +285,14 @@ public final class Evaluator {
 		// relations may however be evaluated statically for non temporal instances
 		if (TemporalTranslator.hasTemporalOps(intExpr) || instance instanceof TemporalInstance)
 			return evaluate(intExpr,0);
-		final Int sol = Translator.evaluate(intExpr, instance, options);
+		Int sol = null;
+		if (interpreter != null) { // [HASLab]
+			try {
+				sol = interpreter.evaluate(intExpr);
+			} catch (CapacityExceededException e) { } // long-indexed, so translate
+		}
+		if (sol == null)
+			sol = Translator.evaluate(intExpr, instance, options);
 		this.wasOverflow = sol.defCond().isOverflowFlag(); // [AM]
 		return sol.value();
 	}
@@ -82,4 +82,12 @@ public interface Explorer<T> extends Iterator<T> {
 	 */
 	public boolean hasNextP();
 
+	/**
+	 * Releases the resources, such as the SAT solver, held by this explorer. An
+	 * explorer has no more solutions once freed. Explorers that hold no
+	 * resources of their own ignore this call.
+	 */
+	// [HASLab]
+	public default void free() {}
+
 }
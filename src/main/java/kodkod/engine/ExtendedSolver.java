@@ -141,6 +141,19 @@ public class ExtendedSolver extends AbstractKodkodSolver<PardinusBounds,Extended
 
 		/** @throws UnsupportedOperationException */
 		public void remove() { throw new UnsupportedOperationException(); }
+
+		/**
+		 * Releases the SAT solver of this iterator, which then has no more
+		 * solutions.
+		 * @ensures no this.translation
+		 */
+		// [HASLab]
+		public void free() {
+			if (translation != null) {
+				translation.cnf().free();
+				translation = null;
+			}
+		}
 		
 		/**
 		 * Solves {@code translation.cnf} and adds the negation of the
@@ -59,6 +59,15 @@ import kodkod.instance.Universe;
  * </p>
  * 
  * <p>
+ * If {@linkplain Options#solver() opt.solver} {@linkplain SATFactory#assumptions() supports assumptions}, 
+ * formulas can also be added within {@linkplain #push() scopes}.  The formulas added since the 
+ * innermost call to {@link #push()} are retracted by the matching call to {@link #pop()}, and an UNSAT 
+ * solution obtained while a scope is open does not end the session: after the offending scopes are 
+ * popped, the solver can be used again.  Relations bound within a scope remain bound once it is popped, 
+ * so they cannot be re-bound by later calls to {@linkplain #solve(Formula, Bounds) solve}. 
+ * </p>
+ * 
+ * <p>
  * To simplify the implementation, an {@linkplain IncrementalSolver} currently places
  * the following restriction on the sequence of bounds passed to its {@linkplain #solve(Formula, Bounds)} method:   
  * the equivalence classes on the {@linkplain Universe universe} of interpretation that are 
@@ -152,7 +161,7 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 	 * @return some sol: Solution | sol.instance() = null => 
 	 *              UNSAT(this.formulas', this.bounds', this.options) else 
 	 *              sol.instance() in MODELS(Formula.and(this.formulas'), this.bounds', this.options)
-	 * @throws IllegalStateException a prior call returned an UNSAT solution or resulted in an exception
+	 * @throws IllegalStateException a prior call returned an UNSAT solution outside of any scope or resulted in an exception
 	 * @throws NullPointerException  any of the arguments are null
 	 * @throws UnboundLeafException  the formula refers to an undeclared variable or a relation not mapped by this.bounds + b
 	 * @throws HigherOrderDeclException  the formula contains a higher order declaration
@@ -160,7 +169,7 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 	 * @throws AbortedException this solving task has been aborted
 	 */
 	public Solution solve(Formula f, Bounds b) throws HigherOrderDeclException, UnboundLeafException, AbortedException {
-		if (outcome==Boolean.FALSE)
+		if (outcome==Boolean.FALSE && translation==null) // [HASLab] UNSAT under a scope is not final
 			throw new IllegalStateException("Cannot use this solver since a prior call to solve(...) produced an UNSAT solution.");
 
 		if (outcome != null && translation==null) 
@@ -184,7 +193,7 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 				
 				translation.options().reporter().solvingCNF(0, translation.numPrimaryVariables(), cnf.numberOfVariables(), cnf.numberOfClauses()); // [HASLab]
 				final long startSolve = System.currentTimeMillis();
-				final boolean sat = cnf.solve();
+				final boolean sat = translation.scopes() == 0 ? cnf.solve() : cnf.solve(translation.assumptions()); // [HASLab]
 				final long endSolve = System.currentTimeMillis();
 
 				final Statistics stats = new Statistics(translation, endTransl - startTransl, endSolve - startSolve);
@@ -206,20 +215,60 @@ public final class IncrementalSolver implements BoundedSolver<Bounds,Options> {
 			outcome = Boolean.TRUE;
 		} else {
 			outcome = Boolean.FALSE;
-			free();
+			// [HASLab] keep the solver if the conflict may be due to an open scope
+			if (translation.scopes() == 0)
+				free();
 		}
 		
 		return solution;
 	}
+	
+	/**
+	 * Opens a new scope.  The formulas added by subsequent calls to {@linkplain #solve(Formula, Bounds) solve} 
+	 * are retracted by the matching call to {@link #pop()}; bounds are not.
+	 * @requires this.{@link #usable() usable}() && some this.formulas
+	 * @ensures this.scopes()' = this.scopes() + 1
+	 * @throws IllegalStateException no prior call to solve(...) succeeded, or this solver is no longer usable
+	 * @throws IllegalArgumentException this.options.solver does not support assumptions
+	 */
+	// [HASLab]
+	public void push() {
+		if (translation == null)
+			throw new IllegalStateException("Cannot open a scope before a successful call to solve(...) or after the solver has become unusable.");
+		translation = Translator.pushIncremental(translation);
+	}
+	
+	/**
+	 * Closes the innermost scope, retracting all formulas added since the matching call to {@link #push()}.  
+	 * If the last solution was UNSAT because of the closed scope, the solver can be used again.
+	 * @requires this.scopes() > 0 
+	 * @ensures this.scopes()' = this.scopes() - 1
+	 * @throws IllegalStateException no scope is open
+	 */
+	// [HASLab]
+	public void pop() {
+		if (scopes() == 0)
+			throw new IllegalStateException("No scope to pop.");
+		translation = Translator.popIncremental(translation);
+	}
+	
+	/**
+	 * Returns the number of scopes that are currently open.
+	 * @return number of calls to {@link #push()} not matched by a call to {@link #pop()}
+	 */
+	// [HASLab]
+	public int scopes() {
+		return translation == null ? 0 : translation.scopes();
+	}
 
 	/**
-	 * Returns true iff this solver has neither returned an UNSAT solution so far
-	 * nor thrown an exception during solving.
-	 * @return  true iff this solver has neither returned an UNSAT solution so far
-	 * nor thrown an exception during solving
+	 * Returns true iff this solver has neither returned an UNSAT solution outside of a scope
+	 * so far nor thrown an exception during solving.
+	 * @return  true iff this solver has neither returned an UNSAT solution outside of a scope 
+	 * so far nor thrown an exception during solving
 	 */
 	public boolean usable() {
-		return (outcome == Boolean.TRUE && translation != null) ||  (outcome == null);
+		return (outcome != null && translation != null) ||  (outcome == null); // [HASLab] scoped UNSAT
 	}
 	
 	/**
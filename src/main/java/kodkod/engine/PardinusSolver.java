@@ -235,6 +235,12 @@ public class PardinusSolver implements
 					public boolean hasNextC() {
 						return false;
 					}
+
+					@Override
+					public void free() {
+						if (it instanceof ExtendedSolver.SolutionIterator)
+							((ExtendedSolver.SolutionIterator) it).free();
+					}
 				};
 			}
 		}
@@ -31,12 +31,15 @@ import kodkod.ast.Formula;
 import kodkod.ast.Node;
 import kodkod.ast.Variable;
 import kodkod.ast.visitor.AbstractVoidVisitor;
+import kodkod.engine.config.Options;
+import kodkod.engine.config.Reporter;
 import kodkod.engine.fol2sat.RecordFilter;
 import kodkod.engine.fol2sat.TranslationLog;
 import kodkod.engine.fol2sat.TranslationRecord;
 import kodkod.engine.satlab.ReductionStrategy;
 import kodkod.engine.satlab.ResolutionTrace;
 import kodkod.engine.satlab.SATProver;
+import kodkod.engine.satlab.SpeculativeReductionStrategy;
 import kodkod.engine.ucore.StrategyUtils;
 import kodkod.instance.TupleSet;
 import kodkod.util.collections.IdentityHashSet;
@@ -53,20 +56,26 @@ final class ResolutionBasedProof extends Proof {
 	private SATProver solver;
 	private RecordFilter coreFilter;
 	private Map<Formula,Node> coreRoots;
+	private final int threads; // [HASLab]
+	private final Reporter reporter; // [HASLab]
 	
 	/**
 	 * Constructs a new ResolutionRefutation that will extract the 
-	 * unsatisfiable core for log.formula from the given solver.  
+	 * unsatisfiable core for log.formula from the given solver, 
+	 * minimizing it with options.coreThreads threads and reporting
+	 * the progress to options.reporter.
 	 * @requires solver.solve() has been called and it returned false.
 	 * @requires log.formula is the formula whose translation
 	 * resulted in the given SATProver
 	 * @ensures this.formula' = log.formula
 	 */
-	ResolutionBasedProof(SATProver solver, TranslationLog log) {
+	ResolutionBasedProof(SATProver solver, TranslationLog log, Options options) { // [HASLab] options
 		super(log);
 		this.solver = solver;
 		this.coreFilter = null;
 		this.coreRoots = null;
+		this.threads = options.coreThreads();
+		this.reporter = options.reporter();
 	}
 	
 	/**
@@ -167,8 +176,41 @@ final class ResolutionBasedProof extends Proof {
 	 * @see kodkod.engine.Proof#minimize(kodkod.engine.satlab.ReductionStrategy)
 	 */
 	public void minimize(ReductionStrategy strategy) {
-		solver.reduce(strategy);
+		// [HASLab] report progress, and analyze the candidates concurrently if supported 
+		final ReportingStrategy reporting = new ReportingStrategy(strategy, reporter, new int[1]);
+		if (threads > 1 && strategy instanceof SpeculativeReductionStrategy)
+			solver.reduce(reporting, threads);
+		else
+			solver.reduce(reporting);
 		coreFilter = null;
 		coreRoots = null;
 	}
+	
+	/**
+	 * A reduction strategy that reports each candidate reduction 
+	 * computed by the wrapped strategy.
+	 */
+	private static final class ReportingStrategy implements SpeculativeReductionStrategy {
+		private final ReductionStrategy strategy;
+		private final Reporter reporter;
+		private final int[] candidates; // shared by the copies
+		
+		ReportingStrategy(ReductionStrategy strategy, Reporter reporter, int[] candidates) {
+			this.strategy = strategy;
+			this.reporter = reporter;
+			this.candidates = candidates;
+		}
+		
+		public IntSet next(ResolutionTrace trace) {
+			reporter.reducingCore(++candidates[0], trace.core().size());
+			return strategy.next(trace);
+		}
+
+		/**
+		 * @requires this.strategy in SpeculativeReductionStrategy
+		 */
+		public SpeculativeReductionStrategy copy() {
+			return new ReportingStrategy(((SpeculativeReductionStrategy) strategy).copy(), reporter, candidates);
+		}
+	}
 }
\ No newline at end of file
@@ -130,6 +130,20 @@ public final class Solution {
 		return instance;
 	}
 
+	/**
+	 * Returns a solution with the same outcome and statistics as this one, but
+	 * with the given instance in place of this.instance.
+	 * @requires this.sat() && instance != null
+	 * @return {s: Solution | s.outcome() = this.outcome() && s.stats() = this.stats() && s.instance() = instance }
+	 * @throws IllegalStateException  !this.sat()
+	 */
+	// [HASLab]
+	public Solution withInstance(Instance instance) {
+		if (!sat())
+			throw new IllegalStateException("Only satisfiable solutions have instances.");
+		return new Solution(outcome, stats, instance, null);
+	}
+
 	/**
 	 * Returns a proof of this.formula's unsatisfiability if the value 
 	 * returned  by {@link #outcome() this.outcome()} is UNSATISFIABLE or
@@ -22,6 +22,7 @@
 package kodkod.engine;
 
 import kodkod.engine.fol2sat.Translation;
+import kodkod.engine.fol2sat.TranslationMetrics;
 
 /**
  * Stores the statistics gathered while solving
@@ -38,6 +39,8 @@ public final class Statistics {
 	// [HASLab] remove final
 	private int vars, pVars, clauses;
 	private long translation, solving; 
+	// [HASLab]
+	private TranslationMetrics metrics;
 	
 	/**
 	 * Constructs a new Statistics object using the provided values.
@@ -57,6 +60,7 @@ public final class Statistics {
 	Statistics(Translation translation, long translationTime, long solvingTime) { 
 		this(translation.numPrimaryVariables(), translation.cnf().numberOfVariables(), 
 				translation.cnf().numberOfClauses(), translationTime, solvingTime);
+		this.metrics = translation.metrics(); // [HASLab]
 	}
 	
 	// [HASLab]
@@ -66,6 +70,8 @@ public final class Statistics {
 		this.clauses += translation.cnf().numberOfClauses();
 		this.translation += translationTime;
 		this.solving += solvingTime;
+		if (translation.metrics() != null)
+			this.metrics = translation.metrics();
 	}
 	
 	/**
@@ -120,6 +126,16 @@ public final class Statistics {
 		return solving;
 	}
 	
+	/**
+	 * Returns the metrics recorded for each phase of the most recent
+	 * translation of this.formula, or null if none were recorded.
+	 * @return the metrics of the most recent translation of this.formula, if any
+	 */
+	// [HASLab]
+	public TranslationMetrics translationMetrics() {
+		return metrics;
+	}
+	
 	/**
 	 * Returns a string representation of this
 	 * Statistics object.
@@ -27,14 +27,21 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import kodkod.ast.Expression;
 import kodkod.ast.Formula;
@@ -55,9 +62,13 @@ import kodkod.engine.satlab.SATSolver;
 import kodkod.engine.satlab.TargetSATSolver;
 import kodkod.engine.satlab.WTargetSATSolver;
 import kodkod.instance.Bounds;
+import kodkod.instance.Instance;
 import kodkod.instance.PardinusBounds;
 import kodkod.instance.TemporalInstance;
+import kodkod.instance.Tuple;
 import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+import kodkod.util.ints.IndexedEntry;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
 import kodkod.util.nodes.PrettyPrinter;
@@ -128,6 +139,10 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 		try {
 			long startTransl = System.currentTimeMillis();
 			TemporalTranslator tmptrans = new TemporalTranslator(formula, bounds, options);
+			if (incrementalTraces(tmptrans))
+				return solveIncrementally(tmptrans, bounds, startTransl);
+			if (options.traceThreads() > 1 && options.minTraceLength() < options.maxTraceLength())
+				return solveParallel(formula, bounds, startTransl);
 			Formula extformula = tmptrans.translate();
 			long endTransl = System.currentTimeMillis();
 			long transTime = endTransl - startTransl;
@@ -190,6 +205,314 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 		}
 	}
 
+	/**
+	 * Whether the trace lengths can be explored incrementally for the given
+	 * temporal translation, which requires the option to be set, no past
+	 * operators, a non-decomposed problem and an incremental SAT solver.
+	 */
+	// [HASLab]
+	private boolean incrementalTraces(TemporalTranslator tmptrans) {
+		return options.incrementalTraces() && tmptrans.past_depth == 1 && TemporalTranslator.ExplicitUnrolls
+				&& !options.decomposed() && options.solver().incremental()
+				&& options.minTraceLength() < options.maxTraceLength();
+	}
+
+	/**
+	 * Solves a temporal problem over a single translation covering every trace
+	 * length between the minimum and the maximum. The first solve call admits any
+	 * of those lengths, so unsatisfiable problems are decided at once. While
+	 * satisfiable, the transition into the last state of the found trace is
+	 * disabled by a unit clause and the (warm) SAT solver is called again, until
+	 * either the minimum length is reached or the problem becomes unsatisfiable, in
+	 * which case the last instance found has the shortest possible trace.
+	 * 
+	 * @requires incrementalTraces(tmptrans)
+	 */
+	// [HASLab]
+	private Solution solveIncrementally(TemporalTranslator tmptrans, PardinusBounds bounds, long startTransl) {
+		final int minLength = options.minTraceLength();
+		final PardinusBounds extbounds = tmptrans.expand(minLength, options.maxTraceLength());
+		final Formula extformula = tmptrans.translate(true);
+		final Translation.Whole translation = Translator.translate(extformula, extbounds, options);
+		if (options.logTranslation() > 0)
+			translation.log().logTempTranslation(tmptrans.tempTransLog);
+		final long transTime = System.currentTimeMillis() - startTransl;
+
+		// the last state is never fixed, so the translation can only be trivially false 
+		if (translation.trivial())
+			return trivial(translation, transTime, extbounds);
+
+		final SATSolver cnf = translation.cnf();
+		TemporalInstance instance = null;
+		int traceLength = options.maxTraceLength();
+		long solveTime = 0;
+		while (true) {
+			options.reporter().solvingCNF(traceLength, translation.numPrimaryVariables(), cnf.numberOfVariables(),
+					cnf.numberOfClauses());
+			final long startSolve = System.currentTimeMillis();
+			final boolean isSat = cnf.solve();
+			solveTime += System.currentTimeMillis() - startSolve;
+			if (!isSat)
+				break;
+			final Instance interp = translation.interpret();
+			traceLength = TemporalTranslator.interpretState(interp.tuples(TemporalTranslator.LAST).iterator().next()) + 1;
+			// the state atoms beyond the trace must be discarded from the instance
+			final Universe uni = TemporalBoundsExpander.expandUniverse(tmptrans.bounds.universe(), traceLength, 1);
+			instance = new TemporalInstance(restrict(interp, uni), bounds);
+			if (traceLength <= minLength)
+				break;
+			// disallow the transition into the current last state, only shorter traces remain
+			cnf.addClause(new int[] { -prefixVariable(translation, traceLength - 2) });
+			traceLength--;
+		}
+
+		final Statistics stats = new Statistics(translation, transTime, solveTime);
+		if (instance == null)
+			return unsat(translation, stats);
+		final Solution sol = Solution.satisfiable(stats, instance);
+		cnf.free();
+		return sol;
+	}
+
+	/**
+	 * Solves a temporal problem by translating and solving the trace lengths
+	 * between the minimum and the maximum concurrently, with at most
+	 * {@link ExtendedOptions#traceThreads() options.traceThreads} lengths being
+	 * explored at once. Shorter lengths are scheduled first. Results are inspected
+	 * in increasing trace length, so the shortest satisfiable length is returned
+	 * once every shorter length is known to be unsatisfiable. The remaining
+	 * lengths are then aborted: pending ones are skipped and the solvers of
+	 * running ones are freed, which stops solvers that can be interrupted.
+	 * 
+	 * @requires options.traceThreads() > 1
+	 */
+	// [HASLab]
+	private Solution solveParallel(Formula formula, PardinusBounds bounds, long startTransl) {
+		final long formTransl = System.currentTimeMillis() - startTransl;
+		final int minLength = options.minTraceLength(), maxLength = options.maxTraceLength();
+		final TraceSearch search = new TraceSearch(formula, bounds);
+		final ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(options.traceThreads(), maxLength - minLength + 1), r -> {
+					final Thread t = new Thread(r);
+					t.setDaemon(true);
+					return t;
+				});
+		final List<Future<TraceResult>> futures = new ArrayList<Future<TraceResult>>();
+		for (int l = minLength; l <= maxLength; l++) {
+			final int traceLength = l;
+			futures.add(executor.submit(() -> search.solve(traceLength)));
+		}
+		executor.shutdown();
+
+		TraceResult res = null;
+		Statistics stats = null;
+		try {
+			for (Future<TraceResult> future : futures) {
+				res = future.get();
+				if (stats == null)
+					stats = new Statistics(res.translation, formTransl + res.transTime, res.solveTime);
+				else
+					stats.update(res.translation, res.transTime, res.solveTime);
+				if (res.sat || res.traceLength == maxLength)
+					break;
+				search.release(res);
+			}
+		} catch (InterruptedException e) {
+			search.abort(null);
+			Thread.currentThread().interrupt();
+			throw new AbortedException(e);
+		} catch (ExecutionException e) {
+			search.abort(null);
+			if (e.getCause() instanceof SATAbortedException)
+				throw new AbortedException(e.getCause());
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new AbortedException(e.getCause());
+		}
+		search.abort(res);
+
+		if (res.translation.trivial())
+			return trivial(res.translation, stats.translationTime(), res.extbounds);
+		return res.sat ? sat(res.translation, stats, bounds) : unsat(res.translation, stats);
+	}
+
+	/**
+	 * The outcome of translating and solving the problem for a particular trace
+	 * length.
+	 */
+	// [HASLab]
+	private static final class TraceResult {
+		final int traceLength;
+		final PardinusBounds extbounds;
+		final Translation.Whole translation;
+		final boolean sat;
+		final long transTime, solveTime;
+
+		TraceResult(int traceLength, PardinusBounds extbounds, Translation.Whole translation, boolean sat,
+				long transTime, long solveTime) {
+			this.traceLength = traceLength;
+			this.extbounds = extbounds;
+			this.translation = translation;
+			this.sat = sat;
+			this.transTime = transTime;
+			this.solveTime = solveTime;
+		}
+	}
+
+	/**
+	 * Shared state of a parallel trace length search. Tracks the solvers of the
+	 * lengths being solved and the results produced by the workers, so that they
+	 * can be freed once the search is decided. Each worker translates the temporal
+	 * problem on its own, so no translation state is shared between threads.
+	 */
+	// [HASLab]
+	private final class TraceSearch {
+		private final Formula formula;
+		private final PardinusBounds bounds;
+		private final List<TraceResult> produced = new ArrayList<TraceResult>();
+		private final Set<SATSolver> running = new HashSet<SATSolver>();
+		private boolean done = false;
+
+		TraceSearch(Formula formula, PardinusBounds bounds) {
+			this.formula = formula;
+			this.bounds = bounds;
+		}
+
+		/**
+		 * Translates and solves the problem for the given trace length. Trivial
+		 * translations are not solved. Returns null if the search was decided
+		 * meanwhile, which is checked between the translation and the solving 
+		 * phases, and aborts the solving phase if the solver supports it.
+		 */
+		TraceResult solve(int traceLength) {
+			if (aborted())
+				return null;
+			final long startTransl = System.currentTimeMillis();
+			final TemporalTranslator tmptrans = new TemporalTranslator(formula, bounds, options);
+			final Formula extformula = tmptrans.translate();
+			final PardinusBounds extbounds = tmptrans.expand(traceLength);
+			final Translation.Whole translation = Translator.translate(extformula, extbounds, options);
+			if (options.logTranslation() > 0)
+				translation.log().logTempTranslation(tmptrans.tempTransLog);
+			final long transTime = System.currentTimeMillis() - startTransl;
+			boolean isSat = false;
+			long solveTime = 0;
+			if (!translation.trivial()) {
+				final SATSolver cnf = translation.cnf();
+				synchronized (this) {
+					if (done) {
+						cnf.free();
+						return null;
+					}
+					running.add(cnf);
+				}
+				options.reporter().solvingCNF(traceLength, translation.numPrimaryVariables(),
+						cnf.numberOfVariables(), cnf.numberOfClauses());
+				final long startSolve = System.currentTimeMillis();
+				try {
+					isSat = cnf.solve();
+				} catch (RuntimeException e) {
+					// a solver freed by abort may fail in any way
+					if (aborted())
+						return null;
+					throw e;
+				} finally {
+					synchronized (this) {
+						running.remove(cnf);
+					}
+				}
+				solveTime = System.currentTimeMillis() - startSolve;
+			}
+			final TraceResult res = new TraceResult(traceLength, extbounds, translation, isSat, transTime, solveTime);
+			synchronized (this) {
+				if (done) {
+					translation.cnf().free();
+					return null;
+				}
+				produced.add(res);
+			}
+			return res;
+		}
+
+		/** Whether the search has been decided. */
+		synchronized boolean aborted() {
+			return done;
+		}
+
+		/** Releases the solver of a result that will not be used. */
+		synchronized void release(TraceResult res) {
+			if (produced.remove(res))
+				res.translation.cnf().free();
+		}
+
+		/**
+		 * Decides the search, freeing the solvers of the running lengths and of
+		 * every produced result other than the selected one. Pending lengths
+		 * return as soon as they are started.
+		 */
+		synchronized void abort(TraceResult selected) {
+			done = true;
+			for (SATSolver cnf : running)
+				cnf.free();
+			running.clear();
+			for (TraceResult res : produced)
+				if (res != selected)
+					res.translation.cnf().free();
+			produced.clear();
+		}
+	}
+
+	/**
+	 * Restricts an instance to a smaller universe, discarding every tuple with
+	 * atoms outside of it.
+	 * 
+	 * @requires universe.atoms in instance.universe.atoms
+	 */
+	// [HASLab]
+	private static Instance restrict(Instance instance, Universe universe) {
+		final Instance res = new Instance(universe);
+		for (Relation r : instance.relations()) {
+			final TupleSet ts = universe.factory().noneOf(r.arity());
+			TUPLES: for (Tuple t : instance.tuples(r)) {
+				final List<Object> atoms = new ArrayList<Object>(t.arity());
+				for (int i = 0; i < t.arity(); i++) {
+					if (!universe.contains(t.atom(i)))
+						continue TUPLES;
+					atoms.add(t.atom(i));
+				}
+				ts.add(universe.factory().tuple(atoms));
+			}
+			res.add(r, ts);
+		}
+		for (IndexedEntry<TupleSet> entry : instance.intTuples())
+			res.add(entry.index(), universe.factory().setOf(entry.value().iterator().next().atom(0)));
+		return res;
+	}
+
+	/**
+	 * The primary variable representing the transition from state
+	 * <code>step</code> into the following one, for translations over bounds
+	 * produced by {@link TemporalTranslator#expand(int, int)}.
+	 * 
+	 * @requires the transition is not fixed by the lower bound
+	 */
+	// [HASLab]
+	private static int prefixVariable(Translation translation, int step) {
+		final Bounds tbounds = translation.bounds();
+		final int index = TemporalBoundsExpander.prefixTuple(tbounds.universe(), step).index();
+		final IntSet lower = tbounds.lowerBound(TemporalTranslator.PREFIX).indexView();
+		// variables are allocated in the order of the upper bound minus the lower bound
+		int lit = translation.primaryVariables(TemporalTranslator.PREFIX).min();
+		for (IntIterator iter = tbounds.upperBound(TemporalTranslator.PREFIX).indexView().iterator(); iter.hasNext();) {
+			final int i = iter.next();
+			if (i == index)
+				return lit;
+			if (!lower.contains(i))
+				lit++;
+		}
+		throw new IllegalArgumentException("Transition from state " + step + " not in the trace bounds.");
+	}
+
 	public Explorer<Solution> solveAll(Formula formula, PardinusBounds bounds) throws HigherOrderDeclException,
 			UnboundLeafException, AbortedException {
 		if (Options.isDebug())
@@ -237,13 +560,24 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 
 	// [HASLab]
 	private static Solution unsat(Translation.Whole translation, Statistics stats) {
+		return unsat(translation, stats, true);
+	}
+
+	/**
+	 * Returns the unsatisfiable solution of the given translation, with a proof
+	 * if its solver is a prover and its translation was logged. Otherwise frees
+	 * the solver if {@code free} is set.
+	 */
+	// [HASLab]
+	private static Solution unsat(Translation.Whole translation, Statistics stats, boolean free) {
 		final SATSolver cnf = translation.cnf();
 		final TranslationLog log = translation.log();
 		if (cnf instanceof SATProver && log != null) {
-			return Solution.unsatisfiable(stats, new ResolutionBasedProof((SATProver) cnf, log));
+			return Solution.unsatisfiable(stats, new ResolutionBasedProof((SATProver) cnf, log, translation.options()));
 		} else { // can free memory
 			final Solution sol = Solution.unsatisfiable(stats, null);
-			cnf.free();
+			if (free)
+				cnf.free();
 			return sol;
 		}
 	}
@@ -294,6 +628,15 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 		private final List<IterationStep> previousSols = new ArrayList<IterationStep>();
 		private final Map<Object, Expression> reifs = new HashMap<Object, Expression>();
 
+		// [HASLab] if the solver solves under assumptions, iteration steps are loaded
+		// under activation literals and the translation of each prefix length is kept
+		// alive, so that steps can be retracted and modes switched without re-translating;
+		// lengths that are unsatisfiable without any step are freed and never revisited
+		private final boolean retractable;
+		private final Map<Integer, LiveTranslation> live = new HashMap<Integer, LiveTranslation>();
+		private final Set<Integer> dead = new HashSet<Integer>();
+		private LiveTranslation current;
+
 		SolutionIterator(Formula formula, PardinusBounds bounds, ExtendedOptions options) { // [HASLab]
 			assert !options.unbounded();
 			this.translTime = System.currentTimeMillis();
@@ -314,6 +657,10 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 			this.translTime = System.currentTimeMillis() - translTime;
 			this.trivial = 0;
 			this.opt = options;
+			this.retractable = options.solver().assumptions();
+			this.current = new LiveTranslation(translation, extbounds);
+			if (retractable && !translation.trivial())
+				live.put(current_trace, current);
 		}
 
 
@@ -352,7 +699,8 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 							.collect(Collectors.toSet()));
 
 				// if reducing prefix, restart the process
-				// this will force the re-generation of the solver at minimal length
+				// this will force the re-generation of the solver at minimal length,
+				// unless the translation for that length is still live
 				if (iteration_stage == 2 && state < last_segment) {
 					previousSols.removeIf(s -> s.start > state);
 					current_trace = Math.max(1,state);
@@ -406,7 +754,8 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 						.collect(Collectors.toSet());
 
 				// if coming back from other mode, restart the process
-				// this will force the re-generation of the solver at minimal length
+				// this will force the re-generation of the solver at minimal length,
+				// unless the translation for that length is still live
 				if (iteration_stage != 0) {
 					previousSols.removeIf(s -> s.start >= 0);
 					current_trace = opt.minTraceLength();
@@ -436,6 +785,21 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 			throw new UnsupportedOperationException();
 		}
 
+		/**
+		 * Releases the solvers of the current and live translations.
+		 */
+		@Override
+		public void free() {
+			if (translation != null)
+				translation.cnf().free();
+			for (LiveTranslation l : live.values())
+				l.translation.cnf().free();
+			live.clear();
+			translation = null;
+			current = null;
+			iteration_stage = 0;
+		}
+
 		/**
 		 * Converts an iteration step into its SAT negation for the current prefix
 		 * length. Takes into consideration all equivalent loops for an unrolled
@@ -579,7 +943,7 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 			}
 
 			boolean isSat = false;
-			long solveTime = 0;
+			long solveTime = 0, translTimeNow = 0;
 			Translation.Whole transl = null;
 			int primaryVars = -1;
 			SATSolver cnf = null;
@@ -588,26 +952,12 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 			// this may be coming from an unsat path iteration and must be restarted before
 			// the previous solution is converted into sat
 			if (translation == null) {
-
-				// the translation of the original formula could in principle be re-used but
-				// the original past depth level is needed
-				tmptrans = new TemporalTranslator(originalFormula, originalBounds, opt);
-				extbounds = tmptrans.expand(current_trace);
-				Formula exp_reforms = tmptrans.translate();
-				long translStart = System.currentTimeMillis();
-				translation = Translator.translate(exp_reforms, extbounds, opt);
-				if (opt.logTranslation() > 0)
-					translation.log().logTempTranslation(tmptrans.tempTransLog);
-				long translEnd = System.currentTimeMillis();
-				translTime += translEnd - translStart;
-
-				for (IterationStep inst : previousSols) {
-					final List<int[]> notModel = instanceToSat(inst);
-					for (int[] cnfs : notModel)
-						translation.cnf().addClause(cnfs);
-				}
-				
-			}
+				while (dead.contains(current_trace))
+					current_trace++;
+				if (current_trace <= opt.maxTraceLength())
+					translTimeNow += translate();
+			} else if (current == null || current.translation != translation)
+				current = new LiveTranslation(translation, extbounds);
 
 			// instance negation must now occur on the next step since the operation is not
 			// known a priori
@@ -615,34 +965,15 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 				IterationStep newstep = new IterationStep(previousSol, state, (steps == -1) ? -1 : (state + steps - 1),
 						new HashSet<Relation>(fix), new HashSet<Relation>(change));
 				previousSols.add(newstep);
-				final List<int[]> notModel = instanceToSat(newstep);
-				for (int[] cnfs : notModel)
-					translation.cnf().addClause(cnfs);
+				if (translation != null)
+					load(newstep);
 			}
 			
 			final Statistics stats = new Statistics(0, 0, 0, 0, 0);
 
 			while (!isSat && current_trace <= opt.maxTraceLength()) {
-				if (translation == null) {
-
-					// the translation of the original formula could in principle be re-used but
-					// the original past depth level is needed
-					tmptrans = new TemporalTranslator(originalFormula, originalBounds, opt);
-					extbounds = tmptrans.expand(current_trace);
-					Formula exp_reforms = tmptrans.translate();
-					long translStart = System.currentTimeMillis();
-					translation = Translator.translate(exp_reforms, extbounds, opt);
-					if (opt.logTranslation() > 0)
-						translation.log().logTempTranslation(tmptrans.tempTransLog);
-					long translEnd = System.currentTimeMillis();
-					translTime = translEnd - translStart;
-
-					for (IterationStep inst : previousSols) {
-						final List<int[]> notModel = instanceToSat(inst);
-						for (int[] cnfs : notModel)
-							translation.cnf().addClause(cnfs);
-					}
-				}
+				if (translation == null)
+					translTimeNow += translate();
 				
 				transl = translation;
 
@@ -652,14 +983,23 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 				transl.options().reporter().solvingCNF(current_trace, primaryVars, cnf.numberOfVariables(), cnf.numberOfClauses());
 
 				final long startSolve = System.currentTimeMillis();
-				isSat = cnf.solve();
+				isSat = retractable ? cnf.solve(assumptions()) : cnf.solve();
 				final long endSolve = System.currentTimeMillis();
 				solveTime = endSolve - startSolve;
 				
-				stats.update(transl, translTime, solveTime);
+				stats.update(transl, translTimeNow, solveTime);
+				translTimeNow = 0;
 				
 				if (!isSat) {
-					current_trace++;
+					if (retractable && !(cnf instanceof SATProver) && cnf.failedAssumptions().length == 0) {
+						// unsatisfiable whatever the steps, so this length is never worth revisiting
+						live.remove(current_trace);
+						dead.add(current_trace);
+						cnf.free();
+					}
+					do
+						current_trace++;
+					while (dead.contains(current_trace));
 					translation = null;
 				}
 			}
@@ -687,14 +1027,102 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 				// NOTE: should be on next to also get trivials?
 				previousSol = (TemporalInstance) sol.instance();
 
+			} else if (transl == null) { // every remaining length is unsatisfiable
+				sol = Solution.unsatisfiable(stats, null);
 			} else {
-				sol = unsat(transl, stats); // this also frees up solver resources, if any
+				// live translations are kept for other modes and segments, unless a proof
+				// now depends on their solver
+				final Translation.Whole last = transl;
+				final boolean isLive = live.values().stream().anyMatch(l -> l.translation == last);
+				sol = unsat(transl, stats, !isLive); // this also frees up solver resources, if not live
+				if (sol.proof() != null)
+					live.values().removeIf(l -> l.translation == last);
 				translation = null; // unsat, no more solutions
 			}
 
 			return sol;
 		}
 
+		/**
+		 * Sets {@code this.translation} to a translation for the current prefix
+		 * length, with the negation of every step in {@code previousSols} loaded. If
+		 * steps can be retracted, the translation previously created for this length
+		 * is reused, and only the steps it has not seen are loaded.
+		 * 
+		 * @return the time spent translating
+		 */
+		private long translate() {
+			current = retractable ? live.get(current_trace) : null;
+			long time = 0;
+			if (current == null) {
+				// the translation of the original formula could in principle be re-used but
+				// the original past depth level is needed
+				tmptrans = new TemporalTranslator(originalFormula, originalBounds, opt);
+				extbounds = tmptrans.expand(current_trace);
+				Formula exp_reforms = tmptrans.translate();
+				long translStart = System.currentTimeMillis();
+				translation = Translator.translate(exp_reforms, extbounds, opt);
+				if (opt.logTranslation() > 0)
+					translation.log().logTempTranslation(tmptrans.tempTransLog);
+				time = System.currentTimeMillis() - translStart;
+				translTime += time;
+				current = new LiveTranslation(translation, extbounds);
+				if (retractable)
+					live.put(current_trace, current);
+			} else {
+				opt.reporter().debug("Reusing translation at " + current_trace);
+				translation = current.translation;
+				extbounds = current.extbounds;
+			}
+			for (IterationStep inst : previousSols)
+				load(inst);
+			return time;
+		}
+
+		/**
+		 * Adds the negation of an iteration step to the current translation, unless
+		 * already there. If steps can be retracted, the clauses are guarded by a fresh
+		 * activation literal, which must be assumed for the step to hold.
+		 */
+		private void load(IterationStep inst) {
+			if (current.steps.containsKey(inst))
+				return;
+			final SATSolver cnf = translation.cnf();
+			int act = 0;
+			if (retractable) {
+				cnf.addVariables(1);
+				act = cnf.numberOfVariables();
+			}
+			for (int[] clause : instanceToSat(inst)) {
+				if (act != 0) {
+					clause = Arrays.copyOf(clause, clause.length + 1);
+					clause[clause.length - 1] = -act;
+				}
+				cnf.addClause(clause);
+			}
+			current.steps.put(inst, act);
+		}
+
+		/**
+		 * Returns the activation literals of the steps in {@code previousSols} for the
+		 * current translation. Steps that have since been retracted are permanently
+		 * disabled.
+		 */
+		private int[] assumptions() {
+			final int[] acts = new int[current.steps.size()];
+			int i = 0;
+			for (Iterator<Map.Entry<IterationStep, Integer>> iter = current.steps.entrySet().iterator(); iter.hasNext();) {
+				final Map.Entry<IterationStep, Integer> step = iter.next();
+				if (previousSols.contains(step.getKey()))
+					acts[i++] = step.getValue();
+				else {
+					translation.cnf().addClause(new int[] { -step.getValue() });
+					iter.remove();
+				}
+			}
+			return Arrays.copyOf(acts, i);
+		}
+
 		private Solution nextNonTrivialSolutionFormula(int state, int steps, Set<Relation> fix, Set<Relation> change) {
 
 			boolean isSat = false;
@@ -1093,6 +1521,23 @@ implements KodkodSolver<PardinusBounds, ExtendedOptions>, TemporalSolver<Extende
 
 	}
 
+	/**
+	 * A translation of a temporal problem for a given prefix length, and the
+	 * iteration steps whose negation has been added to its solver, with the
+	 * activation literal guarding each of them (0 if added permanently).
+	 */
+	// [HASLab]
+	private static final class LiveTranslation {
+		final Translation.Whole translation;
+		final PardinusBounds extbounds;
+		final Map<IterationStep, Integer> steps = new LinkedHashMap<IterationStep, Integer>();
+
+		private LiveTranslation(Translation.Whole translation, PardinusBounds extbounds) {
+			this.translation = translation;
+			this.extbounds = extbounds;
+		}
+	}
+
 	private static class IterationStep {
 		final TemporalInstance prev;
 		final int start, end;
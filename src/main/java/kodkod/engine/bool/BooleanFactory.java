@@ -69,7 +69,8 @@ public abstract class BooleanFactory {
 	 * Constructs a boolean factory with the given number of input variables.  Gates are
 	 * checked for semantic equality down to the given depth.  Integers are represented
 	 * using the given number of bits. The noOverflow bit tells whether or not to forbid 
-	 * overflows.
+	 * overflows. The openAddressing bit tells whether gates are cached in primitive 
+	 * open addressing tables.
 	 * 
 	 * @requires 0 <= numVars < Integer.MAX_VALUE
 	 * @requires checkToDepth >= 0 && bitwidth > 0
@@ -77,14 +78,14 @@ public abstract class BooleanFactory {
 	 * @ensures this.bitwidth' = bitwidth
 	 * @ensures this.comparisonDepth' = comparisonDepth
 	 */
-	 // [AM]
-	private BooleanFactory(int numVars, int comparisonDepth, int bitwidth, boolean noOverflow) {
+	 // [AM] [HASLab] gate tables
+	private BooleanFactory(int numVars, int comparisonDepth, int bitwidth, boolean noOverflow, boolean openAddressing) {
 		if (numVars==0) {
 			if (CONSTANT_FACTORY==null)
 				CONSTANT_FACTORY = new CBCFactory(0, 1);
 			this.circuits = CONSTANT_FACTORY;
 		} else {
-			this.circuits = new CBCFactory(numVars, 1<<comparisonDepth);
+			this.circuits = new CBCFactory(numVars, 1<<comparisonDepth, openAddressing);
 		}
 		this.bitwidth = bitwidth;
 		this.noOverflow = noOverflow;
@@ -111,7 +112,8 @@ public abstract class BooleanFactory {
 	public static BooleanFactory factory(int numVars, Options options) {
 		switch(options.intEncoding()) {
 		case TWOSCOMPLEMENT : 
-			return new TwosComplementFactory(numVars, options.sharing(), options.bitwidth(), options.noOverflow()); 
+			return new TwosComplementFactory(numVars, options.sharing(), options.bitwidth(), options.noOverflow(), 
+					options.gateTable()==Options.GateTable.OPEN_ADDRESSING); // [HASLab]
 		default :
 			throw new IllegalArgumentException("unknown encoding: " + options.intEncoding());
 		}
@@ -159,6 +161,34 @@ public abstract class BooleanFactory {
 	/** Returns the noOverflow flag */ //[AM]
 	public final boolean noOverflow() { return noOverflow; }
 	
+	/**
+	 * Sets whether this factory may be used by several threads at once.  While 
+	 * concurrent, gates are cached in lock-striped tables, so that structurally equal 
+	 * gates are still shared and gate labels remain consistent, while threads only 
+	 * contend when assembling gates that hash to the same stripe.  
+	 * The caller must ensure that no gates are being assembled when this is changed.
+	 * @ensures this.concurrent' = concurrent
+	 */
+	// [HASLab]
+	public final void setConcurrent(boolean concurrent) {
+		circuits.setConcurrent(concurrent ? CONCURRENT_STRIPES : 1);
+	}
+	
+	/**
+	 * The number of stripes per gate operator while concurrent. 
+	 */
+	// [HASLab]
+	private static final int CONCURRENT_STRIPES = 64;
+	
+	/**
+	 * Returns whether this factory may be used by several threads at once.
+	 * @return this.concurrent
+	 */
+	// [HASLab]
+	public final boolean concurrent() {
+		return circuits.concurrent();
+	}
+	
 	/**
 	 * Returns the encoding used by this factory to represent integers.
 	 * @return this.intEncoding
@@ -459,8 +489,8 @@ public abstract class BooleanFactory {
 		 * @ensures this.intEncoding' = BINARY
 		 */
 		 // [AM]
-		TwosComplementFactory(int numVars, int comparisonDepth, int bitwidth, boolean noOverflow) {
-			super(numVars, comparisonDepth, bitwidth, noOverflow);
+		TwosComplementFactory(int numVars, int comparisonDepth, int bitwidth, boolean noOverflow, boolean openAddressing) {
+			super(numVars, comparisonDepth, bitwidth, noOverflow, openAddressing);
 		}
 		/**
 		 * Returns TWOSCOMPLEMENT.
@@ -35,7 +35,7 @@ import java.util.Set;
  * @author Emina Torlak
  */
 public abstract class BooleanFormula extends BooleanValue implements Iterable<BooleanFormula> {
-	private BooleanFormula negation;
+	private volatile BooleanFormula negation; // [HASLab] volatile for concurrent translations
 	
 	/**
 	 * Constructs a boolean formula with the given negation.
@@ -92,10 +92,17 @@ public abstract class BooleanFormula extends BooleanValue implements Iterable<Bo
 	 * @see kodkod.engine.bool.BooleanValue#negation()
 	 */
 	final BooleanFormula negation() {
-		if (negation==null) {
-			negation = new NotGate(this);
+		BooleanFormula ret = negation;
+		if (ret==null) {
+			synchronized(this) { // [HASLab] so that concurrent translations agree on the negation
+				ret = negation;
+				if (ret==null) {
+					ret = new NotGate(this);
+					negation = ret;
+				}
+			}
 		}
-		return negation;
+		return ret;
 	}
 	
 	/**
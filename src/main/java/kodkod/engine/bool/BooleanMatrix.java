@@ -26,8 +26,14 @@ import static kodkod.engine.bool.BooleanConstant.TRUE;
 import static kodkod.engine.bool.Operator.AND;
 import static kodkod.engine.bool.Operator.OR;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
+import kodkod.engine.CapacityExceededException;
 import kodkod.engine.fol2sat.Environment;
 import kodkod.util.collections.Containers;
 import kodkod.util.ints.ArraySequence;
@@ -36,6 +42,7 @@ import kodkod.util.ints.IndexedEntry;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
 import kodkod.util.ints.Ints;
+import kodkod.util.ints.LongSet;
 import kodkod.util.ints.RangeSequence;
 import kodkod.util.ints.SparseSequence;
 import kodkod.util.ints.TreeSequence;
@@ -57,6 +64,18 @@ import kodkod.util.ints.TreeSequence;
  * If this is the case, an attempt to call {@link #set(int, BooleanValue) }
  * with invalid parameters will cause an IllegalArgumentException or an IndexOutOfBoundsException. </p>
  * 
+ * <p>Operations whose operands can all store only constants are computed directly 
+ * over the sets of TRUE indices, without creating any gates.  Union, intersection 
+ * and difference are word-parallel when these sets are bit sets, and the dot product
+ * and closure of constant matrices are computed over rows of bits. </p>
+ * 
+ * <p>Matrices whose capacity exceeds the range of an int store their non-FALSE 
+ * entries in a map from long indices.  Such matrices support the operations that
+ * are linear in the number of their non-FALSE entries, and are accessed through
+ * {@link #longView()}, {@link #get(long)} and {@link #set(long, BooleanValue)}.
+ * The remaining operations, as well as the int-indexed accessors, throw a 
+ * {@link CapacityExceededException} when applied to them. </p>
+ * 
  * @specfield dimensions: Dimensions
  * @specfield factory: BooleanFactory
  * @specfield elements: [0..dimensions.capacity) -> one factory.components
@@ -71,6 +90,8 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
     private final Dimensions dims;
     private final BooleanFactory factory;
     private final SparseSequence<BooleanValue> cells;
+    // [HASLab] the entries of a matrix whose capacity exceeds the range of an int, in which case this.cells is null
+    private final NavigableMap<Long,BooleanValue> longCells;
 
     /**  
      * Constructs a new matrix with the given dimensions, factory, and entries.
@@ -84,6 +105,23 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
         this.dims = dimensions;
         this.factory = factory;
         this.cells = seq;
+        this.longCells = null; // [HASLab]
+    }
+    
+    /**  
+     * Constructs a new matrix with the given dimensions, factory, and long-indexed entries.
+     * 
+     * @requires dimensions.isLong() && factory != null && map != null
+     * @requires map.keySet() in [0..dimensions.capacity)
+     * @ensures this.dimensions' = dimensions && this.factory' = factory && 
+     *          this.elements' = [0..dimensions.capacity)->one FALSE ++ map 
+     */
+    // [HASLab]
+    private BooleanMatrix(Dimensions dimensions, BooleanFactory factory, NavigableMap<Long,BooleanValue> map) {
+        this.dims = dimensions;
+        this.factory = factory;
+        this.cells = null;
+        this.longCells = map;
     }
     
     /**
@@ -96,6 +134,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
     private BooleanMatrix(Dimensions d, BooleanFactory f, SparseSequence<BooleanValue> s0, SparseSequence<BooleanValue> s1) {
         this.dims = d;
         this.factory = f;
+        this.longCells = null; // [HASLab]
         final Class<?> c0 = s0.getClass(), c1 = s1.getClass();
         if (c0!=c1 || c0==RangeSequence.class)
             this.cells = new RangeSequence<BooleanValue>();
@@ -120,6 +159,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
     private BooleanMatrix(Dimensions d, BooleanMatrix m, BooleanMatrix...rest) {
         this.dims = d;
         this.factory = m.factory;
+        this.longCells = null; // [HASLab]
         
         final Class<?> h = HomogenousSequence.class, t = TreeSequence.class;
         final boolean sameDim = d.equals(m);
@@ -156,7 +196,9 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
     BooleanMatrix(Dimensions dims, BooleanFactory factory) {
         this.dims = dims;
         this.factory = factory;
-        this.cells = new RangeSequence<BooleanValue>();
+        // [HASLab]
+        this.cells = dims.isLong() ? null : new RangeSequence<BooleanValue>();
+        this.longCells = dims.isLong() ? new TreeMap<Long,BooleanValue>() : null;
     }
     
     /**  
@@ -177,6 +219,8 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
     BooleanMatrix(Dimensions dims, BooleanFactory factory, IntSet allIndices, IntSet trueIndices) {
         this.dims = dims;
         this.factory = factory;
+        this.longCells = null; // [HASLab]
+        dims.capacity(); // [HASLab] int indices only
         final int tsize = trueIndices.size(), asize = allIndices.size();
         if (tsize==asize)
             this.cells = new HomogenousSequence<BooleanValue>(TRUE, trueIndices);
@@ -229,7 +273,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * Returns the number of non-FALSE entries in this matrix.
      * @return #this.elements.(BooleanValue - FALSE)
      */
-    public final int density() { return cells.size(); }
+    public final int density() { return longCells==null ? cells.size() : longCells.size(); } // [HASLab]
     
     /**
      * Returns an IndexedEntry-based view of the non-FALSE entries in this matrix.  The returned
@@ -239,11 +283,30 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * c2.index=3 && c.value = c | d.  Calling {@link Iterator#remove()} on the returned iterator has the same effect
      * as setting the entry obtained through the last call to {@link Iterator#next()} to FALSE.
      * @return an iterator over IndexedEntries representing the non-FALSE entries in this matrix.
+     * @throws CapacityExceededException  this.dimensions.capacity > Integer.MAX_VALUE
      */
     public final Iterator<IndexedEntry<BooleanValue>> iterator() {
+        checkInt(); // [HASLab]
         return cells.iterator();
     }
     
+    /**
+     * Returns a read-only view of the non-FALSE entries in this matrix, keyed
+     * by their long indices in ascending order.  Unlike {@link #iterator()}, this
+     * method is defined for matrices whose capacity exceeds the range of an int. 
+     * The view is backed by this matrix if its capacity exceeds the range of an int,
+     * and is a copy of its entries otherwise.
+     * @return { m: NavigableMap<Long,BooleanValue> | m = this.elements - (Long->FALSE) }
+     */
+    // [HASLab]
+    public final NavigableMap<Long,BooleanValue> longView() {
+        if (longCells!=null) return Collections.unmodifiableNavigableMap(longCells);
+        final NavigableMap<Long,BooleanValue> ret = new TreeMap<Long,BooleanValue>();
+        for(IndexedEntry<BooleanValue> e : cells)
+            ret.put((long) e.index(), e.value());
+        return ret;
+    }
+    
     /**
      * Returns the set of all indices in this matrix that contain
      * non-FALSE values.
@@ -251,9 +314,36 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * non-FALSE values.
      */
     public final IntSet denseIndices() {
+        checkInt(); // [HASLab]
         return cells.indices();
     }
     
+    /**
+     * Returns the set of all long indices in this matrix that contain
+     * non-FALSE values.  Unlike {@link #denseIndices()}, this method is defined 
+     * for matrices whose capacity exceeds the range of an int.  The returned 
+     * set is not backed by this matrix.
+     * @return the set of all long indices in this matrix that contain
+     * non-FALSE values.
+     */
+    // [HASLab]
+    public final LongSet longDenseIndices() {
+        final LongSet ret = new LongSet();
+        for(Long index : entries().keySet()) 
+            ret.add(index.longValue());
+        return ret;
+    }
+    
+    /**
+     * Throws a CapacityExceededException if the capacity of this matrix
+     * exceeds the range of an int, and this.cells cannot be used.
+     * @throws CapacityExceededException  this.dimensions.capacity > Integer.MAX_VALUE
+     */
+    // [HASLab]
+    private final void checkInt() {
+        if (longCells!=null) dims.capacity();
+    }
+    
     /**
      * Return FALSE if value is null; otherwise return value itself.
      * @return FALSE if value is null; otherwise return value itself.
@@ -270,6 +360,27 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
         return maskNull(cells.get(index));
     }
     
+    /**
+     * Returns the value at the given long index, without checking that the index is in bounds.
+     * @return this.elements[index]
+     */
+    // [HASLab]
+    private final BooleanValue fastGet(final long index) {
+        return maskNull(longCells==null ? cells.get((int) index) : longCells.get(index));
+    }
+    
+    /**
+     * Returns the element at the specified long index.  Unlike {@link #get(int)}, this
+     * method is defined for matrices whose capacity exceeds the range of an int.
+     * @return this.elements[index]
+     * @throws IndexOutOfBoundsException  index < 0 || index >= this.dimensions.capacity
+     */
+    // [HASLab]
+    public final BooleanValue get(final long index) {
+        if (!dims.validate(index)) throw new IndexOutOfBoundsException(index + " is not a valid index.");
+        return fastGet(index);
+    }
+    
     /**
      * Returns the element at the specified index.
      * @return this.elements[index]
@@ -277,9 +388,60 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      */
     public final BooleanValue get(final int index) {
         if (!dims.validate(index)) throw new IndexOutOfBoundsException(index + " is not a valid index.");
+        if (longCells!=null) return fastGet((long) index); // [HASLab]
         return maskNull(cells.get(index));
     }
     
+    /**
+     * Returns true if this matrix can store only constants; that is, if all
+     * of its non-FALSE entries are TRUE and stored as a set of indices.
+     * @return this.elements[int] in BooleanConstant and this can only store constants
+     */
+    private final boolean constant() {
+        return cells!=null && cells.getClass()==HomogenousSequence.class; // [HASLab]
+    }
+    
+    /**
+     * Returns true if the given number of entries of a rows x cols matrix are dense
+     * enough to be worth storing as row bit sets; that is, if the row bit sets take
+     * no more words than there are entries.
+     * @return rows * ((cols + 63) >>> 6) <= entries
+     */
+    private static boolean dense(int entries, int rows, int cols) {
+        return (long) rows * ((cols + 63) >>> 6) <= entries;
+    }
+    
+    /**
+     * Returns the given indices of a constant matrix, viewed as a rows x cols matrix, 
+     * as an array of row bit sets.  The bits of each row are stored in 
+     * stride = (cols + 63) >>> 6 consecutive words of the returned array.
+     * @requires indices in [0..rows*cols)
+     * @return an array of rows*stride words that has the bit col of row set
+     * iff indices contains row*cols + col
+     */
+    private static long[] rows(IntSet indices, int rows, int cols) {
+        final int stride = (cols + 63) >>> 6;
+        final long[] words = new long[rows * stride];
+        for(IntIterator iter = indices.iterator(); iter.hasNext(); ) {
+            final int i = iter.next(), col = i % cols;
+            words[(i / cols)*stride + (col >>> 6)] |= 1L << col;
+        }
+        return words;
+    }
+    
+    /**
+     * Adds offset + i to the given set for each bit i set in the stride words 
+     * of the given array that start at from.
+     * @ensures indices.ints' = indices.ints + 
+     *           { i: int | some j: [0..stride) | words[from+j] has bit i-offset-64*j set } 
+     */
+    private static void addRow(IntSet indices, long[] words, int from, int stride, int offset) {
+        for(int w = 0; w < stride; w++, offset += 64) {
+            for(long word = words[from + w]; word != 0; word &= word - 1) {
+                indices.add(offset + Long.numberOfTrailingZeros(word));
+            }
+        }
+    }
     
     /**
      * Returns a new matrix each of whose entries is a negation of the 
@@ -289,6 +451,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      *                              all i: [0..m.dimensions.capacity) | m.elements[i] = !this.elements[i] }
      */
     public final BooleanMatrix not() {
+        checkInt(); // [HASLab] the negation of a long matrix has too many entries
         final BooleanMatrix negation = new BooleanMatrix(dims, factory, cells, cells);
         negation.mergeDefConds(this);
         
@@ -330,12 +493,19 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      */
     public final BooleanMatrix and(BooleanMatrix  other) {
         checkFactory(this.factory, other.factory); checkDimensions(this.dims, other.dims);
+        if (dims.isLong()) return longAnd(other); // [HASLab]
         
         final BooleanMatrix ret = new BooleanMatrix(dims, factory, cells, other.cells);
         ret.mergeDefConds(this, other);
         
         final  SparseSequence<BooleanValue> s1 = other.cells;
         if (cells.isEmpty() || s1.isEmpty()) return ret;
+        if (ret.constant()) {
+            final IntSet indices = ret.cells.indices();
+            indices.addAll(cells.indices());
+            indices.retainAll(s1.indices());
+            return ret;
+        }
         for(IndexedEntry<BooleanValue> e0 : cells) {
             BooleanValue v1 = s1.get(e0.index());
             if (v1!=null)
@@ -356,8 +526,18 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * @throws IllegalArgumentException  some m: others[int] | !m.dimensions.equals(this.dimensions) || m.factory != this.factory
      */
     public final BooleanMatrix and(final BooleanMatrix...others) {
+        if (dims.isLong()) return longAnd(others); // [HASLab]
         final BooleanMatrix ret = new BooleanMatrix(dims, this, others);
         
+        if (ret.constant()) {
+            final IntSet indices = ret.cells.indices();
+            indices.addAll(cells.indices());
+            for(BooleanMatrix other : others) {
+                indices.retainAll(other.cells.indices());
+            }
+            return ret;
+        }
+        
         for(IndexedEntry<BooleanValue> cell : cells) {
             final BooleanAccumulator acc = BooleanAccumulator.treeGate(AND, cell.value());
             for(BooleanMatrix other : others) { 
@@ -383,6 +563,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
     public final BooleanMatrix or(BooleanMatrix  other) {
         checkFactory(this.factory, other.factory); 
         checkDimensions(this.dims, other.dims);
+        if (dims.isLong()) return longOr(other); // [HASLab]
         if (this.cells.isEmpty())
 			return other.clone();
 		else if (other.cells.isEmpty())
@@ -392,6 +573,11 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
         ret.mergeDefConds(this, other);
         
         final SparseSequence<BooleanValue> retSeq = ret.cells;
+        if (ret.constant()) {
+            retSeq.indices().addAll(cells.indices());
+            retSeq.indices().addAll(other.cells.indices());
+            return ret;
+        }
         for(IndexedEntry<BooleanValue> e0 : cells) {
             BooleanValue v1 = other.cells.get(e0.index());
             if (v1==null)
@@ -418,7 +604,17 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * @throws IllegalArgumentException  some m: others[int] | !m.dimensions.equals(this.dimensions) || m.factory != this.factory
      */
     public final BooleanMatrix or(final BooleanMatrix... others) {
+        if (dims.isLong()) return longOr(others); // [HASLab]
         final BooleanMatrix ret = new BooleanMatrix(dims, this, others);
+        
+        if (ret.constant()) {
+            final IntSet indices = ret.cells.indices();
+            indices.addAll(cells.indices());
+            for(BooleanMatrix other : others) {
+                indices.addAll(other.cells.indices());
+            }
+            return ret;
+        }
             
         for(IndexedEntry<BooleanValue> cell : cells) {
             final BooleanAccumulator acc = BooleanAccumulator.treeGate(OR, cell.value());
@@ -454,6 +650,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      */
     public final BooleanMatrix cross(final BooleanMatrix other) {
         checkFactory(this.factory, other.factory);
+        if (dims.isLong() || other.dims.isLong() || dims.cross(other.dims).isLong()) return longCross(other); // [HASLab]
         
         final BooleanMatrix ret =  new BooleanMatrix(dims.cross(other.dims), factory, cells, other.cells);
         ret.mergeDefConds(this, other);
@@ -461,6 +658,16 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
         if (cells.isEmpty() || other.cells.isEmpty()) return ret;
         
         final int ocap = other.dims.capacity();
+        if (ret.constant()) {
+            final IntSet indices = ret.cells.indices(), otherIndices = other.cells.indices();
+            for(IntIterator iter0 = cells.indices().iterator(); iter0.hasNext(); ) {
+                final int i = ocap * iter0.next();
+                for(IntIterator iter1 = otherIndices.iterator(); iter1.hasNext(); ) {
+                    indices.add(i + iter1.next());
+                }
+            }
+            return ret;
+        }
         for(IndexedEntry<BooleanValue> e0 : cells) {
             int i = ocap * e0.index();
             for(IndexedEntry<BooleanValue> e1: other.cells) {
@@ -531,6 +738,19 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * @throws IllegalArgumentException  this.factory != others[int].factory
      */
     public final BooleanMatrix cross(final BooleanMatrix...others) {
+        // [HASLab]
+        boolean isLong = dims.isLong();
+        Dimensions longDims = dims;
+        for(BooleanMatrix other : others) {
+            longDims = longDims.cross(other.dims);
+            isLong = isLong || other.dims.isLong() || longDims.isLong();
+        }
+        if (isLong) {
+            BooleanMatrix ret = this;
+            for(BooleanMatrix other : others) 
+                ret = ret.longCross(other);
+            return others.length==0 ? clone() : ret;
+        }
         Dimensions retDims = dims;
         boolean empty = cells.isEmpty();
         for(BooleanMatrix other : others) { 
@@ -585,16 +805,41 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      */
     public final BooleanMatrix dot(final BooleanMatrix other) {  
         checkFactory(this.factory, other.factory);
+        if (dims.isLong() || other.dims.isLong() || dims.dot(other.dims).isLong()) return longDot(other); // [HASLab]
         
         final BooleanMatrix ret =  new BooleanMatrix(dims.dot(other.dims), factory, cells, other.cells);
         ret.mergeDefConds(this, other);
         
         if (cells.isEmpty() || other.cells.isEmpty()) return ret;
         
-        final SparseSequence<BooleanValue> mutableCells = ret.clone().cells;
         final int b = other.dims.dimension(0); 
         final int c = other.dims.capacity() / b; 
         
+        if (ret.constant() && dense(other.cells.size(), b, c)) {
+            // each row of the result is the union of the rows of other selected by the row of this 
+            final int stride = (c + 63) >>> 6;
+            final long[] otherRows = rows(other.cells.indices(), b, c), row = new long[stride];
+            final IntSet indices = ret.cells.indices();
+            int current = -1;
+            for(IntIterator iter = cells.indices().iterator(); iter.hasNext(); ) {
+                final int i = iter.next(), r = i / b, from = (i % b)*stride;
+                if (r != current) {
+                    if (current >= 0) {
+                        addRow(indices, row, 0, stride, current*c);
+                        Arrays.fill(row, 0L);
+                    }
+                    current = r;
+                }
+                for(int w = 0; w < stride; w++) {
+                    row[w] |= otherRows[from + w];
+                }
+            }
+            addRow(indices, row, 0, stride, current*c);
+            return ret;
+        }
+        
+        final SparseSequence<BooleanValue> mutableCells = ret.clone().cells;
+        
         for(IndexedEntry<BooleanValue> e0 : cells) {
             int i = e0.index();
             BooleanValue iVal = e0.value();
@@ -643,6 +888,12 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
     public final BooleanValue subset(BooleanMatrix other, Environment<?, ?> env) {
         checkFactory(this.factory, other.factory); checkDimensions(this.dims, other.dims);
         final BooleanAccumulator a = BooleanAccumulator.treeGate(AND);
+        if (dims.isLong()) { // [HASLab]
+            for(Map.Entry<Long,BooleanValue> e0 : longCells.entrySet()) {
+                if (a.add(factory.or(e0.getValue().negation(), other.fastGet(e0.getKey().longValue())))==FALSE)
+                    return FALSE;
+            }
+        } else 
         for(IndexedEntry<BooleanValue> e0: cells) {
             if (a.add(factory.or(e0.value().negation(), other.fastGet(e0.index())))==FALSE)
                 return FALSE;
@@ -681,10 +932,18 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      */
     public final BooleanMatrix difference(BooleanMatrix other) {
         checkFactory(this.factory, other.factory); checkDimensions(this.dims, other.dims);
+        if (dims.isLong()) return longDifference(other); // [HASLab]
         
         final BooleanMatrix ret = new BooleanMatrix(dims, factory, cells, other.cells);
         ret.mergeDefConds(this, other);
         
+        if (ret.constant()) {
+            final IntSet indices = ret.cells.indices();
+            indices.addAll(cells.indices());
+            indices.removeAll(other.cells.indices());
+            return ret;
+        }
+        
         for(IndexedEntry<BooleanValue> e0 : cells) {
             ret.fastSet(e0.index(), factory.and(e0.value(), other.fastGet(e0.index()).negation()));
         }
@@ -702,9 +961,34 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
         if (dims.numDimensions() != 2 || !dims.isSquare()) {
             throw new UnsupportedOperationException("#this.diensions != 2 || !this.dimensions.square()");
         }
+        checkInt(); // [HASLab]
         if (cells.isEmpty())
             return clone();
         
+        if (constant() && dense(cells.size(), dims.dimension(0), dims.dimension(0))) {
+            // Warshall's algorithm over rows of bits
+            final int n = dims.dimension(0), stride = (n + 63) >>> 6;
+            final long[] rows = rows(cells.indices(), n, n);
+            for(int k = 0; k < n; k++) {
+                final int kWord = k >>> 6, kFrom = k*stride;
+                final long kBit = 1L << k;
+                for(int iFrom = 0, max = n*stride; iFrom < max; iFrom += stride) {
+                    if ((rows[iFrom + kWord] & kBit) != 0) {
+                        for(int w = 0; w < stride; w++) {
+                            rows[iFrom + w] |= rows[kFrom + w];
+                        }
+                    }
+                }
+            }
+            final BooleanMatrix ret = new BooleanMatrix(dims, factory, cells, cells);
+            ret.mergeDefConds(this);
+            final IntSet indices = ret.cells.indices();
+            for(int i = 0; i < n; i++) {
+                addRow(indices, rows, i*stride, stride, i*n);
+            }
+            return ret;
+        }
+        
 //      System.out.println("closure of " + this);
         BooleanMatrix ret = this;
     
@@ -731,10 +1015,19 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * @throws UnsupportedOperationException  #this.dimensions != 2
      */
     public final BooleanMatrix transpose() {
+        if (dims.isLong()) return longTranspose(); // [HASLab]
         final BooleanMatrix ret = new BooleanMatrix(dims.transpose(), factory, cells, cells);
         ret.mergeDefConds(this);
         
         final int rows = dims.dimension(0), cols = dims.dimension(1);
+        if (constant()) {
+            final IntSet indices = ret.cells.indices();
+            for(IntIterator iter = cells.indices().iterator(); iter.hasNext(); ) {
+                final int i = iter.next();
+                indices.add((i%cols)*rows + (i/cols));
+            }
+            return ret;
+        }
         for (IndexedEntry<BooleanValue> e0 : cells) {
             ret.cells.put((e0.index()%cols)*rows + (e0.index()/cols), e0.value());
         }
@@ -755,6 +1048,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
         checkFactory(this.factory, other.factory); checkDimensions(this.dims, other.dims);
         if (condition==TRUE) return this.clone();
         else if (condition==FALSE) return other.clone();
+        if (dims.isLong()) return longChoice(condition, other); // [HASLab]
     
         final BooleanMatrix ret =  new BooleanMatrix(dims, factory);
         final SparseSequence<BooleanValue> otherCells = other.cells;
@@ -793,6 +1087,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
         
         if (rdnum < 1)
             throw new IllegalArgumentException("columns.length < 1");
+        checkInt(); // [HASLab]
         
         final Dimensions rdims = Dimensions.square(dims.dimension(0), rdnum);
         final BooleanMatrix ret = new BooleanMatrix(rdims, factory, cells, cells);
@@ -885,6 +1180,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      */
     public final BooleanMatrix override(BooleanMatrix other) {
         checkFactory(this.factory, other.factory); checkDimensions(this.dims, other.dims);
+        if (dims.isLong()) return longOverride(other); // [HASLab]
         if (other.cells.isEmpty()) return this.clone();
         
         final BooleanMatrix ret = new BooleanMatrix(dims, factory, cells, other.cells);
@@ -938,7 +1234,7 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * @return {i: Int | [[i]] = sum({v: elements[int] | if [[v]] then 1 else 0}) }  
      */
     public final Int cardinality() {
-        final Int ret = factory.sum(cells.values());
+        final Int ret = factory.sum(longCells==null ? cells.values() : longCells.values()); // [HASLab]
         BooleanValue accum = DefCond.merge(factory, ret.defCond(), this.defCond());
         ret.defCond().setOverflows(ret.defCond().getOverflow(), accum);
         return ret;
@@ -951,8 +1247,8 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      */
     public final BooleanValue some(Environment<?, ?> env) {
         final BooleanAccumulator g = BooleanAccumulator.treeGate(OR);
-        for(IndexedEntry<BooleanValue> e : cells) {
-            if (g.add(e.value())==TRUE) 
+        for(BooleanValue v : values()) { // [HASLab]
+            if (g.add(v)==TRUE) 
                 return TRUE;
         }
         final BooleanValue val = factory.accumulate(g);
@@ -965,16 +1261,16 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * @return { f: BooleanValue | f <=> this.one() || this.none() }
      */
     public final BooleanValue lone(Environment<?, ?> env) {
-        if (cells.isEmpty())
+        if (density()==0) // [HASLab]
             return TRUE; 
         else {
             final BooleanAccumulator g = BooleanAccumulator.treeGate(AND);
             
             BooleanValue partial = FALSE;
-            for(IndexedEntry<BooleanValue> e: cells) {
-                if (g.add(factory.or(e.value().negation(), partial.negation()))==FALSE)
+            for(BooleanValue v : values()) { // [HASLab]
+                if (g.add(factory.or(v.negation(), partial.negation()))==FALSE)
                     return FALSE;
-                partial = factory.or(partial, e.value());
+                partial = factory.or(partial, v);
             }
 
             final BooleanValue val = factory.accumulate(g);
@@ -987,16 +1283,16 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
      * @return { f: BooleanValue | f <=> #this.elements[int] = 1 }
      */
     public final BooleanValue one(Environment<?, ?> env) {
-        if (cells.isEmpty())
+        if (density()==0) // [HASLab]
             return FALSE; 
         else {
             final BooleanAccumulator g = BooleanAccumulator.treeGate(AND);
             
             BooleanValue partial = FALSE;
-            for(IndexedEntry<BooleanValue> e: cells) {
-                if (g.add(factory.or(e.value().negation(), partial.negation()))==FALSE)
+            for(BooleanValue v : values()) { // [HASLab]
+                if (g.add(factory.or(v.negation(), partial.negation()))==FALSE)
                     return FALSE;
-                partial = factory.or(partial, e.value());
+                partial = factory.or(partial, v);
             }
             g.add(partial);
             
@@ -1030,18 +1326,43 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
     public final void set(final int index, final BooleanValue value) {
         if (!dims.validate(index)) throw new IndexOutOfBoundsException("index < 0 || index >= this.dimensions.capacity");
         if (value==null) throw new NullPointerException("formula=null");
-        if (value==FALSE) 
+        if (longCells!=null) fastSet((long) index, value); // [HASLab]
+        else if (value==FALSE) 
             cells.remove(index);
         else 
             cells.put(index,value);
     }
     
+    /**
+     * Sets the specified long index to the given value.  Unlike {@link #set(int, BooleanValue)}, 
+     * this method is defined for matrices whose capacity exceeds the range of an int.
+     * 
+     * @requires value in this.factory.components
+     * @ensures this.elements'[index] = value
+     * @throws NullPointerException  value = null
+     * @throws IllegalArgumentException  the given is a formula, and this matrix accepts only constants
+     * @throws IndexOutOfBoundsException  the given index does not belong to the set of indices at which
+     * this matrix can store non-FALSE values.
+     */
+    // [HASLab]
+    public final void set(final long index, final BooleanValue value) {
+        if (!dims.validate(index)) throw new IndexOutOfBoundsException("index < 0 || index >= this.dimensions.capacity");
+        if (value==null) throw new NullPointerException("formula=null");
+        if (longCells==null) set((int) index, value);
+        else fastSet(index, value);
+    }
+    
     /**
      * Returns a copy of this boolean matrix.
      * @return {m: BooleanMatrix - this | m.dimensions = this.dimensions &&
      *                                    m.elements = copy of this.elements } 
      */
     public BooleanMatrix clone()  {
+        if (longCells!=null) { // [HASLab]
+            final BooleanMatrix ret = new BooleanMatrix(dims, factory, new TreeMap<Long,BooleanValue>(longCells));
+            ret.mergeDefConds(this);
+            return ret;
+        }
         try {
             final BooleanMatrix ret = new BooleanMatrix(dims, factory, cells.clone());
             ret.mergeDefConds(this);
@@ -1058,8 +1379,223 @@ public final class BooleanMatrix implements Iterable<IndexedEntry<BooleanValue>>
         final StringBuilder buff = new StringBuilder("dimensions: ");
         buff.append(dims);
         buff.append(", elements: ");
-        buff.append(cells);
+        buff.append(longCells==null ? cells : longCells); // [HASLab]
         return buff.toString();
     }
+    
+    /*---------------- [HASLab] operations on matrices whose capacity exceeds the range of an int ----------------*/
+    
+    /**
+     * Returns the non-FALSE values in this matrix, in the ascending order of their indices.
+     * @return this.elements[int] - FALSE
+     */
+    private final Iterable<BooleanValue> values() {
+        return longCells==null ? cells.values() : longCells.values();
+    }
+    
+    /**
+     * Sets the value at the specified long index to the given value. 
+     * It performs no index or null checking.
+     * 
+     * @ensures this.elements'[index] = formula
+     */
+    private final void fastSet(final long index, final BooleanValue formula) {
+        if (longCells==null) fastSet((int) index, formula);
+        else if (formula==FALSE) longCells.remove(index);
+        else longCells.put(index, formula);
+    }
+    
+    /**
+     * Returns the non-FALSE entries of this matrix, keyed by their long indices.  
+     * @return this.longCells if not null, otherwise a copy of this.cells 
+     */
+    private final NavigableMap<Long,BooleanValue> entries() {
+        return longCells==null ? longView() : longCells;
+    }
+    
+    /**
+     * Implements {@link #and(BooleanMatrix...)} over long indices.
+     * @requires this.dimensions.isLong()
+     */
+    private final BooleanMatrix longAnd(final BooleanMatrix...others) {
+        final BooleanMatrix ret = new BooleanMatrix(dims, factory);
+        for(BooleanMatrix other : others) {
+            checkFactory(factory, other.factory); checkDimensions(dims, other.dims);
+        }
+        ret.mergeDefConds(this);
+        ret.mergeDefConds(others);
+        for(Map.Entry<Long,BooleanValue> cell : longCells.entrySet()) {
+            final BooleanAccumulator acc = BooleanAccumulator.treeGate(AND, cell.getValue());
+            for(BooleanMatrix other : others) { 
+                if (acc.add(other.fastGet(cell.getKey().longValue()))==BooleanConstant.FALSE)
+                    break;
+            }
+            if (!acc.isShortCircuited()) { ret.fastSet(cell.getKey().longValue(), factory.accumulate(acc)); }
+        }
+        return ret;
+    }
+    
+    /**
+     * Implements {@link #or(BooleanMatrix...)} over long indices.
+     * @requires this.dimensions.isLong()
+     */
+    private final BooleanMatrix longOr(final BooleanMatrix...others) {
+        final BooleanMatrix ret = new BooleanMatrix(dims, factory);
+        for(BooleanMatrix other : others) {
+            checkFactory(factory, other.factory); checkDimensions(dims, other.dims);
+        }
+        ret.mergeDefConds(this);
+        ret.mergeDefConds(others);
+        final BooleanMatrix[] all = Containers.copy(others, 0, new BooleanMatrix[others.length+1], 1, others.length);
+        all[0] = this;
+        for(int i = 0; i < all.length; i++) { 
+            for(Map.Entry<Long,BooleanValue> cell : all[i].longCells.entrySet()) {
+                final long index = cell.getKey().longValue();
+                if (ret.longCells.containsKey(index)) continue;
+                final BooleanAccumulator acc = BooleanAccumulator.treeGate(OR, cell.getValue());
+                for(int j = i+1; j < all.length; j++) { 
+                    if (acc.add(all[j].fastGet(index))==BooleanConstant.TRUE)
+                        break;
+                }
+                ret.fastSet(index, factory.accumulate(acc)); 
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Implements {@link #difference(BooleanMatrix)} over long indices.
+     * @requires this.dimensions.isLong() && this.dimensions = other.dimensions
+     */
+    private final BooleanMatrix longDifference(final BooleanMatrix other) {
+        final BooleanMatrix ret = new BooleanMatrix(dims, factory);
+        ret.mergeDefConds(this, other);
+        for(Map.Entry<Long,BooleanValue> e0 : longCells.entrySet()) {
+            final long index = e0.getKey().longValue();
+            ret.fastSet(index, factory.and(e0.getValue(), other.fastGet(index).negation()));
+        }
+        return ret;
+    }
+    
+    /**
+     * Implements {@link #choice(BooleanValue, BooleanMatrix)} over long indices.
+     * @requires this.dimensions.isLong() && this.dimensions = other.dimensions
+     */
+    private final BooleanMatrix longChoice(final BooleanValue condition, final BooleanMatrix other) {
+        final BooleanMatrix ret = new BooleanMatrix(dims, factory);
+        for(Map.Entry<Long,BooleanValue> e0 : longCells.entrySet()) {
+            final long index = e0.getKey().longValue();
+            final BooleanValue v1 = other.longCells.get(index);
+            if (v1==null)
+                ret.fastSet(index, factory.and(condition, e0.getValue()));
+            else
+                ret.fastSet(index, factory.ite(condition, e0.getValue(), v1));
+        }
+        for(Map.Entry<Long,BooleanValue> e1 : other.longCells.entrySet()) {
+            if (!longCells.containsKey(e1.getKey()))
+                ret.fastSet(e1.getKey().longValue(), factory.and(condition.negation(), e1.getValue()));
+        }
+        BooleanValue of = factory.ite(condition, defCond().getOverflow(), other.defCond().getOverflow());
+        BooleanValue accumOF = factory.ite(condition, defCond().getAccumOverflow(), other.defCond().getAccumOverflow());
+        ret.defCond().setOverflows(of, accumOF);
+        return ret;
+    }
+    
+    /**
+     * Implements {@link #override(BooleanMatrix)} over long indices.
+     * @requires this.dimensions.isLong() && this.dimensions = other.dimensions
+     */
+    private final BooleanMatrix longOverride(final BooleanMatrix other) {
+        if (other.longCells.isEmpty()) return this.clone();
+        final BooleanMatrix ret = new BooleanMatrix(dims, factory, new TreeMap<Long,BooleanValue>(other.longCells));
+        ret.mergeDefConds(this, other);
+        final long rowLength = dims.longCapacity() / dims.dimension(0);
+        long row = -1;
+        BooleanValue rowVal = BooleanConstant.TRUE;
+        for(Map.Entry<Long,BooleanValue> e0 : longCells.entrySet()) {
+            final long index = e0.getKey().longValue(), e0row = index / rowLength;
+            if (row != e0row) {
+                row = e0row;
+                final BooleanAccumulator g = BooleanAccumulator.treeGate(AND);
+                for(BooleanValue v : other.longCells.subMap(row*rowLength, (row+1)*rowLength).values()) {
+                    if (g.add(v.negation())==FALSE) break;
+                }
+                rowVal = factory.accumulate(g);
+            }
+            ret.fastSet(index, factory.or(ret.fastGet(index), factory.and(e0.getValue(), rowVal)));
+        }
+        return ret;
+    }
+    
+    /**
+     * Implements {@link #cross(BooleanMatrix)} over long indices.
+     * @requires this.dimensions.isLong() || other.dimensions.isLong() || this.dimensions.cross(other.dimensions).isLong()
+     */
+    private final BooleanMatrix longCross(final BooleanMatrix other) {
+        checkFactory(this.factory, other.factory);
+        final BooleanMatrix ret = new BooleanMatrix(dims.cross(other.dims), factory);
+        ret.mergeDefConds(this, other);
+        final long ocap = other.dims.longCapacity();
+        final NavigableMap<Long,BooleanValue> otherCells = other.entries();
+        for(Map.Entry<Long,BooleanValue> e0 : entries().entrySet()) {
+            final long i = ocap * e0.getKey().longValue();
+            for(Map.Entry<Long,BooleanValue> e1 : otherCells.entrySet()) {
+                ret.fastSet(i + e1.getKey().longValue(), factory.and(e0.getValue(), e1.getValue()));
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Implements {@link #dot(BooleanMatrix)} over long indices.
+     * @requires this.dimensions.isLong() || other.dimensions.isLong() || this.dimensions.dot(other.dimensions).isLong()
+     */
+    private final BooleanMatrix longDot(final BooleanMatrix other) {
+        final BooleanMatrix ret = new BooleanMatrix(dims.dot(other.dims), factory);
+        ret.mergeDefConds(this, other);
+        final long b = other.dims.dimension(0), c = other.dims.longCapacity() / b;
+        final NavigableMap<Long,BooleanValue> otherCells = other.entries();
+        final NavigableMap<Long,BooleanValue> mutableCells = new TreeMap<Long,BooleanValue>();
+        for(Map.Entry<Long,BooleanValue> e0 : entries().entrySet()) {
+            final long i = e0.getKey().longValue(), rowHead = (i % b)*c;
+            for(Map.Entry<Long,BooleanValue> e1 : otherCells.subMap(rowHead, rowHead + c).entrySet()) {
+                final BooleanValue retVal = factory.and(e0.getValue(), e1.getValue());
+                if (retVal != FALSE) {
+                    final long k = (i / b)*c + e1.getKey().longValue()%c;
+                    if (retVal==TRUE) mutableCells.put(k, TRUE);
+                    else {
+                        BooleanValue kVal = mutableCells.get(k);
+                        if (kVal != TRUE) {
+                            if (kVal==null) {
+                                kVal = BooleanAccumulator.treeGate(OR);
+                                mutableCells.put(k, kVal);
+                            } 
+                            ((BooleanAccumulator) kVal).add(retVal);
+                        }
+                    }
+                }
+            }
+        }
+        for(Map.Entry<Long,BooleanValue> e : mutableCells.entrySet()) {
+            final BooleanValue v = e.getValue();
+            ret.fastSet(e.getKey().longValue(), v==TRUE ? TRUE : factory.accumulate((BooleanAccumulator) v));
+        }
+        return ret;
+    }
+    
+    /**
+     * Implements {@link #transpose()} over long indices.
+     * @requires this.dimensions.isLong()
+     */
+    private final BooleanMatrix longTranspose() {
+        final BooleanMatrix ret = new BooleanMatrix(dims.transpose(), factory);
+        ret.mergeDefConds(this);
+        final long rows = dims.dimension(0), cols = dims.dimension(1);
+        for(Map.Entry<Long,BooleanValue> e0 : longCells.entrySet()) {
+            final long i = e0.getKey().longValue();
+            ret.fastSet((i%cols)*rows + (i/cols), e0.getValue());
+        }
+        return ret;
+    }
 
 }
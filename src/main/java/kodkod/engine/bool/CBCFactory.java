@@ -34,10 +34,10 @@ import static kodkod.engine.bool.Operator.VAR;
 
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import kodkod.ast.operator.ExprOperator;
 import kodkod.engine.bool.Operator.Nary;
-import kodkod.util.collections.CacheSet;
 import kodkod.util.collections.IdentityHashSet;
 
 
@@ -67,9 +67,22 @@ final class CBCFactory {
 	 * Caches AND, OR, and ITE gates.  
 	 * @invariant all i: [0..2] | c[i].op.ordinal = i
 	 */
-	private final CacheSet<BooleanFormula>[] cache;
-	private int label, cmpMax;
-	
+	private final GateTable[] cache; // [HASLab] gate tables
+	private int label;
+	private int cmpMax;
+	private final boolean openAddressing; // [HASLab]
+	/**
+	 * Non-null while gates may be assembled concurrently, in which case it replaces 
+	 * this.cache: the gates with operator op and hash code h are cached in  
+	 * shards[op.ordinal][stripe(h)], and each shard is locked while it is searched
+	 * and extended. 
+	 */
+	// [HASLab]
+	private GateTable[][] shards;
+	/** The scrap sets of each thread, while concurrent. */ // [HASLab]
+	private ThreadLocal<Set<BooleanFormula>[]> scraps;
+	/** The next fresh label, while concurrent; this.label is stale until concurrency is disabled. */ // [HASLab]
+	private AtomicInteger labels;
 
 	
 	/**
@@ -79,10 +92,25 @@ final class CBCFactory {
 	 * @ensures #this.values' = numVars && this.values in BooleanVariable
 	 * @ensures this.cmpMax' = cmpMax
 	 */
-	@SuppressWarnings("unchecked") CBCFactory(int numVars, int cmpMax) {
+	CBCFactory(int numVars, int cmpMax) {
+		this(numVars, cmpMax, false);
+	}
+	
+	/**
+	 * Constructs a CircuitFactory using the given max comparison parameter, initialized
+	 * to contain the given number of variables, whose gates are cached in 
+	 * {@linkplain GateTable#openAddressing() open addressing} tables if 
+	 * openAddressing is true, and in {@linkplain GateTable#chained() chained} ones otherwise. 
+	 * @requires cmpMax > 0 && numVars >= 0
+	 * @ensures #this.values' = numVars && this.values in BooleanVariable
+	 * @ensures this.cmpMax' = cmpMax
+	 */
+	// [HASLab]
+	CBCFactory(int numVars, int cmpMax, boolean openAddressing) {
 		assert cmpMax > 0 && numVars >= 0;
 		this.cmpMax = cmpMax;
 		this.label = numVars + 1;
+		this.openAddressing = openAddressing;
 		if (numVars == 0) {
 			vars = new BooleanVariable[0][];
 		} else {
@@ -93,18 +121,108 @@ final class CBCFactory {
 		}
 		scrap0 = new IdentityHashSet<BooleanFormula>(cmpMax);
 		scrap1 = new IdentityHashSet<BooleanFormula>(cmpMax);
-		cache = new CacheSet[]{new CacheSet<BooleanFormula>(), new CacheSet<BooleanFormula>(), new CacheSet<BooleanFormula>()};
+		cache = new GateTable[3];
+		for(int i = 0; i < cache.length; i++) 
+			cache[i] = table();
 	}
 	
 	/**
-	 * Returns the cache for gates with the given operator.
+	 * Returns an empty gate table of the kind used by this factory.
+	 */
+	// [HASLab]
+	private GateTable table() {
+		return openAddressing ? GateTable.openAddressing() : GateTable.chained();
+	}
+	
+	/**
+	 * Returns the cache for gates with the given operator and hash code.  While this
+	 * factory is concurrent, the returned table must be locked while it is used.
 	 * @requires op in AND + OR + ITE
-	 * @return cache[op.ordinal]
+	 * @return shards = null => cache[op.ordinal] else shards[op.ordinal][stripe(hash)]
 	 */
-	private CacheSet<BooleanFormula> opCache(Operator op) {
-		return cache[op.ordinal];
+	private GateTable opCache(Operator op, int hash) {
+		if (shards == null) return cache[op.ordinal];
+		final GateTable[] stripes = shards[op.ordinal];
+		return stripes[(hash ^ (hash >>> 16)) & (stripes.length-1)];
+	}
+	
+	/**
+	 * Returns a fresh label for a gate.
+	 */
+	// [HASLab]
+	private int nextLabel() {
+		return shards == null ? label++ : labels.getAndIncrement();
+	}
+	
+	/**
+	 * Returns the first scrap set of the calling thread.
+	 */
+	// [HASLab]
+	private Set<BooleanFormula> scrap0() {
+		return shards == null ? scrap0 : scraps.get()[0];
+	}
+	
+	/**
+	 * Returns the second scrap set of the calling thread.
+	 */
+	// [HASLab]
+	private Set<BooleanFormula> scrap1() {
+		return shards == null ? scrap1 : scraps.get()[1];
+	}
+	
+	/**
+	 * Sets whether gates may be assembled by several threads at once.  While 
+	 * concurrent, the gates are cached in the given number of lock-striped shards
+	 * per operator, so that threads only contend when assembling gates with 
+	 * hash codes in the same stripe.  The gates assembled so far are moved into
+	 * the shards when concurrency is enabled, and back when it is disabled.  
+	 * @requires stripes is a power of 2
+	 * @requires no gates are being assembled
+	 * @ensures this.concurrent' = (stripes > 1)
+	 */
+	// [HASLab]
+	@SuppressWarnings("unchecked")
+	void setConcurrent(int stripes) {
+		if (stripes > 1 && shards == null) {
+			final GateTable[][] tables = new GateTable[cache.length][stripes];
+			for(GateTable[] ts : tables)
+				for(int i = 0; i < stripes; i++)
+					ts[i] = table();
+			final GateTable[] old = cache.clone();
+			shards = tables;
+			for(int i = 0; i < old.length; i++) {
+				for(Iterator<BooleanFormula> gates = old[i].iterator(); gates.hasNext(); ) {
+					final BooleanFormula g = gates.next();
+					opCache(g.op(), g.hashCode()).add(g);
+				}
+				cache[i] = table();
+			}
+			labels = new AtomicInteger(label);
+			final int cmp = cmpMax;
+			scraps = new ThreadLocal<Set<BooleanFormula>[]>() {
+				protected Set<BooleanFormula>[] initialValue() {
+					return new Set[] { new IdentityHashSet<BooleanFormula>(cmp), new IdentityHashSet<BooleanFormula>(cmp) };
+				}
+			};
+		} else if (stripes <= 1 && shards != null) {
+			for(int i = 0; i < shards.length; i++) 
+				for(GateTable t : shards[i]) 
+					for(Iterator<BooleanFormula> gates = t.iterator(); gates.hasNext(); ) 
+						cache[i].add(gates.next());
+			shards = null;
+			scraps = null;
+			label = labels.get();
+			labels = null;
+		}
 	}
 	
+	/**
+	 * Returns whether gates may be assembled by several threads at once.
+	 * @return this.concurrent
+	 */
+	// [HASLab]
+	boolean concurrent() { return shards != null; }
+	
 	/**
 	 * Sets this.cmpMax to the given value.
 	 * @requires cmpMax > 0
@@ -136,14 +254,24 @@ final class CBCFactory {
 			return v == variable(v.label());
 		} else {
 			final BooleanFormula g = (BooleanFormula) v;
-			for(Iterator<BooleanFormula> gates = opCache(g.op()).get(g.hashCode()); gates.hasNext(); ) {
-		    	if (g==gates.next()) 
-		    		return true;
-		    }
-			return false;
+			final GateTable table = opCache(g.op(), g.hashCode());
+			if (shards == null) return contains(table, g);
+			synchronized(table) { return contains(table, g); } // [HASLab]
 		}
 	}
 	
+	/**
+	 * Returns true if the given table contains the given gate.
+	 */
+	// [HASLab]
+	private static boolean contains(GateTable table, BooleanFormula g) {
+		for(Iterator<BooleanFormula> gates = table.get(g.hashCode()); gates.hasNext(); ) {
+	    	if (g==gates.next()) 
+	    		return true;
+	    }
+		return false;
+	}
+	
 	/**
 	 * Returns the maximum label of a {@link BooleanVariable variable} in {@code this.components}.
 	 * @return max((this.values & BooleanVariable).label)
@@ -159,7 +287,7 @@ final class CBCFactory {
 	 * Note that {@link #maxFormula()} >= {@link #maxVariable()} since variables themselves are formulas.
 	 * @return max((this.values & BooleanFormula).label)
 	 */
-	int maxFormula() { return label-1; }
+	int maxFormula() { return (shards == null ? label : labels.get())-1; } // [HASLab]
 	
 	/**
 	 * Returns the boolean variable from this.values with the given label.
@@ -195,6 +323,7 @@ final class CBCFactory {
 	 */
 	void addVariables(int numVars) {
 		assert numVars > 0;
+		if (shards != null) label = labels.get(); // [HASLab]
 		if (label > 1 && maxVariable()==maxFormula()) {
 			final BooleanVariable[] last = vars[vars.length-1];
 			final BooleanVariable[] newLast = new BooleanVariable[last.length+numVars];
@@ -212,6 +341,7 @@ final class CBCFactory {
 			vars = newVars;			
 		}
 		this.label += numVars;
+		if (shards != null) labels.set(label); // [HASLab]
 	}
 	
 	/**
@@ -231,16 +361,26 @@ final class CBCFactory {
 		else {
 			final BooleanFormula f0 = (BooleanFormula) i, f1 = (BooleanFormula) t, f2 = (BooleanFormula) e;
 			final int hash = ITE.hash(f0, f1, f2);
-			
-			for(Iterator<BooleanFormula> gates = opCache(ITE).get(hash); gates.hasNext();) {
-				BooleanFormula gate = gates.next();
-				if (gate.input(0)==i && gate.input(1)==t && gate.input(2)==e)
-					return gate;
-			}
-			final BooleanFormula ret = new ITEGate(label++, hash, f0, f1, f2);
-			opCache(ITE).add(ret);
-			return ret;
+			final GateTable table = opCache(ITE, hash);
+			if (shards == null) return cache(table, hash, f0, f1, f2);
+			synchronized(table) { return cache(table, hash, f0, f1, f2); } // [HASLab]
+		}
+	}
+	
+	/**
+	 * Returns the ITE gate with the given inputs from the given table, 
+	 * creating and caching it if needed.
+	 */
+	// [HASLab]
+	private BooleanFormula cache(GateTable table, int hash, BooleanFormula f0, BooleanFormula f1, BooleanFormula f2) {
+		for(Iterator<BooleanFormula> gates = table.get(hash); gates.hasNext();) {
+			BooleanFormula gate = gates.next();
+			if (gate.input(0)==f0 && gate.input(1)==f1 && gate.input(2)==f2)
+				return gate;
 		}
+		final BooleanFormula ret = new ITEGate(nextLabel(), hash, f0, f1, f2);
+		table.add(ret);
+		return ret;
 	}
 		
 	/**
@@ -282,35 +422,50 @@ final class CBCFactory {
 			return assemble(op, inputs.next(), inputs.next());
 		default :
 			final int hash = op.hash((Iterator)acc.iterator());
-			if (asize > cmpMax) {
-				for(Iterator<BooleanFormula> gates = opCache(op).get(hash); gates.hasNext(); ) {
-					BooleanFormula g = gates.next();
-					if (g.size()==asize && ((NaryGate) g).sameInputs(acc.iterator())) { 
-						return g;
-					} 
-				}
-			} else {
-				LOOKUP: for(Iterator<BooleanFormula> gates = opCache(op).get(hash); gates.hasNext(); ) {
-					BooleanFormula g = gates.next();
-					if (g.size()==asize && ((NaryGate) g).sameInputs(acc.iterator())) { 
-						return g;
-					} else if (g.size() < asize) {
-						scrap0.clear();
-						g.flatten(op, scrap0, cmpMax);
-						if (scrap0.size()==asize) {
-							for(BooleanValue v : acc) {
-								if (!scrap0.contains(v))
-									continue LOOKUP;
-							}
-							return g;
+			final GateTable table = opCache(op, hash);
+			if (shards == null) return cache(table, hash, acc);
+			synchronized(table) { return cache(table, hash, acc); } // [HASLab]
+		}
+	}
+	
+	/**
+	 * Returns a gate with the same meaning as the given accumulator from the 
+	 * given table, creating and caching it if needed.
+	 * @requires acc.size() > 2
+	 */
+	// [HASLab]
+	private BooleanFormula cache(GateTable table, int hash, BooleanAccumulator acc) {
+		final int asize = acc.size();
+		final Operator.Nary op = acc.op;
+		if (asize > cmpMax) {
+			for(Iterator<BooleanFormula> gates = table.get(hash); gates.hasNext(); ) {
+				BooleanFormula g = gates.next();
+				if (g.size()==asize && ((NaryGate) g).sameInputs(acc.iterator())) { 
+					return g;
+				} 
+			}
+		} else {
+			final Set<BooleanFormula> scrap0 = scrap0();
+			LOOKUP: for(Iterator<BooleanFormula> gates = table.get(hash); gates.hasNext(); ) {
+				BooleanFormula g = gates.next();
+				if (g.size()==asize && ((NaryGate) g).sameInputs(acc.iterator())) { 
+					return g;
+				} else if (g.size() < asize) {
+					scrap0.clear();
+					g.flatten(op, scrap0, cmpMax);
+					if (scrap0.size()==asize) {
+						for(BooleanValue v : acc) {
+							if (!scrap0.contains(v))
+								continue LOOKUP;
 						}
+						return g;
 					}
 				}
 			}
-			final BooleanFormula ret = new NaryGate(acc, label++, hash);	
-			opCache(acc.op).add(ret);
-			return ret;
 		}
+		final BooleanFormula ret = new NaryGate(acc, nextLabel(), hash);	
+		table.add(ret);
+		return ret;
 	}
 	
 	/**
@@ -346,11 +501,23 @@ final class CBCFactory {
 			l = f1; h = f0;
 		}
 		final int hash = op.hash(l,h);
+		final GateTable table = opCache(op, hash);
+		if (shards == null) return cache(table, hash, op, l, h);
+		synchronized(table) { return cache(table, hash, op, l, h); } // [HASLab]
+	}
+	
+	/**
+	 * Returns the gate l op h from the given table, creating and caching it if needed.
+	 * @requires l.label < h.label
+	 */
+	// [HASLab]
+	private BooleanFormula cache(GateTable table, int hash, Operator.Nary op, BooleanFormula l, BooleanFormula h) {
 		if (l.op()==op || h.op()==op) {
+			final Set<BooleanFormula> scrap0 = scrap0(), scrap1 = scrap1();
 			scrap0.clear();
 			l.flatten(op, scrap0, cmpMax-1);
 			h.flatten(op, scrap0, cmpMax-scrap0.size());
-			for(Iterator<BooleanFormula> gates = opCache(op).get(hash); gates.hasNext(); ) {
+			for(Iterator<BooleanFormula> gates = table.get(hash); gates.hasNext(); ) {
 				BooleanFormula gate = gates.next();
 				if (gate.size()==2 && gate.input(0)==l && gate.input(1)==h)
 					return gate;
@@ -362,14 +529,14 @@ final class CBCFactory {
 				}
 			}
 		} else {
-			for(Iterator<BooleanFormula> gates = opCache(op).get(hash); gates.hasNext(); ) {
+			for(Iterator<BooleanFormula> gates = table.get(hash); gates.hasNext(); ) {
 				BooleanFormula gate = gates.next();
 				if (gate.size()==2 && gate.input(0)==l && gate.input(1)==h)
 					return gate;
 			}
 		}
-		final BooleanFormula ret = new BinaryGate(op, label++, hash, l, h);
-		opCache(op).add(ret);
+		final BooleanFormula ret = new BinaryGate(op, nextLabel(), hash, l, h);
+		table.add(ret);
 		return ret;
 	}
 
@@ -429,6 +596,7 @@ final class CBCFactory {
 		 */
 		BooleanValue assemble(Nary op, BooleanFormula f0, BooleanFormula f1) {
 			assert f0.op() == AND && f1.op() == OR;
+			final Set<BooleanFormula> scrap0 = scrap0(), scrap1 = scrap1(); // [HASLab]
 			scrap0.clear(); 
 			scrap1.clear();
 			f0.flatten(f0.op(), scrap0, cmpMax);
@@ -457,6 +625,7 @@ final class CBCFactory {
 			assert f0.op() == f1.op();
 			if (f0==f1) return f0;
 			final Operator fop = f0.op();
+			final Set<BooleanFormula> scrap0 = scrap0(), scrap1 = scrap1(); // [HASLab]
 			scrap0.clear(); 
 			scrap1.clear();
 			f0.flatten(fop, scrap0, cmpMax);
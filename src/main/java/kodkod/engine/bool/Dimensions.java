@@ -37,16 +37,17 @@ import kodkod.util.ints.Ints;
  * @specfield dimensions: [0..n) -> one int
  * @specfield capacity: dimensions[0] x ... x dimensions[n-1]
  * @invariant n > 0
+ * @invariant capacity <= Long.MAX_VALUE
  *
  * @author Emina Torlak 
  */
 public abstract class Dimensions {
-	private final int capacity;
+	private final long capacity; // [HASLab]
 	
 	/**
 	 * Constructs a Dimensions with the given capacity.
 	 */
-	private Dimensions(int capacity) { 
+	private Dimensions(long capacity) { 
 		this.capacity = capacity;
 	}
 	
@@ -76,7 +77,7 @@ public abstract class Dimensions {
 		int size = dimensions[0];
 		for (int i = 0; i < dimensions.length; i++) {
 			if (dimensions[i] < 1) throw new IllegalArgumentException("Invalid dimension: " + dimensions[i]);
-			capacity *= dimensions[i];
+			capacity = multiply(capacity, dimensions[i], dimensions); // [HASLab]
 			if (size!=dimensions[i]) size = 0;
 		}
 		if (size>0) {
@@ -91,8 +92,47 @@ public abstract class Dimensions {
 	/**
 	 * Returns the capacity of this.
 	 * @return this.capacity
+	 * @throws CapacityExceededException  this.capacity > Integer.MAX_VALUE
 	 */
-	public final int capacity() { return capacity; }
+	public final int capacity() { 
+		// [HASLab] matrices of a larger capacity are only supported by the operations that call longCapacity
+		if (capacity > Integer.MAX_VALUE) {
+			final int[] dims = new int[numDimensions()];
+			copy(0, dims, 0, dims.length);
+			throw new CapacityExceededException("Matrix too large: requested capacity of " + capacity, Ints.asIntVector(dims));
+		}
+		return (int) capacity; 
+	}
+	
+	/**
+	 * Returns the capacity of this as a long.  Unlike {@link #capacity()}, 
+	 * this method is defined for dimensions whose capacity exceeds the range of an int.
+	 * @return this.capacity
+	 */
+	// [HASLab]
+	public final long longCapacity() { return capacity; }
+	
+	/**
+	 * Returns true if the capacity of this exceeds the range of an int.
+	 * @return this.capacity > Integer.MAX_VALUE
+	 */
+	// [HASLab]
+	public final boolean isLong() { return capacity > Integer.MAX_VALUE; }
+	
+	/**
+	 * Returns the product of the given capacity and dimension, or throws a
+	 * CapacityExceededException if the product cannot be represented as a long.
+	 * @return capacity * dimension
+	 * @throws CapacityExceededException  capacity * dimension > Long.MAX_VALUE
+	 */
+	// [HASLab]
+	private static long multiply(long capacity, long dimension, int[] dims) {
+		try {
+			return StrictMath.multiplyExact(capacity, dimension);
+		} catch (ArithmeticException e) {
+			throw new CapacityExceededException("Matrix too large: requested capacity exceeds " + Long.MAX_VALUE, Ints.asIntVector(dims));
+		}
+	}
 	
 	/**
 	 * Returns the size of the ith dimensions
@@ -156,7 +196,7 @@ public abstract class Dimensions {
 			final int[] dims = new int[n];
 			copy(0, dims, 0, n0-1);
 			dim.copy(1, dims, n0-1, n1-1);
-			return new Rectangle(dims, (capacity*dim.capacity) / (drop*drop));
+			return new Rectangle(dims, multiply(capacity/drop, dim.capacity/drop, dims)); // [HASLab]
 		}
 	}
 	
@@ -177,7 +217,7 @@ public abstract class Dimensions {
 			final int[] dims = new int[n0+n1];
 			copy(0, dims, 0, n0);
 			dim.copy(0, dims, n0, n1);
-			return new Rectangle(dims, (long)capacity*(long)dim.capacity);
+			return new Rectangle(dims, multiply(capacity, dim.capacity, dims)); // [HASLab]
 		}
 	}
 	
@@ -194,7 +234,7 @@ public abstract class Dimensions {
 	/**
 	 * @return true if index is positive and less than bound.
 	 */
-	private static boolean positiveBounded(int index, int bound) {
+	private static boolean positiveBounded(long index, long bound) {
 		return 0 <= index && index < bound;
 	}
 	
@@ -208,6 +248,17 @@ public abstract class Dimensions {
 		return positiveBounded(index, capacity);
 	}
 	
+	/**
+	 * Returns true if index is a valid flat long index for a matrix with 
+	 * these dimensions;  otherwise returns false.
+	 * 
+	 * @return 0 <= i < this.capacity
+	 */
+	// [HASLab]
+	public final boolean validate(long index) {
+		return positiveBounded(index, capacity);
+	}
+	
 	/**
 	 * Returns true if index is a valid vector index for a matrix
 	 * with these dimensions; otherwise returns false.
@@ -259,11 +310,11 @@ public abstract class Dimensions {
 			throw new IllegalArgumentException("arrayIndex.length<this.numDimensions");
 		if (!validate(index)) 
 			throw new IndexOutOfBoundsException("index");    
-		int conversionFactor = capacity;
-		int remainder = index;
+		long conversionFactor = capacity; // [HASLab]
+		long remainder = index;
 		for (int i = 0; i < length; i++) {
 			conversionFactor = conversionFactor / dimension(i);
-			vectorIndex[i] = remainder / conversionFactor;
+			vectorIndex[i] = (int) (remainder / conversionFactor);
 			remainder = remainder % conversionFactor;
 		}
 	}
@@ -285,7 +336,7 @@ public abstract class Dimensions {
 			throw new IllegalArgumentException("index.length < this.n");
 		}
 		int intIndex = 0;
-		int conversionFactor = capacity;
+		int conversionFactor = capacity();
 		for(int i = 0; i < length; i++) {
 			int dim = dimension(i);
 			if (!positiveBounded(vectorIndex[i], dim)) throw new IndexOutOfBoundsException("index["+i+"]");    
@@ -328,11 +379,14 @@ public abstract class Dimensions {
 			this.n = n;
 		}
 		
-		static int capacity(int n, int size) { 
-			final long cap = Math.round(Math.pow(size,n));
-			if (cap>Integer.MAX_VALUE || cap<=0) 
-				throw new CapacityExceededException("Matrix too large: requested capacity of " + cap, Ints.nCopies(n, size));
-			return (int)cap;
+		static long capacity(int n, int size) { 
+			long cap = 1; // [HASLab] capacities beyond Integer.MAX_VALUE are checked by capacity()
+			for(int i = 0; i < n; i++) {
+				if (cap > Long.MAX_VALUE / size) 
+					throw new CapacityExceededException("Matrix too large: requested capacity of " + Math.pow(size, n), Ints.nCopies(n, size));
+				cap *= size;
+			}
+			return cap;
 		}
 		
 		@Override
@@ -406,8 +460,8 @@ public abstract class Dimensions {
 		 *             capacity = dimensions[0]*dimensions[1]*...*dimensions[dimensions.length-1] 
 		 */
 		Rectangle(int[] dims, long capacity) {
-			super((int)capacity);
-			if (capacity>Integer.MAX_VALUE || capacity<=0) 
+			super(capacity); // [HASLab] capacities beyond Integer.MAX_VALUE are checked by capacity()
+			if (capacity<=0) 
 				throw new CapacityExceededException("Matrix too large: requested capacity of " + capacity, Ints.asIntVector(dims));
 			this.dimensions = dims;
 		}
@@ -438,7 +492,7 @@ public abstract class Dimensions {
 		public Dimensions transpose() {
 			if (numDimensions() != 2) throw new UnsupportedOperationException("n!=2");
 			int[] dims = {dimensions[1], dimensions[0]};
-			return new Rectangle(dims, capacity());
+			return new Rectangle(dims, longCapacity()); // [HASLab]
 		}
 		
 		/**
@@ -449,7 +503,7 @@ public abstract class Dimensions {
 		public boolean equals(Object o) {
 			if (o instanceof Rectangle) {
 				final Rectangle r = (Rectangle) o;
-				if (dimensions.length != r.dimensions.length || capacity() != r.capacity()) return false;
+				if (dimensions.length != r.dimensions.length || longCapacity() != r.longCapacity()) return false; // [HASLab]
 				for (int i = 0; i < dimensions.length;  i++) {
 					if (dimensions[i] != r.dimensions[i]) return false;
 				}
@@ -460,7 +514,7 @@ public abstract class Dimensions {
 		}
 		
 		public int hashCode() {
-			return dimensions.length ^ capacity();
+			return dimensions.length ^ (int) (longCapacity() ^ (longCapacity() >>> 32)); // [HASLab]
 		}
 		
 		
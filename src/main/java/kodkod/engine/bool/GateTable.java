@@ -0,0 +1,197 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.bool;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import kodkod.util.collections.CacheSet;
+
+/**
+ * A hash table of the gates assembled by a {@link CBCFactory}, looked up by 
+ * the hash of their structure.  Gates are never removed from the table.
+ * @specfield gates: set BooleanFormula
+ */
+abstract class GateTable {
+
+	/**
+	 * Returns an iterator over the gates in this table with the given hash code.  
+	 * The iterator is only valid until the next call to a method of this table.
+	 * @return an iterator over { g: this.gates | g.hashCode() = hash }
+	 */
+	abstract Iterator<BooleanFormula> get(int hash);
+
+	/**
+	 * Adds the given gate to this table.
+	 * @requires gate !in this.gates
+	 * @ensures this.gates' = this.gates + gate
+	 */
+	abstract void add(BooleanFormula gate);
+	
+	/**
+	 * Returns an iterator over all the gates in this table.  
+	 * The iterator is only valid until the next call to a method of this table.
+	 * @return an iterator over this.gates
+	 */
+	abstract Iterator<BooleanFormula> iterator();
+	
+	/**
+	 * Returns a table of gates backed by a {@link CacheSet}, which chains 
+	 * the gates in each bucket.
+	 * @return a table of gates backed by a {@link CacheSet}
+	 */
+	static GateTable chained() {
+		return new GateTable() {
+			private final CacheSet<BooleanFormula> cache = new CacheSet<BooleanFormula>();
+			Iterator<BooleanFormula> get(int hash) { return cache.get(hash); }
+			void add(BooleanFormula gate) { cache.add(gate); }
+			Iterator<BooleanFormula> iterator() { return cache.iterator(); }
+		};
+	}
+	
+	/**
+	 * Returns a table of gates backed by parallel primitive arrays of hash codes 
+	 * and gates, resolving collisions by linear probing.  Lookups allocate no memory.
+	 * @return a table of gates backed by open addressing
+	 */
+	static GateTable openAddressing() {
+		return new OpenAddressing();
+	}
+	
+	/**
+	 * An open addressing table of gates.  The slots with a null gate are empty, and the
+	 * hash code of the gate in each slot is kept in a primitive array, so that
+	 * probing only dereferences gates with the right hash code.  
+	 */
+	private static final class OpenAddressing extends GateTable {
+		private static final int INITIAL_CAPACITY = 64;
+		private int[] hashes;
+		private BooleanFormula[] gates;
+		private int size, threshold;
+		/* reused by every lookup */
+		private final Probe probe;
+
+		OpenAddressing() {
+			this.hashes = new int[INITIAL_CAPACITY];
+			this.gates = new BooleanFormula[INITIAL_CAPACITY];
+			this.threshold = INITIAL_CAPACITY >>> 1;
+			this.size = 0;
+			this.probe = new Probe();
+		}
+		
+		/**
+		 * Spreads the bits of the given hash code, as in {@link CacheSet}.
+		 */
+		private static int spread(int h) {
+			h += ~(h << 9);
+			h ^=  (h >>> 14);
+			h +=  (h << 4);
+			h ^=  (h >>> 10);
+			return h;
+		}
+		
+		Iterator<BooleanFormula> get(int hash) {
+			probe.hash = hash;
+			probe.slot = spread(hash) & (gates.length-1);
+			return probe;
+		}
+		
+		void add(BooleanFormula gate) {
+			if (size >= threshold) 
+				resize(gates.length << 1);
+			insert(gate.hashCode(), gate);
+			size++;
+		}
+		
+		Iterator<BooleanFormula> iterator() {
+			return new Iterator<BooleanFormula>() {
+				int slot = 0;
+				public boolean hasNext() {
+					while (slot < gates.length && gates[slot]==null) 
+						slot++;
+					return slot < gates.length;
+				}
+				public BooleanFormula next() {
+					if (!hasNext()) throw new NoSuchElementException();
+					return gates[slot++];
+				}
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		
+		/**
+		 * Stores the given gate in the first empty slot for its hash code.
+		 */
+		private void insert(int hash, BooleanFormula gate) {
+			final int mask = gates.length-1;
+			int slot = spread(hash) & mask;
+			while (gates[slot]!=null) 
+				slot = (slot + 1) & mask;
+			hashes[slot] = hash;
+			gates[slot] = gate;
+		}
+		
+		/**
+		 * Rehashes the gates into tables with the given capacity.
+		 */
+		private void resize(int capacity) {
+			final int[] oldHashes = hashes;
+			final BooleanFormula[] oldGates = gates;
+			hashes = new int[capacity];
+			gates = new BooleanFormula[capacity];
+			threshold = capacity >>> 1;
+			for(int i = 0; i < oldGates.length; i++) {
+				if (oldGates[i]!=null)
+					insert(oldHashes[i], oldGates[i]);
+			}
+		}
+		
+		/**
+		 * An iterator over the gates with a given hash code, probing from a given slot.
+		 */
+		private final class Probe implements Iterator<BooleanFormula> {
+			int hash, slot;
+			
+			public boolean hasNext() {
+				final int mask = gates.length-1;
+				while (gates[slot]!=null && hashes[slot]!=hash) 
+					slot = (slot + 1) & mask;
+				return gates[slot]!=null;
+			}
+
+			public BooleanFormula next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				final BooleanFormula ret = gates[slot];
+				slot = (slot + 1) & (gates.length-1);
+				return ret;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+	
+}
@@ -28,8 +28,10 @@ import java.util.Set;
 
 import kodkod.ast.Decl;
 import kodkod.ast.Formula;
+import kodkod.ast.QuantifiedFormula;
 import kodkod.ast.Relation;
 import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.fol2sat.TranslationMetrics;
 import kodkod.instance.Bounds;
 import kodkod.instance.Tuple;
 import kodkod.util.ints.IntSet;
@@ -138,6 +140,30 @@ public final class ConsoleReporter implements Reporter {
 		System.out.println("found at least "+configs+" configs...");
 	}
 	
+	/**
+	 * @see kodkod.engine.config.Reporter#reportGrounding(QuantifiedFormula, int, int)
+	 */
+	// [HASLab]
+	public void reportGrounding(QuantifiedFormula quant, int bindings, int trivial) {
+		System.out.println("grounded "+bindings+" bindings ("+trivial+" trivial) of "+quant);
+	}
+	
+	/**
+	 * @see kodkod.engine.config.Reporter#reducingCore(int, int)
+	 */
+	// [HASLab]
+	public void reducingCore(int candidate, int coreClauses) {
+		System.out.println("reducing core of "+coreClauses+" clauses (candidate "+candidate+") ...");
+	}
+	
+	/**
+	 * @see kodkod.engine.config.Reporter#translatedPhase(TranslationMetrics.Phase, TranslationMetrics)
+	 */
+	// [HASLab]
+	public void translatedPhase(TranslationMetrics.Phase phase, TranslationMetrics metrics) {
+		System.out.println("translated phase "+metrics.toJSON(phase));
+	}
+	
 	/**
 	 * @see java.lang.Object#toString()
 	 */
@@ -88,6 +88,28 @@ public interface DecomposedOptions extends PardinusOptions {
 	 */
 	public void setThreads(int threads);
 
+	/**
+	 * The number of configurations that may be enumerated ahead of the
+	 * threads solving the integrated problems. Configurations are enumerated
+	 * on a dedicated thread and queued until a solving thread becomes free;
+	 * the enumeration blocks once this many integrated problems are waiting
+	 * (or their SAT solutions have not yet been consumed).
+	 * 
+	 * @return the number of configurations enumerated ahead.
+	 */
+	public int configPrefetch();
+
+	/**
+	 * Sets the number of configurations that may be enumerated ahead of the
+	 * threads solving the integrated problems.
+	 * 
+	 * @param prefetch
+	 *            the number of configurations enumerated ahead.
+	 * @throws IllegalArgumentException
+	 *             prefetch < 1
+	 */
+	public void setConfigPrefetch(int prefetch);
+
 	/**
 	 * The specific options to the partial (configuration) solver. Unless
 	 * {@link #setConfigOptions(ExtendedOptions)} is called, a clone of
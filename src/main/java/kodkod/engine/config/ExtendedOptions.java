@@ -55,11 +55,14 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		this.run_decomposed = options.run_decomposed;
 		this.run_temporal = options.run_temporal;
 		this.threads = options.threads;
+		this.config_prefetch = options.config_prefetch;
 		this.target_mode = options.target_mode;
 		this.decomp_mode = options.decomp_mode;
 		this.config_options = options.config_options!=null?options.config_options.clone():null;
 		this.trace_length = options.trace_length;
 		this.min_trace_length = options.min_trace_length;
+		this.incremental_traces = options.incremental_traces;
+		this.trace_threads = options.trace_threads;
 		this.name = options.name;
 		this.retargeter = options.retargeter;
 	}
@@ -115,6 +118,7 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 	
 	private boolean run_decomposed = false;
 	private int threads = 4;
+	private int config_prefetch = 20;
 	private DMode decomp_mode = DMode.PARALLEL;
 	private ExtendedOptions config_options = null;
 	
@@ -165,6 +169,22 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		this.threads = threads;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public int configPrefetch() {
+		return config_prefetch;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setConfigPrefetch(int prefetch) {
+		if (prefetch < 1)
+			throw new IllegalArgumentException("prefetch < 1: " + prefetch);
+		this.config_prefetch = prefetch;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -184,6 +204,8 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 	private boolean run_temporal = false;
 	private int trace_length = 2;
 	private int min_trace_length = 1;
+	private boolean incremental_traces = false;
+	private int trace_threads = 1;
 
 	/**
 	 * {@inheritDoc}
@@ -228,6 +250,36 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		this.min_trace_length = trace_length;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean incrementalTraces() {
+		return incremental_traces;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setIncrementalTraces(boolean incremental) {
+		this.incremental_traces = incremental;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int traceThreads() {
+		return trace_threads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setTraceThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads < 1: " + threads);
+		this.trace_threads = threads;
+	}
+
 
 	// unbounded solving
 	private boolean run_unbounded = false;
@@ -267,14 +319,20 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		c.setLogTranslation(logTranslation());
 		c.setCoreGranularity(coreGranularity());
 		c.setNoOverflow(noOverflow()); // [AM]
+		c.setTranslationThreads(translationThreads());
+		c.setGateTable(gateTable());
+		c.setCoreThreads(coreThreads());
 		c.run_decomposed = run_decomposed;
 		c.run_temporal = run_temporal;
 		c.run_target = run_target;
 		c.setThreads(threads);
+		c.setConfigPrefetch(config_prefetch);
 		c.setDecomposedMode(decomp_mode);
 		c.setConfigOptions(config_options);
 		c.setMaxTraceLength(trace_length);
 		c.setMinTraceLength(min_trace_length);
+		c.setIncrementalTraces(incremental_traces);
+		c.setTraceThreads(trace_threads);
 		c.name = name;
 		c.setRetargeter(retargeter);
 		return c;
@@ -296,12 +354,18 @@ public class ExtendedOptions extends Options implements BoundedOptions,
 		b.append(decomp_mode);
 		b.append("\n threads: ");
 		b.append(threads);
+		b.append("\n config prefetch: ");
+		b.append(config_prefetch);
 		b.append("\n run temporal: ");
 		b.append(run_temporal);
 		b.append("\n min trace length: ");
 		b.append(min_trace_length);
 		b.append("\n max trace length: ");
 		b.append(trace_length);
+		b.append("\n incremental traces: ");
+		b.append(incremental_traces);
+		b.append("\n trace threads: ");
+		b.append(trace_threads);
 		b.append("\n run unbounded: ");
 		b.append(run_unbounded);
 		b.append("\n custom retargeter?: ");
@@ -65,6 +65,9 @@ public class Options implements Cloneable, BoundedOptions {
 	private int skolemDepth = 0;
 	private int logTranslation = 0;
 	private int coreGranularity = 0;
+	private int translationThreads = 1; // [HASLab]
+	private GateTable gateTable = GateTable.CHAINED; // [HASLab]
+	private int coreThreads = 1; // [HASLab]
 
 
 	//[AM]
@@ -133,6 +136,9 @@ public class Options implements Cloneable, BoundedOptions {
 		this.setSkolemDepth(options.skolemDepth());
 		this.setLogTranslation(options.logTranslation());
 		this.setCoreGranularity(options.coreGranularity());		
+		this.setTranslationThreads(options.translationThreads());
+		this.setGateTable(options.gateTable());
+		this.setCoreThreads(options.coreThreads());
 	}
 	
 //	/**
@@ -365,6 +371,78 @@ public class Options implements Cloneable, BoundedOptions {
 		this.coreGranularity = coreGranularity;
 	}
 	
+	/**
+	 * Returns the number of threads used to translate the top-level conjuncts
+	 * of a formula into a boolean circuit.  The default is 1, in which case
+	 * the formula is translated sequentially.  With more threads, the translated
+	 * circuit is equisatisfiable but the labels of its gates, and thus the found
+	 * solutions, may vary between runs.  Translations that are logged are always sequential.
+	 * @return this.translationThreads
+	 */
+	// [HASLab]
+	public int translationThreads() {
+		return translationThreads;
+	}
+	
+	/**
+	 * Sets the number of threads used to translate the top-level conjuncts 
+	 * of a formula into a boolean circuit.
+	 * @ensures this.translationThreads' = translationThreads
+	 * @throws IllegalArgumentException  translationThreads !in [1..Integer.MAX_VALUE]
+	 */
+	// [HASLab]
+	public void setTranslationThreads(int translationThreads) {
+		checkRange(translationThreads, 1, Integer.MAX_VALUE);
+		this.translationThreads = translationThreads;
+	}
+	
+	/**
+	 * Returns the kind of table in which the boolean factory caches its gates
+	 * for structural sharing.  The default is {@link GateTable#CHAINED}.
+	 * @return this.gateTable
+	 */
+	// [HASLab]
+	public GateTable gateTable() {
+		return gateTable;
+	}
+	
+	/**
+	 * Sets the kind of table in which the boolean factory caches its gates.
+	 * @ensures this.gateTable' = gateTable
+	 * @throws NullPointerException  gateTable = null
+	 */
+	// [HASLab]
+	public void setGateTable(GateTable gateTable) {
+		if (gateTable==null)
+			throw new NullPointerException();
+		this.gateTable = gateTable;
+	}
+	
+	/**
+	 * Returns the number of threads used to minimize unsatisfiable cores,
+	 * each analyzing a candidate reduction of the core on its own prover.
+	 * The default is 1, in which case the candidates are analyzed sequentially.
+	 * The minimized core is the same regardless of the number of threads, 
+	 * but only strategies that support speculation are run concurrently.
+	 * @return this.coreThreads
+	 * @see kodkod.engine.satlab.SpeculativeReductionStrategy
+	 */
+	// [HASLab]
+	public int coreThreads() {
+		return coreThreads;
+	}
+	
+	/**
+	 * Sets the number of threads used to minimize unsatisfiable cores.
+	 * @ensures this.coreThreads' = coreThreads
+	 * @throws IllegalArgumentException  coreThreads !in [1..Integer.MAX_VALUE]
+	 */
+	// [HASLab]
+	public void setCoreThreads(int coreThreads) {
+		checkRange(coreThreads, 1, Integer.MAX_VALUE);
+		this.coreThreads = coreThreads;
+	}
+	
 	/**
 	 * Returns a shallow copy of this Options object.  In particular, 
 	 * the returned options shares the same {@linkplain #reporter()} 
@@ -384,6 +462,9 @@ public class Options implements Cloneable, BoundedOptions {
 		c.setLogTranslation(logTranslation);
 		c.setCoreGranularity(coreGranularity);
 		c.setNoOverflow(noOverflow); // [AM]
+		c.setTranslationThreads(translationThreads); // [HASLab]
+		c.setGateTable(gateTable); // [HASLab]
+		c.setCoreThreads(coreThreads); // [HASLab]
 		return c;
 	}
 	
@@ -414,6 +495,12 @@ public class Options implements Cloneable, BoundedOptions {
 		b.append(coreGranularity);
 		b.append("\n noOverflow: "); // [AM]
         b.append(noOverflow);
+		b.append("\n translationThreads: "); // [HASLab]
+		b.append(translationThreads);
+		b.append("\n gateTable: "); // [HASLab]
+		b.append(gateTable);
+		b.append("\n coreThreads: "); // [HASLab]
+		b.append(coreThreads);
         return b.toString();
 	}
 	
@@ -456,6 +543,23 @@ public class Options implements Cloneable, BoundedOptions {
 	}
 	
 	
+	/**
+	 * Tables in which the boolean factory caches its gates, which are looked up 
+	 * by structure whenever a new gate is assembled.
+	 */
+	// [HASLab]
+	public static enum GateTable {
+		/**
+		 * Hash set whose buckets chain the gates in linked entries.
+		 */
+		CHAINED,
+		/**
+		 * Open addressing table backed by primitive arrays, 
+		 * whose lookups allocate no memory.
+		 */
+		OPEN_ADDRESSING
+	}
+	
 	/**
 	 * Enum for determining solver type
 	 */
@@ -28,8 +28,10 @@ import java.util.Set;
 
 import kodkod.ast.Decl;
 import kodkod.ast.Formula;
+import kodkod.ast.QuantifiedFormula;
 import kodkod.ast.Relation;
 import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.fol2sat.TranslationMetrics;
 import kodkod.instance.Bounds;
 import kodkod.instance.Tuple;
 import kodkod.util.ints.IntSet;
@@ -95,6 +97,30 @@ public interface Reporter {
 	 */
 	public void translatingToCNF(BooleanFormula circuit);
 	
+	/**
+	 * Reports that the given quantified formula was grounded over the given 
+	 * number of bindings during stage 3, accumulated over all environments in 
+	 * which it was translated, of which the given number contributed a constant 
+	 * to the quantifier. Ignored by default.
+	 */
+	// [HASLab]
+	public default void reportGrounding(QuantifiedFormula quant, int bindings, int trivial) {}
+	
+	/**
+	 * Reports that the given candidate reduction of an unsatisfiable core, 
+	 * currently with the given number of clauses, is being analyzed during 
+	 * core minimization. Ignored by default.
+	 */
+	// [HASLab]
+	public default void reducingCore(int candidate, int coreClauses) {}
+	
+	/**
+	 * Reports that the given phase of the translation has finished,
+	 * with its costs recorded in the given metrics. Ignored by default.
+	 */
+	// [HASLab]
+	public default void translatedPhase(TranslationMetrics.Phase phase, TranslationMetrics metrics) {}
+	
 	/**
 	 * Reports that the cnf generated in stage 6, consisting of the
 	 * given number of variables and clauses, is being analyzed by
@@ -31,8 +31,10 @@ import org.slf4j.LoggerFactory;
 
 import kodkod.ast.Decl;
 import kodkod.ast.Formula;
+import kodkod.ast.QuantifiedFormula;
 import kodkod.ast.Relation;
 import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.fol2sat.TranslationMetrics;
 import kodkod.instance.Bounds;
 import kodkod.instance.Tuple;
 import kodkod.util.ints.IntSet;
@@ -151,4 +153,28 @@ public class SLF4JReporter implements Reporter {
 			debug("found at least "+configs+" configs...");
 	}
 
+	/**
+	 * @see kodkod.engine.config.Reporter#reportGrounding(QuantifiedFormula, int, int)
+	 */
+	public void reportGrounding(QuantifiedFormula quant, int bindings, int trivial) {
+		if (Options.isDebug())
+			debug("grounded "+bindings+" bindings ("+trivial+" trivial) of "+quant);
+	}
+
+	/**
+	 * @see kodkod.engine.config.Reporter#reducingCore(int, int)
+	 */
+	public void reducingCore(int candidate, int coreClauses) {
+		if (Options.isDebug())
+			debug("reducing core of "+coreClauses+" clauses (candidate "+candidate+") ...");
+	}
+
+	/**
+	 * @see kodkod.engine.config.Reporter#translatedPhase(TranslationMetrics.Phase, TranslationMetrics)
+	 */
+	public void translatedPhase(TranslationMetrics.Phase phase, TranslationMetrics metrics) {
+		if (Options.isDebug())
+			debug("translated phase "+metrics.toJSON(phase));
+	}
+
 }
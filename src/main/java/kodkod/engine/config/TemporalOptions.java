@@ -70,5 +70,48 @@ public interface TemporalOptions extends PardinusOptions {
 	
 	public void setMinTraceLength(int traceLength);
 
+	/**
+	 * Whether the trace lengths between the minimum and the maximum are explored
+	 * incrementally over a single translation and SAT solver instance, rather
+	 * than re-translating the problem from scratch for each trace length. Only
+	 * applicable to problems without past operators and incremental SAT solvers;
+	 * the solver falls back to the regular iteration otherwise.
+	 * 
+	 * @return whether trace lengths are explored incrementally.
+	 */
+	public boolean incrementalTraces();
+
+	/**
+	 * Updates whether the trace lengths are explored incrementally.
+	 * 
+	 * @see #incrementalTraces()
+	 * @param incremental
+	 *            whether trace lengths are explored incrementally.
+	 */
+	public void setIncrementalTraces(boolean incremental);
+
+	/**
+	 * The number of threads used to translate and solve distinct trace lengths
+	 * concurrently. If greater than 1, several trace lengths are explored at once
+	 * and the shortest satisfiable one is returned as soon as every shorter one is
+	 * known to be unsatisfiable. Each thread holds its own translation and SAT
+	 * solver, so memory usage grows accordingly.
+	 * 
+	 * @return the number of threads exploring trace lengths.
+	 */
+	public int traceThreads();
+
+	/**
+	 * Updates the number of threads used to explore distinct trace lengths
+	 * concurrently.
+	 * 
+	 * @see #traceThreads()
+	 * @param threads
+	 *            the number of threads exploring trace lengths.
+	 * @throws IllegalArgumentException
+	 *             threads < 1
+	 */
+	public void setTraceThreads(int threads);
+
 
 }
@@ -126,6 +126,43 @@ public interface DMonitor {
 	 */
 	public long getTotalClauses();
 
+	/**
+	 * Reports that one of the solver threads finished solving a problem
+	 * (either integrated or amalgamated).
+	 * 
+	 * @param worker
+	 *            the index of the solver thread.
+	 * @param solving
+	 *            the time the thread spent solving the problem.
+	 * @param idle
+	 *            the time the thread spent waiting for the problem.
+	 */
+	public void workerDone(int worker, long solving, long idle);
+
+	/**
+	 * The number of problems solved by each solver thread so far, indexed by
+	 * thread.
+	 * 
+	 * @return the number of problems solved per thread.
+	 */
+	public long[] getWorkerRuns();
+
+	/**
+	 * The accumulated time spent solving problems by each solver thread so
+	 * far, indexed by thread.
+	 * 
+	 * @return the time spent solving per thread.
+	 */
+	public long[] getWorkerTimes();
+
+	/**
+	 * The accumulated time each solver thread spent waiting for problems so
+	 * far, indexed by thread.
+	 * 
+	 * @return the time spent idle per thread.
+	 */
+	public long[] getWorkerIdleTimes();
+
 	/**
 	 * Reports that the amalgamated (batch) problem finished before any
 	 * integrated problem.
@@ -23,6 +23,7 @@
 package kodkod.engine.decomp;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
@@ -44,7 +45,7 @@ public class DMonitorImpl implements DMonitor {
 	private int configs = 0;
 	private long config_times = -1;
 	private Statistics config_stats = null;
-	private boolean configs_done = false;
+	private volatile boolean configs_done = false;
 
 	private long sats = 0;
 	private long vars = 0;
@@ -52,6 +53,10 @@ public class DMonitorImpl implements DMonitor {
 	private final List<DProblem<?>> solutions = new ArrayList<DProblem<?>>();
 	private boolean amalgamated_won = false;
 
+	private long[] worker_runs = new long[0];
+	private long[] worker_times = new long[0];
+	private long[] worker_idle = new long[0];
+
 	/**
 	 * Constructs a new decomposed solving monitor that reports through a Kodkod
 	 * reporter.
@@ -176,6 +181,46 @@ public class DMonitorImpl implements DMonitor {
 		return clauses;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void workerDone(int worker, long solving, long idle) {
+		if (worker >= worker_runs.length) {
+			worker_runs = Arrays.copyOf(worker_runs, worker + 1);
+			worker_times = Arrays.copyOf(worker_times, worker + 1);
+			worker_idle = Arrays.copyOf(worker_idle, worker + 1);
+		}
+		worker_runs[worker]++;
+		worker_times[worker] += solving;
+		worker_idle[worker] += idle;
+		rep.debug("Worker: " + worker + " " + solving + "ms solving; " + idle + "ms idle");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized long[] getWorkerRuns() {
+		return worker_runs.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized long[] getWorkerTimes() {
+		return worker_times.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized long[] getWorkerIdleTimes() {
+		return worker_idle.clone();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -22,6 +22,9 @@
 package kodkod.engine.fol2sat;
 
 import static kodkod.engine.bool.Operator.AND;
+
+import java.util.Arrays;
+
 import kodkod.engine.bool.BooleanConstant;
 import kodkod.engine.bool.BooleanFactory;
 import kodkod.engine.bool.BooleanFormula;
@@ -138,6 +141,27 @@ abstract class Bool2CNFTranslator implements BooleanVisitor<int[], Object> {
 		return translator.translate(circuit, maxPrimaryVar);
 	}
 
+	/**
+	 * Updates the given Bool2CNFTranslator with the translation of the given circuit, guarded by the 
+	 * given activation literal.  Gate definitions are added unconditionally, as with 
+	 * {@link #translateIncremental(BooleanFormula, int, Bool2CNFTranslator)}, but every clause that 
+	 * asserts the root of the circuit is extended with {@code -guard}, so that the circuit only holds 
+	 * when the solver is called under the assumption {@code guard}.
+	 * @requires circuit in translator.factory.components
+	 * @requires maxPrimaryVar = translator.factory.maxVariable()
+	 * @requires 0 < guard <= translator.cnf.numberOfVariables()
+	 * @ensures translator.roots' = translator.roots + circuit && 
+	 *          max(translator.cnf.variables) = max(abs(circuit.label), abs(translator.roots.label), maxPrimaryVar) && 
+	 *          translator.cnf.clauses in translator.cnf.clauses' && 
+	 *          translator.cnf.clauses' = CNF(guard => circuit) + translator.cnf.clauses
+	 * @return translator
+	 */
+	// [HASLab]
+	static Bool2CNFTranslator translateIncremental(final BooleanFormula circuit, final int maxPrimaryVar, final int guard, final Bool2CNFTranslator translator) {
+		assert guard > 0;
+		return translator.translate(circuit, maxPrimaryVar, guard);
+	}
+
 	private final SATSolver solver;
 	private final IntSet visited;
 	private final int[] unaryClause = new int[1];
@@ -165,6 +189,23 @@ abstract class Bool2CNFTranslator implements BooleanVisitor<int[], Object> {
 	 * @return this
 	 */
 	private Bool2CNFTranslator translate(BooleanFormula circuit, int maxPrimaryVar) {
+		return translate(circuit, maxPrimaryVar, 0);
+	}
+	
+	/**
+	 * Applies this translator to the given circuit, adding the translation of the
+	 * circuit to this.solver, and returns the translator.  If {@code guard} is positive, 
+	 * the clauses asserting the root of the circuit are extended with {@code -guard}.
+	 * @requires circuit in this.factory.components
+	 * @requires maxPrimaryVar = this.factory.maxPrimaryVariable()
+	 * @requires guard >= 0
+	 * @ensures this.solver.variables' = this.solver.variables + 
+	 *   { i: int | solver.numberOfVariables() < i <= max(abs(circuit.label), maxPrimaryVar) }
+	 * @effects this.solver.clauses' = this.solver.clauses + (guard = 0 => CNF(circuit) else CNF(guard => circuit))
+	 * @return this
+	 */
+	// [HASLab]
+	private Bool2CNFTranslator translate(BooleanFormula circuit, int maxPrimaryVar, int guard) {
 		final int newVars = Math.max(Math.abs(circuit.label()), maxPrimaryVar) - solver.numberOfVariables();
 //		System.out.println("circuit.label=" + Math.abs(circuit.label()));
 //		System.out.println("maxPrimaryVar=" + maxPrimaryVar);
@@ -177,11 +218,24 @@ abstract class Bool2CNFTranslator implements BooleanVisitor<int[], Object> {
 				input.accept(this, null);
 			}
 			for(BooleanFormula input : circuit) { 
-				unaryClause[0] = input.label();
-				solver.addClause(unaryClause);
+				if (guard == 0) { 
+					unaryClause[0] = input.label();
+					solver.addClause(unaryClause);
+				} else { // [HASLab]
+					binaryClause[0] = input.label();
+					binaryClause[1] = -guard;
+					solver.addClause(binaryClause);
+				}
 			}
 		} else {
-			solver.addClause(circuit.accept(this, null));
+			final int[] root = circuit.accept(this, null);
+			if (guard == 0) {
+				solver.addClause(root);
+			} else { // [HASLab]
+				final int[] guarded = Arrays.copyOf(root, root.length + 1);
+				guarded[root.length] = -guard;
+				solver.addClause(guarded);
+			}
 		}
 		return this;
 	}
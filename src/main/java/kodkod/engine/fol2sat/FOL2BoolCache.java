@@ -45,6 +45,8 @@ import kodkod.util.nodes.AnnotatedNode;
  */
 final class FOL2BoolCache {
 	private final Map<Node,Record> cache;
+	// [HASLab] lookup statistics
+	private long lookups, hits;
 	
 	/**
 	 * Constructs a new translation cache for the given annotated node.
@@ -64,6 +66,22 @@ final class FOL2BoolCache {
 		}
 	}
 
+
+	/**
+	 * Constructs a new, empty, translation cache for the same nodes as the given cache.
+	 * @ensures this.node' = prototype.node 
+	 */
+	// [HASLab]
+	FOL2BoolCache(FOL2BoolCache prototype) {
+		this.cache = new IdentityHashMap<Node, Record>(prototype.cache.size());
+		for(Map.Entry<Node, Record> e : prototype.cache.entrySet()) {
+			final Record info = e.getValue();
+			if (info instanceof MultiVarRecord) 
+				this.cache.put(e.getKey(), new MultiVarRecord(((MultiVarRecord) info).vars));
+			else 
+				this.cache.put(e.getKey(), new NoVarRecord());
+		}
+	}
 	
 	/**
 	 * If the translation of the given node, with its free variables
@@ -75,9 +93,27 @@ final class FOL2BoolCache {
 	@SuppressWarnings("unchecked")
 	<T> T lookup(Node node, Environment<BooleanMatrix, Expression> env) { // [AM]
 		final Record info = cache.get(node);
-		return info==null ? null : (T) info.get(env);
+		if (info==null) return null;
+		lookups++; // [HASLab]
+		final T ret = (T) info.get(env);
+		if (ret!=null) hits++; // [HASLab]
+		return ret;
 	}
 	
+	/**
+	 * Returns the number of lookups of cached nodes performed on this cache.
+	 * @return number of lookups of cached nodes performed on this cache
+	 */
+	// [HASLab]
+	long lookups() { return lookups; }
+	
+	/**
+	 * Returns the number of lookups of cached nodes that found a cached translation.
+	 * @return number of lookups of cached nodes that found a cached translation
+	 */
+	// [HASLab]
+	long hits() { return hits; }
+	
 	/**
 	 * Caches the given translation for the specified node, if the given node is
 	 * in this.cached.  Otherwise does nothing.  
@@ -198,6 +234,18 @@ final class FOL2BoolCache {
 			this.tuples = new int[freeVariables.size()];
 		}
 		
+		/**
+		 * Constructs a translation unit for a node which
+		 * has the given free variables.
+		 * @ensures this.freeVariables' = vars &&
+		 *          no this.translation' 
+		 */
+		// [HASLab]
+		MultiVarRecord(Variable[] vars) {
+			this.vars = vars;
+			this.tuples = new int[vars.length];
+		}
+		
 		/**
 		 * @see kodkod.engine.fol2sat.FOL2BoolCache.Record#get(kodkod.engine.fol2sat.Environment)
 		 */
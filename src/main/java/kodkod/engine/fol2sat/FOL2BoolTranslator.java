@@ -23,9 +23,14 @@
 package kodkod.engine.fol2sat;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import kodkod.ast.BinaryExpression;
 import kodkod.ast.BinaryFormula;
@@ -69,6 +74,7 @@ import kodkod.ast.operator.FormulaOperator;
 import kodkod.ast.operator.Multiplicity;
 import kodkod.ast.operator.Quantifier;
 import kodkod.ast.operator.TemporalOperator;
+import kodkod.ast.visitor.AbstractDetector;
 import kodkod.ast.visitor.ReturnVisitor;
 import kodkod.engine.bool.BooleanAccumulator;
 import kodkod.engine.bool.BooleanConstant;
@@ -78,6 +84,7 @@ import kodkod.engine.bool.BooleanValue;
 import kodkod.engine.bool.Dimensions;
 import kodkod.engine.bool.Int;
 import kodkod.engine.bool.Operator;
+import kodkod.engine.config.Reporter;
 import kodkod.util.ints.IndexedEntry;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
@@ -115,14 +122,18 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 	/**
 	 * Translates the given annotated formula into a boolean
 	 * accumulator with respect to the given interpreter and logs the translation events to the given logger.  
+	 * The grounding of each quantified formula is reported to the given reporter, and 
+	 * the cache lookups recorded in the given metrics.
 	 * @requires interpreter.relations = AnnotatedNode.relations(annotated)
 	 * @requires annotated.source[annotated.sourceSensitiveRoots()] = Nodes.roots(annotated.source[annotated.node])
 	 * @return BooleanAccumulator that is the meaning of the given annotated formula with respect to the given interpreter
 	 * @ensures log.records' contains the translation events that occurred while generating the returned value
+	 * @ensures reporter.reportGrounding for every quantified formula that was grounded
+	 * @ensures metrics.cache for the lookups of the translation cache
 	 * @throws HigherOrderDeclException  annotated.node contains a higher order declaration
 	 * @throws UnboundLeafException  annotated.node refers to an undeclared variable 
 	 **/
-	static final BooleanAccumulator translate(final AnnotatedNode<Formula> annotated, LeafInterpreter interpreter, final TranslationLogger logger) {
+	static final BooleanAccumulator translate(final AnnotatedNode<Formula> annotated, LeafInterpreter interpreter, final TranslationLogger logger, Reporter reporter, TranslationMetrics metrics) { // [HASLab] reporter, metrics
 		final FOL2BoolCache cache = new FOL2BoolCache(annotated);
 		final FOL2BoolTranslator translator = new FOL2BoolTranslator(cache, interpreter) {
 			BooleanValue cache(Formula formula, BooleanValue translation) {
@@ -136,9 +147,161 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 			acc.add(root.accept(translator));
 		}
 		logger.close();
+		report(translator.groundings, reporter); // [HASLab]
+		metrics.cache(cache.lookups(), cache.hits()); // [HASLab]
 		return acc;
 	}
 	
+	/**
+	 * Translates the given annotated formula into a boolean value with respect 
+	 * to the given interpreter, distributing its top-level conjuncts among the given 
+	 * number of threads.  Each thread uses its own translator, with its own cache 
+	 * and environment, while the interpreter's factory is shared by all of them.  
+	 * Falls back to the sequential translation if there is only one thread or 
+	 * conjunct. The grounding of each quantified formula is reported to the given 
+	 * reporter, and the cache lookups of all translators recorded in the given metrics.
+	 * @requires interpreter.relations = AnnotatedNode.relations(annotated)
+	 * @requires threads > 0
+	 * @return the meaning of the given annotated formula with respect to the given interpreter
+	 * @ensures reporter.reportGrounding for every quantified formula that was grounded
+	 * @ensures metrics.cache for the lookups of the translation caches
+	 * @throws HigherOrderDeclException  annotated.node contains a higher order declaration
+	 * @throws UnboundLeafException  annotated.node refers to an undeclared variable 
+	 **/
+	// [HASLab]
+	static final BooleanValue translate(final AnnotatedNode<Formula> annotated, final LeafInterpreter interpreter, int threads, Reporter reporter, TranslationMetrics metrics) {
+		final Set<Formula> roots = Nodes.roots(annotated.node());
+		if (threads < 2 || roots.size() < 2) {
+			final FOL2BoolTranslator translator = new FOL2BoolTranslator(new FOL2BoolCache(annotated), interpreter) {};
+			final BooleanValue ret = annotated.node().accept(translator);
+			report(translator.groundings, reporter);
+			metrics.cache(translator.cache.lookups(), translator.cache.hits());
+			return ret;
+		}
+		
+		final ConjunctsTranslation transl = new ConjunctsTranslation(annotated, interpreter, roots, threads);
+		final BooleanFactory factory = interpreter.factory();
+		final Thread[] workers = new Thread[StrictMath.min(threads, transl.conjuncts.length)];
+		boolean interrupted = false;
+		factory.setConcurrent(true);
+		try {
+			for(int i = 0; i < workers.length; i++) {
+				// deeply nested formulas need as much stack as they would on the calling thread
+				workers[i] = new Thread(null, transl, "translator-" + i, WORKER_STACK_SIZE);
+				workers[i].setDaemon(true);
+				workers[i].start();
+			}
+			// the factory may only leave the concurrent mode once every worker is done
+			for(int i = 0; i < workers.length; i++) {
+				try {
+					workers[i].join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+					i--;
+				}
+			}
+		} finally {
+			factory.setConcurrent(false);
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (transl.failure != null) {
+			if (transl.failure instanceof RuntimeException) throw (RuntimeException) transl.failure;
+			throw (Error) transl.failure;
+		}
+		final Map<QuantifiedFormula, int[]> groundings = new IdentityHashMap<QuantifiedFormula, int[]>();
+		for(FOL2BoolTranslator translator : transl.created) {
+			metrics.cache(translator.cache.lookups(), translator.cache.hits());
+			for(Map.Entry<QuantifiedFormula, int[]> e : translator.groundings.entrySet()) {
+				final int[] counts = groundings.get(e.getKey());
+				if (counts==null) 
+					groundings.put(e.getKey(), e.getValue());
+				else {
+					counts[0] += e.getValue()[0];
+					counts[1] += e.getValue()[1];
+				}
+			}
+		}
+		report(groundings, reporter);
+		
+		if (transl.falsified) 
+			return BooleanConstant.FALSE;
+		final BooleanAccumulator acc = BooleanAccumulator.treeGate(Operator.AND);
+		for(BooleanValue v : transl.results) {
+			if (acc.add(v)==BooleanConstant.FALSE)
+				return BooleanConstant.FALSE;
+		}
+		return factory.accumulate(acc);
+	}
+	
+	/**
+	 * The stack size of the threads translating conjuncts concurrently.
+	 */
+	// [HASLab]
+	private static final long WORKER_STACK_SIZE = 1L << 26;
+	
+	/**
+	 * The state of a concurrent translation of the top-level conjuncts of a formula.
+	 * Each worker thread creates its own translator, whose cache is a fresh
+	 * copy of a cache prototype computed once for the whole formula, and claims
+	 * chunks of conjuncts until none is left.
+	 */
+	private static final class ConjunctsTranslation implements Runnable {
+		final Formula[] conjuncts;
+		final BooleanValue[] results;
+		final int grain;
+		private final FOL2BoolCache prototype;
+		private final LeafInterpreter interpreter;
+		/* The start of the next chunk of conjuncts to be translated */
+		private final AtomicInteger next = new AtomicInteger();
+		/* Set once a conjunct is translated into FALSE, so that the remaining ones may be skipped */
+		volatile boolean falsified = false;
+		/* The first exception thrown by a worker, if any */
+		volatile Throwable failure;
+		/* Every translator created by a worker thread, whose groundings are merged at the end */
+		final ConcurrentLinkedQueue<FOL2BoolTranslator> created = new ConcurrentLinkedQueue<FOL2BoolTranslator>();
+		
+		ConjunctsTranslation(AnnotatedNode<Formula> annotated, LeafInterpreter interpreter, Set<Formula> roots, int threads) {
+			this.conjuncts = roots.toArray(new Formula[roots.size()]);
+			this.results = new BooleanValue[conjuncts.length];
+			this.grain = StrictMath.max(1, conjuncts.length / (threads * 4));
+			this.prototype = new FOL2BoolCache(annotated);
+			this.interpreter = interpreter;
+		}
+		
+		/**
+		 * Translates chunks of conjuncts, with a translator of its own, until 
+		 * all of them are claimed or one of them is FALSE.
+		 */
+		public void run() {
+			final FOL2BoolTranslator translator = new FOL2BoolTranslator(new FOL2BoolCache(prototype), interpreter) {};
+			created.add(translator);
+			try {
+				for(int from = next.getAndAdd(grain); from < conjuncts.length && !falsified; from = next.getAndAdd(grain)) {
+					for(int i = from, to = StrictMath.min(from + grain, conjuncts.length); i < to && !falsified; i++) {
+						results[i] = conjuncts[i].accept(translator);
+						if (results[i]==BooleanConstant.FALSE)
+							falsified = true;
+					}
+				}
+			} catch (RuntimeException | Error e) {
+				if (failure == null) 
+					failure = e;
+				falsified = true;
+			}
+		}
+	}
+	
+	/**
+	 * Reports the number of bindings over which each of the given quantified 
+	 * formulas was grounded, and how many of those contributed a constant. 
+	 */
+	// [HASLab]
+	private static void report(Map<QuantifiedFormula, int[]> groundings, Reporter reporter) {
+		for(Map.Entry<QuantifiedFormula, int[]> e : groundings.entrySet())
+			reporter.reportGrounding(e.getKey(), e.getValue()[0], e.getValue()[1]);
+	}
+	
 	/**
 	 * Translates the given annotated expression into a boolean
 	 * matrix that is a least sound upper bound on the expression's
@@ -215,6 +378,16 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
     private NestedSet<Variable> vars = NestedSet.empty();
 
 	private final Map<LeafExpression, BooleanMatrix> leafCache;
+	
+	/* The number of bindings over which each quantified formula was grounded, 
+	 * and how many of those contributed a constant to the quantifier */
+	// [HASLab]
+	private final Map<QuantifiedFormula, int[]> groundings = new IdentityHashMap<QuantifiedFormula, int[]>();
+	
+	/* The guarded body of each quantified formula grounded so far, or null if 
+	 * its body is not guarded */
+	// [HASLab]
+	private final Map<QuantifiedFormula, Guarded> guards = new IdentityHashMap<QuantifiedFormula, Guarded>();
 
 	/**
 	 * Constructs a new translator that will use the given translation cache
@@ -443,7 +616,7 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 	 * @ensures the given matrix contains the translation of the comprehension "{ decls | formula }"
 	 */
 	private final void comprehension(Decls decls, Formula formula, int currentDecl, 
-			BooleanValue declConstraints, int partialIndex, BooleanMatrix matrix) {
+			BooleanValue declConstraints, long partialIndex, BooleanMatrix matrix) { // [HASLab] long indices for large arities
 		final BooleanFactory factory = interpreter.factory();
 
 		if (currentDecl==decls.size()) {
@@ -454,7 +627,7 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 
 		final Decl decl = decls.get(currentDecl);
 		final BooleanMatrix declTransl = visit(decl);
-		final int position = (int)StrictMath.pow(interpreter.universe().size(), decls.size()-currentDecl-1);
+		final long position = (long)StrictMath.pow(interpreter.universe().size(), decls.size()-currentDecl-1);
 		final BooleanMatrix groundValue = factory.matrix(declTransl.dimensions());
 		env = env.extend(decl.variable(), decl.expression(), groundValue);
 		for(IndexedEntry<BooleanValue> entry : declTransl) {
@@ -547,20 +720,26 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 	 * where of(F(A_|a|, B_|b|, ..., X_|x|)) is the portion of the overflow circuit generated by the translation of 
 	 * F(A_|a|, B_|b|, ..., X_|x|) contributed by arithmetic operations over only the integer variables of this quantifier 
 	 * 
+	 * A binding is counted as trivial if its contribution is constant.
+	 * 
 	 * @param decls formula declarations
 	 * @param formula the formula body
 	 * @param currentDecl currently processed declaration; should be 0 initially
 	 * @param declConstraints the constraints implied by the declarations; should be Boolean.FALSE initially
 	 * @param acc the accumulator that contains the top level conjunction; should be an empty AND accumulator initially
+	 * @param counts the number of bindings grounded so far, and how many of those were trivial
+	 * @param guarded the guarded translation of the formula body, if any
 	 * @ensures the given accumulator contains the translation of the formula "all decls | formula"
 	 */
-	private void all(Decls decls, Formula formula, int currentDecl, BooleanValue declConstraints, BooleanAccumulator acc) {
+	private void all(Decls decls, Formula formula, int currentDecl, BooleanValue declConstraints, BooleanAccumulator acc, int[] counts, Guarded guarded) {
 		if (acc.isShortCircuited()) return;
 		final BooleanFactory factory = interpreter.factory();
 
 		if (decls.size()==currentDecl) {
-		    BooleanValue formulaCircuit = formula.accept(this);
+			counts[0]++; // [HASLab]
+		    BooleanValue formulaCircuit = guarded==null ? formula.accept(this) : guarded.translate(this); // [HASLab]
             BooleanValue finalCircuit = factory.or(declConstraints, formulaCircuit);
+            if (finalCircuit.op()==Operator.CONST) counts[1]++;
             acc.add(finalCircuit);
 			return;
 		}
@@ -571,7 +750,7 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 		env = env.extend(decl.variable(), decl.expression(), groundValue, Quantifier.ALL);
 		for(IndexedEntry<BooleanValue> entry : declTransl) {
 		    groundValue.set(entry.index(), BooleanConstant.TRUE);
-			all(decls, formula, currentDecl+1, factory.or(factory.not(entry.value()), declConstraints), acc);
+			all(decls, formula, currentDecl+1, factory.or(factory.not(entry.value()), declConstraints), acc, counts, guarded);
 			groundValue.set(entry.index(), BooleanConstant.FALSE);
 		}
 		env = env.parent();	
@@ -595,20 +774,26 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 	 * where of(F(A_|a|, B_|b|, ..., X_|x|)) is the portion of the overflow circuit generated by the translation of 
      * F(A_|a|, B_|b|, ..., X_|x|) contributed by arithmetic operations over only the integer variables of this quantifier
      * 
+	 * A binding is counted as trivial if its contribution is constant.
+	 * 
 	 * @param decls formula declarations
 	 * @param formula the formula body
 	 * @param currentDecl currently processed declaration; should be 0 initially
 	 * @param declConstraints the constraints implied by the declarations; should be Boolean.TRUE intially
 	 * @param acc the accumulator that contains the top level conjunction; should be an empty OR accumulator initially
+	 * @param counts the number of bindings grounded so far, and how many of those were trivial
+	 * @param guarded the guarded translation of the formula body, if any
 	 * @ensures the given accumulator contains the translation of the formula "some decls | formula"
 	 */
-	private void some(Decls decls, Formula formula, int currentDecl, BooleanValue declConstraints, BooleanAccumulator acc) {
+	private void some(Decls decls, Formula formula, int currentDecl, BooleanValue declConstraints, BooleanAccumulator acc, int[] counts, Guarded guarded) {
 		if (acc.isShortCircuited()) return;
 		final BooleanFactory factory = interpreter.factory();
 
 		if (decls.size()==currentDecl) {
-			BooleanValue formulaCircuit = formula.accept(this);
+			counts[0]++; // [HASLab]
+			BooleanValue formulaCircuit = guarded==null ? formula.accept(this) : guarded.translate(this); // [HASLab]
             BooleanValue finalCircuit = factory.and(declConstraints, formulaCircuit);
+            if (finalCircuit.op()==Operator.CONST) counts[1]++;
             acc.add(finalCircuit);
             return;
 		}
@@ -619,7 +804,7 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 		env = env.extend(decl.variable(), decl.expression(), groundValue, Quantifier.SOME);
 		for(IndexedEntry<BooleanValue> entry : declTransl) {
 			groundValue.set(entry.index(), BooleanConstant.TRUE);
-			some(decls, formula, currentDecl+1, factory.and(entry.value(), declConstraints), acc);
+			some(decls, formula, currentDecl+1, factory.and(entry.value(), declConstraints), acc, counts, guarded);
 			groundValue.set(entry.index(), BooleanConstant.FALSE);	
 		}
 		env = env.parent();
@@ -636,16 +821,30 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 		BooleanValue ret = lookup(quantFormula);
 		if (ret!=null) return ret;
 
+		// [HASLab] accumulated over every environment in which the formula is grounded
+		int[] counts = groundings.get(quantFormula);
+		if (counts==null) {
+			counts = new int[2];
+			groundings.put(quantFormula, counts);
+		}
+		// [HASLab] computed once for every environment in which the formula is grounded
+		final Guarded guarded;
+		if (guards.containsKey(quantFormula)) {
+			guarded = guards.get(quantFormula);
+		} else {
+			guarded = Guarded.of(quantFormula.formula(), interpreter);
+			guards.put(quantFormula, guarded);
+		}
 		final Quantifier quantifier = quantFormula.quantifier();
 		switch(quantifier) {
 		case ALL		: 
 			final BooleanAccumulator and = BooleanAccumulator.treeGate(Operator.AND);
-			all(quantFormula.decls(), quantFormula.formula(), 0, BooleanConstant.FALSE, and); 
+			all(quantFormula.decls(), quantFormula.formula(), 0, BooleanConstant.FALSE, and, counts, guarded); 
 			ret = interpreter.factory().accumulate(and);
 			break;
 		case SOME	: 
 			final BooleanAccumulator or = BooleanAccumulator.treeGate(Operator.OR);
-			some(quantFormula.decls(), quantFormula.formula(), 0, BooleanConstant.TRUE, or); 
+			some(quantFormula.decls(), quantFormula.formula(), 0, BooleanConstant.TRUE, or, counts, guarded); 
 			ret = interpreter.factory().accumulate(or);
 			break;
 		default :
@@ -654,6 +853,104 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 		return cache(quantFormula,ret);
 	}
 	
+	/**
+	 * The body of a quantified formula that is a conjunction or disjunction 
+	 * (or implication) with operands over constant relations only, i.e., 
+	 * relations that have no variables, which follow operands over other 
+	 * relations.  Such operands act as guards:  they are translated into 
+	 * constants under each binding of the quantified variables, so translating 
+	 * them first avoids translating the other operands whenever a guard 
+	 * already determines the body.
+	 * @specfield body: Formula
+	 * @specfield op: AND + OR
+	 * @specfield parts: seq Formula // the operands of the body, guards first
+	 * @specfield negated: set int // the indices of the parts that are negated
+	 */
+	// [HASLab]
+	private static final class Guarded {
+		final Formula body;
+		final Operator.Nary op;
+		final Formula[] parts;
+		final boolean[] negated;
+		
+		private Guarded(Formula body, Operator.Nary op, Formula[] parts, boolean[] negated) {
+			this.body = body;
+			this.op = op;
+			this.parts = parts;
+			this.negated = negated;
+		}
+		
+		/**
+		 * Returns the guarded form of the given quantifier body, or null if the 
+		 * body is not a conjunction, disjunction or implication, or if no operand 
+		 * over constant relations follows an operand over other relations, in 
+		 * which case the body is translated as is.
+		 */
+		static Guarded of(Formula body, final LeafInterpreter interpreter) {
+			final Operator.Nary op;
+			final List<Formula> operands = new ArrayList<Formula>();
+			boolean implies = false;
+			if (body instanceof NaryFormula) {
+				final NaryFormula nary = (NaryFormula) body;
+				op = nary.op()==FormulaOperator.AND ? Operator.AND : Operator.OR;
+				for(Formula child : nary)
+					operands.add(child);
+			} else if (body instanceof BinaryFormula && ((BinaryFormula) body).op()!=FormulaOperator.IFF) {
+				final BinaryFormula bin = (BinaryFormula) body;
+				op = bin.op()==FormulaOperator.AND ? Operator.AND : Operator.OR;
+				implies = bin.op()==FormulaOperator.IMPLIES;
+				operands.add(bin.left());
+				operands.add(bin.right());
+			} else {
+				return null;
+			}
+			final AbstractDetector variable = new AbstractDetector(Collections.<Node>emptySet()) {
+				public Boolean visit(Relation relation) {
+					return !interpreter.vars(relation).isEmpty();
+				}
+			};
+			final Formula[] parts = new Formula[operands.size()];
+			final boolean[] negated = new boolean[parts.length];
+			final boolean[] guard = new boolean[parts.length];
+			int guards = 0;
+			boolean reordered = false;
+			for(int i = 0; i < parts.length; i++) {
+				if (guard[i] = !operands.get(i).accept(variable)) {
+					reordered |= guards < i;
+					guards++;
+				}
+			}
+			if (!reordered) return null;
+			for(int i = 0, first = 0, other = guards; i < parts.length; i++) {
+				final int at = guard[i] ? first++ : other++;
+				parts[at] = operands.get(i);
+				// the left operand of an implication is a negated disjunct
+				negated[at] = implies && i==0;
+			}
+			return new Guarded(body, op, parts, negated);
+		}
+		
+		/**
+		 * Translates this.body with the given translator, translating the guards 
+		 * first and skipping the remaining parts once the result is determined.
+		 * @return translator.lookup(this.body) if cached, otherwise the cached
+		 * translation of this.body
+		 */
+		BooleanValue translate(FOL2BoolTranslator translator) {
+			final BooleanValue ret = translator.lookup(body);
+			if (ret!=null) return ret;
+			final BooleanFactory factory = translator.interpreter.factory();
+			final BooleanAccumulator acc = BooleanAccumulator.treeGate(op);
+			final BooleanValue shortCircuit = op.shortCircuit();
+			for(int i = 0; i < parts.length; i++) {
+				final BooleanValue part = parts[i].accept(translator);
+				if (acc.add(negated[i] ? factory.not(part) : part)==shortCircuit)
+					break;
+			}
+			return translator.cache(body, factory.accumulate(acc));
+		}
+	}
+	
 	/** 
 	 * Calls lookup(formula) and returns the cached value, if any.  
 	 * If a translation has not been cached, translates the formula,
@@ -690,6 +987,8 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 	 * Calls lookup(binFormula) and returns the cached value, if any.  
 	 * If a translation has not been cached, translates the formula,
 	 * calls cache(...) on it and returns it.
+	 * The right operand is not translated if the translation of the left one 
+	 * already determines the result, as with nary formulas.
 	 * @return let t = lookup(binFormula) | some t => t, 
 	 * 	cache(binFormula, binFormula.op(binFormula.left.accept(this), binFormula.right.accept(this))
 	 */
@@ -698,8 +997,13 @@ abstract class FOL2BoolTranslator implements ReturnVisitor<BooleanMatrix, Boolea
 		if (ret!=null) return ret;
 
 		final BooleanValue left = binFormula.left().accept(this);
-		final BooleanValue right = binFormula.right().accept(this);
 		final FormulaOperator op = binFormula.op();
+		// [HASLab] skip the right operand, e.g., the body of a guarded quantifier under a binding that falsifies the guard
+		if ((op==FormulaOperator.AND && left==BooleanConstant.FALSE) || (op==FormulaOperator.OR && left==BooleanConstant.TRUE))
+			return cache(binFormula, left);
+		if (op==FormulaOperator.IMPLIES && left==BooleanConstant.FALSE) 
+			return cache(binFormula, BooleanConstant.TRUE);
+		final BooleanValue right = binFormula.right().accept(this);
 		final BooleanFactory f = interpreter.factory();
 
 		switch(op) {
@@ -0,0 +1,918 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.fol2sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import kodkod.ast.BinaryExpression;
+import kodkod.ast.BinaryFormula;
+import kodkod.ast.BinaryIntExpression;
+import kodkod.ast.BinaryTempFormula;
+import kodkod.ast.ComparisonFormula;
+import kodkod.ast.Comprehension;
+import kodkod.ast.ConstantExpression;
+import kodkod.ast.ConstantFormula;
+import kodkod.ast.Decl;
+import kodkod.ast.Decls;
+import kodkod.ast.ExprToIntCast;
+import kodkod.ast.Expression;
+import kodkod.ast.Formula;
+import kodkod.ast.IfExpression;
+import kodkod.ast.IfIntExpression;
+import kodkod.ast.IntComparisonFormula;
+import kodkod.ast.IntConstant;
+import kodkod.ast.IntExpression;
+import kodkod.ast.IntToExprCast;
+import kodkod.ast.MultiplicityFormula;
+import kodkod.ast.NaryExpression;
+import kodkod.ast.NaryFormula;
+import kodkod.ast.NaryIntExpression;
+import kodkod.ast.Node;
+import kodkod.ast.NotFormula;
+import kodkod.ast.ProjectExpression;
+import kodkod.ast.QuantifiedFormula;
+import kodkod.ast.Relation;
+import kodkod.ast.RelationPredicate;
+import kodkod.ast.SumExpression;
+import kodkod.ast.TempExpression;
+import kodkod.ast.UnaryExpression;
+import kodkod.ast.UnaryIntExpression;
+import kodkod.ast.UnaryTempFormula;
+import kodkod.ast.Variable;
+import kodkod.ast.operator.Multiplicity;
+import kodkod.ast.operator.TemporalOperator;
+import kodkod.ast.visitor.ReturnVisitor;
+import kodkod.engine.CapacityExceededException;
+import kodkod.engine.bool.BooleanConstant;
+import kodkod.engine.bool.BooleanFactory;
+import kodkod.engine.bool.BooleanValue;
+import kodkod.engine.bool.Int;
+import kodkod.engine.config.Options;
+import kodkod.instance.Instance;
+import kodkod.instance.TupleSet;
+import kodkod.util.ints.IntIterator;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.Ints;
+
+/**
+ * Evaluates nodes with respect to a fixed {@link Instance instance}, without
+ * going through {@link kodkod.engine.bool.BooleanMatrix boolean matrices}.
+ * Each relation is interpreted once, on first use, as a bit set of tuple
+ * indices, and expressions are evaluated directly over those bit sets.  The
+ * values of closed subformulas and subexpressions are memoized by node identity,
+ * both within and across calls to the evaluate methods, so repeated queries on 
+ * the same instance only pay for the nodes they have not seen before.
+ * 
+ * <p>Integer expressions are evaluated to constant {@link Int ints} of 
+ * {@link BooleanFactory#constantFactory(Options)}, so arithmetic follows the
+ * semantics of the {@link FOL2BoolTranslator translator}.  Overflow is however
+ * not checked, i.e., the values computed by this interpreter are those computed
+ * by {@link Translator#evaluate(Formula, Instance, Options)} when 
+ * <code>options.noOverflow</code> is false.</p>
+ * 
+ * <p>Tuples are indexed by ints, so nodes with an expression whose arity 
+ * exceeds that index space, i.e., univ.size^arity > Integer.MAX_VALUE, are not
+ * supported: evaluating them throws a {@link CapacityExceededException}, and 
+ * they should be evaluated with {@link Translator#evaluate(Formula, Instance, Options)}
+ * instead.</p>
+ * 
+ * <p>Modifications to this.instance after a relation has been interpreted are
+ * not reflected in the results of the interpreter. An interpreter is not safe 
+ * for use by multiple threads.</p>
+ * 
+ * @specfield instance: Instance
+ * @specfield options: Options
+ */
+public final class InstanceInterpreter implements ReturnVisitor<BitSet, Boolean, Object, Int> {
+	private final Instance instance;
+	private final int univSize;
+	private final BooleanFactory factory;
+	/* The integers bound by this.instance, the atoms that represent them, and 
+	 * their values when represented by an Int of this.factory. */
+	private final int[] ints, intAtoms, intValues;
+	
+	/* The values of closed nodes evaluated so far. */
+	private final Map<Node, Object> memo;
+	
+	/* The variables in scope, and their values, with the innermost at depth-1. */
+	private Variable[] vars;
+	private BitSet[] values;
+	private int depth;
+	
+	/* The scope levels of the variables that occur free in the node being
+	 * evaluated, as a bit mask with levels beyond 63 collapsed into the last bit.  
+	 * A node is closed, and may be memoized, iff the mask is empty once it has 
+	 * been evaluated. */
+	private long free;
+	
+	/**
+	 * Constructs a new interpreter for the given instance and options.
+	 * @ensures this.instance' = instance && this.options' = options
+	 * @throws NullPointerException  instance = null || options = null
+	 */
+	public InstanceInterpreter(Instance instance, Options options) {
+		if (instance==null || options==null) throw new NullPointerException();
+		this.instance = instance;
+		this.univSize = instance.universe().size();
+		this.factory = BooleanFactory.constantFactory(options);
+		this.ints = instance.ints().toArray();
+		this.intAtoms = new int[ints.length];
+		this.intValues = new int[ints.length];
+		for(int i = 0; i < ints.length; i++) {
+			intAtoms[i] = instance.tuples(ints[i]).indexView().min();
+			intValues[i] = factory.integer(ints[i]).value();
+		}
+		this.memo = new IdentityHashMap<Node, Object>();
+		this.vars = new Variable[8];
+		this.values = new BitSet[8];
+	}
+	
+	/**
+	 * Returns this.instance.
+	 * @return this.instance
+	 */
+	public Instance instance() { return instance; }
+	
+	/**
+	 * Evaluates the given formula with respect to this.instance.
+	 * @return true if the formula is true with respect to this.instance; otherwise false
+	 * @throws NullPointerException  formula = null
+	 * @throws HigherOrderDeclException  the formula contains a higher order declaration
+	 * @throws UnboundLeafException  the formula contains an undeclared variable or 
+	 *         a relation not mapped by this.instance
+	 * @throws CapacityExceededException  the formula contains an expression whose
+	 *         tuples cannot be indexed by an int
+	 */
+	public boolean evaluate(Formula formula) {
+		if (formula==null) throw new NullPointerException("formula");
+		reset();
+		return formula.accept(this);
+	}
+	
+	/**
+	 * Evaluates the given expression with respect to this.instance.
+	 * @return the set of tuples to which the expression evaluates given this.instance
+	 * @throws NullPointerException  expression = null
+	 * @throws HigherOrderDeclException  the expression contains a higher order declaration
+	 * @throws UnboundLeafException  the expression contains an undeclared variable or 
+	 *         a relation not mapped by this.instance
+	 * @throws CapacityExceededException  the expression contains an expression whose
+	 *         tuples cannot be indexed by an int
+	 */
+	public TupleSet evaluate(Expression expression) {
+		if (expression==null) throw new NullPointerException("expression");
+		reset();
+		final BitSet bits = expression.accept(this);
+		final IntSet indices = Ints.bestSet(capacity(expression.arity()));
+		for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i+1)) {
+			indices.add(i);
+		}
+		return instance.universe().factory().setOf(expression.arity(), indices);
+	}
+	
+	/**
+	 * Evaluates the given integer expression with respect to this.instance.
+	 * @return a constant Int representing the value of the expression given this.instance
+	 * @throws NullPointerException  intExpr = null
+	 * @throws HigherOrderDeclException  the expression contains a higher order declaration
+	 * @throws UnboundLeafException  the expression contains an undeclared variable or 
+	 *         a relation not mapped by this.instance
+	 * @throws CapacityExceededException  the expression contains an expression whose
+	 *         tuples cannot be indexed by an int
+	 */
+	public Int evaluate(IntExpression intExpr) {
+		if (intExpr==null) throw new NullPointerException("intExpr");
+		reset();
+		return intExpr.accept(this);
+	}
+	
+	/**
+	 * Clears the variable scope, which may have been left inconsistent by an 
+	 * exception thrown during a previous evaluation.
+	 */
+	private void reset() {
+		depth = 0;
+		free = 0;
+	}
+	
+	/*---------------------------------------------------------*/
+	
+	/**
+	 * Returns the memoized value of the given node, if any.  Otherwise returns null.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T lookup(Node node) {
+		return (T) memo.get(node);
+	}
+	
+	/**
+	 * Starts the evaluation of a node by clearing this.free.
+	 * @return the free levels of the node being evaluated before this one
+	 */
+	private long enter() {
+		final long outer = free;
+		free = 0;
+		return outer;
+	}
+	
+	/**
+	 * Completes the evaluation of the given node, memoizing its value if it is
+	 * closed and restoring the free levels of the enclosing node.
+	 * @return value
+	 */
+	private <T> T exit(Node node, T value, long outer) {
+		if (free==0) memo.put(node, value);
+		free |= outer;
+		return value;
+	}
+	
+	/**
+	 * Binds the given variable to the singleton containing the given tuple index
+	 * in the innermost scope.
+	 */
+	private void bind(Variable variable, int index) {
+		if (depth==vars.length) {
+			vars = Arrays.copyOf(vars, depth*2);
+			values = Arrays.copyOf(values, depth*2);
+		}
+		final BitSet value = new BitSet(index+1);
+		value.set(index);
+		vars[depth] = variable;
+		values[depth++] = value;
+	}
+	
+	/**
+	 * Removes the variables bound at the given level and above from the scope.
+	 */
+	private void unbind(int level) {
+		depth = level;
+		if (level < 63)
+			free &= (1L << level) - 1;
+	}
+	
+	/**
+	 * Returns this.univSize^arity.
+	 * @throws CapacityExceededException  this.univSize^arity > Integer.MAX_VALUE
+	 */
+	private int capacity(int arity) {
+		int ret = 1;
+		try {
+			for(int i = 0; i < arity; i++) 
+				ret = Math.multiplyExact(ret, univSize);
+		} catch (ArithmeticException e) {
+			throw new CapacityExceededException("Arity too large (" + arity + ") for a universe of size " + univSize, e, Ints.nCopies(arity, univSize));
+		}
+		return ret;
+	}
+	
+	/**
+	 * Returns a bit set with the indices in the given set.
+	 */
+	private static BitSet bits(IntSet indices) {
+		final BitSet ret = new BitSet(indices.isEmpty() ? 0 : indices.max()+1);
+		for(IntIterator iter = indices.iterator(); iter.hasNext(); ) {
+			ret.set(iter.next());
+		}
+		return ret;
+	}
+	
+	/*---------------------------------------------------------*/
+	
+	/**
+	 * Returns the values of the given declarations, evaluated in the current scope.
+	 * @return the values of the given declarations, evaluated in the current scope
+	 */
+	public List<BitSet> visit(Decls decls) {
+		final List<BitSet> ret = new ArrayList<BitSet>(decls.size());
+		for(Decl decl : decls) {
+			ret.add(visit(decl));
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the value of decl.expression.
+	 * @return decl.expression.accept(this)
+	 * @throws HigherOrderDeclException  decl.multiplicity != ONE
+	 */
+	public BitSet visit(Decl decl) {
+		if (decl.multiplicity()!=Multiplicity.ONE)
+			throw new HigherOrderDeclException(decl);
+		return decl.expression().accept(this);
+	}
+
+	/**
+	 * Returns the value of the relation in this.instance.
+	 * @throws UnboundLeafException  relation !in this.instance.relations
+	 */
+	public BitSet visit(Relation relation) {
+		BitSet ret = lookup(relation);
+		if (ret!=null) return ret;
+		final TupleSet tuples = instance.tuples(relation);
+		if (tuples==null)
+			throw new UnboundLeafException("Unbound relation: ", relation);
+		ret = bits(tuples.indexView());
+		memo.put(relation, ret);
+		return ret;
+	}
+
+	/**
+	 * Returns the current binding of the given variable.
+	 * @throws UnboundLeafException  the variable is not in scope
+	 */
+	public BitSet visit(Variable variable) {
+		for(int i = depth-1; i >= 0; i--) {
+			if (vars[i]==variable) {
+				free |= 1L << StrictMath.min(i, 63);
+				return values[i];
+			}
+		}
+		throw new UnboundLeafException("Unbound variable", variable);
+	}
+
+	/**
+	 * Returns the value of the given constant expression.
+	 */
+	public BitSet visit(ConstantExpression constExpr) {
+		BitSet ret = lookup(constExpr);
+		if (ret!=null) return ret;
+		ret = new BitSet();
+		if (constExpr==Expression.UNIV) {
+			ret.set(0, univSize);
+		} else if (constExpr==Expression.IDEN) {
+			capacity(2);
+			for(int i = 0; i < univSize; i++) 
+				ret.set(i*univSize + i);
+		} else if (constExpr==Expression.INTS) {
+			for(int atom : intAtoms)
+				ret.set(atom);
+		} else if (constExpr!=Expression.NONE) {
+			throw new IllegalArgumentException("unknown constant expression: " + constExpr);
+		}
+		memo.put(constExpr, ret);
+		return ret;
+	}
+
+	public BitSet visit(UnaryExpression unaryExpr) {
+		BitSet ret = lookup(unaryExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final BitSet child = unaryExpr.expression().accept(this);
+		switch(unaryExpr.op()) {
+		case TRANSPOSE 			: ret = transpose(child); break;
+		case CLOSURE 			: ret = closure(child); break;
+		case REFLEXIVE_CLOSURE	: ret = closure(child); ret.or(visit((ConstantExpression)Expression.IDEN)); break;
+		default : 
+			throw new IllegalArgumentException("Unknown operator: " + unaryExpr.op());
+		}
+		return exit(unaryExpr, ret, outer);
+	}
+
+	public BitSet visit(BinaryExpression binExpr) {
+		BitSet ret = lookup(binExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final BitSet left = binExpr.left().accept(this);
+		final BitSet right = binExpr.right().accept(this);
+		switch(binExpr.op()) {
+		case UNION 			: ret = (BitSet) left.clone(); ret.or(right); break;
+		case INTERSECTION	: ret = (BitSet) left.clone(); ret.and(right); break;
+		case DIFFERENCE		: ret = (BitSet) left.clone(); ret.andNot(right); break;
+		case OVERRIDE		: ret = override(left, right, binExpr.arity()); break;
+		case JOIN			: ret = join(left, binExpr.left().arity(), right, binExpr.right().arity()); break;
+		case PRODUCT		: ret = product(left, binExpr.left().arity(), right, binExpr.right().arity()); break;
+		default : 
+			throw new IllegalArgumentException("Unknown operator: " + binExpr.op());
+		}
+		return exit(binExpr, ret, outer);
+	}
+
+	public BitSet visit(NaryExpression expr) {
+		BitSet ret = lookup(expr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		ret = (BitSet) expr.child(0).accept(this).clone();
+		int arity = expr.child(0).arity();
+		for(int i = 1, size = expr.size(); i < size; i++) {
+			final Expression child = expr.child(i);
+			final BitSet value = child.accept(this);
+			switch(expr.op()) {
+			case UNION 			: ret.or(value); break;
+			case INTERSECTION	: ret.and(value); break;
+			case OVERRIDE		: ret = override(ret, value, arity); break;
+			case PRODUCT		: ret = product(ret, arity, value, child.arity()); arity += child.arity(); break;
+			default : 
+				throw new IllegalArgumentException("Unknown associative operator: " + expr.op());
+			}
+		}
+		return exit(expr, ret, outer);
+	}
+
+	public BitSet visit(Comprehension comprehension) {
+		BitSet ret = lookup(comprehension);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final int level = depth;
+		capacity(comprehension.arity());
+		ret = new BitSet();
+		comprehension(comprehension.decls(), comprehension.formula(), 0, 0, ret);
+		unbind(level);
+		return exit(comprehension, ret, outer);
+	}
+	
+	/**
+	 * Adds to the given set the indices of the tuples that satisfy the comprehension
+	 * "{ decls | formula }", given the bindings of decls[0..currentDecl).
+	 * @param partialIndex partial index of the tuples, given the bindings of decls[0..currentDecl)
+	 */
+	private void comprehension(Decls decls, Formula formula, int currentDecl, int partialIndex, BitSet ret) {
+		if (currentDecl==decls.size()) {
+			if (formula.accept(this)) 
+				ret.set(partialIndex);
+			return;
+		}
+		final Decl decl = decls.get(currentDecl);
+		final BitSet range = visit(decl);
+		final int position = capacity(decls.size()-currentDecl-1);
+		for(int i = range.nextSetBit(0); i >= 0; i = range.nextSetBit(i+1)) {
+			bind(decl.variable(), i);
+			comprehension(decls, formula, currentDecl+1, partialIndex + i*position, ret);
+			depth--;
+		}
+	}
+
+	public BitSet visit(IfExpression ifExpr) {
+		BitSet ret = lookup(ifExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		ret = ifExpr.condition().accept(this) ? ifExpr.thenExpr().accept(this) : ifExpr.elseExpr().accept(this);
+		return exit(ifExpr, ret, outer);
+	}
+
+	public BitSet visit(ProjectExpression project) {
+		BitSet ret = lookup(project);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final int arity = project.expression().arity();
+		final int[] columns = new int[project.arity()];
+		capacity(columns.length);
+		boolean inRange = true;
+		for(int i = 0; i < columns.length; i++) {
+			columns[i] = project.column(i).accept(this).value();
+			inRange &= columns[i] >= 0 && columns[i] < arity;
+		}
+		final BitSet child = project.expression().accept(this);
+		ret = new BitSet();
+		if (inRange) {
+			final int[] atoms = new int[arity];
+			for(int i = child.nextSetBit(0); i >= 0; i = child.nextSetBit(i+1)) {
+				for(int j = arity-1, index = i; j >= 0; j--, index /= univSize) 
+					atoms[j] = index % univSize;
+				int index = 0;
+				for(int column : columns)
+					index = index*univSize + atoms[column];
+				ret.set(index);
+			}
+		}
+		return exit(project, ret, outer);
+	}
+
+	public BitSet visit(IntToExprCast castExpr) {
+		BitSet ret = lookup(castExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final Int child = castExpr.intExpr().accept(this);
+		ret = new BitSet();
+		switch(castExpr.op()) {
+		case INTCAST :
+			final int value = child.value();
+			for(int i = 0; i < ints.length; i++) {
+				if (intValues[i]==value) 
+					ret.set(intAtoms[i]);
+			}
+			break;
+		case BITSETCAST :
+			final List<BooleanValue> twosComplement = child.twosComplementBits();
+			final int msb = twosComplement.size()-1;
+			// each power of two below the sign bit, and the sign bit, is set by its own bit
+			for(int i = 0; i < ints.length; i++) {
+				final int bit;
+				if (ints[i]==(-1<<msb))
+					bit = msb;
+				else if (ints[i] > 0 && Integer.bitCount(ints[i])==1 && Integer.numberOfTrailingZeros(ints[i]) < msb)
+					bit = Integer.numberOfTrailingZeros(ints[i]);
+				else 
+					continue;
+				if (twosComplement.get(bit)==BooleanConstant.TRUE)
+					ret.set(intAtoms[i]);
+			}
+			break;
+		default : 
+			throw new IllegalArgumentException("Unknown cast operator: " + castExpr.op());
+		}
+		return exit(castExpr, ret, outer);
+	}
+	
+	public BitSet visit(TempExpression temporalExpr) {
+		// [HASLab] as in FOL2BoolTranslator, the temporal operator is ignored
+		return temporalExpr.expression().accept(this);
+	}
+
+	/*---------------------------------------------------------*/
+	
+	/**
+	 * @return { i: int | some j: left | i = (j % n)*n + j / n } where n = this.univSize
+	 */
+	private BitSet transpose(BitSet left) {
+		final BitSet ret = new BitSet(left.size());
+		for(int i = left.nextSetBit(0); i >= 0; i = left.nextSetBit(i+1)) {
+			ret.set((i % univSize)*univSize + i / univSize);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Computes the transitive closure of the given binary relation with Warshall's
+	 * algorithm over the bit sets of its rows.
+	 * @return ^left
+	 */
+	private BitSet closure(BitSet left) {
+		final BitSet[] rows = new BitSet[univSize];
+		for(int i = left.nextSetBit(0); i >= 0; i = left.nextSetBit(i+1)) {
+			final int row = i / univSize;
+			if (rows[row]==null) rows[row] = new BitSet(univSize);
+			rows[row].set(i % univSize);
+		}
+		for(int k = 0; k < univSize; k++) {
+			if (rows[k]==null) continue;
+			for(int i = 0; i < univSize; i++) {
+				if (rows[i]!=null && rows[i].get(k))
+					rows[i].or(rows[k]);
+			}
+		}
+		final BitSet ret = new BitSet(left.size());
+		for(int i = 0; i < univSize; i++) {
+			if (rows[i]==null) continue;
+			for(int j = rows[i].nextSetBit(0); j >= 0; j = rows[i].nextSetBit(j+1)) 
+				ret.set(i*univSize + j);
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return left ++ right, where left and right are of the given arity
+	 */
+	private BitSet override(BitSet left, BitSet right, int arity) {
+		if (right.isEmpty()) return (BitSet) left.clone();
+		final BitSet ret = (BitSet) right.clone();
+		final int rowLength = capacity(arity-1);
+		for(int i = left.nextSetBit(0); i >= 0; i = left.nextSetBit(i+1)) {
+			final int row = i - i % rowLength;
+			final int next = right.nextSetBit(row);
+			if (next < 0 || next >= row + rowLength)
+				ret.set(i);
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return left.right, where left and right are of the given arities
+	 * @throws CapacityExceededException  this.univSize^(leftArity+rightArity-2) > Integer.MAX_VALUE
+	 */
+	private BitSet join(BitSet left, int leftArity, BitSet right, int rightArity) {
+		capacity(leftArity + rightArity - 2);
+		final BitSet ret = new BitSet();
+		final int rowLength = capacity(rightArity-1);
+		for(int i = left.nextSetBit(0); i >= 0; i = left.nextSetBit(i+1)) {
+			final int prefix = (i / univSize)*rowLength, row = (i % univSize)*rowLength, end = row + rowLength;
+			for(int j = right.nextSetBit(row); j >= 0 && j < end; j = right.nextSetBit(j+1)) {
+				ret.set(prefix + j - row);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return left->right, where left and right are of the given arities
+	 * @throws CapacityExceededException  this.univSize^(leftArity+rightArity) > Integer.MAX_VALUE
+	 */
+	private BitSet product(BitSet left, int leftArity, BitSet right, int rightArity) {
+		capacity(leftArity + rightArity);
+		final BitSet ret = new BitSet();
+		final int rowLength = capacity(rightArity);
+		for(int i = left.nextSetBit(0); i >= 0; i = left.nextSetBit(i+1)) {
+			for(int j = right.nextSetBit(0); j >= 0; j = right.nextSetBit(j+1)) {
+				ret.set(i*rowLength + j);
+			}
+		}
+		return ret;
+	}
+	
+	/*---------------------------------------------------------*/
+
+	public Boolean visit(ConstantFormula constant) {
+		return constant.booleanValue();
+	}
+	
+	public Boolean visit(QuantifiedFormula quantFormula) {
+		Boolean ret = lookup(quantFormula);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final int level = depth;
+		switch(quantFormula.quantifier()) {
+		case ALL	: ret = !exists(quantFormula.decls(), quantFormula.formula(), 0, false); break;
+		case SOME	: ret = exists(quantFormula.decls(), quantFormula.formula(), 0, true); break;
+		default : 
+			throw new IllegalArgumentException("Unknown quantifier: " + quantFormula.quantifier());
+		}
+		unbind(level);
+		return exit(quantFormula, ret, outer);
+	}
+	
+	/**
+	 * Returns true if the formula evaluates to the given value under some binding
+	 * of decls[currentDecl..], given the bindings of decls[0..currentDecl).
+	 */
+	private boolean exists(Decls decls, Formula formula, int currentDecl, boolean value) {
+		if (currentDecl==decls.size()) 
+			return formula.accept(this)==value;
+		final Decl decl = decls.get(currentDecl);
+		final BitSet range = visit(decl);
+		for(int i = range.nextSetBit(0); i >= 0; i = range.nextSetBit(i+1)) {
+			bind(decl.variable(), i);
+			final boolean found = exists(decls, formula, currentDecl+1, value);
+			depth--;
+			if (found) return true;
+		}
+		return false;
+	}
+
+	public Boolean visit(NaryFormula formula) {
+		Boolean ret = lookup(formula);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final boolean shortCircuit;
+		switch(formula.op()) {
+		case AND : shortCircuit = false; break;
+		case OR  : shortCircuit = true;  break;
+		default	 : throw new IllegalArgumentException("Unknown nary operator: " + formula.op());
+		}
+		ret = !shortCircuit;
+		for(Formula child : formula) {
+			if (child.accept(this)==shortCircuit) {
+				ret = shortCircuit;
+				break;
+			}
+		}
+		return exit(formula, ret, outer);
+	}
+
+	public Boolean visit(BinaryFormula binFormula) {
+		Boolean ret = lookup(binFormula);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final boolean left = binFormula.left().accept(this);
+		switch(binFormula.op()) {
+		case AND		: ret = left && binFormula.right().accept(this); break;
+		case OR			: ret = left || binFormula.right().accept(this); break;
+		case IMPLIES	: ret = !left || binFormula.right().accept(this); break;
+		case IFF		: ret = left == binFormula.right().accept(this); break;
+		default : 
+			throw new IllegalArgumentException("Unknown operator: " + binFormula.op());
+		}
+		return exit(binFormula, ret, outer);
+	}
+
+	public Boolean visit(NotFormula not) {
+		Boolean ret = lookup(not);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		ret = !not.formula().accept(this);
+		return exit(not, ret, outer);
+	}
+
+	public Boolean visit(ComparisonFormula compFormula) {
+		Boolean ret = lookup(compFormula);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final BitSet left = compFormula.left().accept(this);
+		final BitSet right = compFormula.right().accept(this);
+		switch(compFormula.op()) {
+		case SUBSET	: 
+			ret = true;
+			for(int i = left.nextSetBit(0); ret && i >= 0; i = left.nextSetBit(i+1)) 
+				ret = right.get(i);
+			break;
+		case EQUALS	: ret = left.equals(right); break;
+		default : 
+			throw new IllegalArgumentException("Unknown operator: " + compFormula.op());
+		}
+		return exit(compFormula, ret, outer);
+	}
+
+	public Boolean visit(MultiplicityFormula multFormula) {
+		Boolean ret = lookup(multFormula);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final BitSet child = multFormula.expression().accept(this);
+		switch(multFormula.multiplicity()) {
+		case NO 	: ret = child.isEmpty(); break;
+		case SOME	: ret = !child.isEmpty(); break;
+		case ONE 	: ret = child.cardinality()==1; break;
+		case LONE 	: ret = child.cardinality()<=1; break;
+		default : 
+			throw new IllegalArgumentException("Unknown multiplicity: " + multFormula.multiplicity());
+		}
+		return exit(multFormula, ret, outer);
+	}
+
+	public Boolean visit(RelationPredicate predicate) {
+		Boolean ret = lookup(predicate);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		ret = predicate.toConstraints().accept(this);
+		return exit(predicate, ret, outer);
+	}
+	
+	public Boolean visit(IntComparisonFormula intComp) {
+		Boolean ret = lookup(intComp);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final Int left = intComp.left().accept(this);
+		final Int right = intComp.right().accept(this);
+		final Environment<?,?> env = Environment.empty();
+		final BooleanValue value;
+		switch(intComp.op()) {
+		case EQ  : value = left.eq(right, env); break;
+		case NEQ : value = left.neq(right, env); break;
+		case LT  : value = left.lt(right, env); break;
+		case LTE : value = left.lte(right, env); break;
+		case GT  : value = left.gt(right, env); break;
+		case GTE : value = left.gte(right, env); break;
+		default: 
+			throw new IllegalArgumentException("Unknown operator: " + intComp.op());
+		}
+		return exit(intComp, value==BooleanConstant.TRUE, outer);
+	}
+
+	public Boolean visit(UnaryTempFormula temporalFormula) {
+		// [HASLab] as in FOL2BoolTranslator, the temporal operator is ignored
+		return temporalFormula.formula().accept(this);
+	}
+
+	public Boolean visit(BinaryTempFormula temporalFormula) {
+		// [HASLab] as in FOL2BoolTranslator, the temporal operator is ignored
+		if (temporalFormula.op() == TemporalOperator.UNTIL)
+			return temporalFormula.right().accept(this);
+		else if (temporalFormula.op() == TemporalOperator.RELEASES)
+			return temporalFormula.left().accept(this) || temporalFormula.right().accept(this);
+		else
+			return temporalFormula.left().accept(this);
+	}
+	
+	/*---------------------------------------------------------*/
+
+	public Int visit(IntConstant intConst) {
+		return factory.integer(intConst.value());
+	}
+
+	public Int visit(IfIntExpression intExpr) {
+		Int ret = lookup(intExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		ret = intExpr.condition().accept(this) ? intExpr.thenExpr().accept(this) : intExpr.elseExpr().accept(this);
+		return exit(intExpr, ret, outer);
+	}
+
+	public Int visit(ExprToIntCast intExpr) {
+		Int ret = lookup(intExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final BitSet child = intExpr.expression().accept(this);
+		switch(intExpr.op()) {
+		case CARDINALITY : 
+			ret = factory.integer(child.cardinality()); break;
+		case SUM : 
+			int sum = 0;
+			for(int i = 0; i < ints.length; i++) {
+				if (child.get(intAtoms[i])) 
+					sum += ints[i];
+			}
+			ret = factory.integer(sum); break;
+		default: 
+			throw new IllegalArgumentException("unknown operator: " + intExpr.op());
+		}
+		return exit(intExpr, ret, outer);
+	}
+
+	public Int visit(NaryIntExpression intExpr) {
+		Int ret = lookup(intExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final Int first = intExpr.child(0).accept(this);
+		final Int[] rest = new Int[intExpr.size()-1];
+		for(int i = 0; i < rest.length; i++) { 	rest[i] = intExpr.child(i+1).accept(this); }
+		switch(intExpr.op()) { 
+		case PLUS  		: ret = first.plus(rest); break;
+		case MULTIPLY 	: ret = first.multiply(rest); break;
+		case AND		: ret = first.and(rest); break;
+		case OR			: ret = first.or(rest); break;
+		default    :
+			throw new IllegalArgumentException("Unknown nary operator: " + intExpr.op());
+		}
+		return exit(intExpr, ret, outer);
+	}
+
+	public Int visit(BinaryIntExpression intExpr) {
+		Int ret = lookup(intExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final Int left = intExpr.left().accept(this);
+		final Int right = intExpr.right().accept(this);
+		switch(intExpr.op()) {
+		case PLUS  		: ret = left.plus(right); break;
+		case MINUS 		: ret = left.minus(right); break;
+		case MULTIPLY 	: ret = left.multiply(right); break;
+		case DIVIDE 	: ret = left.divide(right); break;
+		case MODULO		: ret = left.modulo(right); break;
+		case AND		: ret = left.and(right); break;
+		case OR			: ret = left.or(right); break;
+		case XOR		: ret = left.xor(right); break;
+		case SHL		: ret = left.shl(right); break;
+		case SHR		: ret = left.shr(right); break;
+		case SHA		: ret = left.sha(right); break;
+		default    :
+			throw new IllegalArgumentException("Unknown operator: " + intExpr.op());
+		}
+		return exit(intExpr, ret, outer);
+	}
+
+	public Int visit(UnaryIntExpression intExpr) {
+		Int ret = lookup(intExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final Int child = intExpr.intExpr().accept(this);
+		switch(intExpr.op()) {
+		case NEG 	: ret = child.negate(); break;
+		case NOT 	: ret = child.not(); break;
+		case ABS 	: ret = child.abs(); break;
+		case SGN 	: ret = child.sgn(); break;
+		default : 
+			throw new IllegalArgumentException("Unknown operator: " + intExpr.op());
+		}
+		return exit(intExpr, ret, outer);
+	}
+
+	public Int visit(SumExpression intExpr) {
+		Int ret = lookup(intExpr);
+		if (ret!=null) return ret;
+		final long outer = enter();
+		final int level = depth;
+		ret = factory.integer(sum(intExpr.decls(), intExpr.intExpr(), 0));
+		unbind(level);
+		return exit(intExpr, ret, outer);
+	}
+	
+	/**
+	 * Returns the sum of the values of the given expression under all bindings of
+	 * decls[currentDecl..], given the bindings of decls[0..currentDecl).
+	 */
+	private int sum(Decls decls, IntExpression expr, int currentDecl) {
+		if (currentDecl==decls.size())
+			return expr.accept(this).value();
+		final Decl decl = decls.get(currentDecl);
+		final BitSet range = visit(decl);
+		int ret = 0;
+		for(int i = range.nextSetBit(0); i >= 0; i = range.nextSetBit(i+1)) {
+			bind(decl.variable(), i);
+			ret += sum(decls, expr, currentDecl+1);
+			depth--;
+		}
+		return ret;
+	}
+}
@@ -29,12 +29,15 @@ import java.util.Set;
 import kodkod.ast.ConstantExpression;
 import kodkod.ast.Expression;
 import kodkod.ast.Relation;
+import kodkod.engine.CapacityExceededException;
+import kodkod.engine.bool.BooleanConstant;
 import kodkod.engine.bool.BooleanFactory;
 import kodkod.engine.bool.BooleanMatrix;
 import kodkod.engine.bool.Dimensions;
 import kodkod.engine.config.Options;
 import kodkod.instance.Bounds;
 import kodkod.instance.Instance;
+import kodkod.instance.Tuple;
 import kodkod.instance.TupleSet;
 import kodkod.instance.Universe;
 import kodkod.util.ints.IntIterator;
@@ -168,7 +171,14 @@ final class LeafInterpreter {
 	private static int allocateVars(int minVar, Map<Relation, IntRange> vars, Set<Relation> rels, Map<Relation, TupleSet> lowers, Map<Relation, TupleSet> uppers) {
 		int maxLit = minVar;
 		for(Relation r : rels) {
-			int rLits = uppers.get(r).size() - lowers.get(r).size();
+			// [HASLab] long-indexed bounds may hold more tuples than there are variables
+			final long longLits = uppers.get(r).longSize() - lowers.get(r).longSize();
+			if (maxLit + longLits > Integer.MAX_VALUE) {
+				final TupleSet upper = uppers.get(r);
+				throw new CapacityExceededException("Too many variables: relation " + r + " requires " + longLits, 
+						Ints.nCopies(r.arity(), upper.universe().size()));
+			}
+			int rLits = (int) longLits;
 			if (rLits > 0) {
 				vars.put(r, Ints.range(maxLit, maxLit + rLits - 1));
 				maxLit += rLits;
@@ -257,10 +267,13 @@ final class LeafInterpreter {
 	public final BooleanMatrix interpret(Relation r) {
 		if (!lowers.containsKey(r))
 			throw new UnboundLeafException("Unbound relation: ", r);
+		final Dimensions dims = Dimensions.square(universe().size(), r.arity()); // [HASLab]
+		if (dims.isLong()) 
+			return interpretLong(r, dims);
 		final IntSet lowerBound = lowers.get(r).indexView();
 		final IntSet upperBound = uppers.get(r).indexView();
 		
-		final BooleanMatrix m = factory.matrix(Dimensions.square(universe().size(), r.arity()), upperBound, lowerBound);
+		final BooleanMatrix m = factory.matrix(dims, upperBound, lowerBound);
 		
 		if (upperBound.size() > lowerBound.size()) {
 			int varId = vars.get(r).min();
@@ -273,6 +286,28 @@ final class LeafInterpreter {
 		return m;
 	}
 	
+	/**
+	 * Returns a matrix with the given long dimensions that represents the specified relation,
+	 * as described in {@link #interpret(Relation)}.  The tuples of the upper bound
+	 * of r are enumerated, so its size must be within the range of an int. 
+	 * @requires r in this.relations && dims = Dimensions.square(this.universe.size(), r.arity()) && dims.isLong()
+	 * @return this.interpret(r)
+	 * @throws CapacityExceededException  #this.ubounds[r] > Integer.MAX_VALUE
+	 */
+	// [HASLab]
+	private final BooleanMatrix interpretLong(Relation r, Dimensions dims) {
+		final TupleSet lowerBound = lowers.get(r), upperBound = uppers.get(r);
+		if (upperBound.longSize() > Integer.MAX_VALUE) 
+			throw new CapacityExceededException("Upper bound too large: relation " + r + " has " + upperBound.longSize() + " tuples", 
+					Ints.nCopies(r.arity(), universe().size()));
+		final BooleanMatrix m = factory.matrix(dims);
+		int varId = upperBound.longSize() > lowerBound.longSize() ? vars.get(r).min() : 0;
+		for (Tuple tuple : upperBound) {
+			m.set(tuple.longIndex(), lowerBound.contains(tuple) ? BooleanConstant.TRUE : factory.variable(varId++));
+		}
+		return m;
+	}
+	
 	/**
 	 * Returns a {@link kodkod.engine.bool.BooleanMatrix matrix} m of 
 	 * {@link kodkod.engine.bool.BooleanValue boolean formulas} representing
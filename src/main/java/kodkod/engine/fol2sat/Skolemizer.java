@@ -354,7 +354,9 @@ abstract class Skolemizer extends AbstractReplacer {
 			matrixBound = nonSkolems.get(i).upperBound.cross(matrixBound);
 		}
 
-		final TupleSet skolemBound = bounds.universe().factory().setOf(arity, matrixBound.denseIndices());
+		final TupleSet skolemBound = matrixBound.dimensions().isLong() ? // [HASLab]
+				bounds.universe().factory().setOf(arity, matrixBound.longDenseIndices()) :
+				bounds.universe().factory().setOf(arity, matrixBound.denseIndices());
 		bounds.bound(skolem, skolemBound);
 
 		return skolemExpr;
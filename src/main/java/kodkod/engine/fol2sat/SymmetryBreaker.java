@@ -25,6 +25,7 @@ package kodkod.engine.fol2sat;
 import static kodkod.ast.RelationPredicate.Name.ACYCLIC;
 import static kodkod.ast.RelationPredicate.Name.TOTAL_ORDERING;
 
+import java.util.AbstractList;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -54,7 +55,6 @@ import kodkod.instance.Bounds;
 import kodkod.instance.PardinusBounds;
 import kodkod.instance.Tuple;
 import kodkod.instance.TupleFactory;
-import kodkod.instance.TupleSet;
 import kodkod.util.ints.IndexedEntry;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
@@ -197,24 +197,23 @@ final class SymmetryBreaker {
 		final List<RelationParts> relParts = relParts();
 		final BooleanFactory factory = interpreter.factory();
 		final BooleanAccumulator sbp = BooleanAccumulator.treeGate(Operator.AND);
-		final List<BooleanValue> original = new ArrayList<BooleanValue>(predLength);
-		final List<BooleanValue> permuted = new ArrayList<BooleanValue>(predLength);
+		// [HASLab] lex chains over tuple indices, reported as tuples only if read
+		final LexChain chain = new LexChain(StrictMath.min(predLength, 64), interpreter.universe().factory());
 
-		// [HASLab] report lexes
-		final List<Entry<Relation, Tuple>> _original = new ArrayList<Entry<Relation, Tuple>>(predLength);
-		final List<Entry<Relation, Tuple>> _permuted = new ArrayList<Entry<Relation, Tuple>>(predLength);
+		// [HASLab] the state atoms, if temporal, whose tuples are broken per state
+		final IntSet states = bounds.relations().contains(TemporalTranslator.STATE) ? 
+				bounds.lowerBound(TemporalTranslator.STATE).indexView() : null;
+		final int[] times = states == null ? new int[0] : states.toArray();
 
 		for(IntSet sym : symmetries) {
 		
 			IntIterator indeces = sym.iterator();
 			for(int prevIndex = indeces.next(); indeces.hasNext(); ) {
 				int curIndex = indeces.next();
-				Iterator<Tuple> times = null;
-				if (bounds.relations().contains(TemporalTranslator.STATE))
-					times = bounds.lowerBound(TemporalTranslator.STATE).iterator();
-				Tuple time = null;
-				do {
-					for(Iterator<RelationParts> rIter = relParts.iterator(); rIter.hasNext() && original.size() < predLength;) {
+				// the first pass (time < 0) takes the tuples not ending in a state atom
+				for(int t = -1; t < times.length; t++) {
+					final int time = t < 0 ? -1 : times[t];
+					for(Iterator<RelationParts> rIter = relParts.iterator(); rIter.hasNext() && chain.size < predLength;) {
 						
 						RelationParts rparts = rIter.next();
 						Relation r = rparts.relation;
@@ -235,37 +234,20 @@ final class SymmetryBreaker {
 						for(IndexedEntry<BooleanValue> entry : m) {
 							int permIndex = permutation(r.arity(), entry.index(), prevIndex, curIndex);
 							BooleanValue permValue = m.get(permIndex);
-							if (permIndex==entry.index() || atSameIndex(original, permValue, permuted, entry.value()))
+							if (permIndex==entry.index() || chain.contains(entry.value(), permValue))
 								continue;
 							
-							boolean zzz = false;
-							if (times != null) {
-								TupleSet yyy = bounds.lowerBound(TemporalTranslator.STATE);
-								Tuple xxx = interpreter.universe().factory().tuple(interpreter.universe().factory().tuple(r.arity(), entry.index()).atom(r.arity()-1));
-								zzz = yyy.contains(xxx);	
-							}
-							
-							if ((time == null && !zzz)
-									|| (time != null && interpreter.universe().factory().tuple(r.arity(), entry.index()).contains(time.atom(0)))) {
-								_original.add(new AbstractMap.SimpleEntry<Relation, Tuple>(r, interpreter.universe().factory().tuple(r.arity(), entry.index()))); // [HASLab]
-								_permuted.add(new AbstractMap.SimpleEntry<Relation, Tuple>(r, interpreter.universe().factory().tuple(r.arity(), permIndex))); // [HASLab]
-								original.add(entry.value());
-								permuted.add(permValue);	
-							}
+							if (time < 0 ? (states == null || !states.contains(entry.index() % usize)) 
+									     : contains(r.arity(), entry.index(), time)) 
+								chain.add(r, entry.index(), permIndex, entry.value(), permValue);
 						}
 					}
-					if (times != null && times.hasNext())
-						time = times.next();
-					else time = null;
-				} while (time != null);
+				}
 								
-				reporter.reportLex(_original,_permuted); // [HASLab]
+				reporter.reportLex(chain.originals(), chain.permuted()); // [HASLab]
 
-				sbp.add(leq(factory, original, permuted));
-				original.clear();
-				permuted.clear();
-				_original.clear(); // [HASLab]
-				_permuted.clear(); // [HASLab]
+				sbp.add(leq(factory, chain));
+				chain.clear();
 				prevIndex = curIndex;
 			}
 		}
@@ -284,6 +266,8 @@ final class SymmetryBreaker {
 	private List<RelationParts> relParts() {
 		final List<RelationParts> relParts = new ArrayList<RelationParts>(bounds.relations().size());
 		for(Relation r: bounds.relations()) {		
+			// [HASLab] long-indexed relations are left out of the lex chains, which remain a sound prefix
+			if (bounds.upperBound(r).longCapacity() > Integer.MAX_VALUE) continue; 
 			IntSet upper = bounds.upperBound(r).indexView();
 			if (upper.size()==bounds.lowerBound(r).size()) continue; // skip constant relation
 			IntSet reps = Ints.bestSet(usize);
@@ -342,17 +326,16 @@ final class SymmetryBreaker {
 	
 	/**
 	 * Returns a BooleanValue that is true iff the string of bits
-	 * represented by l0 is lexicographically less than or equal
-	 * to the string of bits reprented by l1.
-	 * @requires l0.size()==l1.size()
-	 * @return a circuit that compares l0 and l1
+	 * represented by chain.original is lexicographically less than or equal
+	 * to the string of bits reprented by chain.permuted.
+	 * @return a circuit that compares chain.original and chain.permuted
 	 */
-	private static final BooleanValue leq(BooleanFactory f, List<BooleanValue> l0, List<BooleanValue> l1) {
+	private static final BooleanValue leq(BooleanFactory f, LexChain chain) {
 		final BooleanAccumulator cmp = BooleanAccumulator.treeGate(Operator.AND);
 		BooleanValue prevEquals = BooleanConstant.TRUE;
-		for(int i = 0; i < l0.size(); i++) {
-			cmp.add(f.implies(prevEquals, f.implies(l0.get(i), l1.get(i))));
-			prevEquals = f.and(prevEquals, f.iff(l0.get(i), l1.get(i)));
+		for(int i = 0; i < chain.size; i++) {
+			cmp.add(f.implies(prevEquals, f.implies(chain.original[i], chain.permuted[i])));
+			prevEquals = f.and(prevEquals, f.iff(chain.original[i], chain.permuted[i]));
 		}
 		return f.accumulate(cmp);
 	}
@@ -381,13 +364,14 @@ final class SymmetryBreaker {
 	}
 	
 	/**
-	 * Returns true if there is some index i such that l0[i] = v0 and l1[i] = v1.
-	 * @requires l0.size()=l1.size()
-	 * @return some i: int | l0[i] = v0 && l1[i] = v1
+	 * Returns true if the tuple represented by the given arity and tupleIndex
+	 * contains the given atom.
+	 * @return some i: [0..arity) | tuple(arity, tupleIndex).atom(i) = atomIndex
 	 */
-	private static boolean atSameIndex(List<BooleanValue> l0, BooleanValue v0, List<BooleanValue> l1, BooleanValue v1) {
-		for(int i = 0; i < l0.size(); i++) {
-			if (l0.get(i).equals(v0) && l1.get(i).equals(v1))
+	// [HASLab]
+	private final boolean contains(int arity, int tupleIndex, int atomIndex) {
+		for(; arity > 0; arity--, tupleIndex /= usize) {
+			if (tupleIndex%usize==atomIndex)
 				return true;
 		}
 		return false;
@@ -646,4 +630,82 @@ final class SymmetryBreaker {
 			this.representatives = representatives;
 		}
 	}
+	
+	/**
+	 * The two sides of a lex leader chain, along with the relation and the
+	 * tuple indices of each of their entries. The entries are only
+	 * materialized as tuples when the views returned by 
+	 * {@link #originals()} and {@link #permuted()} are read, which are only
+	 * valid until the chain is cleared.
+	 */
+	private static final class LexChain {
+		private final TupleFactory factory;
+		BooleanValue[] original, permuted;
+		private Relation[] relations;
+		private int[] originalIndices, permutedIndices;
+		int size = 0;
+		
+		LexChain(int capacity, TupleFactory factory) {
+			this.factory = factory;
+			this.original = new BooleanValue[capacity];
+			this.permuted = new BooleanValue[capacity];
+			this.relations = new Relation[capacity];
+			this.originalIndices = new int[capacity];
+			this.permutedIndices = new int[capacity];
+		}
+		
+		/**
+		 * Appends the given entry of r and its permutation to this chain.
+		 */
+		void add(Relation r, int index, int permIndex, BooleanValue value, BooleanValue permValue) {
+			if (size==original.length) {
+				final int capacity = StrictMath.max(1, size * 2);
+				original = Arrays.copyOf(original, capacity);
+				permuted = Arrays.copyOf(permuted, capacity);
+				relations = Arrays.copyOf(relations, capacity);
+				originalIndices = Arrays.copyOf(originalIndices, capacity);
+				permutedIndices = Arrays.copyOf(permutedIndices, capacity);
+			}
+			relations[size] = r;
+			originalIndices[size] = index;
+			permutedIndices[size] = permIndex;
+			original[size] = value;
+			permuted[size] = permValue;
+			size++;
+		}
+		
+		/**
+		 * Returns true if there is some index i such that original[i] = v0 and permuted[i] = v1.
+		 * @return some i: [0..size) | original[i] = v0 && permuted[i] = v1
+		 */
+		boolean contains(BooleanValue v0, BooleanValue v1) {
+			for(int i = 0; i < size; i++) {
+				if (original[i].equals(v0) && permuted[i].equals(v1))
+					return true;
+			}
+			return false;
+		}
+		
+		void clear() {
+			Arrays.fill(original, 0, size, null);
+			Arrays.fill(permuted, 0, size, null);
+			size = 0;
+		}
+		
+		List<Entry<Relation, Tuple>> originals() { return view(originalIndices); }
+		
+		List<Entry<Relation, Tuple>> permuted() { return view(permutedIndices); }
+		
+		private List<Entry<Relation, Tuple>> view(final int[] indices) {
+			final int length = size;
+			return new AbstractList<Entry<Relation, Tuple>>() {
+				public Entry<Relation, Tuple> get(int i) {
+					if (i < 0 || i >= length) throw new IndexOutOfBoundsException(String.valueOf(i));
+					final Relation r = relations[i];
+					return new AbstractMap.SimpleEntry<Relation, Tuple>(r, factory.tuple(r.arity(), indices[i]));
+				}
+				public int size() { return length; }
+			};
+		}
+	}
 }
\ No newline at end of file
@@ -123,11 +123,35 @@ public final class SymmetryDetector {
 		// refine the partitions based on the upper/lower bounds for each relation
 		for(TupleSet s : sort(bounds)) {
 			if (parts.size()==usize) return;
-			refinePartitions(s.indexView(), s.arity(), range2domain);			
+			if (s.longCapacity() > Integer.MAX_VALUE) refineLongPartitions(s); // [HASLab]
+			else refinePartitions(s.indexView(), s.arity(), range2domain);			
 		}
 		
 	}
 	
+	/**
+	 * Refines the atomic partitions in this.parts based on the contents of the given 
+	 * long-indexed tupleset, which has no index view.  Rather than splitting the partitions 
+	 * by the columns of the set, this conservatively isolates each atom that occurs in 
+	 * the set, unless the set contains all tuples of its arity.  The resulting partitions 
+	 * are finer than those computed for an int-indexed set, and so remain sound: every 
+	 * permutation of the atoms within a partition fixes the set.
+	 * @requires set.longCapacity() > Integer.MAX_VALUE
+	 * @ensures  #set.tuples < set.longCapacity() => 
+	 *            all a: set.tuples.atoms[int] | some i: [0..this.parts'.size()) | this.parts'[i].ints = a
+	 */
+	// [HASLab]
+	private void refineLongPartitions(TupleSet set) {
+		if (set.longSize()==set.longCapacity()) return;
+		final IntSet atoms = Ints.bestSet(usize);
+		for(int i = 0; i < set.arity() && atoms.size() < usize; i++) {
+			atoms.addAll(set.project(i).indexView());
+		}
+		for(IntIterator iter = atoms.iterator(); iter.hasNext(); ) {
+			refinePartitions(oneOf(usize, iter.next()));
+		}
+	}
+	
 	/**
 	 * Returns an array that contains unique non-empty tuplesets in the given bounds,
 	 * sorted in the order of increasing size.
@@ -30,11 +30,14 @@ import kodkod.engine.config.Options;
 import kodkod.engine.satlab.SATSolver;
 import kodkod.instance.Bounds;
 import kodkod.instance.Instance;
+import kodkod.instance.Tuple;
 import kodkod.instance.TupleFactory;
 import kodkod.instance.TupleSet;
+import kodkod.util.ints.ArrayIntVector;
 import kodkod.util.ints.IndexedEntry;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
+import kodkod.util.ints.IntVector;
 import kodkod.util.ints.Ints;
 
 /**
@@ -68,6 +71,8 @@ public abstract class Translation {
 
 	private final Bounds bounds;
 	private final Options options;
+	// [HASLab]
+	private TranslationMetrics metrics;
 	
 	/**
 	 * Creates a translation using the given bounds and options.   
@@ -92,6 +97,21 @@ public abstract class Translation {
 	 */
 	public final Options options() { return options; }
 	
+	/**
+	 * Returns the metrics recorded for each phase of the translation
+	 * that produced this.cnf, or null if none were recorded.
+	 * @return the metrics of the translation that produced this.cnf, if any
+	 */
+	// [HASLab]
+	public final TranslationMetrics metrics() { return metrics; }
+	
+	/**
+	 * Sets the metrics recorded for the translation that produced this.cnf.
+	 * @ensures this.metrics' = metrics
+	 */
+	// [HASLab]
+	final void setMetrics(TranslationMetrics metrics) { this.metrics = metrics; }
+	
 	/** 
 	 * Returns the set of primary variables that represent
 	 * the tuples in the given relation.  If no variables were allocated
@@ -168,6 +188,16 @@ public abstract class Translation {
 		}
 		for(Relation r : bounds.relations()) {
 			TupleSet lower = bounds.lowerBound(r);
+			if (lower.longCapacity() > Integer.MAX_VALUE) { // [HASLab] long-indexed relations have no index views
+				final TupleSet tuples = lower.clone();
+				int lit = primaryVariables(r).isEmpty() ? 0 : primaryVariables(r).min();
+				for(Tuple t : bounds.upperBound(r)) {
+					if (!lower.contains(t) && solver.valueOf(lit++))
+						tuples.add(t);
+				}
+				instance.add(r, tuples);
+				continue;
+			}
 			IntSet indices = Ints.bestSet(lower.capacity());
 			indices.addAll(lower.indexView());
 			IntSet vars = primaryVariables(r);
@@ -300,6 +330,11 @@ public abstract class Translation {
 		 */
 		private final Bool2CNFTranslator incrementer;
 		private final Set<IntSet> symmetries;
+		/**
+		 * Activation literals of the open scopes, innermost last.
+		 */
+		// [HASLab]
+		private final IntVector activations = new ArrayIntVector();
 		
 		/**
 		 * Creates an Incremental translation using the given bounds, options, symmetries of the original bounds, 
@@ -336,6 +371,45 @@ public abstract class Translation {
 		 */
 		Bool2CNFTranslator incrementer() { return incrementer; }
 		
+		/**
+		 * Returns the number of scopes currently open in this translation.
+		 * @return #this.activations
+		 * @see Translator#pushIncremental(Incremental)
+		 */
+		// [HASLab]
+		public int scopes() { return activations.size(); }
+		
+		/**
+		 * Returns the activation literals of the open scopes, which must be passed 
+		 * to {@link SATSolver#solve(int[])} for the scoped formulas to hold.
+		 * @return this.activations
+		 */
+		// [HASLab]
+		public int[] assumptions() { return activations.toArray(); }
+		
+		/**
+		 * Returns the activation literal of the innermost open scope, or 0 if there is none.
+		 * @return no this.activations => 0 else this.activations[#this.activations-1]
+		 */
+		// [HASLab]
+		int activation() { return activations.isEmpty() ? 0 : activations.get(activations.size()-1); }
+		
+		/**
+		 * Opens a scope with the given activation literal.
+		 * @ensures this.activations' = this.activations + act
+		 */
+		// [HASLab]
+		void push(int act) { activations.add(act); }
+		
+		/**
+		 * Closes the innermost scope and returns its activation literal.
+		 * @requires some this.activations
+		 * @ensures this.activations' = this.activations - this.activations[#this.activations-1]
+		 * @return this.activations[#this.activations-1]
+		 */
+		// [HASLab]
+		int pop() { return activations.removeAt(activations.size()-1); }
+		
 		/**
 		 * {@inheritDoc}
 		 * @see kodkod.engine.fol2sat.Translation#cnf()
@@ -0,0 +1,235 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.fol2sat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import kodkod.engine.config.Reporter;
+
+/**
+ * Records the cost of each {@linkplain Phase phase} of a translation: the wall
+ * time spent in it, the bytes allocated by the translating thread while in it,
+ * and the number of gates it added to the circuit, along with the hit rate of
+ * the FOL to boolean translation caches.  Allocations are only measured on JVMs
+ * whose thread management bean supports them, and do not include those of
+ * concurrent translation workers.
+ * @specfield time, allocated: Phase -> long
+ * @specfield gates: Phase -> int
+ * @specfield cacheLookups, cacheHits: long
+ */
+public final class TranslationMetrics {
+
+	/**
+	 * The phases of a translation, in the order in which they are performed.
+	 */
+	public static enum Phase {
+		/** Annotation of the formula with its shared nodes and sources. */
+		ANNOTATION,
+		/** Detection of the symmetries of the bounds. */
+		SYMMETRY_DETECTION,
+		/** Flattening of the formula into conjuncts, when logging. */
+		FLATTENING,
+		/** Inlining of predicates, after breaking their matrix symmetries. */
+		INLINING,
+		/** Skolemization of the formula. */
+		SKOLEMIZATION,
+		/** Translation of the formula into a boolean circuit. */
+		FOL2BOOL,
+		/** Generation of the symmetry breaking predicate. */
+		SBP,
+		/** Translation of the boolean circuit into CNF. */
+		BOOL2CNF
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final boolean ALLOCATIONS = allocationsSupported();
+
+	private final long[] time = new long[PHASES.length], allocated = new long[PHASES.length];
+	private final int[] gates = new int[PHASES.length];
+	private long cacheLookups, cacheHits;
+	private long started, startedBytes;
+
+	/**
+	 * Constructs an empty set of metrics.
+	 * @ensures no this.time && no this.allocated && no this.gates && this.cacheLookups = this.cacheHits = 0
+	 */
+	TranslationMetrics() {}
+
+	/**
+	 * Returns true if the platform bean measures per-thread allocations.  The
+	 * com.sun.management extension is looked up reflectively, so that this class
+	 * still loads on JVMs that do not ship it.
+	 */
+	private static boolean allocationsSupported() {
+		try {
+			return Class.forName("com.sun.management.ThreadMXBean").isInstance(THREADS) && Allocations.supported();
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes allocated so far by the current thread,
+	 * or -1 if the JVM does not support allocation measurement.
+	 */
+	private static long allocatedBytes() {
+		return ALLOCATIONS ? Allocations.bytes() : -1;
+	}
+
+	/**
+	 * Holds the only references to com.sun.management, and is loaded only
+	 * once THREADS is known to implement its ThreadMXBean.
+	 */
+	private static final class Allocations {
+		private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) TranslationMetrics.THREADS;
+
+		static boolean supported() { return THREADS.isThreadAllocatedMemorySupported(); }
+
+		static long bytes() {
+			return THREADS.isThreadAllocatedMemoryEnabled() ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+		}
+	}
+
+	/**
+	 * Starts measuring a phase.
+	 */
+	void begin() {
+		startedBytes = allocatedBytes();
+		started = System.nanoTime();
+	}
+
+	/**
+	 * Adds the time and allocations since the last call to {@link #begin()} to the
+	 * given phase, and reports the phase to the given reporter.
+	 * @ensures this.time'[phase] = this.time[phase] + elapsed time since begin() and
+	 *          this.allocated'[phase] = this.allocated[phase] + allocated bytes since begin()
+	 * @ensures reporter.translatedPhase(phase, this)
+	 */
+	void end(Phase phase, Reporter reporter) {
+		time[phase.ordinal()] += System.nanoTime() - started;
+		final long endedBytes = startedBytes < 0 ? -1 : allocatedBytes();
+		if (endedBytes >= 0)
+			allocated[phase.ordinal()] += endedBytes - startedBytes;
+		reporter.translatedPhase(phase, this);
+	}
+
+	/**
+	 * Adds the given number of gates to those created in the given phase.
+	 * @ensures this.gates'[phase] = this.gates[phase] + gates
+	 */
+	void gates(Phase phase, int gates) {
+		this.gates[phase.ordinal()] += gates;
+	}
+
+	/**
+	 * Adds the given number of lookups and hits to the cache counts.
+	 * @ensures this.cacheLookups' = this.cacheLookups + lookups && this.cacheHits' = this.cacheHits + hits
+	 */
+	void cache(long lookups, long hits) {
+		this.cacheLookups += lookups;
+		this.cacheHits += hits;
+	}
+
+	/**
+	 * Returns the number of nanoseconds spent in the given phase.
+	 * @return this.time[phase]
+	 */
+	public long time(Phase phase) { return time[phase.ordinal()]; }
+
+	/**
+	 * Returns the number of bytes allocated by the translating thread
+	 * in the given phase, or 0 if allocations cannot be measured.
+	 * @return this.allocated[phase]
+	 */
+	public long allocated(Phase phase) { return allocated[phase.ordinal()]; }
+
+	/**
+	 * Returns the number of gates created in the given phase.
+	 * @return this.gates[phase]
+	 */
+	public int gates(Phase phase) { return gates[phase.ordinal()]; }
+
+	/**
+	 * Returns the number of lookups in the FOL to boolean translation caches.
+	 * @return this.cacheLookups
+	 */
+	public long cacheLookups() { return cacheLookups; }
+
+	/**
+	 * Returns the number of lookups in the FOL to boolean translation caches
+	 * that found a cached translation.
+	 * @return this.cacheHits
+	 */
+	public long cacheHits() { return cacheHits; }
+
+	/**
+	 * Returns the ratio of cache hits to cache lookups, or 0 if there were no lookups.
+	 * @return this.cacheLookups = 0 ? 0 : this.cacheHits / this.cacheLookups
+	 */
+	public double cacheHitRate() {
+		return cacheLookups==0 ? 0 : (double) cacheHits / cacheLookups;
+	}
+
+	/**
+	 * Returns the total number of nanoseconds spent in all phases.
+	 * @return sum(this.time[Phase])
+	 */
+	public long totalTime() {
+		long total = 0;
+		for(long t : time) total += t;
+		return total;
+	}
+
+	/**
+	 * Returns a JSON representation of the metrics of the given phase.
+	 * @return a JSON representation of the metrics of the given phase
+	 */
+	public String toJSON(Phase phase) {
+		final int i = phase.ordinal();
+		return "{\"phase\":\"" + phase + "\",\"time\":" + time[i] + ",\"allocated\":" + allocated[i] + ",\"gates\":" + gates[i] + "}";
+	}
+
+	/**
+	 * Returns a JSON representation of these metrics.
+	 * @return a JSON representation of these metrics
+	 */
+	public String toJSON() {
+		final StringBuilder ret = new StringBuilder("{\"phases\":[");
+		for(Phase phase : PHASES) {
+			if (phase.ordinal() > 0) ret.append(",");
+			ret.append(toJSON(phase));
+		}
+		ret.append("],\"cacheLookups\":").append(cacheLookups);
+		ret.append(",\"cacheHits\":").append(cacheHits).append("}");
+		return ret.toString();
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return toJSON();
+	}
+}
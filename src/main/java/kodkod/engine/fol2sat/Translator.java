@@ -52,7 +52,9 @@ import kodkod.engine.bool.BooleanValue;
 import kodkod.engine.bool.Int;
 import kodkod.engine.bool.Operator;
 import kodkod.engine.config.Options;
+import kodkod.engine.config.Reporter;
 import kodkod.engine.decomp.DecompFormulaSlicer;
+import kodkod.engine.fol2sat.TranslationMetrics.Phase;
 import kodkod.engine.ltl2fol.TemporalTranslator;
 import kodkod.engine.satlab.SATSolver;
 import kodkod.engine.satlab.TargetSATSolver;
@@ -289,8 +291,18 @@ public final class Translator {
 		interpreter.extend(setDifference(tBounds.relations(), oldRelations), tBounds.lowerBounds(), tBounds.upperBounds());
 		
 		final BooleanValue circuit = FOL2BoolTranslator.translate(annotated, interpreter); 
+		final int guard = transl.activation(); // [HASLab]
 	
-		if (circuit==BooleanConstant.FALSE) {
+		if (circuit==BooleanConstant.FALSE && guard != 0) { // [HASLab]
+			// only the innermost scope becomes unsatisfiable; the new primary variables are still 
+			// added to the solver so that later scopes can refer to them
+			final int maxVar = interpreter.factory().maxVariable();
+			final int cnfVar = transl.cnf().numberOfVariables();
+			if (maxVar > cnfVar) {
+				transl.cnf().addVariables(maxVar-cnfVar);
+			}
+			transl.cnf().addClause(new int[] { -guard });
+		} else if (circuit==BooleanConstant.FALSE) {
 			// release the old solver and state, and return a fresh trivially false incremental translation.
 			transl.incrementer().solver().free();
 			return new Translation.Incremental(tBounds, tOptions, transl.symmetries(), 
@@ -304,13 +316,82 @@ public final class Translator {
 				transl.cnf().addVariables(maxVar-cnfVar);
 			}
 		} else {
-			// circuit is a formula; add its CNF representation to transl.incrementer.solver()			
-			Bool2CNFTranslator.translateIncremental((BooleanFormula) circuit, interpreter.factory().maxVariable(), transl.incrementer());			
+			// circuit is a formula; add its CNF representation to transl.incrementer.solver(), 
+			// guarded by the activation literal of the innermost scope, if any
+			if (guard == 0)
+				Bool2CNFTranslator.translateIncremental((BooleanFormula) circuit, interpreter.factory().maxVariable(), transl.incrementer());
+			else // [HASLab]
+				Bool2CNFTranslator.translateIncremental((BooleanFormula) circuit, interpreter.factory().maxVariable(), guard, transl.incrementer());
 		}  
 		
 		return transl;
 	}
 	
+	/**
+	 * Opens a new scope in the given incremental translation.  The formulas added to the returned 
+	 * translation by subsequent calls to {@link #translateIncremental(Formula, Bounds, Translation.Incremental)} 
+	 * are guarded by a fresh activation literal, so they only hold when the solver is called 
+	 * under the {@linkplain Translation.Incremental#assumptions() assumptions} of the translation, and they 
+	 * are retracted by the matching call to {@link #popIncremental(Translation.Incremental)}.  
+	 * Relations bound within a scope remain bound (but unconstrained) once the scope is closed.
+	 * 
+	 * <p>
+	 * If the given translation is trivially true, it is replaced by a non-trivial translation of the same 
+	 * bounds, so that the returned translation may be the given one modified in place or a new one.
+	 * </p>
+	 * 
+	 * @requires translation.cnf.solve()
+	 * @return some t: Translation.Incremental | t.scopes() = translation.scopes() + 1 && 
+	 *          t.originalFormula = translation.originalFormula && t.originalBounds = translation.originalBounds
+	 * @throws IllegalArgumentException  translation.options.solver cannot solve under assumptions, 
+	 *          or translation is trivially false
+	 */
+	// [HASLab]
+	public static Translation.Incremental pushIncremental(Translation.Incremental translation) {
+		checkIncrementalOptions(translation.options());
+		if (!translation.options().solver().assumptions())
+			throw new IllegalArgumentException("A solver that supports assumptions is required for incremental scopes: " + translation.options());
+		Translation.Incremental transl = translation;
+		if (transl.trivial()) {
+			if (!transl.cnf().solve()) 
+				throw new IllegalArgumentException("Expected a satisfiable translation, given " + transl);
+			
+			transl.cnf().free(); // release the old empty solver since there are no variables to guard
+			
+			// all relations in transl.bounds are unconstrained, so an exact interpreter 
+			// over an empty solver is a valid translation of transl.originalFormula
+			final Options tOptions = transl.options();
+			final Bounds tBounds = transl.bounds();
+			transl = new Translation.Incremental(tBounds, tOptions, transl.symmetries(), 
+					LeafInterpreter.exact(tBounds, tOptions, true), 
+					Bool2CNFTranslator.translateIncremental(BooleanConstant.TRUE, tOptions.solver()));
+		}
+		// allocate the activation literal through the factory so that it is never reused as a gate label
+		final BooleanFactory factory = transl.interpreter().factory();
+		factory.addVariables(1);
+		final int act = factory.maxVariable();
+		transl.cnf().addVariables(act - transl.cnf().numberOfVariables());
+		transl.push(act);
+		return transl;
+	}
+	
+	/**
+	 * Closes the innermost scope of the given incremental translation, retracting all formulas 
+	 * added since the matching call to {@link #pushIncremental(Translation.Incremental)}.  The 
+	 * activation literal of the scope is permanently disabled.
+	 * @requires translation.scopes() > 0
+	 * @ensures translation.scopes()' = translation.scopes() - 1 
+	 * @return translation
+	 * @throws IllegalArgumentException  translation.scopes() = 0
+	 */
+	// [HASLab]
+	public static Translation.Incremental popIncremental(Translation.Incremental translation) {
+		if (translation.scopes() == 0)
+			throw new IllegalArgumentException("No open scope in " + translation);
+		translation.cnf().addClause(new int[] { -translation.pop() });
+		return translation;
+	}
+	
 	/**
 	 * Checks that the given options are suitable for incremental translation.
 	 * @requires options.solver.incremental() && options.logTranslation = 0  
@@ -380,6 +461,8 @@ public final class Translator {
 	private final Options options;
 	private final boolean logging;
 	private final boolean incremental;
+	// [HASLab]
+	private final TranslationMetrics metrics;
 	
 	/**
 	 * Constructs a Translator for the given formula, bounds, options and incremental flag.
@@ -410,6 +493,7 @@ public final class Translator {
 		this.options = options;
 		this.logging = options.logTranslation()>0;
 		this.incremental = incremental;
+		this.metrics = new TranslationMetrics(); // [HASLab]
 	}
 	
 	/**
@@ -435,6 +519,7 @@ public final class Translator {
 	 */
 	private Translation translate() {
 
+		metrics.begin(); // [HASLab]
 		final AnnotatedNode<Formula> originalAnnotated = logging ? annotateRoots(originalFormula) : annotate(originalFormula);
 		// Remove bindings for unused relations/ints if this is not an incremental translation.  If it is
 		// an incremental translation, we have to keep all bindings since they may be used later on.
@@ -458,13 +543,19 @@ public final class Translator {
 			if (!actualAnnotated.usesInts()) bounds.ints().clear();
 		}
 
+		metrics.end(Phase.ANNOTATION, options.reporter()); // [HASLab]
+
 		// Detect symmetries.
+		metrics.begin(); // [HASLab]
 		final SymmetryBreaker breaker = new SymmetryBreaker(bounds, options.reporter());
+		metrics.end(Phase.SYMMETRY_DETECTION, options.reporter()); // [HASLab]
 		// Optimize formula and bounds by using symmetry information to tighten bounds and 
 		// eliminate top-level predicates, and also by skolemizing.  Then translate the optimize
 		// formula and bounds to a circuit, augment the circuit with a symmetry breaking predicate 
 		// that eliminates any remaining symmetries, and translate everything to CNF.
-		return toBoolean(optimizeFormulaAndBounds(actualAnnotated, breaker), breaker);
+		final Translation ret = toBoolean(optimizeFormulaAndBounds(actualAnnotated, breaker), breaker);
+		ret.setMetrics(metrics); // [HASLab]
+		return ret;
 	}
 	
 	/**
@@ -490,21 +581,39 @@ public final class Translator {
 	private AnnotatedNode<Formula> optimizeFormulaAndBounds(AnnotatedNode<Formula> annotated, SymmetryBreaker breaker) {	
 		options.reporter().optimizingBoundsAndFormula();
 
+		// [HASLab] each step is measured as a separate phase
+		final Reporter reporter = options.reporter();
 		if (logging) {  
 			final int coreGranularity = options.coreGranularity();
 			if (coreGranularity==1) { 
+				metrics.begin();
 				annotated = flatten(annotated, false);
+				metrics.end(Phase.FLATTENING, reporter);
 			}
 			if (options.skolemDepth()>=0) {
+				metrics.begin();
 				annotated = skolemize(annotated, bounds, options);
+				metrics.end(Phase.SKOLEMIZATION, reporter);
 			}
 			if (coreGranularity>1) { 
+				metrics.begin();
 				annotated = flatten(annotated, options.coreGranularity()==3);
+				metrics.end(Phase.FLATTENING, reporter);
 			}
-			return inlinePredicates(annotated, breaker.breakMatrixSymmetries(annotated.predicates(), false));
+			metrics.begin();
+			annotated = inlinePredicates(annotated, breaker.breakMatrixSymmetries(annotated.predicates(), false));
+			metrics.end(Phase.INLINING, reporter);
+			return annotated;
 		} else {  			
+			metrics.begin();
 			annotated = inlinePredicates(annotated, breaker.breakMatrixSymmetries(annotated.predicates(), true).keySet());
-			return options.skolemDepth()>=0 ? Skolemizer.skolemize(annotated, bounds, options) : annotated;
+			metrics.end(Phase.INLINING, reporter);
+			if (options.skolemDepth()>=0) {
+				metrics.begin();
+				annotated = Skolemizer.skolemize(annotated, bounds, options);
+				metrics.end(Phase.SKOLEMIZATION, reporter);
+			}
+			return annotated;
 		}
 		
 	}
@@ -598,24 +707,35 @@ public final class Translator {
 
 		options.reporter().translatingToBoolean(annotated.node(), bounds);
 		
+		metrics.begin(); // [HASLab]
 		final LeafInterpreter interpreter = LeafInterpreter.exact(bounds, options, incremental);
 		final BooleanFactory factory = interpreter.factory();
 		
 		if (logging) {
 			assert !incremental;
 			final TranslationLogger logger = options.logTranslation()==1 ? new MemoryLogger(annotated, bounds) : new FileLogger(annotated, bounds);
-			final BooleanAccumulator circuit = FOL2BoolTranslator.translate(annotated, interpreter, logger);
+			final BooleanAccumulator circuit = FOL2BoolTranslator.translate(annotated, interpreter, logger, options.reporter(), metrics);
 			final TranslationLog log = logger.log();
+			metrics.gates(Phase.FOL2BOOL, gates(factory)); // [HASLab]
+			metrics.end(Phase.FOL2BOOL, options.reporter()); // [HASLab]
 			if (circuit.isShortCircuited()) { 
 				return trivial(circuit.op().shortCircuit(), log, annotated.relations());
 			} else if (circuit.size()==0) { 
 				return trivial(circuit.op().identity(), log, annotated.relations());
 			}
+			metrics.begin(); // [HASLab]
 			circuit.add(breaker.generateSBP(interpreter, options));
+			metrics.gates(Phase.SBP, gates(factory) - metrics.gates(Phase.FOL2BOOL)); // [HASLab]
+			metrics.end(Phase.SBP, options.reporter()); // [HASLab]
 			return toCNF((BooleanFormula)factory.accumulate(circuit), interpreter, log);
 		} else {
-			final BooleanValue circuit = (BooleanValue)FOL2BoolTranslator.translate(annotated, interpreter);
+			final BooleanValue circuit = FOL2BoolTranslator.translate(annotated, interpreter, options.translationThreads(), options.reporter(), metrics); // [HASLab]
+			metrics.gates(Phase.FOL2BOOL, gates(factory)); // [HASLab]
+			metrics.end(Phase.FOL2BOOL, options.reporter()); // [HASLab]
+			metrics.begin(); // [HASLab]
 			BooleanValue sbp = breaker.generateSBP(interpreter, options); // [HASLab] for Electrod we need symmetries even when trivial
+			metrics.gates(Phase.SBP, gates(factory) - metrics.gates(Phase.FOL2BOOL)); // [HASLab]
+			metrics.end(Phase.SBP, options.reporter()); // [HASLab]
 			if (circuit.op()==Operator.CONST) { 
 				options.reporter().debug("trivial boolean circuit: "+circuit);
 				return trivial((BooleanConstant)circuit, null, bounds.relations());
@@ -624,6 +744,15 @@ public final class Translator {
 		}
 	}
 	
+	/**
+	 * Returns the number of gates created so far by the given factory.
+	 * @return factory.maxFormula() - factory.maxVariable()
+	 */
+	// [HASLab]
+	private static int gates(BooleanFactory factory) {
+		return factory.maxFormula() - factory.maxVariable();
+	}
+	
 	/**
 	 * Translates the given circuit to CNF, adds the clauses to a SATSolver returned
 	 * by options.solver(), and returns a Translation object constructed from the solver
@@ -644,10 +773,12 @@ public final class Translator {
 	 */
 	private Translation toCNF(BooleanFormula circuit, LeafInterpreter interpreter, TranslationLog log) {
 		options.reporter().translatingToCNF(circuit);
+		metrics.begin(); // [HASLab]
 		final int maxPrimaryVar = interpreter.factory().maxVariable();
 
 		if (incremental) {
 			final Bool2CNFTranslator incrementer = Bool2CNFTranslator.translateIncremental(circuit, maxPrimaryVar, options.solver());
+			metrics.end(Phase.BOOL2CNF, options.reporter()); // [HASLab]
 			return new Translation.Incremental(completeBounds(), options, SymmetryDetector.partition(originalBounds), interpreter, incrementer);
 		} else {
 			final Map<Relation, IntSet> varUsage = interpreter.vars();
@@ -657,6 +788,7 @@ public final class Translator {
 				doTargets((PardinusBounds) bounds, interpreter, cnf);
 
 			interpreter = null; // enable gc
+			metrics.end(Phase.BOOL2CNF, options.reporter()); // [HASLab]
 
 			return new Translation.Whole(completeBounds(), options, cnf, varUsage, maxPrimaryVar, log);
 		}
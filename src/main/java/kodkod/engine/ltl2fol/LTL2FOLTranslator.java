@@ -122,11 +122,51 @@ public class LTL2FOLTranslator extends AbstractReplacer {
 	 * @return the resulting FOL formula.
 	 */
 	public static Formula translate(Formula form, int state, boolean has_past, Map<Formula,Formula> tempTransLog) {
+		return translate(form, state, has_past, false, tempTransLog);
+	}
+
+	/**
+	 * Converts an LTL temporal formula into a regular Kodkod FOL formula, as
+	 * {@link #translate(Formula, int, boolean, Map)}. If <code>variable_trace</code>
+	 * is set, the trace is not required to span every {@link TemporalTranslator#STATE
+	 * state} atom: it is the prefix of the state atoms reachable from the
+	 * {@link TemporalTranslator#FIRST first} state, ending at a non-fixed
+	 * {@link TemporalTranslator#LAST last} state. This allows a single translation
+	 * to cover every trace length up to the number of state atoms, as used by
+	 * {@link TemporalBoundsExpander#expandVariable(kodkod.instance.PardinusBounds, int, int)}.
+	 * Variable traces are not supported with past operators.
+	 * 
+	 * @param form
+	 *            the LTL formula to be converted.
+	 * @param has_past
+	 *            whether the formula has past operators.
+	 * @param variable_trace
+	 *            whether the length of the trace is variable.
+	 * @param tempTransLog
+	 * 			  map logging the translation of top-level formulas.
+	 * @return the resulting FOL formula.
+	 * @throws IllegalArgumentException
+	 *             variable_trace && (has_past || !TemporalTranslator.ExplicitUnrolls)
+	 */
+	public static Formula translate(Formula form, int state, boolean has_past, boolean variable_trace, Map<Formula,Formula> tempTransLog) {
+		if (variable_trace && (has_past || !TemporalTranslator.ExplicitUnrolls))
+			throw new IllegalArgumentException("Variable length traces not supported with past operators.");
+
 		LTL2FOLTranslator translator = new LTL2FOLTranslator(has_past);
 
 		Formula f;
 		
-		if (TemporalTranslator.ExplicitUnrolls) {
+		if (variable_trace) {
+			
+			Variable v = Variable.unary("v");
+			Expression trace = FIRST.join(PREFIX.reflexiveClosure());
+			Formula order_var_trace1 = v.join(PREFIX).one().forAll(v.oneOf(trace.difference(LAST)));
+			Formula order_var_trace2 = LAST.one().and(LAST.in(trace)).and(LAST.join(PREFIX).no());
+			Formula order_var_trace3 = PREFIX.join(Expression.UNIV).in(trace);
+			Formula loopDecl_var = LOOP.one().and(LOOP.in(trace));
+			
+			f = Formula.and(order_var_trace1, order_var_trace2, order_var_trace3, loopDecl_var);
+		} else if (TemporalTranslator.ExplicitUnrolls) {
 
 			Variable v = Variable.unary("v");
 			Formula order_unr_trace1 = v.join(PREFIX).one().forAll(v.oneOf(STATE.difference(LAST)));
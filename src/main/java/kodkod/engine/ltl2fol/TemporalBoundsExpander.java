@@ -85,6 +85,91 @@ public class TemporalBoundsExpander {
 		return expand(bounds, u, steps, unrolls);
 	}
 
+	/**
+	 * Expands the old bounds as {@link #expand(PardinusBounds, int, int)}, but
+	 * without fixing the length of the trace. The universe is created with
+	 * <code>max_steps</code> state atoms, and the {@link TemporalTranslator#LAST
+	 * last} state and the {@link TemporalTranslator#PREFIX prefix} relation are
+	 * bound so that any trace with between <code>min_steps</code> and
+	 * <code>max_steps</code> states is admitted. The resulting bounds must be used
+	 * with the variable trace encoding of
+	 * {@link LTL2FOLTranslator#translate(kodkod.ast.Formula, int, boolean, boolean, Map)},
+	 * which does not support past operators, so no unrolls are created.
+	 * 
+	 * Since the prefix is bound to the successor chain over the state atoms, the
+	 * trace length can be restricted by the solver by simply disabling one of
+	 * those successor tuples, see {@link #prefixTuple(Universe, int)}.
+	 * 
+	 * @assumes 0 < min_steps <= max_steps
+	 * @assumes bounds.resolved()
+	 * @param bounds
+	 *            the bounds with variable relations to be expanded.
+	 * @param min_steps
+	 *            the minimum number of distinguished states in the trace.
+	 * @param max_steps
+	 *            the maximum number of distinguished states in the trace.
+	 * @return the expanded bounds.
+	 * @throws IllegalArgumentException
+	 *             min_steps < 1 || max_steps < min_steps || !bounds.resolved().
+	 */
+	public static PardinusBounds expandVariable(PardinusBounds bounds, int min_steps, int max_steps) {
+		if (min_steps < 1 || max_steps < min_steps)
+			throw new IllegalArgumentException("Number of steps <1 or max steps < min steps.");
+		if (!bounds.resolved())
+			throw new IllegalArgumentException("Symbolic bounds must be resolved at this stage.");
+		Universe u = expandUniverse(bounds.universe(), max_steps, 1);
+		PardinusBounds newBounds = expand(bounds, u, max_steps, 1);
+		bindVariableTrace(newBounds, min_steps, max_steps);
+		if (newBounds.amalgamated() != null)
+			bindVariableTrace(newBounds.amalgamated(), min_steps, max_steps);
+		return newBounds;
+	}
+
+	/**
+	 * Re-binds the relations representing the trace so that its length may range
+	 * between <code>min_steps</code> and <code>max_steps</code>.
+	 * 
+	 * @param bounds
+	 *            expanded bounds with <code>max_steps</code> states and no unrolls.
+	 * @param min_steps
+	 *            the minimum number of distinguished states in the trace.
+	 * @param max_steps
+	 *            the maximum number of distinguished states in the trace.
+	 */
+	private static void bindVariableTrace(Bounds bounds, int min_steps, int max_steps) {
+		Universe uni = bounds.universe();
+		String sp = TemporalTranslator.STATE_SEP;
+		TupleSet lasts = uni.factory().range(
+				uni.factory().tuple(TemporalTranslator.STATEATOM + (min_steps - 1) + sp + "0"),
+				uni.factory().tuple(TemporalTranslator.STATEATOM + (max_steps - 1) + sp + "0"));
+		bounds.bound(TemporalTranslator.LAST, lasts);
+		bounds.bound(TemporalTranslator.LAST_, lasts);
+
+		TupleSet trace_l = uni.factory().noneOf(2);
+		for (int i = 0; i < min_steps - 1; i++) // the minimal prefix is fixed
+			trace_l.add(prefixTuple(uni, i));
+		bounds.bound(TemporalTranslator.PREFIX, trace_l, bounds.upperBound(TemporalTranslator.PREFIX));
+	}
+
+	/**
+	 * The {@link TemporalTranslator#PREFIX prefix} tuple connecting the state
+	 * <code>step</code> to the following one, in bounds without unrolls. For
+	 * bounds produced by {@link #expandVariable(PardinusBounds, int, int)},
+	 * excluding this tuple restricts the trace to at most <code>step+1</code>
+	 * states.
+	 * 
+	 * @param uni
+	 *            the expanded universe.
+	 * @param step
+	 *            the source state of the transition.
+	 * @return the prefix tuple from state <code>step</code> to <code>step+1</code>.
+	 */
+	public static Tuple prefixTuple(Universe uni, int step) {
+		String sp = TemporalTranslator.STATE_SEP;
+		return uni.factory().tuple(TemporalTranslator.STATEATOM + step + sp + "0",
+				TemporalTranslator.STATEATOM + (step + 1) + sp + "0");
+	}
+
 	/**
 	 * Actually expands temporal bounds into their static representation as regular
 	 * bounds with {@link TemporalTranslator#STATE state} atoms appended, unrolled a
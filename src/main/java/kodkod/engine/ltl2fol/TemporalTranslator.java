@@ -174,6 +174,29 @@ public class TemporalTranslator {
 		return TemporalBoundsExpander.expand(bounds, traceLength, past_depth);
 	}
 
+	/**
+	 * Translates {@link PardinusBounds temporal bound} into standard bounds whose
+	 * trace length is not fixed, but may range between the given minimum and
+	 * maximum. Must be used in conjunction with {@link #translate(boolean) the
+	 * variable trace translation} of the formula. Only supported if there are no
+	 * past operators.
+	 * 
+	 * @see TemporalBoundsExpander#expandVariable(PardinusBounds, int, int)
+	 * 
+	 * @param minTraceLength
+	 *            the minimum trace length.
+	 * @param maxTraceLength
+	 *            the maximum trace length.
+	 * @return the temporal bounds expanded into standard bounds.
+	 * @throws IllegalArgumentException
+	 *             this.past_depth > 1
+	 */
+	public PardinusBounds expand(int minTraceLength, int maxTraceLength) {
+		if (past_depth > 1)
+			throw new IllegalArgumentException("Variable length traces not supported with past operators.");
+		return TemporalBoundsExpander.expandVariable(bounds, minTraceLength, maxTraceLength);
+	}
+
 	/**
 	 * Converts an LTL temporal formula into its FOL static representation. The
 	 * formula is previously converted into negative normal form (NNF) to guarantee
@@ -187,8 +210,24 @@ public class TemporalTranslator {
 	 * @return the static version of the temporal formula.
 	 */
 	public Formula translate() {
+		return translate(false);
+	}
+
+	/**
+	 * Converts an LTL temporal formula into its FOL static representation, as
+	 * {@link #translate()}. If <code>variableTrace</code> is set, the length of
+	 * the trace is not fixed by the bounds, which must have been created by
+	 * {@link #expand(int, int)}.
+	 * 
+	 * @see LTL2FOLTranslator
+	 * 
+	 * @param variableTrace
+	 *            whether the trace length is variable.
+	 * @return the static version of the temporal formula.
+	 */
+	public Formula translate(boolean variableTrace) {
 		tempTransLog.clear();
-		return LTL2FOLTranslator.translate(formula, 0, past_depth > 1, tempTransLog);
+		return LTL2FOLTranslator.translate(formula, 0, past_depth > 1, variableTrace, tempTransLog);
 	}
 
 	/**
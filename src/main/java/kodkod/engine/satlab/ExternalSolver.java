@@ -21,21 +21,28 @@
  */
 package kodkod.engine.satlab;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 
 /**
  * An implementation of a wrapper for an external SAT solver, 
- * executed in a separate process.
+ * executed in a separate process.  In file mode, the clauses are written
+ * to a DIMACS file that is passed to the solver; in streaming mode, they 
+ * are kept in memory and fed to the standard input of the solver process,
+ * falling back to file mode if the solver does not produce an outcome.
  * @author Emina Torlak
  */
 // [HASLab] public
@@ -50,6 +57,10 @@ final public class ExternalSolver implements SATSolver {
 	private final BitSet solution;
 	private volatile Boolean sat;
 	private volatile int vars, clauses;
+	// [HASLab] streaming mode: literals of all clauses, each terminated by 0
+	private int[] lits;
+	private int size;
+	private static final int STREAM_CAPACITY = 1 << 20;
 
 	/**
 	 * Constructs an ExternalSolver that will execute the specified binary
@@ -93,6 +104,35 @@ final public class ExternalSolver implements SATSolver {
 		this.options = nonEmpty.toArray(new String[nonEmpty.size()]);
 	}
 
+	/**
+	 * Constructs an ExternalSolver that will execute the specified binary
+	 * with the given options, streaming all clauses added to this solver via the 
+	 * {@link #addClause(int[])} method to its standard input.  If the solver
+	 * does not report an outcome when fed through standard input, it is 
+	 * executed again on a temporary file, which is deleted afterwards.  The solver 
+	 * is assumed to write its output to standard out.
+	 */
+	// [HASLab]
+	ExternalSolver(String executable, String[] options) {
+		this.deleteTemp = true;
+		this.cnf = null;
+		this.inTemp = null;
+		this.buffer = null;
+		this.lits = new int[capacity];
+		this.size = 0;
+		this.sat = null;
+		this.solution = new BitSet();
+		this.vars = 0;
+		this.clauses = 0;
+		this.executable = executable;
+		final List<String> nonEmpty = new ArrayList<String>(options.length);
+		for(String opt : options) { 
+			if (!opt.isEmpty())
+				nonEmpty.add(opt);
+		}
+		this.options = nonEmpty.toArray(new String[nonEmpty.size()]);
+	}
+
 	/**
 	 * Silently closes the given resource if it is non-null.
 	 */
@@ -133,6 +173,15 @@ final public class ExternalSolver implements SATSolver {
 	 */
 	public boolean addClause(int[] lits) {
 		clauses++;
+		if (inTemp==null) { // [HASLab] streaming mode
+			final int needed = size + lits.length + 1;
+			if (needed > this.lits.length) 
+				this.lits = Arrays.copyOf(this.lits, StrictMath.max(needed, this.lits.length*2));
+			System.arraycopy(lits, 0, this.lits, size, lits.length);
+			size = needed;
+			this.lits[needed-1] = 0;
+			return true;
+		}
 		if (buffer.length()>capacity) 
 			flush();
 		for(int lit: lits) {
@@ -157,7 +206,8 @@ final public class ExternalSolver implements SATSolver {
 	 */
 	public synchronized void free() {
 		close(cnf);
-		if (deleteTemp) {
+		lits = null; // [HASLab]
+		if (deleteTemp && inTemp!=null) {
 			(new File(inTemp)).delete();
 		}
 	}
@@ -204,58 +254,30 @@ final public class ExternalSolver implements SATSolver {
 	 */
 	public boolean solve() throws SATAbortedException {
 		if (sat==null) {
+			if (inTemp==null) { // [HASLab] streaming mode
+				if (!stream()) {
+					solution.clear();
+					fallback();
+				}
+				return sat;
+			}
 			flush();
 			Process p = null;
-			BufferedReader out = null;
+			InputStream out = null;
 			try {
 				cnf.seek(0);
 				cnf.writeBytes("p cnf " + vars + " " + clauses);
 				cnf.close();
 
-				final String[] command = new String[options.length+2];
-				command[0] = executable;
-				System.arraycopy(options, 0, command, 1, options.length);
-				command[command.length-1] = inTemp;
-				p = Runtime.getRuntime().exec(command);
+				p = Runtime.getRuntime().exec(command(inTemp));
 				new Thread(drain(p.getErrorStream())).start();
-				out = outputReader(p);
-				String line = null;
-//				System.out.println("("+out.read()+")");
-				while((line = out.readLine()) != null) {
-//					System.out.println("2.0");
-					String[] tokens = line.split("\\s");
-					int tlength = tokens.length;
-//					System.out.println("2.1");
-					if (tlength>0) {
-						if (tokens[0].compareToIgnoreCase("s")==0) {
-							if (tlength==2) {
-								if (tokens[1].compareToIgnoreCase("SATISFIABLE")==0) {
-									sat = Boolean.TRUE;
-									continue;
-								} else if (tokens[1].compareToIgnoreCase("UNSATISFIABLE")==0) {
-									sat = Boolean.FALSE;
-									continue;
-								} 
-							}
-							throw new SATAbortedException("Invalid " + executable + " output. Line: " + line);
-						} else if (tokens[0].compareToIgnoreCase("v")==0) {
-							int last = tlength-1;
-							for(int i = 1; i < last; i++) {
-								updateSolution(Integer.parseInt(tokens[i]));
-							}
-							int lit = Integer.parseInt(tokens[last]);
-							if (lit!=0) updateSolution(lit);
-							else if (sat!=null) break;
-						} // not a solution line or a variable line, so ignore it.
-					}
-				}
+				out = p.getInputStream();
+				sat = readOutput(out);
 				if (sat==null) {
 					throw new SATAbortedException("Invalid " + executable + " output: no line specifying the outcome.");
 				}
 			} catch (IOException e) {
 				throw new SATAbortedException(e);
-			} catch (NumberFormatException e) {
-				throw new SATAbortedException("Invalid "+ executable +" output: encountered a non-integer variable token.", e);
 			} finally {
 				close(cnf);
 				close(out);
@@ -264,6 +286,273 @@ final public class ExternalSolver implements SATSolver {
 		return sat;
 	}
 	
+	/**
+	 * Returns the command that executes this solver, with the given
+	 * input file as the last argument, if non-null.
+	 * @return the command that executes this solver on the given input file
+	 */
+	// [HASLab]
+	private String[] command(String input) {
+		final String[] command = new String[options.length+(input==null?1:2)];
+		command[0] = executable;
+		System.arraycopy(options, 0, command, 1, options.length);
+		if (input!=null)
+			command[command.length-1] = input;
+		return command;
+	}
+	
+	/**
+	 * Launches the solver process and feeds it the clauses through its 
+	 * standard input, from a separate thread, while its output is being read.
+	 * Returns false if the solver did not report an outcome, in which case 
+	 * it should be run on a file instead.
+	 * @return true iff the solver reported an outcome, which is stored in this.sat
+	 */
+	// [HASLab]
+	private boolean stream() throws SATAbortedException {
+		final Process p;
+		try {
+			p = Runtime.getRuntime().exec(command(null));
+		} catch (IOException e) {
+			throw new SATAbortedException(e);
+		}
+		final IOException[] failure = new IOException[1];
+		final Thread writer = new Thread(new Runnable() {
+			public void run() {
+				final WritableByteChannel in = Channels.newChannel(p.getOutputStream());
+				try {
+					writeDimacs(in);
+				} catch (IOException e) {
+					failure[0] = e;
+				} finally {
+					close(in);
+				}
+			}
+		});
+		writer.setDaemon(true);
+		writer.start();
+		new Thread(drain(p.getErrorStream())).start();
+		final InputStream out = p.getInputStream();
+		final Boolean outcome;
+		try {
+			outcome = readOutput(out);
+			writer.join();
+		} catch (IOException e) {
+			throw new SATAbortedException(e);
+		} catch (InterruptedException e) {
+			throw new SATAbortedException(e);
+		} finally {
+			close(out);
+			// the solver may still be running if its output could not be parsed
+			p.destroy();
+		}
+		if (outcome==null || failure[0]!=null) 
+			return false;
+		sat = outcome;
+		return true;
+	}
+	
+	/**
+	 * Writes the clauses to a temporary file and runs the solver on it.
+	 * @ensures this.sat' != null
+	 * @throws SATAbortedException  the solver did not report an outcome
+	 */
+	// [HASLab]
+	private void fallback() throws SATAbortedException {
+		File file = null;
+		Process p = null;
+		InputStream out = null;
+		try {
+			file = File.createTempFile("kodkod", String.valueOf(executable.hashCode()));
+			final FileOutputStream fout = new FileOutputStream(file);
+			try {
+				writeDimacs(fout.getChannel());
+			} finally {
+				close(fout);
+			}
+			p = Runtime.getRuntime().exec(command(file.getAbsolutePath()));
+			new Thread(drain(p.getErrorStream())).start();
+			out = p.getInputStream();
+			sat = readOutput(out);
+			if (sat==null) {
+				throw new SATAbortedException("Invalid " + executable + " output: no line specifying the outcome.");
+			}
+		} catch (IOException e) {
+			throw new SATAbortedException(e);
+		} finally {
+			close(out);
+			if (p!=null)
+				p.destroy();
+			if (file!=null)
+				file.delete();
+		}
+	}
+	
+	/**
+	 * Writes the header and the buffered clauses, in DIMACS format, to the given channel.
+	 */
+	// [HASLab]
+	private void writeDimacs(WritableByteChannel channel) throws IOException {
+		final ByteBuffer buf = ByteBuffer.allocateDirect(STREAM_CAPACITY);
+		for(char c : "p cnf ".toCharArray()) 
+			buf.put((byte)c);
+		putInt(buf, vars);
+		buf.put((byte)' ');
+		putInt(buf, clauses);
+		buf.put((byte)'\n');
+		final int[] lits = this.lits;
+		for(int i = 0, max = size; i < max; i++) {
+			if (buf.remaining() < 16)
+				write(channel, buf);
+			final int lit = lits[i];
+			putInt(buf, lit);
+			buf.put((byte)(lit==0 ? '\n' : ' '));
+		}
+		write(channel, buf);
+	}
+	
+	/**
+	 * Writes the contents of the given buffer to the channel and clears the buffer.
+	 */
+	// [HASLab]
+	private static void write(WritableByteChannel channel, ByteBuffer buf) throws IOException {
+		((Buffer)buf).flip();
+		while(buf.hasRemaining())
+			channel.write(buf);
+		((Buffer)buf).clear();
+	}
+	
+	/**
+	 * Writes the decimal representation of the given integer to the buffer.
+	 * @requires buf.remaining() >= 11
+	 */
+	// [HASLab]
+	private static void putInt(ByteBuffer buf, int value) {
+		long v = value;
+		if (v < 0) {
+			buf.put((byte)'-');
+			v = -v;
+		}
+		final int start = buf.position();
+		do {
+			buf.put((byte)('0' + (int)(v % 10)));
+			v /= 10;
+		} while (v > 0);
+		for(int i = start, j = buf.position()-1; i < j; i++, j--) {
+			final byte tmp = buf.get(i);
+			buf.put(i, buf.get(j));
+			buf.put(j, tmp);
+		}
+	}
+	
+	private static final byte[] SATISFIABLE = "SATISFIABLE".getBytes();
+	private static final byte[] UNSATISFIABLE = "UNSATISFIABLE".getBytes();
+	
+	/**
+	 * Reads the output of the solver, in the SAT competition format, 
+	 * from the given stream, directly from its bytes.  Updates this.solution
+	 * with the values in the variable lines, and returns the outcome reported 
+	 * in the solution line, if any.  
+	 * @return the reported outcome, or null if none
+	 * @throws SATAbortedException  the output is not well-formed
+	 */
+	// [HASLab]
+	private Boolean readOutput(InputStream input) throws IOException {
+		final byte[] buf = new byte[capacity];
+		final byte[] word = new byte[UNSATISFIABLE.length+1];
+		int pos = 0, lim = 0;
+		Boolean outcome = null;
+		int c = 0;
+		
+		lines: while (true) {
+			// read the first token of the line
+			if (pos==lim) { lim = input.read(buf); pos = 0; if (lim < 0) break; }
+			c = buf[pos++];
+			if (c=='s' || c=='S' || c=='v' || c=='V') {
+				final boolean solutionLine = c=='s' || c=='S';
+				if (pos==lim) { lim = input.read(buf); pos = 0; if (lim < 0) break; }
+				c = buf[pos++];
+				if (c==' ' || c=='\t') {
+					if (solutionLine) {
+						// read the outcome
+						int len = 0, tokens = 0;
+						boolean inWord = false;
+						while (true) {
+							if (pos==lim) { lim = input.read(buf); pos = 0; if (lim < 0) break; }
+							c = buf[pos++];
+							if (c=='\n' || c=='\r') break;
+							if (c==' ' || c=='\t') {
+								inWord = false;
+							} else {
+								if (!inWord) { inWord = true; tokens++; }
+								if (tokens==1 && len < word.length) word[len++] = (byte)c;
+							}
+						}
+						if (tokens==1 && matches(word, len, SATISFIABLE)) {
+							outcome = Boolean.TRUE;
+						} else if (tokens==1 && matches(word, len, UNSATISFIABLE)) {
+							outcome = Boolean.FALSE;
+						} else {
+							throw new SATAbortedException("Invalid " + executable + " output: malformed solution line.");
+						}
+						if (lim < 0) break;
+						continue lines;
+					} else {
+						// read the literals
+						while (true) {
+							if (pos==lim) { lim = input.read(buf); pos = 0; if (lim < 0) break lines; }
+							c = buf[pos++];
+							if (c=='\n' || c=='\r') continue lines;
+							if (c==' ' || c=='\t') continue;
+							boolean negative = false;
+							if (c=='-') {
+								negative = true;
+								if (pos==lim) { lim = input.read(buf); pos = 0; if (lim < 0) c = -1; else c = buf[pos++]; }
+								else c = buf[pos++];
+							}
+							long lit = 0;
+							int digits = 0;
+							while (c >= '0' && c <= '9') {
+								lit = lit*10 + (c - '0');
+								if (lit > Integer.MAX_VALUE) break;
+								digits++;
+								if (pos==lim) { lim = input.read(buf); pos = 0; if (lim < 0) { c = -1; break; } }
+								c = buf[pos++];
+							}
+							if (digits==0 || lit > Integer.MAX_VALUE || (c >= 0 && c!=' ' && c!='\t' && c!='\n' && c!='\r'))
+								throw new SATAbortedException("Invalid "+ executable +" output: encountered a non-integer variable token.");
+							if (lit!=0) 
+								updateSolution(negative ? (int)-lit : (int)lit);
+							else if (outcome!=null) 
+								break lines;
+							if (c < 0) break lines;
+							if (c=='\n' || c=='\r') continue lines;
+						}
+					}
+				}
+			}
+			// not a solution line or a variable line, so skip it
+			while (c!='\n' && c!='\r') {
+				if (pos==lim) { lim = input.read(buf); pos = 0; if (lim < 0) break lines; }
+				c = buf[pos++];
+			}
+		}
+		return outcome;
+	}
+	
+	/**
+	 * Returns true iff the first len bytes of word match the given keyword, ignoring case.
+	 */
+	// [HASLab]
+	private static boolean matches(byte[] word, int len, byte[] keyword) {
+		if (len!=keyword.length) return false;
+		for(int i = 0; i < len; i++) {
+			if (Character.toUpperCase((char)word[i])!=keyword[i]) 
+				return false;
+		}
+		return true;
+	}
+	
 	/**
 	 * Returns a runnable that drains the specified input stream.
 	 * @return a runnable that drains the specified input stream.
@@ -285,20 +574,6 @@ final public class ExternalSolver implements SATSolver {
 		};
 	}
 
-	/**
-	 * Returns a reader for reading the output of the given process.
-	 * @return a reader for reading the output of the given process.
-	 * @throws IOException
-	 */
-	private BufferedReader outputReader(Process p) throws IOException {
-		try {
-			return new BufferedReader(new InputStreamReader(p.getInputStream(), "ISO-8859-1"));
-		} catch (IOException e) {
-			close(p.getInputStream());
-			throw e;
-		}
-	}
-
 	/**
 	 * @see kodkod.engine.satlab.SATSolver#valueOf(int)
 	 */
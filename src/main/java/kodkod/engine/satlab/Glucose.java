@@ -21,6 +21,8 @@
  */
 package kodkod.engine.satlab;
 
+import java.nio.IntBuffer;
+
 /**
  * Java wrapper for the Glucose solver by G. Audemard and L. Simon.
  * 
@@ -32,7 +34,7 @@ final class Glucose extends NativeSolver {
 	 * Constructs a new Glucose wrapper.
 	 */
 	Glucose() {
-		super(make()); 
+		super(make(), true); // [HASLab] batched clauses 
 	}
 	
 	static {
@@ -69,12 +71,33 @@ final class Glucose extends NativeSolver {
 	 */
 	native boolean addClause(long peer, int[] lits);
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.NativeSolver#addClauses(long, IntBuffer, int)
+	 */
+	// [HASLab]
+	native int addClauses(long peer, IntBuffer clauses, int length);
+	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.NativeSolver#solve(long)
 	 */
 	native boolean solve(long peer);
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.NativeSolver#solveAssuming(long, int[])
+	 */
+	// [HASLab]
+	native boolean solveAssuming(long peer, int[] assumptions);
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.NativeSolver#failed(long, int[])
+	 */
+	// [HASLab]
+	native int[] failed(long peer, int[] assumptions);
+	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.NativeSolver#valueOf(long, int)
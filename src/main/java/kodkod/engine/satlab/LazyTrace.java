@@ -21,6 +21,7 @@
  */
 package kodkod.engine.satlab;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -33,284 +34,296 @@ import kodkod.util.ints.Ints;
 /**
  * An array-backed implementation of the {@linkplain ResolutionTrace} interface.
  * Resolvent literals are computed on-demand, and only the resolvents reachable
- * from the conflict clause are stored.
- * 
+ * from the conflict clause are stored.  Antecedents and literals are kept in
+ * two flat integer arenas indexed by clause offsets, so the trace does not
+ * allocate any per-clause arrays once constructed.
+ * The trace is public so that the traces of provers outside this
+ * package, and of tests, can be stored in it.
+ *
  * @author Emina Torlak
  */
-final class LazyTrace implements ResolutionTrace {
-	/* The trace array encodes the resolution trace as follows.
-	 * The first <tt>axioms</tt> entries in the trace array contain
-	 * the literals of the clauses added to the prover, in the order
-	 * in which they were added.  The remaining entries encode the
-	 * resolvents as follows.   Let i >= <tt>axioms</tt>
-	 * represent the ith resolvent.  If resolved.contains(i-axioms), then trace[i][0] 
-	 * contains the number of the resolvent's antecedents; trace[i][1..trace[i][0]] 
-	 * contains the indices of the resolvent's antecedents in the trace;
-	 * and trace[i][trace[i][0]+1..trace[i].length-1] contains the literals of the ith resolvent.
-	 * Otherwise, the literals for the given resolvent have not yet been computed so 
-	 * trace[i][0..trace[i].length-1] contains the indices of the resolvent's antecedents.  
-	 * 
-	 * All computed and axiom literals are sorted in the increasing order of absolute values. 
+public final class LazyTrace implements ResolutionTrace { // [HASLab] public
+	/* The trace is encoded in two arenas as follows.
+	 * The first <tt>axioms</tt> clauses are the clauses added to the prover,
+	 * in the order in which they were added; the remaining <tt>size-axioms</tt>
+	 * clauses are resolvents.
+	 *
+	 * Let i >= <tt>axioms</tt> represent the ith resolvent and r = i - <tt>axioms</tt>.
+	 * Then antes[anteOffsets[r]..anteOffsets[r+1]-1] contains the indices of the
+	 * resolvent's antecedents in the trace.
+	 *
+	 * For every clause i, if litOffsets[i] >= 0, then lits[litOffsets[i]] contains
+	 * the number of the clause's literals, and lits[litOffsets[i]+1..litOffsets[i]+lits[litOffsets[i]]]
+	 * contains the literals themselves.  Axiom literals are always present; resolvent
+	 * literals are appended to the lits arena when first requested, and litOffsets[i] is
+	 * negative until then.
+	 *
+	 * All computed and axiom literals are sorted in the increasing order of absolute values.
 	 * All antecedents of a given resolvent  precede it in the trace,
 	 * and the conflict clause should be the last trace element.
 	 */
-	private final int[][] trace;
-	private final int axioms;
-	private final IntSet core, resolved;
-	
+	private final int axioms, size;
+	private final int[] antes, anteOffsets, litOffsets;
+	private int[] lits;
+	private int litsEnd;
+	private final IntSet core;
+	/* scratch buffers for computing resolvent literals */
+	private int[] scratch, spare;
+
 	/**
 	 * Constructs a resolution trace view for the given raw trace.
 	 * The first <tt>axioms</tt> entries in the trace array should
 	 * contain the literals of the clauses added to the prover, in
-	 * the order in which they were added.  The literals should be 
+	 * the order in which they were added.  The literals should be
 	 * sorted in the increasing order of absolute values.  The remaining entries
 	 * should encode the resolvents as follows.  Let i be the index
-	 * of a resolvent in the raw trace.  Then, for all 0 <= j < trace[i].length, 
+	 * of a resolvent in the raw trace.  Then, for all 0 <= j < trace[i].length,
 	 * trace[i][j] is the index of the resolvent's jth antecedents in the trace array.
 	 * All antecedents of a given resolvent should precede it in the trace,
 	 * and the conflict clause should be the last trace element.
-	 * 
-     * <p><b>Note: </b> the given array's contents must not be modified while
-     * in use by this resolution trace object.</p>
+	 *
+	 * <p>The contents of the given array are copied into this trace's arenas,
+	 * so the array may be discarded once the constructor returns.</p>
 	 */
-	LazyTrace(int[][] trace, int axioms) {
-		this.axioms = axioms;
-		
-		// find all the clauses that are reachable from the conflict
-		final IntSet reachable = reachable(trace, axioms);
-		
-		// get the core clauses
-		this.core = core(reachable, axioms);
-		
-		// trim the trace so that it contains all axioms but only those resolvents that are reachable from the conflict
-		this.trace = compress(trace, axioms, reachable, core);
-		
-		// we haven't computed any resolvent literals yet ...
-		this.resolved = new IntBitSet(this.trace.length-axioms);
+	public LazyTrace(int[][] trace, int axioms) { // [HASLab] public
+		this(null, null, trace, axioms);
 	}
-	
-	
+
 	/**
 	 * Constructs a resolution trace from the given subtrace and partial
-	 * trace. This constructor assumes that <tt>partial</tt> is the result 
+	 * trace. This constructor assumes that <tt>partial</tt> is the result
 	 * of solving the subtrace of the <tt>original</tt> trace that is given by the
 	 * specified set of indices.  The first indices.size() of the partial
-	 * trace are assumed to represent the clauses given by original.trace[indices],
-	 * in the increasing order of indices; the remaining entries should encode
-	 * the resolvents computed from original.trace[indices], as specified by 
-	 * {@linkplain #LazyTrace(int[][], int)}. The given subtrace of the original 
-	 * trace must be self-contained, i.e. original.reachable(indices).equals(indices). 
-	 * 
-	 * <p><b>Note: </b> the given array's contents must not be modified while
-     * in use by this resolution trace object.</p>
+	 * trace are assumed to represent the clauses given by original[indices],
+	 * in the increasing order of indices, and their contents are ignored; the remaining
+	 * entries should encode the resolvents computed from original[indices], as specified by
+	 * {@linkplain #LazyTrace(int[][], int)}. The given subtrace of the original
+	 * trace must be self-contained, i.e. original.reachable(indices).equals(indices).
 	 */
-	LazyTrace(LazyTrace original, IntSet indices, int[][] partial) {
-		this.axioms = reconstruct(original, indices, partial);
-		
-		// find all the clauses that are reachable from the conflict
-		final IntSet reachable = reachable(partial, axioms);
-		
-		// get the core clauses
-		this.core = core(reachable, axioms);
-		
-		// trim the trace so that it contains all axioms but only those resolvents that are reachable from the conflict
-		this.trace = compress(partial, axioms, reachable, core);
-		
-		// we haven't computed any resolvent literals yet ...
-		this.resolved = new IntBitSet(this.trace.length-axioms);
+	public LazyTrace(LazyTrace original, IntSet indices, int[][] partial) { // [HASLab] public
+		this(original, indices.toArray(), partial, original.axiomCount(indices));
 	}
-	
+
 	/**
-	 * Fills the first indices.size() empty positions of the partial trace with the 
-	 * corresponding clauses from the original trace and returns the number of axioms
-	 * in the reconstructed trace.  
-	 * @requires original, indices, and partial are as specified by {@linkplain #LazyTrace(LazyTrace, IntSet, int[][])} constructor
-	 * @ensures modifies partial so that it conforms to the {@linkplain #trace LazyTrace.trace} spec
-	 * using the provided original trace and indices.
-	 * @return number of axioms in the modified partial trace
+	 * Constructs a resolution trace from the given raw trace, the first sources.length
+	 * entries of which are taken from the original[sources] clauses.  If original is null,
+	 * the raw trace is used as specified by {@linkplain #LazyTrace(int[][], int)}.
+	 * @requires original = null => sources = null
+	 * @requires original != null => sources, raw, and axioms are as specified by
+	 * {@linkplain #LazyTrace(LazyTrace, IntSet, int[][])}
 	 */
-	private static int reconstruct(LazyTrace original, IntSet indices, int[][] partial) { 
-		int axiomCount = indices.size();
-		// fill the partial[0..indices.size()-1] with the corresponding clauses from original.trace[indices]
-		final int[][] originalTrace = original.trace;	
-		final int[] position = new int[indices.max()+1];
-
-		IntIterator itr = indices.iterator();
-		for(int i = 0, length = indices.size(); i < length; i++) {
-			int index = itr.next();
-			position[index] = i;
-			if (original.axiom(index)) { // just set the ith pointer to original literals
-				partial[i] = originalTrace[index];
-			} else { // copy the resolvent and adjust copy's antecedent indices
-				int antes = originalTrace[index][0];
-				int[] resolvent = new int[antes];
-				for(int j = 0; j < antes; j++) {
-					resolvent[j] = position[originalTrace[index][j+1]];
+	private LazyTrace(LazyTrace original, int[] sources, int[][] raw, int axioms) {
+		this.axioms = axioms;
+		final int length = raw.length;
+		final int copied = sources == null ? 0 : sources.length;
+
+		// position of each copied original clause in the new trace
+		final int[] position = copied == 0 ? null : new int[sources[copied-1]+1];
+		for(int i = 0; i < copied; i++) {
+			position[sources[i]] = i;
+		}
+
+		// find all the clauses that are reachable from the conflict, counting their antecedents
+		final IntSet reachable = new IntBitSet(length);
+		reachable.add(length-1);
+		int anteCount = 0;
+		for(int i = length-1; i >= axioms; i--) {
+			if (reachable.contains(i)) {
+				if (i < copied) {
+					final int r = sources[i] - original.axioms;
+					final int from = original.anteOffsets[r], to = original.anteOffsets[r+1];
+					for(int j = from; j < to; j++) {
+						reachable.add(position[original.antes[j]]);
+					}
+					anteCount += to - from;
+				} else {
+					final int[] resolvent = raw[i];
+					for(int j = 0; j < resolvent.length; j++) {
+						reachable.add(resolvent[j]);
+					}
+					anteCount += resolvent.length;
+				}
+			}
+		}
+
+		// get the core clauses
+		this.core = core(reachable, axioms);
+
+		// keep all axioms but only those resolvents that are reachable from the conflict
+		final int resolvents = reachable.size() - core.size();
+		this.size = axioms + resolvents;
+		this.antes = new int[anteCount];
+		this.anteOffsets = new int[resolvents+1];
+
+		final int[] pos = new int[length-axioms];
+		final IntIterator srcIdxs = reachable.iterator(axioms, length);
+		int k = 0, r = 0;
+		for(; srcIdxs.hasNext(); r++) {
+			final int srcIdx = srcIdxs.next();
+			pos[srcIdx-axioms] = axioms + r;
+			anteOffsets[r] = k;
+			if (srcIdx < copied) {
+				final int src = sources[srcIdx] - original.axioms;
+				for(int j = original.anteOffsets[src], to = original.anteOffsets[src+1]; j < to; j++) {
+					final int ante = position[original.antes[j]];
+					antes[k++] = ante < axioms ? ante : pos[ante-axioms];
+				}
+			} else {
+				final int[] resolvent = raw[srcIdx];
+				for(int j = 0; j < resolvent.length; j++) {
+					final int ante = resolvent[j];
+					antes[k++] = ante < axioms ? ante : pos[ante-axioms];
 				}
-				partial[i] = resolvent;
-				axiomCount--;
 			}
 		}
-		
-		return axiomCount;
+		anteOffsets[r] = k;
+
+		// copy the axiom literals into the literal arena
+		int litCount = 0;
+		for(int i = 0; i < axioms; i++) {
+			litCount += 1 + (i < copied ? original.lits[original.litOffsets[sources[i]]] : raw[i].length);
+		}
+		this.lits = new int[StrictMath.max(16, litCount + (litCount >>> 1))];
+		this.litOffsets = new int[size];
+		for(int i = 0; i < axioms; i++) {
+			litOffsets[i] = litsEnd;
+			if (i < copied) {
+				final int off = original.litOffsets[sources[i]];
+				final int len = original.lits[off] + 1;
+				System.arraycopy(original.lits, off, lits, litsEnd, len);
+				litsEnd += len;
+			} else {
+				final int[] clause = raw[i];
+				lits[litsEnd++] = clause.length;
+				System.arraycopy(clause, 0, lits, litsEnd, clause.length);
+				litsEnd += clause.length;
+			}
+		}
+
+		// we haven't computed any resolvent literals yet ...
+		Arrays.fill(litOffsets, axioms, size, -1);
+		this.scratch = new int[16];
+		this.spare = new int[16];
 	}
 
 	/**
-	 * Returns the indices of all clauses in the given trace that are 
-	 * reachable from the conflict clause through the resolvents
-	 * in trace[roots..trace.length-1].  This method assumes that 
-	 * that the last trace[roots..trace.length-1] clauses encode 
-	 * resolvents as specified by the
-	 * {@linkplain #LazyTrace(int[][], int)} constructor.
-	 * @return indices of all clauses in the given trace that are 
-	 * reachable from the conflict clause through the resolvents in
-	 * trace[roots..trace.length-1]
+	 * Returns the number of elements in the given set that index axioms of this trace.
+	 * @return #(indices.ints & [0..this.axioms))
 	 */
-	private static IntSet reachable(int[][] trace, int roots) { 
-		final IntSet reachable = new IntBitSet(trace.length);
-		reachable.add(trace.length-1);
-		for(int i = trace.length-1; i >= roots; i--) {
-			if (reachable.contains(i)) {
-				int[] resolvent = trace[i];
-				for(int j = 0; j < resolvent.length; j++) {
-					reachable.add(resolvent[j]);
-				}
+	private int axiomCount(IntSet indices) {
+		int count = 0;
+		if (axioms > 0) {
+			for(IntIterator itr = indices.iterator(0, axioms-1); itr.hasNext(); itr.next()) {
+				count++;
 			}
 		}
-		return reachable;
+		return count;
 	}
-	
+
 	/**
 	 * Returns a set that contains the elements from the given
 	 * reachable between 0, inclusive, and axioms, exclusive.
 	 * @return a set that contains the elements from the given
 	 * reachable between 0, inclusive, and axioms, exclusive.
 	 */
-	private static IntSet core(IntSet reachable, int axioms) { 
+	private static IntSet core(IntSet reachable, int axioms) {
 		final IntSet core = new IntBitSet(axioms);
 		for(IntIterator itr = reachable.iterator(0, axioms-1); itr.hasNext(); ) {
 			core.add(itr.next());
 		}
 		return Ints.unmodifiableIntSet(core);
 	}
-	
-	/**
-	 * Compresses the given src trace into a destination trace that contains the same axioms as the 
-	 * source but only the resolvents that are reachable from the conflict clause.
-	 * @requires src and axioms are as specified by the {@linkplain #LazyTrace(int[][], int)} constructor
-	 * @requires reachable.elts = reachable(src, axioms).elts
-	 * @requires core.elts = core(reachable, axioms).elts
-	 * @ensures invalidates the contents of src; src should not be used after this method returns
-	 * @return a new trace that contains the same axioms as the 
-	 * source but only the resolvents that are reachable from the conflict clause.
-	 */
-	private static int[][] compress(int[][] src, int axioms, IntSet reachable, IntSet core) { 
-		final int[][] dest = new int[reachable.size()-core.size()+axioms][];
-		System.arraycopy(src, 0, dest, 0, axioms);
-		
-		final int[] pos = new int[src.length-axioms];
-		final IntIterator srcIdxs = reachable.iterator(axioms, src.length);
-		for(int i = axioms; srcIdxs.hasNext(); i++) { 
-			int srcIdx = srcIdxs.next();
-			pos[srcIdx-axioms] = i;
-			// move the resolvent and adjust its antecedent indices
-			int[] resolvent = src[srcIdx];
-			dest[i] = resolvent; 
-			for(int j = 0, lastAnte = resolvent.length; j < lastAnte; j++) {
-				int ante = resolvent[j];
-				resolvent[j] = ante < axioms ? ante : pos[ante-axioms];
-			}
-		}
-		return dest;
-	}
-	
+
 	/**
-	 * Returns an array of integers representing the result of 
-	 * resolving the clauses c1 and c2, sorted in the increasing order
-	 * of absolute values.  The parameters axiom1 and axiom2 specify 
-	 * whether c1 and c2 encode axioms or resolvents.  In particular, 
-	 * if axiom1 (resp. axiom2) is true, then all integers in c1 (resp. c2) 
-	 * are assumed to be literals, sorted in the increasing order of absolute 
-	 * values.  If axiom1 (resp. axiom2) is false, then the integers starting 
-	 * at c1[0]+1 (resp. c2[0]+1) are assumed to be literals, sorted in the increasing
-	 * order of absolute values.   
-	 * @requires let off1 = axiom1 ? 0 : c1[0] + 1, off2 = axiom2 ? 0 : c2[0]+1 | 
-	 *  (all i: [off1..c1.length), j: [off1..c1.length) | i < j => abs(c1[i]) < abs(c1[j])) and
-	 *  (all i: [off2..c2.length), j: [off2..c2.length) | i < j => abs(c2[i]) < abs(c2[j])) and
-	 *  (one i: [off1..c1.length), j: [off2..c2.length) | c1[i] = -c2[j])
-	 * @return an array of integers representing the result of 
-	 * resolving the clauses c1 and c2, sorted in the increasing order of absolute values
+	 * Stores the result of resolving the clauses c1[0..len1) and c2[off2..off2+len2)
+	 * into dest, sorted in the increasing order of absolute values, and returns the
+	 * number of literals in the resolvent.
+	 * @requires dest.length >= len1 + len2
+	 * @requires the literals of c1 and c2 are sorted in the increasing order of absolute values,
+	 * and exactly one literal in c1 is the negation of a literal in c2
+	 * @ensures stores the result of resolving the clauses c1 and c2 into dest
+	 * @return the number of literals in the resolvent
 	 */
-	private static int[] resolve(int[] c1, boolean axiom1, int[] c2, boolean axiom2) {
-		final int len1 = c1.length, len2 = c2.length;
-		int i = axiom1 ? 0 : c1[0] + 1;
-		int j = axiom2 ? 0 : c2[0] + 1;
-		int k = 0;
-		
-		final int[] tmp = new int[(len1-i + len2-j) - 2];
-		
-		while(i < len1 && j < len2) {
+	private static int resolve(int[] c1, int len1, int[] c2, int off2, int len2, int[] dest) {
+		final int end2 = off2 + len2;
+		int i = 0, j = off2, k = 0;
+
+		while(i < len1 && j < end2) {
 			int lit1 = c1[i], lit2 = c2[j];
 			int var1 = StrictMath.abs(lit1), var2 = StrictMath.abs(lit2);
 			if (var1==var2) {
 				if (lit1==lit2) {
-					tmp[k++] = lit1;
+					dest[k++] = lit1;
 				}
 				i++;
 				j++;
 			} else if (var1 < var2) {
-				tmp[k++] = lit1;
+				dest[k++] = lit1;
 				i++;
 			} else { // var1 > var2
-				tmp[k++] = lit2;
+				dest[k++] = lit2;
 				j++;
 			}
 		}
 		if (i<len1) {
 			final int rem = len1 - i;
-			System.arraycopy(c1, i, tmp, k, rem);
-			k += rem;
-		} 
-		if (j<len2) {
-			final int rem = len2 - j;
-			System.arraycopy(c2, j, tmp, k, rem);
+			System.arraycopy(c1, i, dest, k, rem);
 			k += rem;
 		}
-		if (k==tmp.length) { 
-			return tmp;
-		} else {
-			final int[] ret = new int[k];
-			System.arraycopy(tmp, 0, ret, 0, k);
-			return ret;
+		if (j<end2) {
+			final int rem = end2 - j;
+			System.arraycopy(c2, j, dest, k, rem);
+			k += rem;
 		}
+		return k;
 	}
-	
+
 	/**
-	 * Computes the resolvent at the given index, sets this.trace index
-	 * to the computed resolvent and returns it.
-	 * @ensures computes the resolvent at the given index and sets trace[index]
-	 * to the computed array.
-	 * @return this.trace'[index]
+	 * Returns an array of at least the given capacity, which is either the given
+	 * array or a fresh one.  The contents of the returned array are unspecified.
+	 * @return array.length >= capacity => array else { a: int[] | a.length >= capacity }
 	 */
-	private int[] resolve(int index) { 
-		if (index < axioms || resolved(index)) return trace[index];
-		int[] ante = trace[index];
-		int[] lits = resolve(resolve(ante[0]), ante[0]<axioms, resolve(ante[1]), ante[1]<axioms);
-		for(int j = 2; j < ante.length; j++) {
-			lits = resolve(lits, true, resolve(ante[j]), ante[j]<axioms);
-		}
-		int[] resolvent = new int[ante.length + lits.length + 1];
-		resolvent[0] = ante.length;
-		System.arraycopy(ante, 0, resolvent, 1, ante.length);
-		System.arraycopy(lits, 0, resolvent, ante.length+1, lits.length);
-		trace[index] = resolvent;
-		resolved.add(index-axioms);
-		return resolvent;
+	private static int[] ensure(int[] array, int capacity) {
+		return array.length >= capacity ? array : new int[StrictMath.max(capacity, array.length << 1)];
 	}
-	
-	/** @return true if resolvent literals have been computed for the resolvent at the given index  */
-	private boolean resolved(int index) { return resolved.contains(index-axioms); }
-	
+
+	/**
+	 * Computes the literals of the clause at the given index, if needed,
+	 * and returns their offset in this.lits.
+	 * @ensures computes the literals of the resolvent at the given index
+	 * and appends them to this.lits, if they haven't been computed already.
+	 * @return this.litOffsets'[index]
+	 */
+	private int resolve(int index) {
+		final int offset = litOffsets[index];
+		if (offset >= 0) return offset;
+		final int r = index - axioms, from = anteOffsets[r], to = anteOffsets[r+1];
+		for(int j = from; j < to; j++) {
+			resolve(antes[j]);
+		}
+		final int first = litOffsets[antes[from]];
+		int len = lits[first];
+		scratch = ensure(scratch, len);
+		System.arraycopy(lits, first+1, scratch, 0, len);
+		for(int j = from+1; j < to; j++) {
+			final int next = litOffsets[antes[j]];
+			final int nextLen = lits[next];
+			spare = ensure(spare, len + nextLen);
+			len = resolve(scratch, len, lits, next+1, nextLen, spare);
+			final int[] tmp = scratch;
+			scratch = spare;
+			spare = tmp;
+		}
+		if (lits.length < litsEnd + len + 1) {
+			lits = Arrays.copyOf(lits, StrictMath.max(litsEnd + len + 1, lits.length + (lits.length >>> 1)));
+		}
+		lits[litsEnd] = len;
+		System.arraycopy(scratch, 0, lits, litsEnd+1, len);
+		litOffsets[index] = litsEnd;
+		litsEnd += len + 1;
+		return litOffsets[index];
+	}
+
 	/**
 	 * Returns true if the clause at the given index is an axiom.
 	 * @return index < this.axioms
@@ -318,23 +331,14 @@ final class LazyTrace implements ResolutionTrace {
 	private boolean axiom(int index) {
 		return index < axioms;
 	}
-	
-	/**
-	 * Returns the offset in this.trace[index] array where literal
-	 * data is stored, if any.
-	 * @return axiom(index) ? 0 : resolved(index) ? this.trace[index][0] + 1 : -1
-	 */
-	private int litOffset(int index) {
-		return axiom(index) ? 0 : resolved(index) ? trace[index][0] + 1 : -1;
-	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#size()
 	 */
-	public int size() {	return trace.length; }
-	
-	
+	public int size() {	return size; }
+
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#core()
@@ -346,27 +350,28 @@ final class LazyTrace implements ResolutionTrace {
 	 * @see kodkod.engine.satlab.ResolutionTrace#axioms()
 	 */
 	public IntSet axioms() { return Ints.rangeSet(Ints.range(0, axioms-1)); }
-	
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#resolvents()
 	 */
-	public IntSet resolvents() { 
-		if (trace.length > axioms)
-			return Ints.rangeSet(Ints.range(axioms, trace.length-1)); 
+	public IntSet resolvents() {
+		if (size > axioms)
+			return Ints.rangeSet(Ints.range(axioms, size-1));
 		else
 			return Ints.EMPTY_SET;
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#get(int)
 	 */
 	public Clause get(final int index) {
-		if (index>=0 && index<trace.length) {
+		if (index>=0 && index<size) {
 			if (axiom(index)) { // return a self-contained clause
+				final int offset = litOffsets[index];
 				return new Clause() {
-					final int[] literals = trace[index];
+					final int[] literals = Arrays.copyOfRange(lits, offset+1, offset+1+lits[offset]);
 					final int hashCode = Ints.superFastHash(literals);
 					public Iterator<Clause> antecedents() { return Containers.emptyIterator(); }
 					public IntIterator literals() { return new IntArrayIterator(literals,0,literals.length); }
@@ -386,21 +391,21 @@ final class LazyTrace implements ResolutionTrace {
 		}
 		throw new IndexOutOfBoundsException("invalid index: " + index);
 	}
-		
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#iterator()
 	 */
-	public Iterator<Clause> iterator() { 
+	public Iterator<Clause> iterator() {
 		return new ClauseIterator(new IntIterator() {
 			int index = 0;
-			public boolean hasNext() { return index>=0 && index < trace.length; }
-			public int next() { 
+			public boolean hasNext() { return index>=0 && index < size; }
+			public int next() {
 				if (!hasNext()) throw new NoSuchElementException();
 				return index++;
 			}
-			public void remove() { throw new UnsupportedOperationException(); } 
-		}); 
+			public void remove() { throw new UnsupportedOperationException(); }
+		});
 	}
 
 	/**
@@ -409,9 +414,9 @@ final class LazyTrace implements ResolutionTrace {
 	 * @return indices.min() >= 0 && indices.max() < this.size()
 	 */
 	private boolean valid(IntSet indices) {
-		return indices.min()>=0 && indices.max()<trace.length;
+		return indices.min()>=0 && indices.max()<size;
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#iterator(kodkod.util.ints.IntSet)
@@ -422,7 +427,7 @@ final class LazyTrace implements ResolutionTrace {
 		}
 		throw new IndexOutOfBoundsException("invalid indices: " + indices);
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#reverseIterator(kodkod.util.ints.IntSet)
@@ -433,7 +438,7 @@ final class LazyTrace implements ResolutionTrace {
 		}
 		throw new IndexOutOfBoundsException("invalid indices: " + indices);
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#implicants(kodkod.util.ints.IntSet)
@@ -441,19 +446,12 @@ final class LazyTrace implements ResolutionTrace {
 	public IntSet reachable(IntSet indices) {
 		if (indices.isEmpty()) return Ints.EMPTY_SET;
 		else if (valid(indices)) {
-			final IntSet ret = new IntBitSet(trace.length);
+			final IntSet ret = new IntBitSet(size);
 			ret.addAll(indices);
 			for(int i = indices.max(); i >= axioms; i--) {
 				if (ret.contains(i)) {
-					int[] resolvent = trace[i];
-					if (resolved(i)) { 
-						for(int j = 1, antes = resolvent[0]; j <= antes; j++) {
-							ret.add(resolvent[j]);
-						}
-					} else {
-						for(int j = 0; j < resolvent.length; j++) {
-							ret.add(resolvent[j]);
-						}
+					for(int j = anteOffsets[i-axioms], to = anteOffsets[i-axioms+1]; j < to; j++) {
+						ret.add(antes[j]);
 					}
 				}
 			}
@@ -461,7 +459,7 @@ final class LazyTrace implements ResolutionTrace {
 		}
 		else throw new IndexOutOfBoundsException("invalid indices: " + indices);
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#backwardReachable(kodkod.util.ints.IntSet)
@@ -469,23 +467,13 @@ final class LazyTrace implements ResolutionTrace {
 	public IntSet backwardReachable(IntSet indices) {
 		if (indices.isEmpty()) return Ints.EMPTY_SET;
 		else if (valid(indices)) {
-			final IntSet ret = new IntBitSet(trace.length);
+			final IntSet ret = new IntBitSet(size);
 			ret.addAll(indices);
-			for(int i = axioms, length = trace.length; i < length; i++) {
-				int[] resolvent = trace[i];
-				if (resolved(i)) { 
-					for(int j = 1, antes = resolvent[0]; j <= antes; j++) {
-						if (ret.contains(resolvent[j])) {
-							ret.add(i);
-							break;
-						}
-					}
-				} else {
-					for(int j = 0; j < resolvent.length; j++) {
-						if (ret.contains(resolvent[j])) {
-							ret.add(i);
-							break;
-						}
+			for(int i = axioms, r = 0; i < size; i++, r++) {
+				for(int j = anteOffsets[r], to = anteOffsets[r+1]; j < to; j++) {
+					if (ret.contains(antes[j])) {
+						ret.add(i);
+						break;
 					}
 				}
 			}
@@ -493,7 +481,7 @@ final class LazyTrace implements ResolutionTrace {
 		}
 		else throw new IndexOutOfBoundsException("invalid indices: " + indices);
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#learnable(kodkod.util.ints.IntSet)
@@ -501,21 +489,12 @@ final class LazyTrace implements ResolutionTrace {
 	public IntSet learnable(IntSet indices) {
 		if (indices.isEmpty()) return Ints.EMPTY_SET;
 		else if (valid(indices)) {
-			final IntSet ret = new IntBitSet(trace.length);
+			final IntSet ret = new IntBitSet(size);
 			ret.addAll(indices);
-			TOP: for(int i = axioms, length = trace.length; i < length; i++) {
-				int[] resolvent = trace[i];
-				if (resolved(i)) { 
-					for(int j = 1, antes = resolvent[0]; j <= antes; j++) {
-						if (!ret.contains(resolvent[j])) {
-							continue TOP;
-						}
-					}
-				} else {
-					for(int j = 0; j < resolvent.length; j++) {
-						if (!ret.contains(resolvent[j])) {
-							continue TOP;
-						}
+			TOP: for(int i = axioms, r = 0; i < size; i++, r++) {
+				for(int j = anteOffsets[r], to = anteOffsets[r+1]; j < to; j++) {
+					if (!ret.contains(antes[j])) {
+						continue TOP;
 					}
 				}
 				ret.add(i);
@@ -524,36 +503,27 @@ final class LazyTrace implements ResolutionTrace {
 		}
 		else throw new IndexOutOfBoundsException("invalid indices: " + indices);
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ResolutionTrace#directlyLearnable(kodkod.util.ints.IntSet)
 	 */
-	public IntSet directlyLearnable(IntSet indices) { 
+	public IntSet directlyLearnable(IntSet indices) {
 		if (indices.isEmpty()) return Ints.EMPTY_SET;
 		else if (valid(indices)) {
-			final IntSet ret = new IntBitSet(trace.length);
+			final IntSet ret = new IntBitSet(size);
 			ret.addAll(indices);
-			TOP: for(int i = axioms, length = trace.length; i < length; i++) {
-				int[] resolvent = trace[i];
-				if (resolved(i)) { 
-					for(int j = 1, antes = resolvent[0]; j <= antes; j++) {
-						if (!indices.contains(resolvent[j])) {
-							continue TOP;
-						}
-					}
-				} else {
-					for(int j = 0; j < resolvent.length; j++) {
-						if (!indices.contains(resolvent[j])) {
-							continue TOP;
-						}
+			TOP: for(int i = axioms, r = 0; i < size; i++, r++) {
+				for(int j = anteOffsets[r], to = anteOffsets[r+1]; j < to; j++) {
+					if (!indices.contains(antes[j])) {
+						continue TOP;
 					}
 				}
 				ret.add(i);
 			}
 			return ret;
 		}
-		
+
 		else throw new IndexOutOfBoundsException("invalid indices: " + indices);
 	}
 
@@ -565,55 +535,43 @@ final class LazyTrace implements ResolutionTrace {
 		final StringBuilder ret = new StringBuilder();
 		for(int i = 0; i < axioms; i++) {
 			ret.append("AXIOM.  Literals: ");
-			int[] clause = trace[i];
-			for(int j = 0, c = clause.length; j < c; j++) {
-				ret.append(clause[j]);
+			for(int j = litOffsets[i]+1, to = j + lits[litOffsets[i]]; j < to; j++) {
+				ret.append(lits[j]);
 				ret.append(" ");
 			}
 			ret.append("\n");
 		}
-		for(int i = axioms, max = trace.length; i < max; i++) {
+		for(int i = axioms, r = 0; i < size; i++, r++) {
 			ret.append("RESOLVENT.  Antecedents:  ");
-			int[] clause = trace[i];
-			if (resolved(i)) { 
-				for(int j = 1, c = clause[0]; j <= c; j++) {
-					ret.append(clause[j]);
-					ret.append(" ");
-				}
-			} else {
-				for(int j = 0; j < clause.length; j++) {
-					ret.append(clause[j]);
-					ret.append(" ");
-				}
+			for(int j = anteOffsets[r], to = anteOffsets[r+1]; j < to; j++) {
+				ret.append(antes[j]);
+				ret.append(" ");
 			}
 			ret.append("\n");
 		}
 		return ret.toString();
 	}
-	
+
 	/**
 	 * A mutable implementation of the Clause interface.
 	 * @author Emina Torlak
 	 */
 	private class ClauseView extends Clause {
-		private int[] clause;
-		private int litOffset, index;
-		
+		private int index;
+
 		/**
 		 * Constructs a clause view for the ith clause.
-		 * @requires 0 <= index < trace.length
+		 * @requires 0 <= index < size
 		 */
 		ClauseView(int index) {
 			this.index = index;
-			this.clause = trace[index];
-			this.litOffset = litOffset(index);
 		}
-		
+
 		/**
 		 * Constructs a clause view for the 0th clause.
 		 */
 		ClauseView() { this(0); }
-		
+
 		/**
 		 * Sets the state of this clause view to represent
 		 * the ith clause in the trace and returns this.
@@ -623,45 +581,38 @@ final class LazyTrace implements ResolutionTrace {
 		 */
 		ClauseView set(int index) {
 			this.index = index;
-			this.clause = trace[index];
-			this.litOffset = litOffset(index);
 			return this;
 		}
-		void ensureLiterals() {
-			if (litOffset<0) { 
-				resolve(index);
-				this.clause = trace[index];
-				this.litOffset = litOffset(index);
-			}
+		public int maxVariable() {
+			final int offset = resolve(index);
+			return StrictMath.abs(lits[offset + lits[offset]]);
 		}
-		public int maxVariable() { 
-			ensureLiterals(); 
-			return StrictMath.abs(clause[clause.length-1]); 
+		public int numberOfAntecedents() {
+			return axiom(index) ? 0 : anteOffsets[index-axioms+1] - anteOffsets[index-axioms];
 		}
-		public int numberOfAntecedents() { 
-			return litOffset<0 ? clause.length : StrictMath.max(0, litOffset-1); 
-		}		
-		public int size() {	
-			ensureLiterals();
-			return clause.length - litOffset; 
+		public int size() {
+			final int offset = resolve(index); // may grow this.lits
+			return lits[offset];
 		}
-		public Iterator<Clause> antecedents() { 
-			return new ClauseIterator(new IntArrayIterator(clause, 1, litOffset)); 
+		public Iterator<Clause> antecedents() {
+			if (axiom(index)) return Containers.emptyIterator();
+			return new ClauseIterator(new IntArrayIterator(antes, anteOffsets[index-axioms], anteOffsets[index-axioms+1]));
+		}
+		public IntIterator literals() {
+			final int offset = resolve(index);
+			return new IntArrayIterator(lits, offset+1, offset+1+lits[offset]);
 		}
-		public IntIterator literals() {	
-			ensureLiterals();
-			return new IntArrayIterator(clause, litOffset, clause.length); 
-		}	
 		public int[] toArray(int[] array) {
-			final int size = size();
+			final int offset = resolve(index);
+			final int size = lits[offset];
 			if (array.length < size) {
 				array = new int[size];
 			}
-			System.arraycopy(clause, litOffset, array, 0, size);
+			System.arraycopy(lits, offset+1, array, 0, size);
 			return array;
 		}
 	}
-	
+
 	/**
 	 * A clause iterator wrapper for an int iterator.
 	 * @author Emina Torlak
@@ -21,6 +21,8 @@
  */
 package kodkod.engine.satlab;
 
+import java.nio.IntBuffer;
+
 /**
  * Java wrapper for the Lingeling solver by Armin Biere.
  * 
@@ -31,7 +33,7 @@ final class Lingeling extends NativeSolver {
 	 * Constructs a new Lingeling wrapper.
 	 */
 	public Lingeling() {
-		super(make());
+		super(make(), true); // [HASLab] batched clauses
 	}
 	
 	static {
@@ -71,12 +73,33 @@ final class Lingeling extends NativeSolver {
 	 */
 	native boolean addClause(long peer, int[] lits);
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.NativeSolver#addClauses(long, IntBuffer, int)
+	 */
+	// [HASLab]
+	native int addClauses(long peer, IntBuffer clauses, int length);
+	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.NativeSolver#solve(long)
 	 */
 	native boolean solve(long peer);
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.NativeSolver#solveAssuming(long, int[])
+	 */
+	// [HASLab]
+	native boolean solveAssuming(long peer, int[] assumptions);
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.NativeSolver#failed(long, int[])
+	 */
+	// [HASLab]
+	native int[] failed(long peer, int[] assumptions);
+	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.NativeSolver#valueOf(long, int)
@@ -21,7 +21,9 @@
  */
 package kodkod.engine.satlab;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
 
 import kodkod.util.ints.IntBitSet;
 import kodkod.util.ints.IntIterator;
@@ -34,6 +36,7 @@ import kodkod.util.ints.IntSet;
  */
 final class MiniSatProver extends NativeSolver implements SATProver {
 	private LazyTrace proof;
+	private SpeculativeReducer reducer = null; // [HASLab]
 
 	/**
 	 * Constructs a new MiniSat prover wrapper.
@@ -184,6 +187,75 @@ final class MiniSatProver extends NativeSolver implements SATProver {
 		}
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATProver#reduce(kodkod.engine.satlab.SpeculativeReductionStrategy, int)
+	 */
+	// [HASLab]
+	public void reduce(SpeculativeReductionStrategy strategy, int threads) {
+		if (threads < 1) throw new IllegalArgumentException("threads < 1: " + threads);
+		if (threads == 1) {
+			reduce(strategy);
+			return;
+		}
+		proof();
+		if (proof.resolvents().isEmpty()) {
+			return; // nothing to minimize; we had an empty axiom added to the solver's database
+		}
+		
+		if (reducer == null) {
+			reducer = new SpeculativeReducer() {
+				protected ResolutionTrace trace() { return proof; }
+				protected Callable<int[][]> refutation(IntSet next) { return MiniSatProver.this.refutation(clauses(next)); }
+				protected void retain(IntSet next, int[][] refutation) {
+					adjustClauseCount(next.size());
+					proof = new LazyTrace(proof, next, format(refutation));
+				}
+			};
+		}
+		reducer.reduce(strategy, threads);
+	}
+	
+	/**
+	 * Returns the clauses of this.proof at the given indices.
+	 * @return this.proof.elts[indices].literals
+	 */
+	// [HASLab]
+	private int[][] clauses(IntSet indices) {
+		final int[][] clauses = new int[indices.size()][];
+		final Iterator<Clause> itr = proof.iterator(indices);
+		for(int i = 0; itr.hasNext(); i++) {
+			clauses[i] = itr.next().toArray();
+		}
+		return clauses;
+	}
+	
+	/**
+	 * Returns a task that solves the given clauses on a fresh prover,
+	 * and returns the formatted trace of their refutation, if they are 
+	 * unsatisfiable, or null otherwise. 
+	 */
+	// [HASLab]
+	private Callable<int[][]> refutation(final int[][] clauses) {
+		final int vars = numberOfVariables();
+		return new Callable<int[][]>() {
+			public int[][] call() {
+				final long prover = make();
+				try {
+					addVariables(prover, vars);
+					for(int[] c : clauses) {
+						if (!addClause(prover, c)) { 
+							throw new AssertionError("could not add non-redundant clause: " + Arrays.toString(c));
+						}
+					}
+					return solve(prover) ? null : trace(prover, false);
+				} finally {
+					free(prover);
+				}
+			}
+		};
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 * @see java.lang.Object#toString()
@@ -22,6 +22,9 @@
 package kodkod.engine.satlab;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 
 /**
  * A skeleton implementation of a wrapper for a sat solver
@@ -36,16 +39,44 @@ abstract class NativeSolver implements SATSolver {
 	private long peer;
 	private Boolean sat;
 	private int clauses, vars;
+	// [HASLab] the assumptions that failed in the last call to solve, if any
+	private int[] failed;
+	// [HASLab] zero-terminated clauses not yet transferred to the peer, if batching
+	private final IntBuffer batch;
+	// [HASLab] whether the peer may hold top-level assignments, which can make it reject clauses
+	private boolean assigned;
+	// [HASLab] whether the peer is being solved, and whether it was freed meanwhile
+	private boolean solving, released;
+	
+	/**
+	 * The number of literals and terminators held by the clause batch.
+	 */
+	// [HASLab]
+	static final int BATCH_CAPACITY = 1 << 18;
 	
 	/**
 	 * Constructs a new wrapper for the given 
 	 * instance of the native solver.
 	 */
 	NativeSolver(long peer) {
+		this(peer, false);
+	}
+	
+	/**
+	 * Constructs a new wrapper for the given instance of the native solver.
+	 * If batch is true, clauses are buffered in a direct int buffer and
+	 * transferred to the peer in bulk, through {@link #addClauses(long, IntBuffer, int)}, 
+	 * when the buffer fills up or before the peer is solved.  Only clauses that 
+	 * the peer cannot reject are buffered:  those with at least two literals, added 
+	 * before the peer holds any top-level assignment (that is, before a unit or
+	 * empty clause is added, and before the peer is first solved). 
+	 */
+	// [HASLab]
+	NativeSolver(long peer, boolean batch) {
 		this.peer = peer;
 		this.clauses = this.vars = 0;
 		this.sat = null;
-//		System.out.println("created " + peer);
+		this.batch = batch ? ByteBuffer.allocateDirect(BATCH_CAPACITY * 4).order(ByteOrder.nativeOrder()).asIntBuffer() : null;
 	}
 	
 	/**
@@ -89,6 +120,7 @@ abstract class NativeSolver implements SATSolver {
 	 * @see kodkod.engine.satlab.SATSolver#numberOfClauses()
 	 */
 	public final int numberOfClauses() {
+		flush(); // [HASLab]
 		return clauses;
 	}
 	
@@ -101,6 +133,7 @@ abstract class NativeSolver implements SATSolver {
 	 */
 	final void adjustClauseCount(int clauseCount) {
 		assert clauseCount >= 0;
+		flush(); // [HASLab]
 		clauses = clauseCount;
 	}
 		
@@ -124,6 +157,17 @@ abstract class NativeSolver implements SATSolver {
 	 * @see #addClause(long, int[])
 	 */
 	public final boolean addClause(int[] lits) {
+		// [HASLab] buffer the clause if it fits in the batch and cannot be rejected,
+		// since no literal is assigned at the top level;  otherwise, transfer it after
+		// the buffered clauses, so that the result reflects the peer's clause database 
+		if (batch != null && !assigned && lits.length > 1 && lits.length < BATCH_CAPACITY) {
+			if (batch.remaining() <= lits.length) 
+				flush();
+			batch.put(lits).put(0);
+			return true;
+		}
+		flush(); // [HASLab]
+		if (lits.length < 2) assigned = true; // [HASLab]
 		if (addClause(peer, lits)) {
 //			for(int i : lits) {
 //				System.out.print(i + " ");
@@ -136,6 +180,18 @@ abstract class NativeSolver implements SATSolver {
 	}
 	
 	
+	/**
+	 * Transfers the clauses buffered in this.batch, if any, to the peer.
+	 * @ensures the peer logically contains the clauses in this.batch && no this.batch' 
+	 */
+	// [HASLab]
+	final void flush() {
+		if (batch != null && batch.position() > 0) {
+			clauses += addClauses(peer, batch, batch.position());
+			batch.clear();
+		}
+	}
+	
 	/**
 	 * Returns a pointer to the C++ peer class (the native instance wrapped by this object).
 	 * @return a pointer to the C++ peer class (the native instance wrapped by this object).
@@ -156,12 +212,79 @@ abstract class NativeSolver implements SATSolver {
 	 * @see #solve(long)
 	 */
 	public final boolean solve() {
+		failed = null; // [HASLab]
 		if (sat == Boolean.FALSE)
 			return sat;
-		else
-			return (sat = Boolean.valueOf(solve(peer)));
+		flush(); // [HASLab]
+		assigned = true; // [HASLab] the peer may learn unit clauses
+		return (sat = Boolean.valueOf(run(null)));
+	}
+	
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#solve(int[])
+	 */
+	// [HASLab]
+	public final boolean solve(int[] assumptions) {
+		failed = null;
+		if (sat == Boolean.FALSE) {
+			failed = new int[0];
+			return false;
+		}
+		flush();
+		assigned = true;
+		// unsat under assumptions does not rule out further calls
+		sat = run(assumptions) ? Boolean.TRUE : null;
+		return sat != null;
+	}
+	
+	/**
+	 * Solves the peer, under the given assumptions if non-null, recording the 
+	 * failed assumptions if unsatisfiable.  The peer is not released while it 
+	 * is being solved: if this solver is freed meanwhile, from another thread, 
+	 * the peer is released once the call returns and the call is aborted.
+	 * @return true if the clauses in the solver are SAT under the given assumptions
+	 * @throws SATAbortedException  this solver was freed
+	 */
+	// [HASLab]
+	private boolean run(int[] assumptions) {
+		final long p;
+		synchronized (this) {
+			if (peer == 0)
+				throw new SATAbortedException("The solver was freed.");
+			solving = true;
+			p = peer;
+		}
+		boolean res = false;
+		try {
+			res = assumptions == null ? solve(p) : solveAssuming(p, assumptions);
+			if (!res && assumptions != null)
+				failed = failed(p, assumptions);
+		} finally {
+			synchronized (this) {
+				solving = false;
+				if (released) {
+					free(peer);
+					peer = 0;
+				}
+			}
+		}
+		if (released)
+			throw new SATAbortedException("The solver was freed while solving.");
+		return res;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#failedAssumptions()
+	 */
+	// [HASLab]
+	public final int[] failedAssumptions() {
+		if (failed == null)
+			throw new IllegalStateException();
+		return failed.clone();
+	}
 
 	/**
 	 * Throws an IllegalArgumentException if variable !in this.variables.
@@ -186,10 +309,14 @@ abstract class NativeSolver implements SATSolver {
 	
 	/**
 	 * {@inheritDoc}
+	 * If the solver is being solved by another thread, the peer is 
+	 * released once that call returns.
 	 * @see kodkod.engine.satlab.SATSolver#free()
 	 */
 	public synchronized final void free() {
-		if (peer!=0) {
+		if (solving) { // [HASLab]
+			released = true;
+		} else if (peer!=0) {
 //			System.out.println("freeing " + peer + " " + getClass());
 			free(peer);
 			peer = 0;
@@ -234,6 +361,30 @@ abstract class NativeSolver implements SATSolver {
 	 */
 	abstract boolean addClause(long peer, int[] lits);
 	
+	/**
+	 * Ensures that the given native peer logically contains the first
+	 * length literals of the given buffer, read as a sequence of zero-terminated 
+	 * clauses, and returns the number of clauses that changed the peer's clause 
+	 * database.  The buffer is direct, so that native peers may read it in place; 
+	 * this implementation adds the clauses one by one, through 
+	 * {@link #addClause(long, int[])}.
+	 * @requires clauses.isDirect() && length <= clauses.capacity() && clauses.get(length-1) = 0
+	 * @requires all literals in the clauses are valid as per {@link #addClause(long, int[])}
+	 * @ensures ensures that the given native peer logically contains the specified clauses
+	 * @return the number of clauses that changed the peer's clause database
+	 */
+	// [HASLab]
+	int addClauses(long peer, IntBuffer clauses, int length) {
+		int added = 0;
+		for(int start = 0, end = 0; end < length; start = ++end) {
+			while(clauses.get(end) != 0) end++;
+			final int[] lits = new int[end-start];
+			for(int i = start; i < end; i++) lits[i-start] = clauses.get(i);
+			if (addClause(peer, lits)) added++;
+		}
+		return added;
+	}
+	
 	/**
 	 * Calls the solve method on the given native peer.
 	 * @return true if the clauses in the solver are SAT;
@@ -241,6 +392,35 @@ abstract class NativeSolver implements SATSolver {
 	 */
 	abstract boolean solve(long peer);
 	
+	/**
+	 * Calls the solve method on the given native peer, under the given 
+	 * assumptions.  This implementation defers to {@link SATSolver#solve(int[])},
+	 * which throws an UnsupportedOperationException.
+	 * @requires all i: [0..assumptions.length) | abs(assumptions[i]) in this.variables 
+	 * @return true if the clauses in the solver are SAT under the given 
+	 * assumptions; otherwise returns false.
+	 * @throws UnsupportedOperationException  the peer cannot solve under assumptions
+	 */
+	// [HASLab]
+	boolean solveAssuming(long peer, int[] assumptions) {
+		return SATSolver.super.solve(assumptions);
+	}
+	
+	/**
+	 * Returns the assumptions that made the last call to 
+	 * {@link #solveAssuming(long, int[]) solveAssuming(peer, assumptions)} fail. 
+	 * This implementation defers to {@link SATSolver#failedAssumptions()},
+	 * which throws an UnsupportedOperationException.
+	 * @requires the last call to solveAssuming(peer, assumptions) returned false
+	 * @return a subset of the given assumptions, which together with the 
+	 * clauses in the solver are unsatisfiable
+	 * @throws UnsupportedOperationException  the peer cannot solve under assumptions
+	 */
+	// [HASLab]
+	int[] failed(long peer, int[] assumptions) {
+		return SATSolver.super.failedAssumptions();
+	}
+	
 	/**
 	 * Returns the assignment for the given literal
 	 * by the specified native peer
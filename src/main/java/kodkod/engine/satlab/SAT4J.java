@@ -23,6 +23,7 @@ package kodkod.engine.satlab;
 
 import java.util.NoSuchElementException;
 
+import org.sat4j.core.VecInt;
 import org.sat4j.specs.ContradictionException;
 import org.sat4j.specs.ISolver;
 import org.sat4j.specs.IVecInt;
@@ -40,6 +41,8 @@ final class SAT4J implements SATSolver {
 	private final ReadOnlyIVecInt wrapper;
 	private Boolean sat; 
 	private int vars, clauses;
+	// [HASLab] the assumptions that failed in the last call to solve, if any
+	private int[] failed;
 	
 	/**
 	 * Constructs a wrapper for the given instance
@@ -112,14 +115,67 @@ final class SAT4J implements SATSolver {
 	 */
 	public boolean solve() {
 		try {
+			failed = null; // [HASLab]
 			if (!Boolean.FALSE.equals(sat))
 				sat = Boolean.valueOf(solver.isSatisfiable());
 			return sat;
 		} catch (org.sat4j.specs.TimeoutException e) {
+			if (solver == null) // [HASLab]
+				throw new SATAbortedException("The solver was freed while solving.");
 			throw new RuntimeException("timed out");
 		} 
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#solve(int[])
+	 */
+	// [HASLab]
+	public boolean solve(int[] assumptions) {
+		try {
+			failed = null;
+			if (Boolean.FALSE.equals(sat)) {
+				failed = new int[0];
+				return false;
+			}
+			// unsat under assumptions does not rule out further calls
+			sat = solver.isSatisfiable(new VecInt(assumptions.clone())) ? Boolean.TRUE : null;
+			if (sat == null)
+				failed = explanation();
+			return sat != null;
+		} catch (org.sat4j.specs.TimeoutException e) {
+			if (solver == null)
+				throw new SATAbortedException("The solver was freed while solving.");
+			throw new RuntimeException("timed out");
+		} 
+	}
+
+	/**
+	 * Returns the assumptions that made the last call to solve fail.
+	 * @requires the last call to this.solver.isSatisfiable(assumptions) returned false
+	 */
+	// [HASLab]
+	private int[] explanation() {
+		try {
+			final IVecInt explanation = solver.unsatExplanation();
+			return explanation == null ? new int[0] : explanation.toArray();
+		} catch (NullPointerException e) {
+			// sat4j leaves the explanation unset if the clauses are unsatisfiable on their own
+			return new int[0];
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SATSolver#failedAssumptions()
+	 */
+	// [HASLab]
+	public int[] failedAssumptions() {
+		if (failed == null)
+			throw new IllegalStateException();
+		return failed.clone();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.SATSolver#valueOf(int)
@@ -137,6 +193,9 @@ final class SAT4J implements SATSolver {
 	 * @see kodkod.engine.satlab.SATSolver#free()
 	 */
 	public synchronized final void free() {
+		// [HASLab] stops a search running on another thread
+		if (solver != null)
+			solver.expireTimeout();
 		solver = null;
 	}
 	
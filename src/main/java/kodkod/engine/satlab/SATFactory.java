@@ -59,7 +59,7 @@ public abstract class SATFactory {
 			solver.addVariables(1);
 			solver.addClause(new int[]{1});
 			return solver.solve();
-		} catch (RuntimeException|UnsatisfiedLinkError t) {	
+		} catch (RuntimeException|LinkageError t) { // [HASLab] NoClassDefFoundError once loading failed
 			return false;
 		} finally {
 			if (solver!=null) {
@@ -76,6 +76,7 @@ public abstract class SATFactory {
 		public SATSolver instance() { 
 			return new SAT4J(SolverFactory.instance().defaultSolver()); 
 		}
+		public boolean assumptions() { return true; }
 		public String toString() { return "DefaultSAT4J"; }
 	};
 	
@@ -101,6 +102,7 @@ public abstract class SATFactory {
 		public SATSolver instance() { 
 			return new SAT4J(SolverFactory.instance().lightSolver()); 
 		}
+		public boolean assumptions() { return true; }
 		public String toString() { return "LightSAT4J"; }
 	};
 	
@@ -112,6 +114,7 @@ public abstract class SATFactory {
 		public SATSolver instance() {
 			return new MiniSat();
 		}
+		public boolean assumptions() { return true; } // [HASLab]
 		public String toString() { return "MiniSat"; }
 	};
 	
@@ -142,6 +145,7 @@ public abstract class SATFactory {
 		public SATSolver instance() {
 			return new Glucose();
 		}
+		public boolean assumptions() { return true; } // [HASLab]
 		public String toString() { return "Glucose"; }
 	};
 	
@@ -153,6 +157,7 @@ public abstract class SATFactory {
 		public SATSolver instance() {
 			return new Lingeling();
 		}
+		public boolean assumptions() { return true; } // [HASLab]
 		public boolean incremental() { return false; }
 		public String toString() { return "Lingeling"; }
 	};
@@ -202,8 +207,8 @@ public abstract class SATFactory {
 			opts.add("-p");
 		
 		final String executable = findStaticLibrary("plingeling");
-		return externalFactory(executable==null ? "plingeling" : executable, 
-				null, false, false, opts.toArray(new String[opts.size()]));
+		return externalStreamingFactory(executable==null ? "plingeling" : executable, 
+				false, false, opts.toArray(new String[opts.size()]));
 	
 	}
 	
@@ -215,8 +220,8 @@ public abstract class SATFactory {
 	// [HASLab]
 	public static final SATFactory syrup() {
 		final String executable = findStaticLibrary("glucose-syrup");
-		return externalFactory(executable==null ? "glucose-syrup" : executable, 
-				null, false, false, "-verb=0");
+		return externalStreamingFactory(executable==null ? "glucose-syrup" : executable, 
+				false, false, "-verb=0");
 	}
 
 	// [HASLab]
@@ -292,6 +297,7 @@ public abstract class SATFactory {
 			public SATSolver instance() {
 				return new SAT4J(SolverFactory.instance().createSolverByName(solverName));
 			}
+			public boolean assumptions() { return true; }
 			public String toString() { return solverName; }
 		};
 	}
@@ -347,6 +353,45 @@ public abstract class SATFactory {
 		};
 	}
 	
+	/**
+	 * Returns a SATFactory that produces SATSolver wrappers for the external
+	 * SAT solver specified by the executable parameter, that are fed the CNF
+	 * through the standard input of the solver process rather than through a 
+	 * file.  The solver's input and output formats must conform to the 
+	 * <a href="http://www.satcompetition.org/2011/rules.pdf">SAT competition standards</a>. 
+	 * The solver will be called with the specified options, and it is expected to read
+	 * the CNF from standard in and write properly formatted output to standard out.
+	 * Should the solver not report an outcome, it is called again on an automatically 
+	 * generated temporary file, as in {@link #externalFactory(String, String, boolean, boolean, String...)}.
+	 * External solvers are never incremental.
+	 * @return  SATFactory that produces streaming SATSolver wrappers for the specified external
+	 * SAT solver
+	 */
+	// [HASLab]
+	public static final SATFactory externalStreamingFactory(final String executable, final boolean incremental, final boolean unbounded, final String... options) {
+		return new SATFactory() {
+
+			@Override
+			public SATSolver instance() {
+				return new ExternalSolver(executable, options);
+			}
+			
+			@Override
+			public boolean incremental() {
+				return incremental;
+			}
+			
+			@Override
+			public boolean unbounded() {
+				return unbounded;
+			}
+			
+			public String toString() {
+				return (new File(executable)).getName();
+			}
+		};
+	}
+	
 	/**
 	 * Returns a SATFactory that produces  SATSolver wrappers for the external
 	 * Yices SAT solver, since it does not follow standard WCNF output format.
@@ -408,6 +453,16 @@ public abstract class SATFactory {
 		return false;
 	}
 	
+	/**
+	 * Returns true if the solvers returned by this.instance() can solve
+	 * under assumptions, i.e., if {@link SATSolver#solve(int[])} is supported.
+	 * @return true if the solvers returned by this.instance() solve under assumptions
+	 */
+	// [HASLab]
+	public boolean assumptions() {
+		return false;
+	}
+	
 	/**
 	 * Returns true if the solvers returned by this.instance() are Max-SAT,
 	 * i.e., soft clauses and weights can added to the solver.
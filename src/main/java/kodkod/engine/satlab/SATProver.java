@@ -74,4 +74,22 @@ public interface SATProver extends SATSolver {
 	 */
 	public void reduce(ReductionStrategy strategy);
 	
+	/**
+	 * Uses the given reduction strategy to remove irrelevant clauses from 
+	 * the set of unsatisfiable clauses stored in this prover, as in 
+	 * {@link #reduce(ReductionStrategy)}, but analyzing up to the given number 
+	 * of subtraces concurrently.  The subtraces are computed ahead by the strategy 
+	 * and the first unsatisfiable one, in the order in which they were computed,
+	 * is retained, so that the result does not depend on the scheduling of the
+	 * threads.
+	 * @requires {@link SATSolver#solve()} has been called, and it returned false
+	 * @requires threads > 0
+	 * @ensures modifies this.clauses and this.resolvents as {@link #reduce(ReductionStrategy)}
+	 * @throws IllegalStateException  {@link SATSolver#solve()} has not been called, 
+	 * or the last call to {@link SATSolver#solve()} returned true
+	 * @see SpeculativeReductionStrategy
+	 */
+	// [HASLab]
+	public void reduce(SpeculativeReductionStrategy strategy, int threads);
+	
 }
@@ -87,6 +87,41 @@ public interface SATSolver {
 	 */
 	public abstract boolean solve() throws SATAbortedException;
 	
+	/**
+	 * Returns true if there is a satisfying assignment for this.clauses in which
+	 * all the given literals are true.  Otherwise returns false.  Unlike 
+	 * {@link #solve()}, a false outcome only rules out the assumptions, so clauses 
+	 * may still be added and the solver called again with other assumptions.
+	 * If the outcome is true, the satisfying assignment can be obtained by 
+	 * calling {@link #valueOf(int)}.  No reference to the specified array is kept.
+	 * @requires all i: [0..assumptions.length) | abs(assumptions[i]) in this.variables 
+	 * @return true if this.clauses and the assumptions are satisfiable; otherwise false.
+	 * @throws SATAbortedException - the call to solve was cancelled or
+	 * could not terminate normally.
+	 * @throws UnsupportedOperationException  this solver cannot solve under assumptions
+	 * @see SATFactory#assumptions()
+	 */
+	// [HASLab]
+	public default boolean solve(int[] assumptions) throws SATAbortedException {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not solve under assumptions");
+	}
+	
+	/**
+	 * Returns the assumptions that made the last call to {@link #solve(int[])} 
+	 * fail.  The returned literals are a subset of the assumptions passed to 
+	 * that call, which together with this.clauses are unsatisfiable.  The subset 
+	 * is empty if this.clauses are unsatisfiable on their own.  
+	 * @requires the last call to solve was a call to {@link #solve(int[])} that returned false
+	 * @return a subset of the last assumptions, which together with this.clauses are unsatisfiable
+	 * @throws IllegalStateException  the last call to solve was not a call to 
+	 * {@link #solve(int[])} that returned false
+	 * @throws UnsupportedOperationException  this solver cannot solve under assumptions
+	 */
+	// [HASLab]
+	public default int[] failedAssumptions() {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not solve under assumptions");
+	}
+	
 	/**
 	 * Returns the boolean value assigned to the given variable by the
 	 * last successful call to {@link #solve()}. 
@@ -0,0 +1,195 @@
+/*
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.satlab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import kodkod.util.ints.IntSet;
+
+/**
+ * Analyzes the subtraces computed ahead by a {@link SpeculativeReductionStrategy}
+ * concurrently, as required by {@link SATProver#reduce(SpeculativeReductionStrategy, int)}.
+ * The refutations of the subtraces run on a pool of worker threads that is kept
+ * for the lifetime of this reducer.  Once a subtrace turns out unsatisfiable, the
+ * refutations of the subtraces computed after it are superseded:  those that have
+ * not started are skipped, and those that have started, which cannot be interrupted,
+ * keep their workers until they finish.  Each batch of subtraces is sized to the
+ * workers that are free, so that at most the given number of refutations run at once.
+ * A prover keeps one reducer, so that its pool is reused across reductions.
+ * @specfield trace: ResolutionTrace // the trace being reduced
+ * @specfield superseded: set Future // the superseded refutations that may be running
+ */
+// [HASLab]
+public abstract class SpeculativeReducer {
+	/* the worker threads are daemons, so that an unused pool does not keep the VM alive */
+	private static final ThreadFactory WORKERS = new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			final Thread t = new Thread(r, "kodkod-core-reducer");
+			t.setDaemon(true);
+			return t;
+		}
+	};
+
+	private final List<Future<int[][]>> superseded = new ArrayList<Future<int[][]>>();
+	private ThreadPoolExecutor pool = null;
+
+	/**
+	 * Returns the trace being reduced.
+	 * @return this.trace
+	 */
+	protected abstract ResolutionTrace trace();
+
+	/**
+	 * Returns a task that solves the clauses of this.trace at the given indices,
+	 * and returns the raw trace of their refutation, if they are unsatisfiable,
+	 * or null otherwise.  The clauses are read when the task is created, since
+	 * this.trace may change before the task runs.
+	 * @return a task that refutes this.trace.elts[next]
+	 */
+	protected abstract Callable<int[][]> refutation(IntSet next);
+
+	/**
+	 * Retains the given unsatisfiable subtrace of this.trace, given the raw
+	 * trace of its refutation.
+	 * @requires refutation = refutation(next).call()
+	 * @ensures this.trace' is the subtrace of this.trace at the given indices
+	 */
+	protected abstract void retain(IntSet next, int[][] refutation);
+
+	/**
+	 * Reduces this.trace with the given strategy, refuting up to the given number
+	 * of subtraces at once, and retaining the first unsatisfiable one in each batch,
+	 * in the order in which they were computed.
+	 * @requires threads > 0
+	 * @ensures reduces this.trace as {@link SATProver#reduce(ReductionStrategy)}
+	 * @throws IllegalStateException  a refutation failed, or the current thread
+	 * was interrupted
+	 */
+	public final void reduce(SpeculativeReductionStrategy strategy, int threads) {
+		final ThreadPoolExecutor pool = pool(threads);
+		final IntSet[] nexts = new IntSet[threads];
+		final SpeculativeReductionStrategy[] states = new SpeculativeReductionStrategy[threads];
+		final List<Future<int[][]>> refutations = new ArrayList<Future<int[][]>>(threads);
+		try {
+			for(boolean done = false; !done; ) {
+				// compute the next subtraces, assuming that the previous ones are satisfiable
+				final int free = free(threads);
+				for(int i = 0; i < free; i++) {
+					nexts[i] = strategy.next(trace());
+					if (nexts[i].isEmpty()) {
+						done = true;
+						break;
+					}
+					states[i] = i < free - 1 ? strategy.copy() : strategy;
+					refutations.add(pool.submit(refutation(nexts[i])));
+				}
+				// retain the first unsatisfiable subtrace, in the order they were computed
+				for(int i = 0, batch = refutations.size(); i < batch; i++) {
+					final int[][] refutation = refutations.get(i).get();
+					if (refutation != null) {
+						retain(nexts[i], refutation);
+						strategy = states[i];
+						done = false;
+						supersede(refutations.subList(i+1, batch));
+						break;
+					}
+				}
+				refutations.clear();
+				Arrays.fill(states, null);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			supersede(refutations);
+		}
+	}
+
+	/**
+	 * Returns the pool of this reducer, with at least the given number of workers.
+	 * @return this.pool
+	 */
+	private ThreadPoolExecutor pool(int threads) {
+		if (pool == null) {
+			pool = new ThreadPoolExecutor(threads, threads, 1L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), WORKERS);
+			pool.allowCoreThreadTimeOut(true);
+		} else if (pool.getMaximumPoolSize() < threads) {
+			pool.setMaximumPoolSize(threads);
+			pool.setCorePoolSize(threads);
+		}
+		return pool;
+	}
+
+	/**
+	 * Skips the given refutations that have not started, and adds
+	 * the others to this.superseded.
+	 * @ensures no refutations' & pool.queue
+	 * @ensures this.superseded' = this.superseded + refutations - pool.queue
+	 */
+	private void supersede(List<Future<int[][]>> refutations) {
+		for(Future<int[][]> refutation : refutations) {
+			if (pool.remove((Runnable) refutation)) {
+				refutation.cancel(false);
+			} else {
+				superseded.add(refutation);
+			}
+		}
+		refutations.clear();
+	}
+
+	/**
+	 * Removes the superseded refutations that are done, waiting for the earliest
+	 * ones to finish if all the given number of workers are taken, and returns
+	 * the number of free workers.
+	 * @ensures this.superseded' = { f: this.superseded | !f.isDone() }
+	 * @return threads - #this.superseded'
+	 * @throws InterruptedException  the current thread was interrupted while waiting
+	 */
+	private int free(int threads) throws InterruptedException {
+		for(Iterator<Future<int[][]>> itr = superseded.iterator(); itr.hasNext(); ) {
+			if (itr.next().isDone()) itr.remove();
+		}
+		while (superseded.size() >= threads) {
+			try {
+				superseded.remove(0).get();
+			} catch (ExecutionException e) {
+				// the result of a superseded refutation is ignored
+			}
+		}
+		return threads - superseded.size();
+	}
+
+}
@@ -0,0 +1,45 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.engine.satlab;
+
+/**
+ * A {@link ReductionStrategy reduction strategy} whose state can be copied, 
+ * so that several of its next subtraces may be computed ahead of the analysis
+ * of the previous ones, and analyzed concurrently.  Each subtrace is computed
+ * under the assumption that the previous ones are satisfiable; if one turns out 
+ * unsatisfiable, the strategy is rolled back to the copy taken right after that 
+ * subtrace was computed.  The reduction is thus the same as that obtained by 
+ * analyzing the subtraces one at a time.
+ * @see SATProver#reduce(SpeculativeReductionStrategy, int)
+ */
+public interface SpeculativeReductionStrategy extends ReductionStrategy {
+
+	/**
+	 * Returns a copy of this strategy in its current state, which is not 
+	 * affected by subsequent calls to {@link #next(ResolutionTrace)} on this
+	 * strategy, nor the other way around.
+	 * @return { s: SpeculativeReductionStrategy | s.traces = this.traces && s.nexts = this.nexts }
+	 */
+	public SpeculativeReductionStrategy copy();
+	
+}
@@ -25,8 +25,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 import kodkod.engine.satlab.Clause;
-import kodkod.engine.satlab.ReductionStrategy;
 import kodkod.engine.satlab.ResolutionTrace;
+import kodkod.engine.satlab.SpeculativeReductionStrategy;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
 import kodkod.util.ints.Ints;
@@ -49,7 +49,7 @@ import kodkod.util.ints.Ints;
  * extraction.</i>  In Proceedings of Ninth International Conference on Theory and Applications of 
  * Satisfiability Testing (SAT '06). 2006.</a>
  */
-public final class CRRStrategy implements ReductionStrategy {
+public final class CRRStrategy implements SpeculativeReductionStrategy { // [HASLab] speculative
 	private Set<Clause> excluded;
 	
 	/** 
@@ -60,6 +60,18 @@ public final class CRRStrategy implements ReductionStrategy {
 		excluded = null;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SpeculativeReductionStrategy#copy()
+	 */
+	// [HASLab]
+	public CRRStrategy copy() {
+		final CRRStrategy copy = new CRRStrategy();
+		if (excluded != null)
+			copy.excluded = new HashSet<Clause>(excluded);
+		return copy;
+	}
+	
 	/**
 	 * Returns the next subset of clauses in the given trace to be analyzed.  
 	 * @requires {@inheritDoc} 
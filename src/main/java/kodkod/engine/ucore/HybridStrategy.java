@@ -26,11 +26,12 @@ import java.util.Iterator;
 import kodkod.engine.fol2sat.TranslationLog;
 import kodkod.engine.fol2sat.Translator;
 import kodkod.engine.satlab.Clause;
-import kodkod.engine.satlab.ReductionStrategy;
 import kodkod.engine.satlab.ResolutionTrace;
+import kodkod.engine.satlab.SpeculativeReductionStrategy;
 import kodkod.util.ints.IntBitSet;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
+import kodkod.util.ints.IntTreeSet;
 import kodkod.util.ints.Ints;
 
 /**
@@ -47,7 +48,7 @@ import kodkod.util.ints.Ints;
  * @author Emina Torlak
  * @see RCEStrategy
  */
-public final class HybridStrategy implements ReductionStrategy {
+public final class HybridStrategy implements SpeculativeReductionStrategy { // [HASLab] speculative
 	private final IntSet topVars;
 	
 	/**
@@ -58,6 +59,23 @@ public final class HybridStrategy implements ReductionStrategy {
 	public HybridStrategy(TranslationLog log) {
 		topVars = StrategyUtils.rootVars(log);
 	}
+	
+	/**
+	 * Constructs a copy of the given hybrid strategy, in its current state.
+	 */
+	// [HASLab]
+	private HybridStrategy(HybridStrategy original) {
+		topVars = new IntTreeSet(original.topVars);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SpeculativeReductionStrategy#copy()
+	 */
+	// [HASLab]
+	public HybridStrategy copy() {
+		return new HybridStrategy(this);
+	}
 		
 	/**
 	 * {@inheritDoc}
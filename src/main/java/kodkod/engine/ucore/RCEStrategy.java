@@ -23,11 +23,11 @@ package kodkod.engine.ucore;
 
 import kodkod.engine.fol2sat.TranslationLog;
 import kodkod.engine.fol2sat.Translator;
-import kodkod.engine.satlab.ReductionStrategy;
 import kodkod.engine.satlab.ResolutionTrace;
-import kodkod.util.ints.IntCollection;
+import kodkod.engine.satlab.SpeculativeReductionStrategy;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
+import kodkod.util.ints.IntTreeSet;
 import kodkod.util.ints.Ints;
 
 /**
@@ -44,8 +44,8 @@ import kodkod.util.ints.Ints;
  * @author Emina Torlak
  * @see HybridStrategy
  */
-public class RCEStrategy implements ReductionStrategy {
-	private final IntCollection varsToTry;
+public class RCEStrategy implements SpeculativeReductionStrategy { // [HASLab] speculative
+	private final IntSet varsToTry;
 	private final int dist;
 	
 	/**
@@ -73,6 +73,24 @@ public class RCEStrategy implements ReductionStrategy {
 		this.dist = dist;
 	}
 	
+	/**
+	 * Constructs a copy of the given RCE strategy, in its current state.
+	 */
+	// [HASLab]
+	private RCEStrategy(RCEStrategy original) {
+		this.varsToTry = new IntTreeSet(original.varsToTry);
+		this.dist = original.dist;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SpeculativeReductionStrategy#copy()
+	 */
+	// [HASLab]
+	public RCEStrategy copy() {
+		return new RCEStrategy(this);
+	}
+	
 	
 	/**
 	 * {@inheritDoc}
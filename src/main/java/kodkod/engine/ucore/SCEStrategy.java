@@ -23,11 +23,11 @@ package kodkod.engine.ucore;
 
 import kodkod.engine.fol2sat.TranslationLog;
 import kodkod.engine.fol2sat.Translator;
-import kodkod.engine.satlab.ReductionStrategy;
 import kodkod.engine.satlab.ResolutionTrace;
-import kodkod.util.ints.IntCollection;
+import kodkod.engine.satlab.SpeculativeReductionStrategy;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
+import kodkod.util.ints.IntTreeSet;
 import kodkod.util.ints.Ints;
 
 /**
@@ -44,8 +44,8 @@ import kodkod.util.ints.Ints;
  * @author Emina Torlak
  * @see HybridStrategy
  */
-public final class SCEStrategy implements ReductionStrategy {
-	private final IntCollection varsToTry;
+public final class SCEStrategy implements SpeculativeReductionStrategy { // [HASLab] speculative
+	private final IntSet varsToTry;
 
 	/**
 	 * Constructs an SCE strategy that will use the given translation
@@ -56,6 +56,23 @@ public final class SCEStrategy implements ReductionStrategy {
 		varsToTry = StrategyUtils.rootVars(log);
 	}
 	
+	/**
+	 * Constructs a copy of the given SCE strategy, in its current state.
+	 */
+	// [HASLab]
+	private SCEStrategy(SCEStrategy original) {
+		varsToTry = new IntTreeSet(original.varsToTry);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.engine.satlab.SpeculativeReductionStrategy#copy()
+	 */
+	// [HASLab]
+	public SCEStrategy copy() {
+		return new SCEStrategy(this);
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 * @see kodkod.engine.satlab.ReductionStrategy#next(kodkod.engine.satlab.ResolutionTrace)
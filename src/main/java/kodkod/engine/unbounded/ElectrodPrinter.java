@@ -22,6 +22,7 @@
  */
 package kodkod.engine.unbounded;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
@@ -119,6 +120,37 @@ public class ElectrodPrinter {
 	 */
 	public static String print(Formula formula, PardinusBounds bounds, Reporter rep)
 			throws InvalidUnboundedProblem {
+		StringBuilder sb = new StringBuilder();
+		try {
+			print(formula, bounds, rep, sb);
+		} catch (IOException e) {
+			throw new AssertionError(e); // not thrown by string builders
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Translates and prints an unbounded temporal model finding problem into
+	 * Electrod, writing it directly to the given output rather than building
+	 * the whole problem in memory. Intercepts the symmetry breaking predicate
+	 * so that it can be used by Electrod.
+	 * 
+	 * @param formula
+	 *            the problem's formula.
+	 * @param bounds
+	 *            the problem's bounds.
+	 * @param rep
+	 *            the reporter.
+	 * @param out
+	 *            the output to which the problem is written.
+	 * @throws InvalidUnboundedProblem
+	 *             if the problem is not supported by Electrod.
+	 * @throws IOException
+	 *             if writing to the output fails.
+	 */
+	// [HASLab]
+	public static void print(Formula formula, PardinusBounds bounds, Reporter rep, Appendable out)
+			throws InvalidUnboundedProblem, IOException {
 		// use a reporter to intercept the symmetry breaking predicate
 		Options opt = new ExtendedOptions();
 		StringBuilder temp = new StringBuilder();
@@ -178,29 +210,26 @@ public class ElectrodPrinter {
 		Whole t = Translator.translate(formula.and(symbForm), bounds, opt);
 		bounds = (PardinusBounds) t.bounds();
 
-		StringBuilder sb = new StringBuilder();
-		sb.append(printUniverse(bounds.universe()));
-		sb.append(printBounds(bounds));
-		sb.append(printSymmetries(temp.toString()));
-		sb.append(printConstraint(formula.and(symbForm)));
-		return sb.toString();
+		printUniverse(bounds.universe(), out);
+		printBounds(bounds, out);
+		printSymmetries(temp.toString(), out);
+		printConstraint(formula.and(symbForm), out);
 	}
 
 	/**
 	 * Print the universe of atoms.
 	 * 
 	 * @param universe the universe of atoms.
-	 * @return the universe in Electrod's concrete syntax.
+	 * @param out the output to which the universe is written in Electrod's concrete syntax.
 	 */
-	private static String printUniverse(Universe universe) {
-		StringBuilder sb = new StringBuilder("univ : { ");
+	private static void printUniverse(Universe universe, Appendable out) throws IOException {
+		out.append("univ : { ");
 		Iterator<Object> it = universe.iterator();
 		while (it.hasNext()) {
-			sb.append(normRel(it.next().toString()));
-			sb.append(" ");
+			out.append(normRel(it.next().toString()));
+			out.append(" ");
 		}
-		sb.append("};\n\n");
-		return sb.toString();
+		out.append("};\n\n");
 	}
 
 	/**
@@ -209,20 +238,20 @@ public class ElectrodPrinter {
 	 * 
 	 * @param formula
 	 *            the goal formula.
-	 * @return the goal in Electrod's concrete syntax.
+	 * @param out
+	 *            the output to which the goal is written in Electrod's concrete syntax.
 	 */
-	private static String printConstraint(Formula formula) {
-		StringBuilder sb = new StringBuilder("run\n");
+	private static void printConstraint(Formula formula, Appendable out) throws IOException {
+		out.append("run\n");
 		if (formula instanceof NaryFormula && ((NaryFormula) formula).op() == FormulaOperator.AND) {
 			for (int i = 0; i < ((NaryFormula) formula).size(); i++) {
-				sb.append(printFormula(((NaryFormula) formula).child(i)));
-				sb.append(";\n");
+				out.append(printFormula(((NaryFormula) formula).child(i)));
+				out.append(";\n");
 			}
 		} else {
-			sb.append(printFormula(formula));
-			sb.append(";\n");
+			out.append(printFormula(formula));
+			out.append(";\n");
 		}
-		return sb.toString();
 	}
 
 	/**
@@ -231,15 +260,15 @@ public class ElectrodPrinter {
 	 * 
 	 * @param syms
 	 *            the symmetries.
-	 * @return the symmetries in Electrod's concrete syntax or empty.
+	 * @param out
+	 *            the output to which the symmetries are written in Electrod's concrete syntax.
 	 */
-	private static String printSymmetries(String syms) {
+	private static void printSymmetries(String syms, Appendable out) throws IOException {
 		if (syms.length() == 0)
-			return syms;
-		StringBuilder sb = new StringBuilder("sym\n");
-		sb.append(normRel(syms));
-		sb.append("\n");
-		return sb.toString();
+			return;
+		out.append("sym\n");
+		out.append(normRel(syms));
+		out.append("\n");
 	}
 
 	/**
@@ -248,34 +277,33 @@ public class ElectrodPrinter {
 	 * 
 	 * @param bounds
 	 *            the bounds.
-	 * @return the bounds in Electrod's concrete syntax.
+	 * @param out
+	 *            the output to which the bounds are written in Electrod's concrete syntax.
 	 */
-	private static String printBounds(Bounds bounds) {
-		StringBuilder sb = new StringBuilder();
+	private static void printBounds(Bounds bounds, Appendable out) throws IOException {
 		Bounds bnd = bounds;
 		for (Relation r : bnd.relations()) {
 			if (r.isVariable())
-				sb.append("var ");
+				out.append("var ");
 			else
-				sb.append("const ");
-			sb.append(normRel(r.toString()));
-			sb.append(" :");
-			sb.append(r.arity());
-			sb.append(" ");
+				out.append("const ");
+			out.append(normRel(r.toString()));
+			out.append(" :");
+			out.append(String.valueOf(r.arity()));
+			out.append(" ");
 			if (bnd.lowerBound(r).size() == bnd.upperBound(r).size()) {
-				sb.append(printTupleList(bnd.lowerBound(r)));
+				printTupleList(bnd.lowerBound(r), out);
 			}
 			else {
-				sb.append(printTupleList(bnd.lowerBound(r)));
-				sb.append(" ");
-				sb.append(printTupleList(bnd.upperBound(r)));
+				printTupleList(bnd.lowerBound(r), out);
+				out.append(" ");
+				printTupleList(bnd.upperBound(r), out);
 			}
-			sb.append(";\n");
+			out.append(";\n");
 		}
-		sb.append("const ints :1 ");
-		sb.append(printIntList(bnd.intBounds()));
-		sb.append(";\n\n");
-		return sb.toString();
+		out.append("const ints :1 ");
+		printIntList(bnd.intBounds(), out);
+		out.append(";\n\n");
 	}
 
 	/**
@@ -283,35 +311,34 @@ public class ElectrodPrinter {
 	 * 
 	 * @param tuples
 	 *            the tuple list.
-	 * @return the tuple list in Electrod's concrete syntax.
+	 * @param out
+	 *            the output to which the tuple list is written in Electrod's concrete syntax.
 	 */
-	private static String printTupleList(Collection<Tuple> tuples) {
-		StringBuilder sb = new StringBuilder("{ ");
+	private static void printTupleList(Collection<Tuple> tuples, Appendable out) throws IOException {
+		out.append("{ ");
 		for (Tuple t : tuples) {
-			sb.append("(");
-			sb.append(printTuple(t));
-			sb.append(") ");
+			out.append("(");
+			printTuple(t, out);
+			out.append(") ");
 		}
-		sb.append("}");
-		return sb.toString();
+		out.append("}");
 	}
 	
 	/**
 	 * Prints the integer list of atoms.
 	 * 
 	 * @param ints the integer list.
-	 * @return the integer list in Electrod's concrete syntax.
+	 * @param out the output to which the integer list is written in Electrod's concrete syntax.
 	 */
-	private static Object printIntList(SparseSequence<TupleSet> ints) {
-		StringBuilder sb = new StringBuilder("{ ");
+	private static void printIntList(SparseSequence<TupleSet> ints, Appendable out) throws IOException {
+		out.append("{ ");
 		Iterator<IndexedEntry<TupleSet>> it = ints.iterator();
 		while (it.hasNext()) {
-			sb.append("(");
-			sb.append(printTuple(it.next().value().iterator().next()));
-			sb.append(") ");
+			out.append("(");
+			printTuple(it.next().value().iterator().next(), out);
+			out.append(") ");
 		}
-		sb.append("}");
-		return sb.toString();
+		out.append("}");
 	}
 	
 	/**
@@ -343,14 +370,32 @@ public class ElectrodPrinter {
 	 * @return the tuple in Electrod's concrete syntax.
 	 */
 	private static String printTuple(Tuple tuple) {
-		StringBuilder sb = new StringBuilder(" ");
-		for (int i = 0; i < tuple.arity(); i++) {
-			sb.append(normRel(tuple.atom(i).toString()));
-			sb.append(" ");
+		StringBuilder sb = new StringBuilder();
+		try {
+			printTuple(tuple, sb);
+		} catch (IOException e) {
+			throw new AssertionError(e); // not thrown by string builders
 		}
 		return sb.toString();
 	}
 	
+	/**
+	 * Prints a tuple.
+	 * 
+	 * @param tuple
+	 *            the tuple.
+	 * @param out
+	 *            the output to which the tuple is written in Electrod's concrete syntax.
+	 */
+	// [HASLab]
+	private static void printTuple(Tuple tuple, Appendable out) throws IOException {
+		out.append(" ");
+		for (int i = 0; i < tuple.arity(); i++) {
+			out.append(normRel(tuple.atom(i).toString()));
+			out.append(" ");
+		}
+	}
+	
 	/**
 	 * Prints a formula.
 	 * 
@@ -358,7 +403,8 @@ public class ElectrodPrinter {
 	 *            the formula.
 	 * @return the formula in Electrod's concrete syntax.
 	 */
-	private static String printFormula(Formula formula) {
+	// [HASLab] package-private for testing
+	static String printFormula(Formula formula) {
 		final LTL2Electrod formatter = new LTL2Electrod(0,80);
 		formula.accept(formatter);
 		return formatter.tokens.toString();
@@ -22,26 +22,29 @@
  */
 package kodkod.engine.unbounded;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import kodkod.ast.Relation;
 import kodkod.instance.Instance;
 import kodkod.instance.PardinusBounds;
 import kodkod.instance.TemporalInstance;
-import kodkod.instance.Tuple;
+import kodkod.instance.TupleFactory;
 import kodkod.instance.TupleSet;
 import kodkod.util.ints.IndexedEntry;
 
@@ -51,14 +54,21 @@ import kodkod.util.ints.IndexedEntry;
  * Kodkod/Pardinus. Some renaming has been done between on the atoms/relations
  * in the translation to Electrod, which must be reverted.
  * 
+ * The XML solution is streamed rather than loaded into a document tree, so
+ * that only the tuple sets of the states themselves are kept in memory.
+ * Callers only interested in a prefix of the trace may iterate the states
+ * lazily with {@link #states(File)}.
+ * 
  * @author Nuno Macedo // [HASLab] unbounded temporal model finding
  */
 public class ElectrodReader {
 
-	private List<Instance> insts;
 	private int loop;
 	public int nbvars, ctime, atime;
 	private PardinusBounds bounds;
+	// [HASLab] electrod names of relations and atoms
+	private final Map<String, Relation> relations;
+	private final Map<String, Object> atoms;
 
 	/**
 	 * Initializes the Electrod solution reader with the original problem
@@ -68,9 +78,20 @@ public class ElectrodReader {
 	 *            the original bounds of the solved problem.
 	 */
 	public ElectrodReader(PardinusBounds bounds) {
-		this.insts = new ArrayList<Instance>();
 		this.loop = -1;
 		this.bounds = bounds;
+		this.relations = new HashMap<String, Relation>();
+		for (Relation r : bounds.relations()) {
+			String nm = ElectrodPrinter.normRel(r.toString());
+			if (!relations.containsKey(nm))
+				relations.put(nm, r);
+		}
+		this.atoms = new HashMap<String, Object>();
+		for (int i = 0; i < bounds.universe().size(); i++) {
+			String nm = ElectrodPrinter.normRel(bounds.universe().atom(i).toString());
+			if (!atoms.containsKey(nm))
+				atoms.put(nm, bounds.universe().atom(i));
+		}
 	}
 
 	/**
@@ -85,30 +106,10 @@ public class ElectrodReader {
 	 *             if the parsing fails.
 	 */
 	public TemporalInstance read(File file) throws InvalidUnboundedSolution {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setValidating(false);
-		factory.setIgnoringElementContentWhitespace(true);
-		try {
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document doc = builder.parse(file);
-			Element root = doc.getDocumentElement();
-			nbvars = Integer.valueOf(root.getAttributes().getNamedItem("nbvars").getNodeValue());
-			ctime = Integer.valueOf(root.getAttributes().getNamedItem("conversion-time").getNodeValue());
-			atime = Integer.valueOf(root.getAttributes().getNamedItem("analysis-time").getNodeValue());
-			NodeList elems = root.getChildNodes();
-			int c = 0;
-			for (int i = 0; i < elems.getLength(); i++) {
-				if (elems.item(i).getNodeName().equals("st")) {
-					if (elems.item(i).getAttributes().getNamedItem("loop-target").getNodeValue()
-							.equals("true"))
-						loop = c;
-					insts.add(state(elems.item(i)));
-					c++;
-				}
-			}
-		} catch (ParserConfigurationException | SAXException | IOException e) {
-			throw new InvalidUnboundedSolution("Failed to parse Electrod XML.",
-					e);
+		List<Instance> insts = new ArrayList<Instance>();
+		try (StateIterator it = states(file)) {
+			while (it.hasNext())
+				insts.add(it.next());
 		}
 		if (insts.size() == 0)
 			return null;
@@ -117,71 +118,231 @@ public class ElectrodReader {
 	}
 
 	/**
-	 * Parses a single state of the trace as a static regular Kodkod
-	 * {@link Instance instance}. Atoms and relations may have been renamed by
-	 * {@link ElectrodPrinter#normRel(String)}, which must be reverted.
+	 * Opens an Electrod solution XML file for lazy reading, returning an
+	 * iterator over the states of the trace. Each state is only parsed when
+	 * requested, and the file is closed once the last state is read or the
+	 * iterator is {@link StateIterator#close() closed}. The header attributes
+	 * ({@link #nbvars}, {@link #ctime}, {@link #atime}) are read immediately.
+	 * The iterator is empty if the problem is unsatisfiable.
 	 * 
-	 * @param node
-	 *            the XML node containing the state.
-	 * @return the static instance corresponding to the state.
+	 * @param file
+	 *            the XML Electrod solution to be parsed.
+	 * @return an iterator over the states of the trace.
+	 * @throws InvalidUnboundedSolution
+	 *             if the parsing fails.
 	 */
-	private Instance state(Node node) {
-		Instance inst = new Instance(bounds.universe());
+	// [HASLab]
+	public StateIterator states(File file) throws InvalidUnboundedSolution {
+		loop = -1;
+		return new StateIterator(file);
+	}
 
-		for (Relation r : bounds.relations()) {
-			NodeList e = null;
-			for (int i = 0; i < node.getChildNodes().getLength(); i++) {
-				if (node.getChildNodes().item(i).getNodeName().equals("rel")) {
-					String nm = ElectrodPrinter.normRel(r.toString());
-					if (node.getChildNodes().item(i).getAttributes()
-							.getNamedItem("name").getNodeValue().equals(nm))
-						e = node.getChildNodes().item(i).getChildNodes();
+	/**
+	 * The looping state of the trace, if already read, or -1 otherwise.
+	 * 
+	 * @return the index of the looping state among the states read so far.
+	 */
+	// [HASLab]
+	public int loop() {
+		return loop;
+	}
+
+	/**
+	 * A lazy iterator over the states of an Electrod solution.
+	 */
+	// [HASLab]
+	public final class StateIterator implements Iterator<Instance>, Closeable {
+		private final InputStream in;
+		private final XMLStreamReader xml;
+		private Instance next;
+		private boolean done;
+		private int count;
+
+		private StateIterator(File file) {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+			try {
+				this.in = new BufferedInputStream(new FileInputStream(file));
+			} catch (IOException e) {
+				throw new InvalidUnboundedSolution("Failed to parse Electrod XML.", e);
+			}
+			XMLStreamReader reader = null;
+			try {
+				reader = factory.createXMLStreamReader(in);
+			} catch (XMLStreamException e) {
+				closeQuietly();
+				throw new InvalidUnboundedSolution("Failed to parse Electrod XML.", e);
+			}
+			this.xml = reader;
+			try {
+				xml.nextTag();
+				nbvars = attribute("nbvars");
+				ctime = attribute("conversion-time");
+				atime = attribute("analysis-time");
+			} catch (XMLStreamException | RuntimeException e) {
+				closeQuietly();
+				throw e instanceof InvalidUnboundedSolution ? (InvalidUnboundedSolution) e
+						: new InvalidUnboundedSolution("Failed to parse Electrod XML.", e);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+			if (next == null && !done) {
+				try {
+					next = advance();
+				} catch (XMLStreamException | RuntimeException e) {
+					close();
+					throw e instanceof InvalidUnboundedSolution ? (InvalidUnboundedSolution) e
+							: new InvalidUnboundedSolution("Failed to parse Electrod XML.", e);
 				}
 			}
-			List<List<String>> buff__ = new ArrayList<List<String>>();
-
-			if (e != null)
-				for (int i = 0; i < e.getLength(); i++) {
-					if (e.item(i).getNodeName().equals("t")) {
-						List<String> buff_ = new ArrayList<String>();
-						for (int j = 0; j < e.item(i).getChildNodes()
-								.getLength(); j++) {
-							if (e.item(i).getChildNodes().item(j).getNodeName()
-									.equals("a")) {
-								buff_.add(e.item(i).getChildNodes().item(j)
-										.getTextContent());
-							}
-						}
-						buff__.add(buff_);
+			return next != null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Instance next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Instance res = next;
+			next = null;
+			return res;
+		}
+
+		/**
+		 * Closes the underlying file. Further calls to {@link #hasNext()}
+		 * return false.
+		 */
+		public void close() {
+			if (!done) {
+				done = true;
+				closeQuietly();
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				if (xml != null)
+					xml.close();
+			} catch (XMLStreamException e) {
+				// the file is closed below
+			}
+			try {
+				in.close();
+			} catch (IOException e) {
+				// nothing else to release
+			}
+		}
+
+		/**
+		 * Reads an integer attribute of the current element.
+		 */
+		private int attribute(String name) {
+			String val = xml.getAttributeValue(null, name);
+			if (val == null)
+				throw new InvalidUnboundedSolution("Missing attribute in Electrod XML: " + name + ".");
+			return Integer.valueOf(val);
+		}
+
+		/**
+		 * Advances to the next state of the trace, which must be a direct child
+		 * of the root, and parses it. Returns null and closes the file if there
+		 * are no more states.
+		 */
+		private Instance advance() throws XMLStreamException {
+			int depth = 1;
+			while (depth > 0) {
+				switch (xml.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					if (depth == 1 && xml.getLocalName().equals("st")) {
+						if ("true".equals(xml.getAttributeValue(null, "loop-target")))
+							loop = count;
+						count++;
+						return state();
 					}
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+				case XMLStreamConstants.END_DOCUMENT:
+					depth = 0;
+					break;
+				default:
+					break;
 				}
+			}
+			close();
+			return null;
+		}
 
-			List<Tuple> buff = new ArrayList<Tuple>();
-			for (List<String> buff_ : buff__) {
-				List<Object> _buff = new ArrayList<Object>();
-				for (String x : buff_)
-					for (int i = 0; i < bounds.universe().size(); i++) {
-						if (ElectrodPrinter.normRel(bounds.universe().atom(i).toString()).equals(x))
-							_buff.add(bounds.universe().atom(i));
+		/**
+		 * Parses a single state of the trace as a static regular Kodkod
+		 * {@link Instance instance}, consuming the stream up to the end of the
+		 * state element. Atoms and relations may have been renamed by
+		 * {@link ElectrodPrinter#normRel(String)}, which must be reverted.
+		 * 
+		 * @return the static instance corresponding to the state.
+		 */
+		private Instance state() throws XMLStreamException {
+			final TupleFactory f = bounds.universe().factory();
+			final Map<Relation, TupleSet> found = new HashMap<Relation, TupleSet>();
+			final List<Object> tuple = new ArrayList<Object>();
+			Relation rel = null;
+			TupleSet ts = null;
+			int depth = 1;
+			while (depth > 0) {
+				switch (xml.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					if (depth == 2 && xml.getLocalName().equals("rel")) {
+						rel = relations.get(xml.getAttributeValue(null, "name"));
+						ts = rel == null ? null : f.noneOf(rel.arity());
+					} else if (depth == 3 && ts != null && xml.getLocalName().equals("t")) {
+						tuple.clear();
+					} else if (depth == 4 && ts != null && xml.getLocalName().equals("a")) {
+						String x = xml.getElementText(); // consumes the end tag
+						depth--;
+						Object atom = atoms.get(x);
+						if (atom == null)
+							throw new InvalidUnboundedSolution("Unknown atom in Electrod XML: " + x + ".");
+						tuple.add(atom);
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					if (depth == 2 && ts != null && xml.getLocalName().equals("t")) {
+						ts.add(f.tuple(tuple));
+					} else if (depth == 1 && ts != null && xml.getLocalName().equals("rel")) {
+						found.put(rel, ts);
+						ts = null;
 					}
-				buff.add(bounds.universe().factory().tuple(_buff));
+					break;
+				case XMLStreamConstants.END_DOCUMENT:
+					throw new InvalidUnboundedSolution("Unexpected end of Electrod XML.");
+				default:
+					break;
+				}
 			}
 
-			TupleSet t;
-			if (buff.isEmpty())
-				t = bounds.universe().factory().noneOf(r.arity());
-			else
-				t = bounds.universe().factory().setOf(buff);
+			Instance inst = new Instance(bounds.universe());
+			for (Relation r : bounds.relations()) {
+				TupleSet t = found.get(r);
+				inst.add(r, t == null ? f.noneOf(r.arity()) : t);
+			}
 
-			inst.add(r, t);
-		}
-		
-		// propagate integers
-		for(IndexedEntry<TupleSet> x : bounds.intBounds()) {
-			inst.add(x.index(), x.value());
-		}
+			// propagate integers
+			for (IndexedEntry<TupleSet> x : bounds.intBounds()) {
+				inst.add(x.index(), x.value());
+			}
 
-		return inst;
+			return inst;
+		}
 	}
 
 }
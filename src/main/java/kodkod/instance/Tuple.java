@@ -21,6 +21,8 @@
  */
 package kodkod.instance;
 
+import kodkod.engine.CapacityExceededException;
+
 
 /** 
  * Represents a sequence of atoms drawn from a given {@link kodkod.instance.Universe universe}.  
@@ -55,9 +57,21 @@ public abstract class Tuple  {
      * a Tuple's index is the decimal representation of this number.  
      *  
      * @return sum({i: [0..arity) | universe.index(atoms[i]) * universe.size^(arity - 1 - i)})
+     * @throws CapacityExceededException  universe.size^arity > Integer.MAX_VALUE
      */
     public abstract int index();
     
+    /**
+     * Returns the index of this tuple as a long.  Unlike {@link #index()}, this 
+     * method is defined for tuples whose index space exceeds the range of an int.
+     *  
+     * @return sum({i: [0..arity) | universe.index(atoms[i]) * universe.size^(arity - 1 - i)})
+     */
+    // [HASLab]
+    public long longIndex() {
+    	return index();
+    }
+    
     /**
      * Returns the atom at the specified index
      *
@@ -102,7 +116,7 @@ public abstract class Tuple  {
     		if (this==o) return true;
     		else if (o instanceof Tuple) {
             final Tuple t = (Tuple) o;
-            return universe().equals(t.universe()) && arity()==t.arity() && index()==t.index();
+            return universe().equals(t.universe()) && arity()==t.arity() && longIndex()==t.longIndex(); // [HASLab]
         }
         else return false;   
     }
@@ -113,7 +127,8 @@ public abstract class Tuple  {
      * @return the hashcode for this tuple
      */
     public int hashCode() {
-        return (arity() * 19 + index())^universe().hashCode();
+        final long index = longIndex(); // [HASLab]
+        return (arity() * 19 + (int)(index ^ (index >>> 32)))^universe().hashCode();
     }
     
     /**
@@ -25,8 +25,10 @@ import java.util.Collection;
 import java.util.List;
 
 import kodkod.engine.CapacityExceededException;
+import kodkod.util.ints.ChunkedIntSet;
 import kodkod.util.ints.IntSet;
 import kodkod.util.ints.Ints;
+import kodkod.util.ints.LongSet;
 
 
 /**
@@ -39,9 +41,13 @@ import kodkod.util.ints.Ints;
  * @author Emina Torlak
  */
 public final class TupleFactory {
+	// [HASLab] capacity below which bit sets are preferred to chunked sets
+	private static final int CHUNKED_CUTOFF = 1024;
 
 	private final Universe universe;
 	private final int base;
+	// [HASLab]
+	private boolean chunked = false;
 	
 	/**
 	 * Constructs a factory for the given universe.
@@ -54,6 +60,39 @@ public final class TupleFactory {
 		this.base = universe.size();
 	}
 	
+	/**
+	 * Sets whether the index sets of the tuple sets created by this factory
+	 * from now on are {@linkplain ChunkedIntSet chunked}, rather than tree or
+	 * bit sets.  Chunked sets scale better for relations of high arity over
+	 * large universes, whose bounds mix sparse and dense regions.
+	 * @ensures this.chunked' = chunked
+	 */
+	// [HASLab]
+	public void setChunkedIndices(boolean chunked) {
+		this.chunked = chunked;
+	}
+	
+	/**
+	 * Returns whether the index sets of the tuple sets created by this 
+	 * factory are {@linkplain ChunkedIntSet chunked}.
+	 * @return this.chunked
+	 */
+	// [HASLab]
+	public boolean chunkedIndices() {
+		return chunked;
+	}
+	
+	/**
+	 * Returns an empty int set for storing tuple indices in [0..capacity),
+	 * chunked if this.chunked and the capacity exceeds what a bit set
+	 * handles efficiently.
+	 * @return an empty int set for storing tuple indices in [0..capacity)
+	 */
+	// [HASLab]
+	IntSet indexSet(int capacity) {
+		return chunked && capacity > CHUNKED_CUTOFF ? new ChunkedIntSet() : Ints.bestSet(capacity);
+	}
+	
 	/**
 	 * Returns the universe to which this factory belongs.
 	 * @return this.universe
@@ -71,7 +110,7 @@ public final class TupleFactory {
      */
 	public Tuple tuple(Object... atoms) {
 		if (atoms.length<1) throw new IllegalArgumentException("atoms.length<1");
-		return new IntTuple(atoms);
+		return intIndexed(atoms.length) ? new IntTuple(atoms) : new LongTuple(atoms); // [HASLab]
 	}
 	
 	/**  
@@ -85,7 +124,7 @@ public final class TupleFactory {
      */
 	public Tuple tuple(List<?> atoms) {
 		if (atoms.size()<1) throw new IllegalArgumentException("atoms.size()<1");
-		return new IntTuple(atoms.toArray());
+		return tuple(atoms.toArray()); // [HASLab]
 	}
 	
 	/**  
@@ -97,7 +136,26 @@ public final class TupleFactory {
      * @throws IllegalArgumentException  arity < 1 || index < 0 || index >= universe.size^arity
      */
 	public Tuple tuple(final int arity, final int index) {
-		return new IntTuple(arity, index);
+		return arity < 1 || intIndexed(arity) ? new IntTuple(arity, index) : new LongTuple(arity, index); // [HASLab]
+	}
+	
+	/**  
+     * Returns a tuple with the specified arity whose long index in an arity-dimensional 
+     * space over this.universe is given by the index parameter.
+     * 
+     * @return {t: Tuple | t.universe = this.universe && t.arity = arity && 
+     *                     index = sum({i : [0..arity) | universe.index(t.atoms[i]) * universe.size^(arity - 1 - i))}) }
+     * @throws IllegalArgumentException  arity < 1 || index < 0 || index >= universe.size^arity
+     * @throws CapacityExceededException  universe.size^arity > Long.MAX_VALUE
+     */
+	// [HASLab]
+	public Tuple tuple(final int arity, final long index) {
+		if (arity >= 1 && intIndexed(arity)) {
+			if (index > Integer.MAX_VALUE) 
+				throw new IllegalArgumentException("arity < 1 || index < 0 || index >= universe.size^arity");
+			return new IntTuple(arity, (int) index);
+		}
+		return new LongTuple(arity, index);
 	}
 	
 	/**
@@ -107,6 +165,8 @@ public final class TupleFactory {
 	 * @throws IllegalArgumentException  arity < 1                     
 	 */
 	public TupleSet allOf(int arity) {
+		if (arity >= 1 && !intIndexed(arity)) // [HASLab] kept as a single symbolic range
+			return new TupleSet(universe, arity, 0L, longCapacity(arity) - 1);
 		return new TupleSet(universe, arity, 
 				                      0, ((int) Math.pow(base, arity)) - 1);
 	}
@@ -143,7 +203,8 @@ public final class TupleFactory {
 		if (!first.universe().equals(universe))
 			throw new IllegalArgumentException("first.universe != this.universe");
 
-		final TupleSet ret = new TupleSet(universe, first.arity(), first.index(), first.index());
+		final TupleSet ret = new TupleSet(universe, first.arity()); // [HASLab]
+		ret.add(first);
 		for(Tuple tuple: rest) {
 			ret.add(tuple);
 		}
@@ -192,6 +253,26 @@ public final class TupleFactory {
 		}
 	}
 	
+	/**
+	 * Returns a set of the given arity that contains all tuples whose long indices
+	 * are contained in the given long set.  Unlike {@link #setOf(int, IntSet)}, this
+	 * method accepts indices beyond the range of an int, and the returned set is not 
+	 * backed by tupleIndices.
+	 * @return {s: TupleSet | s.universe = this.universe && s.arity = arity &&
+	 *                        s.tuples = {t: Tuple | t.longIndex() in tupleIndices} }
+	 * @throws NullPointerException  tupleIndices = null
+	 * @throws IllegalArgumentException  arity < 1
+	 * @throws IllegalArgumentException  tupleIndices.max() >= this.universe.size()^arity 
+	 */
+	// [HASLab]
+	public TupleSet setOf(int arity, LongSet tupleIndices) {
+		final TupleSet ret = new TupleSet(universe, arity);
+		for(LongSet.LongIterator iter = tupleIndices.iterator(); iter.hasNext(); ) {
+			ret.add(tuple(arity, iter.next()));
+		}
+		return ret;
+	}
+	
 	/**
 	 * Returns an initially empty tuple set of the given arity, based on this.universe.
 	 * @return { s: TupleSet | s.universe = this.universe && s.arity = arity && no s.tuples }
@@ -219,6 +300,8 @@ public final class TupleFactory {
 			throw new IllegalArgumentException("from.arity!=to.arity");
 		if (!(from.universe().equals(universe)&&to.universe().equals(universe)))
 			throw new IllegalArgumentException("from.universe != this.universe || to.universe != this.universe");
+		if (!intIndexed(from.arity())) // [HASLab]
+			return new TupleSet(universe, from.arity(), from.longIndex(), to.longIndex());
 		return new TupleSet(universe, from.arity(), from.index(), to.index());
 	}
 	
@@ -262,11 +345,48 @@ public final class TupleFactory {
 	 * drawn from this.universe cannot be represented as an integer.
 	 */
 	void checkCapacity(int arity) { 
-		if (StrictMath.pow(base,arity) > Integer.MAX_VALUE) {
+		if (!intIndexed(arity)) {
 			throw new CapacityExceededException("Arity too large (" + arity + ") for a universe of size " + universe.size(), Ints.nCopies(arity, base));
 		}
 	}
 	
+	/**
+	 * Throws a CapacityExceededException if all tuples of the given arity 
+	 * drawn from this.universe cannot be represented as a long.
+	 * @throws CapacityExceededException if all tuples of the given arity 
+	 * drawn from this.universe cannot be represented as a long.
+	 */
+	// [HASLab]
+	void checkLongCapacity(int arity) { 
+		if (StrictMath.pow(base,arity) >= Long.MAX_VALUE) {
+			throw new CapacityExceededException("Arity too large (" + arity + ") for a universe of size " + universe.size(), Ints.nCopies(arity, base));
+		}
+	}
+	
+	/**
+	 * Returns true if all tuples of the given arity drawn from this.universe 
+	 * can be represented as an integer.  Tuples and tuple sets of larger arities 
+	 * are indexed by longs.
+	 * @return this.universe.size()^arity <= Integer.MAX_VALUE
+	 */
+	// [HASLab]
+	boolean intIndexed(int arity) {
+		return StrictMath.pow(base,arity) <= Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * Returns the number of tuples of the given arity drawn from this.universe.
+	 * @return this.universe.size()^arity
+	 * @throws CapacityExceededException  this.universe.size()^arity > Long.MAX_VALUE
+	 */
+	// [HASLab]
+	long longCapacity(int arity) {
+		checkLongCapacity(arity);
+		long capacity = 1;
+		for(int i = 0; i < arity; i++) capacity *= base;
+		return capacity;
+	}
+	
 	/**
 	 * Projects the tuple with the specified index and arity onto the 
 	 * specified column.    
@@ -278,6 +398,19 @@ public final class TupleFactory {
         return (tupleIndex / ((int) Math.pow(base, arity-1-column))) % base;
 	}
 	
+	/**
+	 * Projects the tuple with the specified long index and arity onto the 
+	 * specified column.    
+	 * @requires tupleIndex >= 0 && tupleIndex < this.universe.size() ^ arity
+	 * @return this.universe.index(this.tuple(arity, tupleIndex).atoms[i])
+	 */
+	// [HASLab]
+	int project(long tupleIndex, int arity, int column) {
+		if (column < 0 || column >= arity) throw new IndexOutOfBoundsException(column+"");
+		for(int i = arity-1; i > column; i--) tupleIndex /= base;
+		return (int) (tupleIndex % base);
+	}
+	
 	/**
 	 * An implementation of the Tuple interface that stores
 	 * only the tuple's arity and index, rather than the full
@@ -385,10 +518,106 @@ public final class TupleFactory {
 	    /** {@inheritDoc} */
 	    public Tuple product(Tuple tuple) {
 	    	if (!universe.equals(tuple.universe())) throw new IllegalArgumentException("tuple.universe != this.universe");
+	    	if (!intIndexed(arity + tuple.arity())) // [HASLab]
+	    		return new LongTuple(arity + tuple.arity(), index * longCapacity(tuple.arity()) + tuple.longIndex());
 	        return new IntTuple(arity + tuple.arity(), 
 	        		                index * ((int)Math.pow(base, tuple.arity())) + tuple.index());
 	    }
 	}
 	
-	
+	/**
+	 * An implementation of the Tuple interface for tuples whose index 
+	 * exceeds the range of an int, which stores only the tuple's arity 
+	 * and long index.  Parts of the sequence of atoms are computed on 
+	 * demand.
+	 * 
+	 * @specfield universe: TupleFactory.this.universe
+	 * @specfield arity: int
+	 * @specfield index: long
+	 * @invariant arity >= 1 && 0 <= index < TupleFactory.this.base^arity
+	 * @invariant TupleFactory.this.base^arity > Integer.MAX_VALUE
+	 */
+	private final class LongTuple extends Tuple {
+		private final int arity;
+		private final long index;
+		
+		/**  
+	     * Constructs a tuple with the specified arity and long index, whose 
+	     * atoms are drawn from the factory's universe.
+	     * 
+	     * @ensures this.arity' = arity && this.index' = index 
+	     * @throws IllegalArgumentException  arity < 1 || index < 0 || index >= TupleFactory.this.base^arity
+	     */
+	    LongTuple(final int arity, final long index) {
+	        if (arity < 1 || index < 0 || index >= longCapacity(arity)) {
+	            throw new IllegalArgumentException("arity < 1 || index < 0 || index >= universe.size^arity");
+	        }
+	        this.arity = arity;
+	        this.index = index;
+	    }
+	    
+	    /**  
+	     * Constructs a tuple that contains the specified sequence of atoms, drawn from the
+	     * enclosing factory's universe.
+	     * 
+	     * @requires atoms.length > 0
+	     * @ensures this.atoms' = atoms
+	     * @throws NullPointerException  atoms = null
+	     * @throws IllegalArgumentException   some a: atoms[int] | a !in universe.atoms[int]
+	     */
+	    LongTuple(final Object... atoms) {
+	        this.arity = atoms.length;
+	        checkLongCapacity(arity);
+	        long tempIndex = 0;
+	        for (int i = 0; i < arity; i++) { 
+	            tempIndex = tempIndex * base + universe.index(atoms[i]);
+	        }
+	        this.index = tempIndex;
+	    }
+	    
+	    /** {@inheritDoc} */
+	    public Universe universe() { return universe; }
+	    
+	    /** {@inheritDoc} */
+	    public int arity() { return arity; }
+	    
+	    /** 
+	     * Throws a CapacityExceededException, since the index of this tuple 
+	     * cannot be represented as an int.
+	     * @throws CapacityExceededException  universe.size^arity > Integer.MAX_VALUE 
+	     */
+	    public int index() { 
+	    	checkCapacity(arity);
+	    	throw new InternalError(); // unreachable code
+	    }
+	    
+	    /** {@inheritDoc} */
+	    public long longIndex() { return index; }
+	    
+	    /** {@inheritDoc} */
+	    public Object atom(int i) {
+	        return universe.atom(atomIndex(i));
+	    }
+	    
+	    /** {@inheritDoc} */
+	    public int atomIndex(int i) {
+	    	return project(index,arity,i);
+	    }
+	    
+	    /** {@inheritDoc} */
+	    public boolean contains(Object atom) {
+	    	final int atomIndex = universe.index(atom);
+	    	long remainder = index;
+	    	for (int i = 0; i < arity; i++, remainder /= base) {
+	    		if (remainder % base == atomIndex) return true;
+	    	}
+	    	return false;
+	    }
+
+	    /** {@inheritDoc} */
+	    public Tuple product(Tuple tuple) {
+	    	if (!universe.equals(tuple.universe())) throw new IllegalArgumentException("tuple.universe != this.universe");
+	    	return new LongTuple(arity + tuple.arity(), index * longCapacity(tuple.arity()) + tuple.longIndex());
+	    }
+	}
 }
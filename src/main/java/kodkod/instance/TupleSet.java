@@ -25,9 +25,11 @@ import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Iterator;
 
+import kodkod.engine.CapacityExceededException;
 import kodkod.util.ints.IntIterator;
 import kodkod.util.ints.IntSet;
 import kodkod.util.ints.Ints;
+import kodkod.util.ints.LongSet;
 
 
 /**
@@ -38,6 +40,13 @@ import kodkod.util.ints.Ints;
  * when passed null.  The iterator of a TupleSet returns tuples in the order of their
  * {@link kodkod.instance.Tuple#index() indeces}.  
  * 
+ * <p>Tuple sets whose capacity exceeds the range of an int store the
+ * {@link kodkod.instance.Tuple#longIndex() long indices} of their tuples
+ * instead, as ranges of consecutive indices, so that large ranges are 
+ * kept symbolic.  Such sets support all set operations, but have no 
+ * {@link #indexView() int index view}; their size may exceed the range 
+ * of an int, in which case it is given by {@link #longSize()}.</p>
+ * 
  * @specfield tuples: set Tuple
  * @specfield universe: Universe
  * @specfield arity: int
@@ -50,6 +59,9 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	private final int arity;
 	private final IntSet tuples;
 	private IntSet indexView = null;
+	// [HASLab] the long indices of the tuples, if this.tuples cannot hold them
+	private final LongSet longTuples;
+	private final boolean readOnly;
 		
 	/**
 	 * Constructs an empty tuple set for storing tuples
@@ -61,10 +73,18 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	TupleSet(Universe universe, int arity) {
 		if (arity < 1) throw new IllegalArgumentException("arity < 1");
-		universe.factory().checkCapacity(arity);
 		this.universe = universe;
 		this.arity = arity;
-		tuples = Ints.bestSet(capacity());
+		this.readOnly = false;
+		// [HASLab]
+		if (universe.factory().intIndexed(arity)) {
+			this.tuples = universe.factory().indexSet(capacity()); 
+			this.longTuples = null;
+		} else {
+			universe.factory().checkLongCapacity(arity);
+			this.tuples = null;
+			this.longTuples = new LongSet();
+		}
 	}
 	
 	/**
@@ -89,6 +109,28 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 		}
 	}
 	
+	/**
+	 * Constructs a tuple set of the given arity, over the specified universe,
+	 * which initially contains all tuples whose long indices are between 
+	 * fromIndex and toIndex, inclusive.
+	 * 
+	 * @requires universe.size()^arity > Integer.MAX_VALUE
+	 * @ensures this.universe' = universe && this.arity' = arity && 
+	 *          this.tuples' = {t: Tuple | t.universe=universe && t.arity=arity && 
+	 *                                     fromIndex()<=t.longIndex()<=toIndex() }
+	 * @throws NullPointerException  universe = null 
+	 * @throws IllegalArgumentException  arity < 1 
+	 * @throws IndexOutOfBoundsException  fromIndex !in [0..toIndex] ||
+	 *                                     toIndex !in [0..universe.size()^arity - 1]
+	 */
+	// [HASLab]
+	TupleSet(Universe universe, int arity, long fromIndex, long toIndex) {
+		this(universe,arity);
+		checkRange(toIndex, 0, longCapacity() - 1);
+		checkRange(fromIndex, 0, toIndex);
+		longTuples.addRange(fromIndex, toIndex);
+	}
+	
 	/**
 	 * Returns a set of the given arity that contains all tuples whose indeces
 	 * are contained in the given int set.  Throws an IllegalArgumentException
@@ -106,6 +148,8 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 		universe.factory().checkCapacity(arity);
 		this.universe = universe;
 		this.arity = arity;
+		this.longTuples = null; // [HASLab]
+		this.readOnly = false; // [HASLab]
 		if (!tupleIndeces.isEmpty()) {
 			if (tupleIndeces.min()<0 || tupleIndeces.max() >= capacity())
 				throw new IllegalArgumentException(tupleIndeces.min() + "<0 || " + tupleIndeces.max()+">="+universe.size()+"^"+arity);
@@ -121,29 +165,67 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 		this.universe = original.universe;
 		this.arity = original.arity;
 		try {
-			this.tuples = original.tuples.clone();
+			this.tuples = original.tuples==null ? null : original.tuples.clone();
 		} catch (CloneNotSupportedException e) {
 			throw new InternalError(); // unreachable code
 		}
 		this.indexView = null;
+		this.longTuples = original.longTuples==null ? null : original.longTuples.clone(); // [HASLab]
+		this.readOnly = false; // [HASLab]
+	}
+	
+	/**
+	 * Constructs a read-only view of the given long-indexed tuple set.
+	 * @requires original.longTuples != null
+	 * @ensures this.universe' = original.universe && this.arity' = original.arity && 
+	 *          this.longTuples' = original.longTuples && this.readOnly'
+	 */
+	// [HASLab]
+	private TupleSet(Universe universe, int arity, LongSet longTuples) {
+		this.universe = universe;
+		this.arity = arity;
+		this.tuples = null;
+		this.longTuples = longTuples;
+		this.readOnly = true;
 	}
 	
 	/**
 	 * Throws an IndexOutOfBoundsException if index is not in [min..max]
 	 */
-	private final void checkRange(int index, int min, int max) {
+	private final void checkRange(long index, long min, long max) {
 		if (index < min || index > max)
 			throw new IndexOutOfBoundsException(index + " !in " + "[" + min + ".." + max + "]");
 	}
 	
+	/**
+	 * Throws an UnsupportedOperationException if this is a read-only
+	 * view of a long-indexed set.
+	 */
+	// [HASLab]
+	private final void checkModifiable() {
+		if (readOnly) throw new UnsupportedOperationException();
+	}
+	
 	/**
 	 * Returns the capacity of this set -- the maximum number of tuples
 	 * that it can hold, given its universe and arity.  
 	 * @return this.universe.size() ^ this.arity
+	 * @throws CapacityExceededException  this.universe.size() ^ this.arity > Integer.MAX_VALUE
 	 */
 	public final int capacity() {
+		if (tuples==null) universe.factory().checkCapacity(arity); // [HASLab]
 		return (int) StrictMath.pow(universe.size(),arity);
 	}
+	
+	/**
+	 * Returns the capacity of this set as a long.  Unlike {@link #capacity()}, 
+	 * this method is defined for sets whose capacity exceeds the range of an int.
+	 * @return this.universe.size() ^ this.arity
+	 */
+	// [HASLab]
+	public final long longCapacity() {
+		return universe.factory().longCapacity(arity);
+	}
 
 	/**
 	 * Returns this.universe.
@@ -166,8 +248,10 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 * view is backed by this set, so changes to this set are
 	 * reflected in the index set. 
 	 * @return { s: IntSet | s.ints = {i: int | some t: this.tuples | t.index = i}
+	 * @throws CapacityExceededException  this.universe.size() ^ this.arity > Integer.MAX_VALUE
 	 */
 	public IntSet indexView() {
+		if (tuples==null) universe.factory().checkCapacity(arity); // [HASLab]
 		if (indexView==null) {
 			indexView = Ints.unmodifiableIntSet(tuples);
 		}
@@ -182,6 +266,7 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 * @return an unmodifiable view of the this tupleset
 	 */
 	public TupleSet unmodifiableView() {
+		if (tuples==null) return new TupleSet(universe,arity,longTuples); // [HASLab]
 		return new TupleSet(universe,arity,indexView());
 	}
 	
@@ -198,7 +283,10 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 		if (!s.universe().equals(universe))
 			throw new IllegalArgumentException("s.universe != this.universe");
 		final TupleSet ret = new TupleSet(universe, arity+s.arity());
-		if (!s.isEmpty()) {
+		if (ret.tuples==null) { // [HASLab]
+			if (!s.isEmpty()) 
+				ret.longTuples.addAll(longProduct(s));
+		} else if (!s.isEmpty()) {
 			final int mCapacity = (int) StrictMath.pow(universe.size(), s.arity);
 			for(IntIterator indeces0 = tuples.iterator(); indeces0.hasNext(); ) {
 				int i0 = mCapacity * indeces0.next();
@@ -210,6 +298,45 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 		return ret;
 	}
 	
+	/**
+	 * Returns the long indices of the cross product of this and the 
+	 * given set, keeping the ranges of this symbolic when s holds all 
+	 * tuples of its arity, and the ranges of s symbolic otherwise.
+	 * @requires s.universe = this.universe && some s.tuples
+	 * @return {l: long | some t: this.tuples->s.tuples | t.longIndex() = l}
+	 */
+	// [HASLab]
+	private LongSet longProduct(TupleSet s) {
+		final LongSet ret = new LongSet();
+		final long mCapacity = s.longCapacity();
+		final LongSet left = longIndices(), right = s.longIndices();
+		if (right.size()==mCapacity) {
+			for(int i = 0, max = left.ranges(); i < max; i++) 
+				ret.addRange(left.rangeMin(i)*mCapacity, left.rangeMax(i)*mCapacity + mCapacity - 1);
+		} else {
+			for(LongSet.LongIterator indeces0 = left.iterator(); indeces0.hasNext(); ) {
+				final long i0 = mCapacity * indeces0.next();
+				for(int i = 0, max = right.ranges(); i < max; i++) 
+					ret.addRange(i0 + right.rangeMin(i), i0 + right.rangeMax(i));
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Returns the long indices of the tuples in this set.  The returned set 
+	 * is this.longTuples, if this set is long-indexed, and a fresh set otherwise.
+	 * @return {l: long | some t: this.tuples | t.longIndex() = l}
+	 */
+	// [HASLab]
+	private LongSet longIndices() {
+		if (tuples==null) return longTuples;
+		final LongSet ret = new LongSet();
+		for(IntIterator indeces = tuples.iterator(); indeces.hasNext(); ) 
+			ret.add(indeces.next());
+		return ret;
+	}
+	
 	/**
 	 * Projects this TupleSet onto the given dimension.
 	 * @return {s: TupleSet | s.arity = 1 && s.universe = this.universe && 
@@ -222,8 +349,17 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 		}
 		final IntSet projection = Ints.bestSet(universe.size());
 		final TupleFactory factory = universe.factory();
-		for(IntIterator indexIter = tuples.iterator(); indexIter.hasNext();) {
-			projection.add(factory.project(indexIter.next(), arity, dimension));
+		if (tuples==null) { // [HASLab] the atoms at the dimension are consecutive within a range, modulo the universe size
+			final long stride = factory.longCapacity(arity-1-dimension), base = universe.size();
+			for(int i = 0, max = longTuples.ranges(); i < max && projection.size() < base; i++) {
+				final long first = longTuples.rangeMin(i) / stride, last = longTuples.rangeMax(i) / stride;
+				for(long q = first; q <= last && q - first < base; q++) 
+					projection.add((int) (q % base));
+			}
+		} else {
+			for(IntIterator indexIter = tuples.iterator(); indexIter.hasNext();) {
+				projection.add(factory.project(indexIter.next(), arity, dimension));
+			}
 		}
 		return new TupleSet(universe,1,projection);
 	}
@@ -243,6 +379,23 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public Iterator<Tuple> iterator() {
+		if (tuples==null) { // [HASLab]
+			return new Iterator<Tuple>() {
+				final LongSet.LongIterator indexIter = longTuples.iterator();
+				public boolean hasNext() {
+					return indexIter.hasNext();
+				}
+
+				public Tuple next() {
+					return universe.factory().tuple(arity, indexIter.next());
+				}
+
+				public void remove() {
+					checkModifiable();
+					indexIter.remove();
+				}
+			};
+		}
 		return new Iterator<Tuple>() {
 			IntIterator indexIter = tuples.iterator();
 			public boolean hasNext() {
@@ -272,6 +425,20 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 		return t.index();
 	}
 	
+	/**
+	 * Returns the long index of the given tuple, if the tuple has the same
+	 * arity and universe as this.  Otherwise throws an IllegalArgumentException.
+	 * @return t.longIndex
+	 * @throws IllegalArgumentException  t.arity != this.arity || t.universe != this.universe
+	 */
+	// [HASLab]
+	private final long extractLongIndex(Tuple t) {
+		if (t.arity() != arity || !t.universe().equals(universe)) {
+			throw new IllegalArgumentException("t.arity != this.arity || t.universe != this.universe");
+		}
+		return t.longIndex();
+	}
+	
 	/**
 	 * Returns true if this contains the given object.
 	 * @return o in this.tuples
@@ -279,15 +446,29 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public boolean contains(Object o) {
+		if (tuples==null) return longTuples.contains(extractLongIndex((Tuple)o)); // [HASLab]
 		return tuples.contains(extractIndex((Tuple)o));
 	}
 	
 	/**
-	 * Returns the size of this tupleset.
-	 * @return #this.tuples
+	 * Returns the size of this tupleset, or Integer.MAX_VALUE if 
+	 * this tupleset has more than Integer.MAX_VALUE tuples.
+	 * @return min(#this.tuples, Integer.MAX_VALUE)
 	 */
 	@Override
-	public int size() { return tuples.size(); }
+	public int size() { 
+		return tuples==null ? (int) StrictMath.min(longTuples.size(), Integer.MAX_VALUE) : tuples.size(); // [HASLab]
+	}
+	
+	/**
+	 * Returns the size of this tupleset as a long.  Unlike {@link #size()},
+	 * this method is exact for sets with more than Integer.MAX_VALUE tuples.
+	 * @return #this.tuples
+	 */
+	// [HASLab]
+	public long longSize() { 
+		return tuples==null ? longTuples.size() : tuples.size(); 
+	}
 	
 	/**
 	 * Removes all tuples from this tupleset.
@@ -295,7 +476,11 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public void clear() { 
-		tuples.clear(); 
+		if (tuples==null) { // [HASLab]
+			checkModifiable();
+			longTuples.clear();
+		} else
+			tuples.clear(); 
 	}
 
 	/**
@@ -308,6 +493,10 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public boolean add(Tuple t) {
+		if (tuples==null) { // [HASLab]
+			checkModifiable();
+			return longTuples.add(extractLongIndex(t));
+		}
 		return tuples.add(extractIndex(t));
 	}
 
@@ -320,6 +509,10 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public boolean remove(Object o) {
+		if (tuples==null) { // [HASLab]
+			checkModifiable();
+			return longTuples.remove(extractLongIndex((Tuple)o));
+		}
 		return tuples.remove(extractIndex((Tuple)o));
 	}
 	
@@ -342,6 +535,25 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 		return null;
 	}
 	
+	/**
+	 * If c is not a TupleSet or it is a tupleset with a universe different than
+	 * this.universe, returns null.  Otherwise, returns the long indices of the 
+	 * tuples in c. 
+	 * @requires c in TupleSet => c.arity = this.arity
+	 * @return c in TupleSet && c.universe = this.universe && c.arity = this.arity => c.longTuples, null
+	 * @throws IllegalArgumentException  this.arity!=s.arity
+	 */
+	// [HASLab]
+	private LongSet extractLongTuples(Collection<?> c) {
+		if (c instanceof TupleSet) {
+			final TupleSet s = (TupleSet) c;
+			if (arity!=s.arity())
+				throw new IllegalArgumentException("this.arity!=c.arity");
+			return universe.equals(s.universe()) ? s.longTuples : null;
+		}
+		return null;
+	}
+	
 	/**
 	 * Returns true if this contains all tuples from c.  Otherwise returns false.
 	 * @return c.elements in this.tuples
@@ -349,6 +561,10 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public boolean containsAll(Collection<?> c) { 
+		if (tuples==null) { // [HASLab]
+			final LongSet cTuples = extractLongTuples(c);
+			return cTuples==null ? super.containsAll(c) : longTuples.containsAll(cTuples);
+		}
 		final IntSet cTuples = extractTuples(c);
 		return cTuples==null ? super.containsAll(c) : tuples.containsAll(cTuples);
 	}
@@ -362,6 +578,11 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public boolean addAll(Collection<? extends Tuple> c) {
+		if (tuples==null) { // [HASLab]
+			checkModifiable();
+			final LongSet cTuples = extractLongTuples(c);
+			return cTuples==null ? super.addAll(c) : longTuples.addAll(cTuples);
+		}
 		final IntSet cTuples = extractTuples(c);
 		return cTuples==null ? super.addAll(c) : tuples.addAll(cTuples);
 	}
@@ -375,6 +596,11 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public boolean removeAll(Collection<?> c) {
+		if (tuples==null) { // [HASLab]
+			checkModifiable();
+			final LongSet cTuples = extractLongTuples(c);
+			return cTuples==null ? super.removeAll(c) : longTuples.removeAll(cTuples);
+		}
 		final IntSet cTuples = extractTuples(c);
 		return cTuples==null ? super.removeAll(c) : tuples.removeAll(cTuples);
 	}
@@ -388,6 +614,11 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public boolean retainAll(Collection<?> c) {
+		if (tuples==null) { // [HASLab]
+			checkModifiable();
+			final LongSet cTuples = extractLongTuples(c);
+			return cTuples==null ? super.retainAll(c) : longTuples.retainAll(cTuples);
+		}
 		final IntSet cTuples = extractTuples(c);
 		return cTuples==null ? super.retainAll(c) : tuples.retainAll(cTuples);
 	}
@@ -402,6 +633,8 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 		if (this==o) return true;
 		if (o instanceof TupleSet) {
 			final TupleSet s = (TupleSet) o;
+			if (arity==s.arity && universe.equals(s.universe) && tuples==null) 
+				return longTuples.equals(s.longTuples); // [HASLab]
 			return arity==s.arity && universe.equals(s.universe) && 
 			       tuples.equals(s.tuples);
 		}
@@ -413,6 +646,6 @@ public final class TupleSet extends AbstractSet<Tuple> implements Cloneable {
 	 */
 	@Override
 	public int hashCode() { 
-		return tuples.hashCode();
+		return tuples==null ? longTuples.hashCode() : tuples.hashCode();
 	}
 }
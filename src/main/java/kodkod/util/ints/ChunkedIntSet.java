@@ -0,0 +1,895 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.util.ints;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An implementation of the IntSet interface that splits the integers into 
+ * chunks of 2^16 consecutive values, each stored in the most compact of three 
+ * containers: a sorted array, for sparse chunks; a bit map, for dense ones; 
+ * or a list of ranges, for chunks made of a few runs of consecutive values.  
+ * Bulk operations between two chunked sets are performed chunk by chunk, 
+ * and clones share their containers with the original set until either is 
+ * modified.  A chunked set performs better than a tree or bit set when storing 
+ * large sets that mix sparse and dense regions, such as the bounds of 
+ * relations of high arity over large universes.
+ * @specfield ints: set int
+ */
+public final class ChunkedIntSet extends AbstractIntSet implements Cloneable {
+	/* The chunks of this set, sorted by key.  The ith chunk stores the elements 
+	 * (keys[i] << 16) | l for every l in containers[i], and may only be modified 
+	 * in place if owned[i] holds, as it may be shared with other sets otherwise. */
+	private int[] keys;
+	private Container[] containers;
+	private boolean[] owned;
+	private int chunks, size;
+	
+	/**
+	 * Constructs an empty chunked set.
+	 * @ensures no this.ints'
+	 */
+	public ChunkedIntSet() {
+		keys = new int[4];
+		containers = new Container[4];
+		owned = new boolean[4];
+	}
+	
+	/**
+	 * Constructs a chunked set with the same elements as the given collection.
+	 * @ensures this.ints' = c.ints
+	 */
+	public ChunkedIntSet(IntCollection c) {
+		this();
+		addAll(c);
+	}
+	
+	/** @return the key of the chunk that stores i */
+	private static int key(int i) { return i >> 16; }
+	
+	/** @return the position of i within its chunk */
+	private static int low(int i) { return i & 0xFFFF; }
+	
+	/** @return the element at the given position of the chunk with the given key */
+	private static int value(int key, int low) { return (key << 16) | low; }
+	
+	/**
+	 * Returns the index of the chunk with the given key, if any; otherwise 
+	 * returns -(insertion point)-1.
+	 */
+	private int chunk(int key) {
+		return Arrays.binarySearch(keys, 0, chunks, key);
+	}
+	
+	/**
+	 * Returns the container of the ith chunk, copying it first if it is shared.
+	 * @ensures owned'[i]
+	 * @return containers'[i]
+	 */
+	private Container writable(int i) {
+		if (!owned[i]) {
+			containers[i] = containers[i].clone();
+			owned[i] = true;
+		}
+		return containers[i];
+	}
+	
+	/**
+	 * Inserts a chunk with the given key and container at the given index.
+	 */
+	private void insert(int index, int key, Container c, boolean own) {
+		if (chunks == keys.length) {
+			final int capacity = chunks * 2;
+			keys = Arrays.copyOf(keys, capacity);
+			containers = Arrays.copyOf(containers, capacity);
+			owned = Arrays.copyOf(owned, capacity);
+		}
+		System.arraycopy(keys, index, keys, index+1, chunks-index);
+		System.arraycopy(containers, index, containers, index+1, chunks-index);
+		System.arraycopy(owned, index, owned, index+1, chunks-index);
+		keys[index] = key;
+		containers[index] = c;
+		owned[index] = own;
+		chunks++;
+	}
+	
+	/**
+	 * Deletes the chunk at the given index.
+	 */
+	private void delete(int index) {
+		chunks--;
+		System.arraycopy(keys, index+1, keys, index, chunks-index);
+		System.arraycopy(containers, index+1, containers, index, chunks-index);
+		System.arraycopy(owned, index+1, owned, index, chunks-index);
+		containers[chunks] = null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#size()
+	 */
+	public int size() { return size; }
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntCollection#isEmpty()
+	 */
+	@Override
+	public boolean isEmpty() { return size==0; }
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#contains(int)
+	 */
+	@Override
+	public boolean contains(int i) {
+		final int index = chunk(key(i));
+		return index >= 0 && containers[index].contains(low(i));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#add(int)
+	 */
+	@Override
+	public boolean add(int i) {
+		final int key = key(i);
+		int index = chunk(key);
+		if (index < 0) {
+			index = -index-1;
+			insert(index, key, new ArrayContainer(), true);
+		} else if (containers[index].contains(low(i))) {
+			return false;
+		}
+		final Container c = writable(index);
+		final int before = c.size();
+		containers[index] = c.add(low(i));
+		if (containers[index].size() != before) {
+			size++;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#remove(int)
+	 */
+	@Override
+	public boolean remove(int i) {
+		final int index = chunk(key(i));
+		if (index < 0 || !containers[index].contains(low(i))) 
+			return false;
+		final Container c = writable(index).remove(low(i));
+		if (c.size()==0) 
+			delete(index);
+		else 
+			containers[index] = c;
+		size--;
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#min()
+	 */
+	@Override
+	public int min() {
+		checkNonEmpty();
+		return value(keys[0], containers[0].min());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#max()
+	 */
+	@Override
+	public int max() {
+		checkNonEmpty();
+		return value(keys[chunks-1], containers[chunks-1].max());
+	}
+	
+	/**
+	 * Returns the smallest element in this set that is greater than 
+	 * or equal to i, or Long.MAX_VALUE if there is none.
+	 */
+	private long ceiling(int i) {
+		int index = chunk(key(i));
+		if (index >= 0) {
+			final int l = containers[index].ceil(low(i));
+			if (l >= 0) return value(keys[index], l);
+			index++;
+		} else {
+			index = -index-1;
+		}
+		return index < chunks ? value(keys[index], containers[index].min()) : Long.MAX_VALUE;
+	}
+	
+	/**
+	 * Returns the largest element in this set that is less than 
+	 * or equal to i, or Long.MIN_VALUE if there is none.
+	 */
+	private long flooring(int i) {
+		int index = chunk(key(i));
+		if (index >= 0) {
+			final int l = containers[index].floor(low(i));
+			if (l >= 0) return value(keys[index], l);
+		} else {
+			index = -index-1;
+		}
+		index--;
+		return index >= 0 ? value(keys[index], containers[index].max()) : Long.MIN_VALUE;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#ceil(int)
+	 */
+	public int ceil(int i) {
+		final long ret = ceiling(i);
+		if (ret == Long.MAX_VALUE) throw new NoSuchElementException();
+		return (int) ret;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#floor(int)
+	 */
+	public int floor(int i) {
+		final long ret = flooring(i);
+		if (ret == Long.MIN_VALUE) throw new NoSuchElementException();
+		return (int) ret;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#iterator(int, int)
+	 */
+	public IntIterator iterator(int from, int to) {
+		return from > to ? new DescendingIterator(from, to) : new AscendingIterator(from, to);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#containsAll(kodkod.util.ints.IntCollection)
+	 */
+	@Override
+	public boolean containsAll(IntCollection other) {
+		if (other instanceof ChunkedIntSet) {
+			final ChunkedIntSet s = (ChunkedIntSet) other;
+			if (s.size > size) return false;
+			for(int j = 0; j < s.chunks; j++) {
+				final int index = chunk(s.keys[j]);
+				if (index < 0) return false;
+				final Container sc = s.containers[j];
+				if (sc.size() > containers[index].size() || 
+					Container.and(sc, containers[index]).size() != sc.size()) 
+					return false;
+			}
+			return true;
+		}
+		return super.containsAll(other);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#addAll(kodkod.util.ints.IntCollection)
+	 */
+	@Override
+	public boolean addAll(IntCollection other) {
+		if (other instanceof ChunkedIntSet) {
+			final ChunkedIntSet s = (ChunkedIntSet) other;
+			final int oldSize = size;
+			for(int j = 0; j < s.chunks; j++) {
+				final int index = chunk(s.keys[j]);
+				if (index < 0) { // share the other container
+					s.owned[j] = false;
+					insert(-index-1, s.keys[j], s.containers[j], false);
+					size += s.containers[j].size();
+				} else {
+					final Container c = Container.or(containers[index], s.containers[j]);
+					size += c.size() - containers[index].size();
+					containers[index] = c;
+					owned[index] = true;
+				}
+			}
+			return size != oldSize;
+		}
+		return super.addAll(other);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#retainAll(kodkod.util.ints.IntCollection)
+	 */
+	@Override
+	public boolean retainAll(IntCollection other) {
+		if (other instanceof ChunkedIntSet) {
+			final ChunkedIntSet s = (ChunkedIntSet) other;
+			final int oldSize = size;
+			for(int i = chunks-1; i >= 0; i--) {
+				final int j = s.chunk(keys[i]);
+				final Container c = j < 0 ? null : Container.and(containers[i], s.containers[j]);
+				size -= containers[i].size() - (c==null ? 0 : c.size());
+				if (c==null || c.size()==0) {
+					delete(i);
+				} else if (c.size() != containers[i].size()) {
+					containers[i] = c;
+					owned[i] = true;
+				}
+			}
+			return size != oldSize;
+		}
+		return super.retainAll(other);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntSet#removeAll(kodkod.util.ints.IntCollection)
+	 */
+	@Override
+	public boolean removeAll(IntCollection other) {
+		if (other instanceof ChunkedIntSet) {
+			final ChunkedIntSet s = (ChunkedIntSet) other;
+			final int oldSize = size;
+			for(int i = chunks-1; i >= 0; i--) {
+				final int j = s.chunk(keys[i]);
+				if (j < 0) continue;
+				final Container c = Container.andNot(containers[i], s.containers[j]);
+				size -= containers[i].size() - c.size();
+				if (c.size()==0) {
+					delete(i);
+				} else if (c.size() != containers[i].size()) {
+					containers[i] = c;
+					owned[i] = true;
+				}
+			}
+			return size != oldSize;
+		}
+		return super.removeAll(other);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see kodkod.util.ints.IntCollection#clear()
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(containers, 0, chunks, null);
+		chunks = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Returns a copy of this chunked set.  The copy is independent of this 
+	 * set, although both share their containers until either is modified.
+	 * @return a copy of this IntSet.
+	 * @see kodkod.util.ints.IntSet#clone()
+	 */
+	@Override
+	public ChunkedIntSet clone() {
+		try {
+			final ChunkedIntSet ret = (ChunkedIntSet) super.clone();
+			ret.keys = keys.clone();
+			ret.containers = containers.clone();
+			Arrays.fill(owned, 0, chunks, false);
+			ret.owned = owned.clone();
+			return ret;
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError(); // unreachable code
+		}
+	}
+	
+	/**
+	 * An ascending iterator over (a subset of) this set.
+	 */
+	private final class AscendingIterator implements IntIterator {
+		private final int to;
+		private long cursor;
+		private int next;
+		private boolean ready, removable;
+		
+		/**
+		 * Constructs an ascending iterator that returns elements between
+		 * from and to.  
+		 * @requires from <= to 
+		 */
+		AscendingIterator(int from, int to) {
+			this.cursor = from;
+			this.to = to;
+		}
+		
+		public boolean hasNext() {
+			if (!ready && cursor <= to) {
+				final long c = ceiling((int) cursor);
+				if (c <= to) {
+					next = (int) c;
+					ready = true;
+				} else {
+					cursor = (long) to + 1;
+				}
+			}
+			return ready;
+		}
+		
+		public int next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			ready = false;
+			removable = true;
+			cursor = (long) next + 1;
+			return next;
+		}
+		
+		public void remove() {
+			if (!removable) throw new IllegalStateException();
+			ChunkedIntSet.this.remove((int) (cursor - 1));
+			removable = false;
+		}
+	}
+	
+	/**
+	 * A descending iterator over (a subset of) this set.
+	 */
+	private final class DescendingIterator implements IntIterator {
+		private final int to;
+		private long cursor;
+		private int next;
+		private boolean ready, removable;
+		
+		/**
+		 * Constructs a descending iterator that returns elements between
+		 * from and to.  
+		 * @requires from >= to 
+		 */
+		DescendingIterator(int from, int to) {
+			this.cursor = from;
+			this.to = to;
+		}
+		
+		public boolean hasNext() {
+			if (!ready && cursor >= to) {
+				final long c = flooring((int) cursor);
+				if (c >= to) {
+					next = (int) c;
+					ready = true;
+				} else {
+					cursor = (long) to - 1;
+				}
+			}
+			return ready;
+		}
+		
+		public int next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			ready = false;
+			removable = true;
+			cursor = (long) next - 1;
+			return next;
+		}
+		
+		public void remove() {
+			if (!removable) throw new IllegalStateException();
+			ChunkedIntSet.this.remove((int) (cursor + 1));
+			removable = false;
+		}
+	}
+	
+	/**
+	 * Stores the positions, in [0..2^16), of the elements of a chunk.  Mutators 
+	 * return the container that stores the result, which is either this or a 
+	 * more compact one.
+	 */
+	private static abstract class Container implements Cloneable {
+		/** The largest number of elements stored in an array container. */
+		static final int ARRAY_MAX = 4096;
+		/** The number of words of a bit map container. */
+		static final int WORDS = 1024;
+		/** The largest number of runs stored in a run container. */
+		static final int RUNS_MAX = 1024;
+		
+		abstract int size();
+		abstract boolean contains(int l);
+		abstract Container add(int l);
+		abstract Container remove(int l);
+		abstract int min();
+		abstract int max();
+		/** @return the smallest element >= l, or -1 if none */
+		abstract int ceil(int l);
+		/** @return the largest element <= l, or -1 if none */
+		abstract int floor(int l);
+		/** Sets the bits of the given bit map that represent the elements of this. */
+		abstract void orInto(long[] words);
+		
+		/** @return a fresh bit map with the elements of this */
+		final long[] words() {
+			final long[] words = new long[WORDS];
+			orInto(words);
+			return words;
+		}
+		
+		@Override
+		protected Container clone() {
+			try {
+				return (Container) super.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new InternalError(); // unreachable code
+			}
+		}
+		
+		/**
+		 * Returns the most compact container for the elements in the given bit map.
+		 */
+		static Container best(long[] words) {
+			int card = 0, runs = 0;
+			long carry = 0;
+			for(long w : words) {
+				card += Long.bitCount(w);
+				runs += Long.bitCount(w & ~((w << 1) | carry));
+				carry = w >>> 63;
+			}
+			if (runs <= RUNS_MAX && runs * 2 < card && (card > ARRAY_MAX || runs * 4 < card)) {
+				return new RunContainer(words, runs, card);
+			} else if (card <= ARRAY_MAX) {
+				return new ArrayContainer(words, card);
+			} else {
+				return new BitmapContainer(words, card);
+			}
+		}
+		
+		/** @return a container with the union of the elements of a and b */
+		static Container or(Container a, Container b) {
+			final long[] words = a.words();
+			b.orInto(words);
+			return best(words);
+		}
+		
+		/** @return a container with the intersection of the elements of a and b */
+		static Container and(Container a, Container b) {
+			if (b instanceof ArrayContainer) {
+				final Container tmp = a; a = b; b = tmp;
+			}
+			if (a instanceof ArrayContainer) {
+				final ArrayContainer arr = (ArrayContainer) a;
+				final ArrayContainer ret = new ArrayContainer(arr.n);
+				for(int i = 0; i < arr.n; i++) {
+					if (b.contains(arr.values[i]))
+						ret.values[ret.n++] = arr.values[i];
+				}
+				return ret;
+			}
+			final long[] words = a.words(), other = b.words();
+			for(int i = 0; i < WORDS; i++) 
+				words[i] &= other[i];
+			return best(words);
+		}
+		
+		/** @return a container with the elements of a that are not in b */
+		static Container andNot(Container a, Container b) {
+			if (a instanceof ArrayContainer) {
+				final ArrayContainer arr = (ArrayContainer) a;
+				final ArrayContainer ret = new ArrayContainer(arr.n);
+				for(int i = 0; i < arr.n; i++) {
+					if (!b.contains(arr.values[i]))
+						ret.values[ret.n++] = arr.values[i];
+				}
+				return ret;
+			}
+			final long[] words = a.words(), other = b.words();
+			for(int i = 0; i < WORDS; i++) 
+				words[i] &= ~other[i];
+			return best(words);
+		}
+	}
+	
+	/**
+	 * A container that stores the elements of a sparse chunk in a sorted array.
+	 */
+	private static final class ArrayContainer extends Container {
+		private char[] values;
+		private int n;
+		
+		ArrayContainer() { this(16); }
+		
+		ArrayContainer(int capacity) { values = new char[StrictMath.max(16, capacity)]; }
+		
+		ArrayContainer(long[] words, int card) {
+			values = new char[StrictMath.max(16, card)];
+			for(int w = 0; w < WORDS; w++) {
+				for(long word = words[w]; word != 0; word &= word - 1) 
+					values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+			}
+		}
+		
+		private int search(int l) { return Arrays.binarySearch(values, 0, n, (char) l); }
+		
+		int size() { return n; }
+		boolean contains(int l) { return search(l) >= 0; }
+		
+		Container add(int l) {
+			int i = search(l);
+			if (i >= 0) return this;
+			if (n == ARRAY_MAX) {
+				final long[] words = words();
+				words[l >>> 6] |= 1L << l;
+				return best(words);
+			}
+			i = -i-1;
+			if (n == values.length) 
+				values = Arrays.copyOf(values, StrictMath.min(ARRAY_MAX, n * 2));
+			System.arraycopy(values, i, values, i+1, n-i);
+			values[i] = (char) l;
+			n++;
+			return this;
+		}
+		
+		Container remove(int l) {
+			final int i = search(l);
+			if (i >= 0) {
+				System.arraycopy(values, i+1, values, i, n-i-1);
+				n--;
+			}
+			return this;
+		}
+		
+		int min() { return values[0]; }
+		int max() { return values[n-1]; }
+		
+		int ceil(int l) {
+			int i = search(l);
+			if (i >= 0) return l;
+			i = -i-1;
+			return i < n ? values[i] : -1;
+		}
+		
+		int floor(int l) {
+			int i = search(l);
+			if (i >= 0) return l;
+			i = -i-2;
+			return i >= 0 ? values[i] : -1;
+		}
+		
+		void orInto(long[] words) {
+			for(int i = 0; i < n; i++) 
+				words[values[i] >>> 6] |= 1L << values[i];
+		}
+		
+		@Override
+		protected Container clone() {
+			final ArrayContainer ret = (ArrayContainer) super.clone();
+			ret.values = values.clone();
+			return ret;
+		}
+	}
+	
+	/**
+	 * A container that stores the elements of a dense chunk in a bit map.
+	 */
+	private static final class BitmapContainer extends Container {
+		private long[] words;
+		private int card;
+		
+		BitmapContainer(long[] words, int card) {
+			this.words = words;
+			this.card = card;
+		}
+		
+		int size() { return card; }
+		boolean contains(int l) { return (words[l >>> 6] & (1L << l)) != 0; }
+		
+		Container add(int l) {
+			final long old = words[l >>> 6];
+			words[l >>> 6] |= 1L << l;
+			if (words[l >>> 6] != old) card++;
+			return this;
+		}
+		
+		Container remove(int l) {
+			final long old = words[l >>> 6];
+			words[l >>> 6] &= ~(1L << l);
+			if (words[l >>> 6] != old) {
+				card--;
+				if (card <= ARRAY_MAX) 
+					return new ArrayContainer(words, card);
+			}
+			return this;
+		}
+		
+		int min() { return ceil(0); }
+		int max() { return floor(0xFFFF); }
+		
+		int ceil(int l) {
+			int w = l >>> 6;
+			long word = words[w] & (-1L << l);
+			while(word == 0) {
+				if (++w == WORDS) return -1;
+				word = words[w];
+			}
+			return (w << 6) + Long.numberOfTrailingZeros(word);
+		}
+		
+		int floor(int l) {
+			int w = l >>> 6;
+			long word = words[w] & (-1L >>> (63 - (l & 63)));
+			while(word == 0) {
+				if (--w < 0) return -1;
+				word = words[w];
+			}
+			return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+		}
+		
+		void orInto(long[] other) {
+			for(int i = 0; i < WORDS; i++) 
+				other[i] |= words[i];
+		}
+		
+		@Override
+		protected Container clone() {
+			final BitmapContainer ret = (BitmapContainer) super.clone();
+			ret.words = words.clone();
+			return ret;
+		}
+	}
+	
+	/**
+	 * A container that stores the elements of a chunk as a sorted list of 
+	 * disjoint, non-adjacent ranges.
+	 */
+	private static final class RunContainer extends Container {
+		/* the ith run is [runs[2*i]..runs[2*i+1]] */
+		private int[] runs;
+		private int n, card;
+		
+		RunContainer(long[] words, int count, int card) {
+			this.runs = new int[StrictMath.max(8, count * 2)];
+			this.card = card;
+			int start = -1;
+			for(int l = 0; l <= 0xFFFF; l++) {
+				final boolean in = (words[l >>> 6] & (1L << l)) != 0;
+				if (in && start < 0) {
+					start = l;
+				} else if (!in && start >= 0) {
+					runs[2*n] = start;
+					runs[2*n+1] = l - 1;
+					n++;
+					start = -1;
+				}
+			}
+			if (start >= 0) {
+				runs[2*n] = start;
+				runs[2*n+1] = 0xFFFF;
+				n++;
+			}
+		}
+		
+		/** @return the index of the last run that starts at or before l, or -1 if none */
+		private int search(int l) {
+			int lo = 0, hi = n - 1;
+			while(lo <= hi) {
+				final int mid = (lo + hi) >>> 1;
+				if (runs[2*mid] <= l) lo = mid + 1;
+				else hi = mid - 1;
+			}
+			return hi;
+		}
+		
+		/** Inserts the run [start..end] at the given index. */
+		private void insert(int i, int start, int end) {
+			if (2 * n == runs.length) 
+				runs = Arrays.copyOf(runs, runs.length * 2);
+			System.arraycopy(runs, 2*i, runs, 2*i+2, 2*(n-i));
+			runs[2*i] = start;
+			runs[2*i+1] = end;
+			n++;
+		}
+		
+		/** Deletes the run at the given index. */
+		private void delete(int i) {
+			System.arraycopy(runs, 2*i+2, runs, 2*i, 2*(n-i-1));
+			n--;
+		}
+		
+		int size() { return card; }
+		
+		boolean contains(int l) {
+			final int i = search(l);
+			return i >= 0 && l <= runs[2*i+1];
+		}
+		
+		Container add(int l) {
+			final int i = search(l);
+			if (i >= 0 && l <= runs[2*i+1]) return this;
+			card++;
+			final boolean extendsPrev = i >= 0 && runs[2*i+1] == l - 1;
+			final boolean extendsNext = i + 1 < n && runs[2*i+2] == l + 1;
+			if (extendsPrev && extendsNext) {
+				runs[2*i+1] = runs[2*i+3];
+				delete(i+1);
+			} else if (extendsPrev) {
+				runs[2*i+1] = l;
+			} else if (extendsNext) {
+				runs[2*i+2] = l;
+			} else {
+				insert(i+1, l, l);
+				if (n > RUNS_MAX) return best(words());
+			}
+			return this;
+		}
+		
+		Container remove(int l) {
+			final int i = search(l);
+			if (i < 0 || l > runs[2*i+1]) return this;
+			card--;
+			final int start = runs[2*i], end = runs[2*i+1];
+			if (start == end) {
+				delete(i);
+			} else if (l == start) {
+				runs[2*i] = l + 1;
+			} else if (l == end) {
+				runs[2*i+1] = l - 1;
+			} else {
+				runs[2*i+1] = l - 1;
+				insert(i+1, l + 1, end);
+				if (n > RUNS_MAX) return best(words());
+			}
+			return this;
+		}
+		
+		int min() { return runs[0]; }
+		int max() { return runs[2*n-1]; }
+		
+		int ceil(int l) {
+			final int i = search(l);
+			if (i >= 0 && l <= runs[2*i+1]) return l;
+			return i + 1 < n ? runs[2*i+2] : -1;
+		}
+		
+		int floor(int l) {
+			final int i = search(l);
+			if (i < 0) return -1;
+			return StrictMath.min(l, runs[2*i+1]);
+		}
+		
+		void orInto(long[] words) {
+			for(int i = 0; i < n; i++) {
+				final int start = runs[2*i], end = runs[2*i+1];
+				final int first = start >>> 6, last = end >>> 6;
+				if (first == last) {
+					words[first] |= (-1L << start) & (-1L >>> (63 - (end & 63)));
+				} else {
+					words[first] |= -1L << start;
+					for(int w = first + 1; w < last; w++) 
+						words[w] = -1L;
+					words[last] |= -1L >>> (63 - (end & 63));
+				}
+			}
+		}
+		
+		@Override
+		protected Container clone() {
+			final RunContainer ret = (RunContainer) super.clone();
+			ret.runs = runs.clone();
+			return ret;
+		}
+	}
+}
@@ -0,0 +1,490 @@
+/*
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.util.ints;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * A mutable set of longs, stored as a sorted array of disjoint, non-adjacent
+ * ranges.  A range of consecutive longs takes constant space regardless of
+ * its length, so the set of all tuples of a large arity can be represented
+ * without enumerating them.  Membership tests take time logarithmic in the
+ * number of ranges, and insertions and removals take time linear in the
+ * number of larger ranges, so that sets filled in ascending order, as is
+ * the case with the products of tuple sets, are built in linear time.  Bulk
+ * operations between two long sets are performed by merging their ranges.
+ * Long sets are used to store the indices of tuple sets whose capacity
+ * exceeds the range of an int.
+ * @specfield longs: set long
+ * @invariant all l: longs | l >= 0
+ */
+public final class LongSet implements Cloneable {
+	/* ranges[2i] and ranges[2i+1] are the inclusive bounds of the ith range */
+	private long[] ranges;
+	private int count;
+	private long size;
+	private int modCount;
+
+	/**
+	 * Constructs an empty long set.
+	 * @ensures no this.longs'
+	 */
+	public LongSet() {
+		this.ranges = new long[8];
+		this.count = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the number of elements in this set.
+	 * @return #this.longs
+	 */
+	public long size() { return size; }
+
+	/**
+	 * Returns true if this set is empty.
+	 * @return no this.longs
+	 */
+	public boolean isEmpty() { return count==0; }
+
+	/**
+	 * Returns the number of maximal ranges of consecutive longs in this set.
+	 * @return #{ r: [0..count) | ... } the number of maximal ranges in this.longs
+	 */
+	public int ranges() { return count; }
+
+	/**
+	 * Returns the smallest element in the ith range of this set.
+	 * @return min of the ith maximal range in this.longs
+	 * @throws IndexOutOfBoundsException  i !in [0..this.ranges())
+	 */
+	public long rangeMin(int i) {
+		if (i < 0 || i >= count) throw new IndexOutOfBoundsException();
+		return ranges[2*i];
+	}
+
+	/**
+	 * Returns the largest element in the ith range of this set.
+	 * @return max of the ith maximal range in this.longs
+	 * @throws IndexOutOfBoundsException  i !in [0..this.ranges())
+	 */
+	public long rangeMax(int i) {
+		if (i < 0 || i >= count) throw new IndexOutOfBoundsException();
+		return ranges[2*i+1];
+	}
+
+	/**
+	 * Returns the smallest element in this set.
+	 * @return min(this.longs)
+	 * @throws NoSuchElementException  no this.longs
+	 */
+	public long min() {
+		if (count==0) throw new NoSuchElementException();
+		return ranges[0];
+	}
+
+	/**
+	 * Returns the largest element in this set.
+	 * @return max(this.longs)
+	 * @throws NoSuchElementException  no this.longs
+	 */
+	public long max() {
+		if (count==0) throw new NoSuchElementException();
+		return ranges[2*count-1];
+	}
+
+	/**
+	 * Returns the position of the first range whose upper bound is
+	 * greater than or equal to l, or this.count if there is no such range.
+	 */
+	private int ceilRange(long l) {
+		int lo = 0, hi = count;
+		while(lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (ranges[2*mid+1] < l) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns true if the given long is in this set.
+	 * @return l in this.longs
+	 */
+	public boolean contains(long l) {
+		final int pos = ceilRange(l);
+		return pos < count && ranges[2*pos] <= l;
+	}
+
+	/**
+	 * Adds the given long to this set, if not already present.
+	 * @ensures this.longs' = this.longs + l
+	 * @return l !in this.longs
+	 */
+	public boolean add(long l) {
+		return addRange(l, l);
+	}
+
+	/**
+	 * Adds all longs between from and to, inclusive, to this set.
+	 * @requires 0 <= from <= to
+	 * @ensures this.longs' = this.longs + [from..to]
+	 * @return [from..to] !in this.longs
+	 * @throws IllegalArgumentException  from < 0 || from > to
+	 */
+	public boolean addRange(long from, long to) {
+		if (from < 0 || from > to) throw new IllegalArgumentException(from + " > " + to);
+		if (count==0 || ranges[2*count-1] < from - 1) {
+			ensureCapacity(count+1);
+			ranges[2*count] = from;
+			ranges[2*count+1] = to;
+			count++;
+			size += to - from + 1;
+			modCount++;
+			return true;
+		}
+		// the ranges in [first..last) overlap or touch [from..to]
+		final int first = ceilRange(from - 1);
+		int last = first;
+		while(last < count && ranges[2*last] <= to + 1) last++;
+		if (last==first+1 && ranges[2*first] <= from && to <= ranges[2*first+1])
+			return false;
+		long lo = from, hi = to, removed = 0;
+		if (last > first) {
+			lo = StrictMath.min(lo, ranges[2*first]);
+			hi = StrictMath.max(hi, ranges[2*last-1]);
+			for(int i = first; i < last; i++)
+				removed += ranges[2*i+1] - ranges[2*i] + 1;
+		}
+		replace(first, last, lo, hi);
+		size += (hi - lo + 1) - removed;
+		return true;
+	}
+
+	/**
+	 * Removes the given long from this set, if present.
+	 * @ensures this.longs' = this.longs - l
+	 * @return l in this.longs
+	 */
+	public boolean remove(long l) {
+		final int pos = ceilRange(l);
+		if (pos==count || ranges[2*pos] > l) return false;
+		final long lo = ranges[2*pos], hi = ranges[2*pos+1];
+		if (lo==hi) {
+			replace(pos, pos+1);
+		} else if (lo==l) {
+			ranges[2*pos] = l + 1;
+			modCount++;
+		} else if (hi==l) {
+			ranges[2*pos+1] = l - 1;
+			modCount++;
+		} else {
+			replace(pos, pos+1, lo, l - 1, l + 1, hi);
+		}
+		size--;
+		return true;
+	}
+
+	/**
+	 * Replaces the ranges in [first..last) of this set with the given
+	 * ranges, and updates the modification count.  Does not update the size.
+	 */
+	private void replace(int first, int last, long... bounds) {
+		final int added = bounds.length/2, shift = added - (last - first);
+		ensureCapacity(count + shift);
+		System.arraycopy(ranges, 2*last, ranges, 2*(last+shift), 2*(count-last));
+		System.arraycopy(bounds, 0, ranges, 2*first, bounds.length);
+		count += shift;
+		modCount++;
+	}
+
+	/**
+	 * Removes all elements from this set.
+	 * @ensures no this.longs'
+	 */
+	public void clear() {
+		count = 0;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Returns true if this set contains all elements of the given set.
+	 * @return s.longs in this.longs
+	 */
+	public boolean containsAll(LongSet s) {
+		if (s.size > size) return false;
+		for(int i = 0, j = 0; j < s.count; j++) {
+			while(i < count && ranges[2*i+1] < s.ranges[2*j+1]) i++;
+			if (i==count || ranges[2*i] > s.ranges[2*j]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds all elements of the given set to this set.
+	 * @ensures this.longs' = this.longs + s.longs
+	 * @return this.longs' != this.longs
+	 */
+	public boolean addAll(LongSet s) {
+		if (s.count==0) return false;
+		final long[] merged = new long[2*(count + s.count)];
+		int i = 0, j = 0, k = 0;
+		long total = 0;
+		while(i < count || j < s.count) {
+			final long lo, hi;
+			if (j==s.count || (i < count && ranges[2*i] <= s.ranges[2*j])) {
+				lo = ranges[2*i]; hi = ranges[2*i+1]; i++;
+			} else {
+				lo = s.ranges[2*j]; hi = s.ranges[2*j+1]; j++;
+			}
+			if (k > 0 && lo <= merged[2*k-1] + 1) {
+				if (hi > merged[2*k-1]) {
+					total += hi - merged[2*k-1];
+					merged[2*k-1] = hi;
+				}
+			} else {
+				merged[2*k] = lo;
+				merged[2*k+1] = hi;
+				total += hi - lo + 1;
+				k++;
+			}
+		}
+		final boolean changed = total != size;
+		ranges = merged;
+		count = k;
+		size = total;
+		modCount++;
+		return changed;
+	}
+
+	/**
+	 * Removes all elements of the given set from this set.
+	 * @ensures this.longs' = this.longs - s.longs
+	 * @return this.longs' != this.longs
+	 */
+	public boolean removeAll(LongSet s) {
+		if (s.count==0 || count==0) return false;
+		final long[] result = new long[2*(count + s.count)];
+		int k = 0;
+		long total = 0;
+		for(int i = 0, j = 0; i < count; i++) {
+			long lo = ranges[2*i];
+			final long hi = ranges[2*i+1];
+			while(j < s.count && s.ranges[2*j+1] < lo) j++;
+			for(int m = j; m < s.count && s.ranges[2*m] <= hi && lo <= hi; m++) {
+				if (s.ranges[2*m] > lo) {
+					result[2*k] = lo;
+					result[2*k+1] = s.ranges[2*m] - 1;
+					total += s.ranges[2*m] - lo;
+					k++;
+				}
+				lo = s.ranges[2*m+1] + 1;
+			}
+			if (lo <= hi) {
+				result[2*k] = lo;
+				result[2*k+1] = hi;
+				total += hi - lo + 1;
+				k++;
+			}
+		}
+		return update(result, k, total);
+	}
+
+	/**
+	 * Removes all elements from this set that are not in the given set.
+	 * @ensures this.longs' = this.longs & s.longs
+	 * @return this.longs' != this.longs
+	 */
+	public boolean retainAll(LongSet s) {
+		if (count==0) return false;
+		final long[] result = new long[2*(count + s.count)];
+		int i = 0, j = 0, k = 0;
+		long total = 0;
+		while(i < count && j < s.count) {
+			final long lo = StrictMath.max(ranges[2*i], s.ranges[2*j]);
+			final long hi = StrictMath.min(ranges[2*i+1], s.ranges[2*j+1]);
+			if (lo <= hi) {
+				result[2*k] = lo;
+				result[2*k+1] = hi;
+				total += hi - lo + 1;
+				k++;
+			}
+			if (ranges[2*i+1] < s.ranges[2*j+1]) i++;
+			else j++;
+		}
+		return update(result, k, total);
+	}
+
+	/**
+	 * Replaces the ranges of this set with the first k ranges
+	 * in the given array, whose total size is given.
+	 * @return this.longs' != this.longs
+	 */
+	private boolean update(long[] result, int k, long total) {
+		final boolean changed = total != size;
+		if (changed) {
+			ranges = result;
+			count = k;
+			size = total;
+			modCount++;
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns an iterator over the elements of this set, in ascending order.
+	 * The iterator supports removal.
+	 * @return an iterator over this.longs
+	 */
+	public LongIterator iterator() {
+		return new LongIterator();
+	}
+
+	/**
+	 * Returns the elements of this set, in ascending order.
+	 * @return the elements of this set, in ascending order
+	 * @throws IllegalStateException  #this.longs > Integer.MAX_VALUE
+	 */
+	public long[] toArray() {
+		if (size > Integer.MAX_VALUE) throw new IllegalStateException("#this.longs > Integer.MAX_VALUE");
+		final long[] ret = new long[(int) size];
+		int k = 0;
+		for(int i = 0; i < count; i++) {
+			for(long l = ranges[2*i], hi = ranges[2*i+1]; l <= hi; l++)
+				ret[k++] = l;
+		}
+		return ret;
+	}
+
+	/**
+	 * Grows the backing array to hold at least the given number of ranges.
+	 */
+	private void ensureCapacity(int capacity) {
+		if (2*capacity > ranges.length)
+			ranges = Arrays.copyOf(ranges, StrictMath.max(2*capacity, ranges.length*2));
+	}
+
+	/**
+	 * Returns a copy of this long set.
+	 * @return {s: LongSet - this | s.longs = this.longs }
+	 */
+	public LongSet clone() {
+		try {
+			final LongSet ret = (LongSet) super.clone();
+			ret.ranges = Arrays.copyOf(ranges, StrictMath.max(2*count, 2));
+			ret.modCount = 0;
+			return ret;
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError(); // unreachable code
+		}
+	}
+
+	/**
+	 * Returns true if o is a long set with the same elements as this.
+	 * @return o in LongSet && o.longs = this.longs
+	 */
+	public boolean equals(Object o) {
+		if (this==o) return true;
+		if (!(o instanceof LongSet)) return false;
+		final LongSet s = (LongSet) o;
+		if (size!=s.size || count!=s.count) return false;
+		for(int i = 0; i < 2*count; i++) {
+			if (ranges[i]!=s.ranges[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode() {
+		int hash = 0;
+		for(int i = 0; i < 2*count; i++) {
+			hash = 31*hash + (int)(ranges[i] ^ (ranges[i] >>> 32));
+		}
+		return hash;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+		final StringBuilder ret = new StringBuilder("{");
+		for(int i = 0; i < count; i++) {
+			if (i > 0) ret.append(", ");
+			ret.append(ranges[2*i]);
+			if (ranges[2*i+1] > ranges[2*i])
+				ret.append(ranges[2*i+1]==ranges[2*i]+1 ? ", " : " ... ").append(ranges[2*i+1]);
+		}
+		return ret.append("}").toString();
+	}
+
+	/**
+	 * An ascending iterator over the elements of a long set.
+	 */
+	public final class LongIterator {
+		private int range = 0, expected = modCount;
+		private long next = count==0 ? 0 : ranges[0], last = -1;
+
+		private LongIterator() {}
+
+		/**
+		 * Returns true if this iterator has more elements.
+		 * @return true if this iterator has more elements
+		 */
+		public boolean hasNext() {
+			return range < count;
+		}
+
+		/**
+		 * Returns the next element of the iteration.
+		 * @return the next element of the iteration
+		 * @throws NoSuchElementException  !this.hasNext()
+		 */
+		public long next() {
+			if (expected!=modCount) throw new ConcurrentModificationException();
+			if (range >= count) throw new NoSuchElementException();
+			last = next;
+			if (next < ranges[2*range+1]) next++;
+			else if (++range < count) next = ranges[2*range];
+			return last;
+		}
+
+		/**
+		 * Removes the last element returned by this iterator.
+		 * @throws IllegalStateException  no element to remove
+		 */
+		public void remove() {
+			if (last < 0) throw new IllegalStateException();
+			if (expected!=modCount) throw new ConcurrentModificationException();
+			LongSet.this.remove(last);
+			range = ceilRange(last);
+			if (range < count) next = StrictMath.max(last + 1, ranges[2*range]);
+			last = -1;
+			expected = modCount;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package kodkod.engine.satlab;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the clause batching of {@link kodkod.engine.satlab.NativeSolver NativeSolver}
+ * against unbatched transfer, on a peer implemented in Java that rejects clauses
+ * as MiniSat does:  once the clauses are inconsistent with its top-level assignments.
+ * The peer needs no native library, so these tests always run.
+ */
+public class NativeSolverBatchTest {
+
+	/**
+	 * A native solver whose peer records the clauses it receives.
+	 */
+	private static final class RecordingSolver extends NativeSolver {
+		final List<int[]> received = new ArrayList<int[]>();
+		final Set<Integer> units = new HashSet<Integer>();
+		boolean ok = true;
+		int transfers = 0;
+
+		RecordingSolver(boolean batch) {
+			super(1, batch);
+		}
+
+		void free(long peer) { }
+
+		void addVariables(long peer, int numVariables) { }
+
+		boolean addClause(long peer, int[] lits) {
+			received.add(lits.clone());
+			if (!ok) return false;
+			int open = 0, last = 0;
+			for(int lit : lits) {
+				if (units.contains(lit)) return true;
+				if (!units.contains(-lit)) { open++; last = lit; }
+			}
+			if (open == 0) ok = false;
+			else if (open == 1) units.add(last);
+			return ok;
+		}
+
+		int addClauses(long peer, IntBuffer clauses, int length) {
+			transfers++;
+			return super.addClauses(peer, clauses, length);
+		}
+
+		boolean solve(long peer) { return ok; }
+
+		boolean valueOf(long peer, int literal) { return units.contains(literal); }
+	}
+
+	private static int[] clause(int... lits) { return lits; }
+
+	private static void assertSameClauses(List<int[]> expected, List<int[]> actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+	@Test
+	public void testBatchBoundary() {
+		final RecordingSolver batched = new RecordingSolver(true), plain = new RecordingSolver(false);
+		final List<int[]> added = new ArrayList<int[]>();
+		final Random rand = new Random(19);
+		final int vars = 1000;
+		batched.addVariables(vars);
+		plain.addVariables(vars);
+		// ternary clauses take 4 ints each, so this crosses the buffer boundary twice
+		final int count = NativeSolver.BATCH_CAPACITY / 2 + 17;
+		for(int i = 0; i < count; i++) {
+			final int v = 1 + rand.nextInt(vars - 2);
+			final int[] lits = clause(v, -(v+1), rand.nextBoolean() ? v+2 : -(v+2));
+			added.add(lits.clone());
+			assertTrue(batched.addClause(lits.clone()));
+			assertTrue(plain.addClause(lits.clone()));
+		}
+		assertTrue(batched.received.size() < count);
+		assertEquals(2, batched.transfers);
+		assertEquals(plain.numberOfClauses(), batched.numberOfClauses());
+		assertEquals(count, batched.numberOfClauses());
+		assertEquals(3, batched.transfers);
+		assertSameClauses(added, batched.received);
+		assertSameClauses(plain.received, batched.received);
+	}
+
+	@Test
+	public void testLongClause() {
+		final RecordingSolver batched = new RecordingSolver(true), plain = new RecordingSolver(false);
+		final int vars = NativeSolver.BATCH_CAPACITY + 1;
+		batched.addVariables(vars);
+		plain.addVariables(vars);
+		final int[] longClause = new int[vars];
+		for(int i = 0; i < vars; i++) { longClause[i] = i % 2 == 0 ? i+1 : -(i+1); }
+		final int[][] clauses = { clause(1, 2), clause(-1, 3), longClause, clause(2, -3) };
+		for(int[] c : clauses) {
+			assertTrue(plain.addClause(c.clone()));
+			assertTrue(batched.addClause(c.clone()));
+		}
+		// the long clause goes straight to the peer, after the clauses buffered before it
+		assertEquals(3, batched.received.size());
+		assertEquals(plain.numberOfClauses(), batched.numberOfClauses());
+		assertSameClauses(plain.received, batched.received);
+	}
+
+	@Test
+	public void testClauseCount() {
+		final RecordingSolver batched = new RecordingSolver(true), plain = new RecordingSolver(false);
+		batched.addVariables(5);
+		plain.addVariables(5);
+		final int[][] clauses = {
+				clause(1, 2), clause(-1, 2, 3), clause(3), clause(-3, 4), clause(-4, 5),
+				clause(-3, -4), clause(1, -2), clause(-3), clause(2, 5), clause(4) };
+		for(int[] c : clauses) {
+			assertEquals(plain.addClause(c.clone()), batched.addClause(c.clone()));
+		}
+		assertFalse(plain.ok);
+		assertEquals(plain.numberOfClauses(), batched.numberOfClauses());
+		assertEquals(5, batched.numberOfClauses());
+		assertSameClauses(plain.received, batched.received);
+		assertFalse(batched.solve());
+	}
+
+	@Test
+	public void testAddAfterSolve() {
+		final RecordingSolver batched = new RecordingSolver(true), plain = new RecordingSolver(false);
+		batched.addVariables(3);
+		plain.addVariables(3);
+		final int[][] before = { clause(1, 2), clause(-1, 3) }, after = { clause(-2, -3), clause(2, 3) };
+		for(int[] c : before) {
+			assertEquals(plain.addClause(c.clone()), batched.addClause(c.clone()));
+		}
+		assertTrue(batched.solve());
+		assertTrue(plain.solve());
+		for(int[] c : after) {
+			assertEquals(plain.addClause(c.clone()), batched.addClause(c.clone()));
+			// clauses added after solving reach the peer at once
+			assertEquals(plain.received.size(), batched.received.size());
+		}
+		assertEquals(plain.numberOfClauses(), batched.numberOfClauses());
+		assertSameClauses(plain.received, batched.received);
+	}
+}
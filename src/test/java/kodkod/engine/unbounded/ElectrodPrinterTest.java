@@ -0,0 +1,131 @@
+/*
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package kodkod.engine.unbounded;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import kodkod.ast.Formula;
+import kodkod.ast.IntConstant;
+import kodkod.ast.Relation;
+import kodkod.ast.Variable;
+import kodkod.engine.config.AbstractReporter;
+import kodkod.engine.config.Reporter;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link ElectrodPrinter#print(Formula, PardinusBounds, Reporter, Appendable)}
+ * writes exactly the bytes of the string-building printer it replaced, {@link StringElectrodPrinter},
+ * on temporal problems with integers.
+ */
+public class ElectrodPrinterTest {
+
+	private static final Reporter REPORTER = new AbstractReporter() {};
+
+	private final Relation node = Relation.unary("Node");
+	private final Relation edge = Relation.binary("edge");
+	private final Relation marked = Relation.unary_variable("marked");
+	private final Relation next = Relation.binary_variable("next");
+	private final Relation weight = Relation.unary_variable("weight");
+
+	/**
+	 * Returns fresh bounds over four nodes and the integers [-2..3],
+	 * since the printers translate the bounds they are given.
+	 */
+	private PardinusBounds bounds() {
+		final Universe universe = new Universe("N0", "N1", "N2", "N3", -2, -1, 0, 1, 2, 3);
+		final TupleFactory f = universe.factory();
+		final PardinusBounds b = new PardinusBounds(universe);
+		b.boundExactly(node, f.setOf("N0", "N1", "N2", "N3"));
+		b.bound(edge, f.setOf(f.tuple("N0", "N1")), f.setOf("N0", "N1", "N2", "N3").product(f.setOf("N0", "N1", "N2", "N3")));
+		b.bound(marked, f.setOf("N0", "N1", "N2", "N3"));
+		b.bound(next, f.setOf("N0", "N1", "N2", "N3").product(f.setOf("N0", "N1", "N2", "N3")));
+		b.bound(weight, f.setOf(-2, -1, 0, 1, 2, 3));
+		for (int i = -2; i <= 3; i++)
+			b.boundExactly(i, f.setOf(i));
+		return b;
+	}
+
+	/**
+	 * Returns a temporal formula over the relations, with and without integers.
+	 */
+	private Formula formula(boolean ints) {
+		final Variable n = Variable.unary("n");
+		final Formula init = marked.no().and(next.in(edge));
+		final Formula step = marked.prime().eq(marked.union(marked.join(next))).after().always();
+		final Formula progress = node.in(marked).eventually().releases(marked.some().once());
+		final Formula fair = n.join(edge).some().implies(n.in(marked).historically().not()).forAll(n.oneOf(node));
+		Formula f = Formula.and(init, step, progress, fair, next.prime().eq(next).until(marked.one()));
+		if (ints) {
+			final Formula sum = n.join(edge).count().sum(n.oneOf(marked)).plus(weight.count()).lte(IntConstant.constant(3));
+			final Formula pos = marked.count().multiply(IntConstant.constant(2)).minus(IntConstant.constant(-1)).gt(weight.count()).eventually();
+			f = f.and(sum.always()).and(pos).and(weight.count().eq(IntConstant.constant(1)).before().not());
+		}
+		return f;
+	}
+
+	private static byte[] utf8(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void assertSameOutput(Formula formula) throws IOException {
+		final String expected = StringElectrodPrinter.print(formula, bounds(), REPORTER);
+		assertTrue(expected.contains("run\n"));
+		final StringBuilder sb = new StringBuilder();
+		ElectrodPrinter.print(formula, bounds(), REPORTER, sb);
+		assertArrayEquals(utf8(expected), utf8(sb.toString()));
+		assertArrayEquals(utf8(expected), utf8(ElectrodPrinter.print(formula, bounds(), REPORTER)));
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+			ElectrodPrinter.print(formula, bounds(), REPORTER, out);
+		}
+		assertArrayEquals(utf8(expected), bytes.toByteArray());
+	}
+
+	@Test
+	public void testTemporal() throws IOException {
+		assertSameOutput(formula(false));
+	}
+
+	@Test
+	public void testTemporalInts() throws IOException {
+		assertSameOutput(formula(true));
+	}
+
+	@Test
+	public void testSymmetries() throws IOException {
+		final String expected = StringElectrodPrinter.print(marked.some().eventually(), bounds(), REPORTER);
+		assertTrue(expected.contains("sym\n"));
+		assertSameOutput(marked.some().eventually());
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package kodkod.engine.unbounded;
+
+import static kodkod.engine.unbounded.ElectrodPrinter.normRel;
+import static kodkod.engine.unbounded.ElectrodPrinter.printFormula;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import kodkod.ast.Formula;
+import kodkod.ast.NaryFormula;
+import kodkod.ast.Relation;
+import kodkod.ast.operator.FormulaOperator;
+import kodkod.engine.config.AbstractReporter;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.engine.config.Options;
+import kodkod.engine.config.Reporter;
+import kodkod.engine.fol2sat.Translation.Whole;
+import kodkod.engine.fol2sat.Translator;
+import kodkod.instance.Bounds;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.Tuple;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+import kodkod.util.ints.IndexedEntry;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.SparseSequence;
+
+/**
+ * The string-building implementation of {@link ElectrodPrinter#print(Formula, PardinusBounds, Reporter)}
+ * that was replaced by printing to an {@link Appendable}, kept as a reference for testing.
+ * Formulas are printed by {@link ElectrodPrinter#printFormula(Formula)}, which the change left untouched.
+ */
+final class StringElectrodPrinter {
+
+	private StringElectrodPrinter() {}
+
+	/**
+	 * Translates and prints an unbounded temporal model finding problem into
+	 * Electrod, as a string.
+	 * @return the printed Electrod problem.
+	 */
+	static String print(Formula formula, PardinusBounds bounds, Reporter rep) {
+		Options opt = new ExtendedOptions();
+		StringBuilder temp = new StringBuilder();
+		Reporter reporter = new AbstractReporter() {
+
+			@Override
+			public void warning(String warning) {
+				rep.warning(warning);
+			}
+
+			@Override
+			public void reportLex(List<Entry<Relation, Tuple>> _original,
+					List<Entry<Relation, Tuple>> _permuted) {
+				if (_original.size()+_permuted.size()==0)
+					return;
+				String tmp = printLexList(_original);
+				temp.append(tmp.substring(0,tmp.length()-1));
+				temp.append(" <= ");
+				temp.append(printLexList(_permuted).substring(1));
+				temp.append(";\n");
+			}
+
+			@Override
+			public void detectedSymmetries(Set<IntSet> parts) {
+				rep.detectedSymmetries(parts);
+			}
+
+			@Override
+			public void debug(String debug) {
+				rep.debug(debug);
+			}
+
+		};
+		opt.setReporter(reporter);
+
+		Formula symbForm = Formula.TRUE;
+		if (opt.decomposed() && bounds.amalgamated() != null)
+			symbForm = bounds.amalgamated().resolve(opt.reporter());
+		else
+			symbForm = bounds.resolve(opt.reporter());
+
+		Whole t = Translator.translate(formula.and(symbForm), bounds, opt);
+		bounds = (PardinusBounds) t.bounds();
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(printUniverse(bounds.universe()));
+		sb.append(printBounds(bounds));
+		sb.append(printSymmetries(temp.toString()));
+		sb.append(printConstraint(formula.and(symbForm)));
+		return sb.toString();
+	}
+
+	private static String printUniverse(Universe universe) {
+		StringBuilder sb = new StringBuilder("univ : { ");
+		Iterator<Object> it = universe.iterator();
+		while (it.hasNext()) {
+			sb.append(normRel(it.next().toString()));
+			sb.append(" ");
+		}
+		sb.append("};\n\n");
+		return sb.toString();
+	}
+
+	private static String printConstraint(Formula formula) {
+		StringBuilder sb = new StringBuilder("run\n");
+		if (formula instanceof NaryFormula && ((NaryFormula) formula).op() == FormulaOperator.AND) {
+			for (int i = 0; i < ((NaryFormula) formula).size(); i++) {
+				sb.append(printFormula(((NaryFormula) formula).child(i)));
+				sb.append(";\n");
+			}
+		} else {
+			sb.append(printFormula(formula));
+			sb.append(";\n");
+		}
+		return sb.toString();
+	}
+
+	private static String printSymmetries(String syms) {
+		if (syms.length() == 0)
+			return syms;
+		StringBuilder sb = new StringBuilder("sym\n");
+		sb.append(normRel(syms));
+		sb.append("\n");
+		return sb.toString();
+	}
+
+	private static String printBounds(Bounds bounds) {
+		StringBuilder sb = new StringBuilder();
+		Bounds bnd = bounds;
+		for (Relation r : bnd.relations()) {
+			if (r.isVariable())
+				sb.append("var ");
+			else
+				sb.append("const ");
+			sb.append(normRel(r.toString()));
+			sb.append(" :");
+			sb.append(r.arity());
+			sb.append(" ");
+			if (bnd.lowerBound(r).size() == bnd.upperBound(r).size()) {
+				sb.append(printTupleList(bnd.lowerBound(r)));
+			}
+			else {
+				sb.append(printTupleList(bnd.lowerBound(r)));
+				sb.append(" ");
+				sb.append(printTupleList(bnd.upperBound(r)));
+			}
+			sb.append(";\n");
+		}
+		sb.append("const ints :1 ");
+		sb.append(printIntList(bnd.intBounds()));
+		sb.append(";\n\n");
+		return sb.toString();
+	}
+
+	private static String printTupleList(Collection<Tuple> tuples) {
+		StringBuilder sb = new StringBuilder("{ ");
+		for (Tuple t : tuples) {
+			sb.append("(");
+			sb.append(printTuple(t));
+			sb.append(") ");
+		}
+		sb.append("}");
+		return sb.toString();
+	}
+
+	private static Object printIntList(SparseSequence<TupleSet> ints) {
+		StringBuilder sb = new StringBuilder("{ ");
+		Iterator<IndexedEntry<TupleSet>> it = ints.iterator();
+		while (it.hasNext()) {
+			sb.append("(");
+			sb.append(printTuple(it.next().value().iterator().next()));
+			sb.append(") ");
+		}
+		sb.append("}");
+		return sb.toString();
+	}
+
+	private static String printLexList(List<Entry<Relation, Tuple>> syms) {
+		StringBuilder sb = new StringBuilder("");
+		sb.append("[ ");
+		for (Entry<Relation, Tuple> t : syms) {
+			sb.append("( ");
+			sb.append(t.getKey());
+			sb.append(printTuple(t.getValue()));
+			sb.append(") ");
+		}
+		sb.append("] ");
+		return sb.toString().substring(0,sb.length()-1);
+	}
+
+	private static String printTuple(Tuple tuple) {
+		StringBuilder sb = new StringBuilder(" ");
+		for (int i = 0; i < tuple.arity(); i++) {
+			sb.append(normRel(tuple.atom(i).toString()));
+			sb.append(" ");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,121 @@
+package kodkod.test.cli;
+
+import kodkod.ast.Relation;
+import kodkod.cli.KodkodParser;
+import kodkod.cli.KodkodServer;
+import kodkod.cli.StandardKodkodOutput;
+import kodkod.instance.Bounds;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.parboiled.Parboiled;
+import org.parboiled.errors.ErrorUtils;
+import org.parboiled.parserunners.ErrorLocatingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differential tests of the hand-written tuple set scanner against the
+ * reference grammar: both parsers must produce the same bounds, and fail on
+ * the same inputs.
+ */
+public class TestCLIFastTuples {
+
+    private PrintStream stdout;
+
+    @Before
+    public void setupEach() {
+        stdout = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true));
+    }
+
+    @After
+    public void teardownEach() {
+        System.setOut(stdout);
+    }
+
+    private static KodkodParser parser(boolean fast) {
+        KodkodParser parser = Parboiled.createParser(KodkodParser.class, KodkodServer.Feature.PLAIN_STEPPER, new StandardKodkodOutput());
+        parser.setFastTuples(fast);
+        return parser;
+    }
+
+    private static Map<String, String> bounds(boolean fast, String block) {
+        KodkodParser parser = parser(fast);
+        ParsingResult<Object> result = new ErrorLocatingParseRunner<>(parser.StepperStart()).run(block);
+        assertTrue(ErrorUtils.printParseErrors(result), result.matched);
+        Bounds bounds = parser.problem("fast").allBounds();
+        Map<String, String> out = new TreeMap<>();
+        for (Relation r : bounds.relations())
+            out.put(r.name(), bounds.lowerBound(r) + " :: " + bounds.upperBound(r));
+        return out;
+    }
+
+    private static String failure(boolean fast, String block) {
+        ParsingResult<Object> result = new ErrorLocatingParseRunner<>(parser(fast).StepperStart()).run(block);
+        return result.matched ? null : ErrorUtils.printParseErrors(result);
+    }
+
+    private static String problem(int univ, String... bounds) {
+        StringBuilder block = new StringBuilder("(with fast (configure :solver SAT4J :max-solutions 1)\n(univ " + univ + ")\n");
+        for (int i = 0; i < bounds.length; i++)
+            block.append("(r:r").append(i).append(" [").append(bounds[i]).append("])\n");
+        return block.append(")").toString();
+    }
+
+    private static void assertSameBounds(String block) {
+        Map<String, String> reference = bounds(false, block);
+        assertEquals(reference, bounds(true, block));
+    }
+
+    @Test
+    public void testEnumerations() {
+        assertSameBounds(problem(20,
+                "{} :: {(0)(1) (2)}",
+                "{(3 4)} :: {( 3 4 ) (19 0)(3 4)\n(5 5) ; comment (6 6)\n (7 7)}",
+                "(-> none none none) :: {(0 1 2) (2 1 0)}",
+                "{(1)} :: (+ {(1)} {(2) (3)} {})",
+                "{(0 0)} :: (-> {(0) (1)} {(2)})",
+                "{(1 1)} :: {(00 01)\t;trailing\r\n(10 11)}"));
+    }
+
+    @Test
+    public void testRangesAndAreas() {
+        assertSameBounds(problem(10,
+                "{(0) ... (4)} :: {(0) ... (9)}",
+                "{(1 1) # (2 2)} :: {(0 0) # (3 9)}",
+                "{(1 2) ... (3 4)} :: (-> univ univ)"));
+    }
+
+    @Test
+    public void testLargeBounds() {
+        StringBuilder upper = new StringBuilder("{");
+        for (int i = 0; i < 300; i++)
+            for (int j = 0; j < 300; j += 1 + i % 7)
+                upper.append('(').append(i).append(' ').append(j).append(')');
+        upper.append('}');
+        assertSameBounds(problem(300, "{(0 0)} :: " + upper, "(-> none none) :: " + upper));
+    }
+
+    @Test
+    public void testSameFailures() {
+        String[] blocks = {
+                problem(5, "{} :: {(1) (7)}"),
+                problem(5, "{} :: {(1) (2 3)}"),
+                problem(5, "{} :: {(1) (2"),
+                problem(5, "{} :: {()}"),
+                problem(5, "{(3) ... (1)} :: univ") };
+        for (String block : blocks) {
+            String reference = failure(false, block);
+            assertTrue(block, reference != null);
+            assertEquals(block, reference, failure(true, block));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package kodkod.test.cli;
+
+import kodkod.cli.KodkodServer;
+import org.junit.Test;
+import org.parboiled.support.Chars;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a multi-session server keeps the problems of each session apart,
+ * that sessions end independently, and that they survive cancellation.
+ */
+public class TestCLISessions {
+
+    private static String problem(String id, int nodes, String assertion) {
+        StringBuilder univ = new StringBuilder();
+        for (int i = 0; i < nodes; i++)
+            univ.append("(").append(16 + i).append(") ");
+        return "(with " + id + " (configure :bitwidth 4 :solver SAT4J :max-solutions 1 :verbosity 1 :skolem-depth 0 :sb 20 :core-gran 0 :core-minimization fast :log-trans 0  )\n" +
+                "(univ " + (16 + nodes) + ")\n" +
+                "(ints [(-8 0)(-7 1)(-6 2)(-5 3)(-4 4)(-3 5)(-2 6)(-1 7)(0 8)(1 9)(2 10)(3 11)(4 12)(5 13)(6 14)(7 15)])\n" +
+                "(r:Node [none :: {" + univ + "}])\n" +
+                "(r:edges [(-> none none) :: {" + univ.toString().replaceAll("\\((\\d+)\\)", "($1 16)") + "}])\n" +
+                "(f:0 " + assertion + ")\n" +
+                "(assert f:0))";
+    }
+
+    private static String block(String session, String body) {
+        return "(session " + session + ")\n" + body + Chars.EOI;
+    }
+
+    /**
+     * Returns the output of each session, in the order in which it was written.
+     */
+    private static Map<String, String> serve(String input) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        KodkodServer server = new KodkodServer(KodkodServer.Mode.STEPPER, Collections.<KodkodServer.Feature>emptySet(), false, null);
+        server.serveSessions(new StringReader(input), new PrintStream(buffer, true, "UTF-8"), 2);
+        Map<String, String> outputs = new HashMap<>();
+        String session = null;
+        for (String line : new String(buffer.toByteArray(), StandardCharsets.UTF_8).split("\\R")) {
+            if (line.startsWith("(session ")) {
+                session = line.substring(9).replaceAll("[\\s)].*", "");
+            } else if (line.startsWith("(session-closed ")) {
+                session = line.substring(16, line.length() - 1);
+            }
+            if (session != null) {
+                String prev = outputs.get(session);
+                outputs.put(session, prev == null ? line : prev + "\n" + line);
+            }
+        }
+        return outputs;
+    }
+
+    private static void assertInOrder(String output, String... prefixes) {
+        int from = 0;
+        for (String prefix : prefixes) {
+            int i = output.indexOf(prefix, from);
+            assertTrue("missing " + prefix + " in " + output, i >= 0);
+            from = i + prefix.length();
+        }
+    }
+
+    @Test
+    public void testIndependentSessions() throws Exception {
+        String input =
+                block("a", problem("p", 3, "(some r:edges)")) +
+                block("b", problem("p", 2, "(&& (some r:edges) (no r:edges))")) +
+                block("a", "(with p (solve first))") +
+                block("b", "(with p (solve first))") +
+                block("a", "(with p (e:0 (. r:Node r:edges)) (evaluate e:0))") +
+                block("b", "(with p (exit))") +
+                block("c", "(with p (solve first))");
+        Map<String, String> outputs = serve(input);
+
+        // the same problem id denotes a different problem in each session
+        assertInOrder(outputs.get("a"), "(ack p)", "(sat", "(evaluated :expression");
+        assertFalse(outputs.get("a"), outputs.get("a").contains("(unsat"));
+        assertFalse(outputs.get("a"), outputs.get("a").contains("(session-closed"));
+        assertInOrder(outputs.get("b"), "(ack p)", "(unsat", "(session-closed b)");
+        // session c has no problem p, so it fails and is closed without affecting the others
+        assertInOrder(outputs.get("c"), "(session-closed c)");
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        String input =
+                block("a", problem("p", 3, "(&& (some r:edges) (no r:edges))")) +
+                block("a", "(with p (solve first))") +
+                "(session a :cancel)" + Chars.EOI +
+                block("b", problem("p", 2, "(some r:edges)")) +
+                block("a", problem("q", 2, "(some r:edges)")) +
+                block("a", "(with q (solve first))") +
+                block("b", "(with p (solve first))") +
+                "(session c :cancel)" + Chars.EOI;
+        Map<String, String> outputs = serve(input);
+
+        // the blocks of p are dropped or their output discarded, and the session goes on
+        assertInOrder(outputs.get("a"), "(ack q)", "(sat");
+        assertFalse(outputs.get("a"), outputs.get("a").contains("(unsat"));
+        assertFalse(outputs.get("a"), outputs.get("a").contains("(ack p)"));
+        assertFalse(outputs.get("a"), outputs.get("a").contains("(session-closed"));
+        // other sessions are unaffected, and cancelling an unknown session does nothing
+        assertInOrder(outputs.get("b"), "(ack p)", "(sat");
+        assertFalse(outputs.get("b"), outputs.get("b").contains("(session-closed"));
+        assertFalse(outputs.containsKey("c"));
+    }
+
+    @Test
+    public void testMissingHeaderIsIgnored() throws Exception {
+        String input = problem("p", 2, "(some r:edges)") + Chars.EOI +
+                block("a", problem("p", 2, "(some r:edges)")) +
+                block("a", "(with p (solve first))");
+        Map<String, String> outputs = serve(input);
+        assertInOrder(outputs.get("a"), "(ack p)", "(sat");
+    }
+}
@@ -0,0 +1,242 @@
+package kodkod.test.cli;
+
+import kodkod.cli.KodkodParser;
+import kodkod.cli.KodkodServer;
+import kodkod.cli.StandardKodkodOutput;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.parboiled.Parboiled;
+import org.parboiled.parserunners.ErrorLocatingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that stepper problems resent to the server reuse the translation of the
+ * original problem, and enumerate the same solutions.
+ */
+public class TestCLITranslationCache {
+
+    private KodkodParser parser;
+    private PrintStream stdout;
+    private ByteArrayOutputStream buffer;
+
+    private static String problem(String id, int nodes, String assertion) {
+        StringBuilder univ = new StringBuilder();
+        for (int i = 0; i < nodes; i++)
+            univ.append("(").append(16 + i).append(") ");
+        return "(with " + id + " (configure :bitwidth 4 :solver SAT4J :max-solutions 1 :verbosity 1 :skolem-depth 0 :sb 20 :core-gran 0 :core-minimization fast :log-trans 0  )\n" +
+                "(univ " + (16 + nodes) + ")\n" +
+                "(ints [(-8 0)(-7 1)(-6 2)(-5 3)(-4 4)(-3 5)(-2 6)(-1 7)(0 8)(1 9)(2 10)(3 11)(4 12)(5 13)(6 14)(7 15)])\n" +
+                "(r:Node [none :: {" + univ + "}])\n" +
+                "(r:edges [(-> none none) :: {" + univ.toString().replaceAll("\\((\\d+)\\)", "($1 16)") + "}])\n" +
+                "(f:0 " + assertion + ")\n" +
+                "(assert f:0))";
+    }
+
+    @Before
+    public void setupEach() {
+        parser = Parboiled.createParser(KodkodParser.class, KodkodServer.Feature.PLAIN_STEPPER, new StandardKodkodOutput());
+        stdout = System.out;
+        buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true));
+    }
+
+    @After
+    public void teardownEach() {
+        System.setOut(stdout);
+    }
+
+    private List<String> run(String block) {
+        buffer.reset();
+        ParsingResult<Object> result = new ErrorLocatingParseRunner<>(parser.StepperStart()).run(block);
+        assertTrue(block + result.parseErrors, result.matched);
+        List<String> lines = new ArrayList<>();
+        for (String line : new String(buffer.toByteArray(), StandardCharsets.UTF_8).split("\\R"))
+            if (!line.isEmpty())
+                lines.add(line);
+        return lines;
+    }
+
+    private static String result(List<String> lines, String id) {
+        for (String line : lines)
+            if (line.startsWith("(sat") || line.startsWith("(unsat") || line.startsWith("(no-more-instances"))
+                return line.replace(":name " + id + " ", "").replaceAll("\\(time-[a-z]+ \\d+\\)", "");
+        return null;
+    }
+
+    private static boolean reused(List<String> lines) {
+        for (String line : lines)
+            if (line.contains("reusing cached translation"))
+                return true;
+        return false;
+    }
+
+    @Test
+    public void testResentProblemReplaysSolutions() {
+        final String assertion = "(some (. r:Node r:edges))";
+        run(problem("cache_a", 3, assertion));
+        run(problem("cache_b", 3, assertion));
+
+        List<String> first = run("(with cache_a (solve first))");
+        assertFalse(reused(first));
+        List<String> expected = new ArrayList<>();
+        expected.add(result(first, "cache_a"));
+        for (int i = 0; i < 4; i++)
+            expected.add(result(run("(with cache_a (solve next))"), "cache_a"));
+
+        List<String> second = run("(with cache_b (solve first))");
+        assertTrue(reused(second));
+        assertEquals(expected.get(0), result(second, "cache_b"));
+        // replays the recorded solutions, then continues the enumeration
+        for (int i = 1; i < 4; i++)
+            assertEquals(expected.get(i), result(run("(with cache_b (solve next))"), "cache_b"));
+        assertEquals(expected.get(4), result(run("(with cache_b (solve next))"), "cache_b"));
+        String fresh = result(run("(with cache_b (solve next))"), "cache_b");
+        assertEquals(fresh, result(run("(with cache_a (solve next))"), "cache_a"));
+
+        // the relations of the resent problem are bound in the replayed instances
+        List<String> eval = run("(with cache_b (e:0 (. r:Node r:edges)) (evaluate e:0))");
+        assertTrue(eval.toString(), eval.contains("(evaluated :expression {(16)})"));
+    }
+
+    @Test
+    public void testDifferentProblemsAreNotShared() {
+        run(problem("cache_c", 2, "(some r:edges)"));
+        run(problem("cache_d", 3, "(some r:edges)"));
+        run(problem("cache_e", 2, "(no r:edges)"));
+        assertFalse(reused(run("(with cache_c (solve first))")));
+        assertFalse(reused(run("(with cache_d (solve first))")));
+        assertFalse(reused(run("(with cache_e (solve first))")));
+
+        // cleared and redeclared under the same id
+        run("(with cache_c (clear))");
+        run(problem("cache_c", 2, "(some r:edges)"));
+        assertTrue(reused(run("(with cache_c (solve first))")));
+    }
+
+    @Test
+    public void testUnsatProblem() {
+        run(problem("cache_f", 2, "(&& (some r:edges) (no r:edges))"));
+        run(problem("cache_g", 2, "(&& (some r:edges) (no r:edges))"));
+        List<String> first = run("(with cache_f (solve first))");
+        List<String> second = run("(with cache_g (solve first))");
+        assertTrue(reused(second));
+        assertTrue(result(first, "cache_f").startsWith("(unsat"));
+        assertEquals(result(first, "cache_f"), result(second, "cache_g"));
+    }
+
+    private static String evaluated(List<String> lines) {
+        for (String line : lines)
+            if (line.startsWith("(evaluated"))
+                return line;
+        return null;
+    }
+
+    @Test
+    public void testReplayDoesNotChangeSharedInstances() {
+        final String assertion = "(some (& r:edges (-> r:Node r:Node)))";
+        run(problem("cache_h", 2, assertion));
+        run(problem("cache_i", 2, assertion));
+        run(problem("cache_j", 2, assertion));
+        String expected = result(run("(with cache_h (solve first))"), "cache_h");
+        String edges = evaluated(run("(with cache_h (e:0 r:edges) (evaluate e:0))"));
+
+        // binds the relations of cache_i in its own copy of the replayed instance
+        List<String> second = run("(with cache_i (solve first))");
+        assertTrue(reused(second));
+        assertEquals(expected, result(second, "cache_i"));
+        assertEquals(edges, evaluated(run("(with cache_i (e:0 r:edges) (evaluate e:0))")));
+
+        assertEquals(expected, result(run("(with cache_j (solve first))"), "cache_j"));
+        assertEquals(edges, evaluated(run("(with cache_h (evaluate e:0))")));
+    }
+
+    @Test
+    public void testEvictedRunKeepsEnumerating() {
+        final String assertion = "(some (. r:edges r:Node))";
+        run(problem("cache_k", 3, assertion));
+        List<String> evicted = new ArrayList<>();
+        evicted.add(result(run("(with cache_k (solve first))"), "cache_k"));
+        evicted.add(result(run("(with cache_k (solve next))"), "cache_k"));
+        // evicts the run of cache_k, which is still being enumerated
+        for (int i = 0; i < 8; i++) {
+            run(problem("cache_evict" + i, 4 + i, "(some r:edges)"));
+            run("(with cache_evict" + i + " (solve first))");
+        }
+        for (int i = 0; i < 3; i++)
+            evicted.add(result(run("(with cache_k (solve next))"), "cache_k"));
+
+        // a resent problem is translated afresh, and enumerates the same solutions
+        run(problem("cache_l", 3, assertion));
+        List<String> fresh = run("(with cache_l (solve first))");
+        assertFalse(reused(fresh));
+        assertEquals(evicted.get(0), result(fresh, "cache_l"));
+        run("(with cache_k (clear))");
+        for (int i = 1; i < 5; i++)
+            assertEquals(evicted.get(i), result(run("(with cache_l (solve next))"), "cache_l"));
+    }
+
+    @Test
+    public void testLongIndexedBounds() {
+        // 116^5 tuples of arity 5 cannot be indexed by an int
+        StringBuilder univ = new StringBuilder();
+        for (int i = 16; i < 116; i++)
+            univ.append("(").append(i).append(") ");
+        final String bounds = "(univ 116)\n" +
+                "(ints [(-8 0)(-7 1)(-6 2)(-5 3)(-4 4)(-3 5)(-2 6)(-1 7)(0 8)(1 9)(2 10)(3 11)(4 12)(5 13)(6 14)(7 15)])\n" +
+                "(r:Node [none :: {" + univ + "}])\n" +
+                "(r:big [(-> none none none none none) :: {(16 17 18 19 20) (115 115 115 115 115)}])\n" +
+                "(f:0 (one r:big))\n" +
+                "(assert f:0))";
+        final String configure = " (configure :bitwidth 4 :solver SAT4J :max-solutions 1 :verbosity 1 :skolem-depth 0 :sb 20 :core-gran 0 :core-minimization fast :log-trans 0  )\n";
+        run("(with cache_long_a" + configure + bounds);
+        run("(with cache_long_b" + configure + bounds);
+        List<String> first = run("(with cache_long_a (solve first))");
+        assertFalse(reused(first));
+        assertTrue(first.toString(), result(first, "cache_long_a").startsWith("(sat"));
+        List<String> second = run("(with cache_long_b (solve first))");
+        assertTrue(reused(second));
+        assertEquals(result(first, "cache_long_a"), result(second, "cache_long_b"));
+    }
+
+    @Test
+    public void testSharedDefinitions() {
+        // each definition uses the previous one twice, so the formula is a DAG
+        // whose tree has 2^24 leaves
+        StringBuilder defs = new StringBuilder("(e:0 (+ r:Node (. r:Node r:edges)))\n");
+        for (int i = 1; i <= 24; i++)
+            defs.append("(e:").append(i).append(" (& e:").append(i - 1).append(" e:").append(i - 1).append("))\n");
+        final String assertion = "(some e:24)";
+        run(problem("cache_dag_a", 3, assertion).replace("(f:0 ", defs + "(f:0 "));
+        run(problem("cache_dag_b", 3, assertion).replace("(f:0 ", defs + "(f:0 "));
+        List<String> first = run("(with cache_dag_a (solve first))");
+        assertFalse(reused(first));
+        List<String> second = run("(with cache_dag_b (solve first))");
+        assertTrue(reused(second));
+        assertEquals(result(first, "cache_dag_a"), result(second, "cache_dag_b"));
+    }
+
+    @Test
+    public void testVariablesAreNumbered() {
+        // the names of quantified variables do not matter, only which declaration each use refers to
+        run(problem("cache_var_a", 3, "(all ([v:x : r:Node]) (some ([v:y : r:Node]) (in (-> v:x v:y) r:edges)))"));
+        run(problem("cache_var_b", 3, "(all ([v:y : r:Node]) (some ([v:x : r:Node]) (in (-> v:y v:x) r:edges)))"));
+        run(problem("cache_var_c", 3, "(all ([v:x : r:Node]) (some ([v:y : r:Node]) (in (-> v:y v:x) r:edges)))"));
+        List<String> first = run("(with cache_var_a (solve first))");
+        assertFalse(reused(first));
+        List<String> second = run("(with cache_var_b (solve first))");
+        assertTrue(reused(second));
+        assertEquals(result(first, "cache_var_a"), result(second, "cache_var_b"));
+        assertFalse(reused(run("(with cache_var_c (solve first))")));
+    }
+}
@@ -7,7 +7,6 @@ import static org.junit.Assert.assertTrue;
 import java.util.Set;
 
 import kodkod.ast.Formula;
-import kodkod.engine.DProblemExecutorImpl;
 import kodkod.engine.DecomposedPardinusSolver;
 import kodkod.engine.ExtendedSolver;
 import kodkod.engine.PardinusSolver;
@@ -17,6 +16,7 @@ import kodkod.engine.config.ExtendedOptions;
 import kodkod.engine.config.Reporter;
 import kodkod.engine.config.DecomposedOptions.DMode;
 import kodkod.engine.decomp.DModel;
+import kodkod.engine.decomp.DMonitor;
 import kodkod.engine.satlab.SATFactory;
 import kodkod.examples.pardinus.decomp.HotelP;
 import kodkod.examples.pardinus.decomp.RedBlackTreeP;
@@ -81,6 +81,18 @@ public class ExampleTests {
 		psolver = new PardinusSolver(opt);
 	}
 	
+	/**
+	 * Asserts that the configurations were only enumerated ahead of the solver 
+	 * threads by the prefetch depth: besides the initial threads + prefetch 
+	 * permits, one is released per UNSAT integrated problem and one by the SAT 
+	 * solution consumed by solve.
+	 */
+	private void assertPrefetched(DModel model, DMonitor monitor, ExtendedOptions opt) {
+		long configs = monitor.getNumConfigs();
+		long unsats = monitor.getNumRuns() - monitor.getNumSATs();
+		assertTrue(model.shortName()+": #Configs", configs <= opt.threads() + opt.configPrefetch() + unsats + 1);
+	}
+	
 	@Test 
 	public void testSAT6Ring() throws InterruptedException {
 		int n = 6;
@@ -100,7 +112,7 @@ public class ExampleTests {
 		
 		Solution solution = psolver.solve(f1.and(f2), new PardinusBounds(b1, b2));
 		assertTrue(model.shortName()+": SAT", solution.sat());
-		assertTrue(model.shortName()+": #Configs", ((DecomposedPardinusSolver<ExtendedSolver>) psolver.solver).executor().monitor.getNumConfigs() % DProblemExecutorImpl.BATCH_SIZE == 0);
+		assertPrefetched(model, ((DecomposedPardinusSolver<ExtendedSolver>) psolver.solver).executor().monitor, opt);
 	}
 	
 
@@ -397,10 +409,8 @@ public class ExampleTests {
 
 		Solution solution = psolver.solve(f1.and(f2), new PardinusBounds(b1,b2));
 		
-		long configs = ((DecomposedPardinusSolver<ExtendedSolver>) psolver.solver).executor().monitor.getNumConfigs();
-
 		assertTrue(model.shortName()+": SAT", solution.sat());
-		assertEquals(model.shortName()+": #Configs", Math.min(75,DProblemExecutorImpl.BATCH_SIZE), configs);
+		assertPrefetched(model, ((DecomposedPardinusSolver<ExtendedSolver>) psolver.solver).executor().monitor, opt);
 
 	}
 	
@@ -425,11 +435,35 @@ public class ExampleTests {
 
 		Solution solution = psolver.solve(f1.and(f2), new PardinusBounds(b1,b2));
 		
-		long configs = ((DecomposedPardinusSolver<ExtendedSolver>) psolver.solver).executor().monitor.getNumConfigs();
+		assertTrue(model.shortName()+": SAT", solution.sat());
+		// >200, but decomp only enumerates ahead of the solver threads
+		assertPrefetched(model, ((DecomposedPardinusSolver<ExtendedSolver>) psolver.solver).executor().monitor, opt);
+	}
+	
+	@Test 
+	public void testSAT5HotelPrefetch() throws InterruptedException {
+		int n = 5;
+		int t = 20;
+		HotelP.Variant v1 = HotelP.Variant.INTERVENES;
+		
+		String[] args = new String[]{n+"",t+"",v1.name()};
+		DModel model = new HotelP(args);
 
+		opt.setBitwidth(model.getBitwidth());
+		opt.setRunDecomposed(true);
+		opt.setConfigPrefetch(2);
+		
+		final PardinusBounds b1 = model.bounds1();
+		final Bounds b2 = model.bounds2();
+		final Formula f1 = model.partition1();
+		final Formula f2 = model.partition2();
+		
+		PardinusSolver psolver = new PardinusSolver(opt);
+
+		Solution solution = psolver.solve(f1.and(f2), new PardinusBounds(b1,b2));
+		
 		assertTrue(model.shortName()+": SAT", solution.sat());
-		// >200, but decomp launches batches of 20
-		assertEquals(model.shortName()+": #Configs", DProblemExecutorImpl.BATCH_SIZE, configs);
+		assertPrefetched(model, ((DecomposedPardinusSolver<ExtendedSolver>) psolver.solver).executor().monitor, opt);
 	}
 	
 	@Test 
@@ -0,0 +1,123 @@
+package kodkod.test.pardinus.decomp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import kodkod.ast.Formula;
+import kodkod.engine.DecomposedPardinusSolver;
+import kodkod.engine.ExtendedSolver;
+import kodkod.engine.PardinusSolver;
+import kodkod.engine.Solution;
+import kodkod.engine.config.DecomposedOptions.DMode;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.engine.decomp.DModel;
+import kodkod.engine.decomp.DMonitor;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.examples.pardinus.decomp.RedBlackTreeP;
+import kodkod.examples.pardinus.decomp.RingP;
+import kodkod.instance.PardinusBounds;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests the scheduling of integrated problems in decomposed model finding, with
+ * configurations enumerated ahead of the solver threads. Runs on SAT4J.
+ */
+public class SchedulingTests {
+	ExtendedOptions opt, opt2;
+
+	@Rule
+	public Timeout globalTimeout = Timeout.seconds(60);
+	@Rule
+	public final ExpectedException thrown = ExpectedException.none();
+
+	@Before
+	public void method() {
+		opt = new ExtendedOptions();
+		opt.setRunDecomposed(true);
+		opt.setSymmetryBreaking(20);
+		opt.setSolver(SATFactory.DefaultSAT4J);
+		opt.setDecomposedMode(DMode.PARALLEL);
+		opt.setThreads(2);
+		opt2 = new ExtendedOptions(opt);
+		opt2.setRunTarget(false);
+		opt.setConfigOptions(opt2);
+	}
+
+	private DMonitor solve(DModel model, boolean sat) {
+		opt.setBitwidth(model.getBitwidth());
+		opt2.setBitwidth(model.getBitwidth());
+		final Formula f = model.partition1().and(model.partition2());
+		final PardinusSolver psolver = new PardinusSolver(opt);
+		final Solution solution = psolver.solve(f, new PardinusBounds(model.bounds1(), model.bounds2()));
+		assertEquals(model.shortName() + ": SAT", sat, solution.sat());
+		return ((DecomposedPardinusSolver<ExtendedSolver>) psolver.solver).executor().monitor;
+	}
+
+	private void checkWorkers(DMonitor monitor) {
+		long[] runs = monitor.getWorkerRuns(), times = monitor.getWorkerTimes(), idle = monitor.getWorkerIdleTimes();
+		assertTrue(runs.length <= opt.threads());
+		assertEquals(runs.length, times.length);
+		assertEquals(runs.length, idle.length);
+		long total = 0;
+		for (int i = 0; i < runs.length; i++) {
+			assertTrue(times[i] >= 0 && idle[i] >= 0);
+			total += runs[i];
+		}
+		assertTrue(total <= monitor.getNumRuns());
+	}
+
+	@Test
+	public void testUNSAT5RBT() {
+		opt.setConfigPrefetch(1);
+		DModel model = new RedBlackTreeP(new String[] { "5", RedBlackTreeP.Variant1.THEOREM.name(), RedBlackTreeP.Variant2.V1.name() });
+		DMonitor monitor = solve(model, false);
+		assertEquals(model.shortName() + ": #Runs", 152, monitor.getNumRuns());
+		assertEquals(model.shortName() + ": #Configs", 152, monitor.getNumConfigs());
+		assertTrue(monitor.isConfigsDone());
+		checkWorkers(monitor);
+	}
+
+	@Test
+	public void testUNSAT4aRing() {
+		opt.setThreads(4);
+		DModel model = new RingP(new String[] { "4", "10", RingP.Variant1.GOODLIVENESS.name(), RingP.Variant2.VARIABLE.name() });
+		DMonitor monitor = solve(model, false);
+		assertEquals(model.shortName() + ": #Runs", monitor.getNumConfigs(), monitor.getNumRuns());
+		checkWorkers(monitor);
+	}
+
+	@Test
+	public void testSAT6RBT() {
+		opt.setConfigPrefetch(1);
+		DModel model = new RedBlackTreeP(new String[] { "6", RedBlackTreeP.Variant1.COUNTER.name(), RedBlackTreeP.Variant2.V1.name() });
+		DMonitor monitor = solve(model, true);
+		// only enumerates ahead of the solver threads by the prefetch
+		assertTrue(model.shortName() + ": #Configs", monitor.getNumConfigs() <= monitor.getNumRuns() + opt.threads() + opt.configPrefetch() + 1);
+		checkWorkers(monitor);
+	}
+
+	@Test
+	public void testSAT6Ring() {
+		DModel model = new RingP(new String[] { "6", "10", RingP.Variant1.BADLIVENESS.name(), RingP.Variant2.VARIABLE.name() });
+		DMonitor monitor = solve(model, true);
+		assertFalse(monitor.isAmalgamated());
+		assertTrue(model.shortName() + ": #Configs", monitor.getNumConfigs() <= monitor.getNumRuns() + opt.threads() + opt.configPrefetch() + 1);
+		checkWorkers(monitor);
+	}
+
+	@Test
+	public void testPrefetchOption() {
+		opt.setConfigPrefetch(5);
+		assertEquals(5, opt.clone().configPrefetch());
+		assertEquals(5, new ExtendedOptions(opt).configPrefetch());
+		thrown.expect(IllegalArgumentException.class);
+		opt.setConfigPrefetch(0);
+	}
+
+}
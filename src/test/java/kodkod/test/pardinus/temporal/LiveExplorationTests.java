@@ -0,0 +1,179 @@
+package kodkod.test.pardinus.temporal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.engine.Explorer;
+import kodkod.engine.PardinusSolver;
+import kodkod.engine.Solution;
+import kodkod.engine.bool.BooleanFormula;
+import kodkod.engine.config.AbstractReporter;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.engine.satlab.SATSolver;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.TemporalInstance;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+import org.junit.Test;
+
+/**
+ * Tests that switching between configuration, path and segment iteration on a
+ * solver that solves under assumptions retracts iteration steps on the live
+ * translations, exploring the same solutions as re-translating the problem.
+ */
+public class LiveExplorationTests {
+
+	/** SAT4J without support for assumptions, forcing re-translation. */
+	private static final SATFactory PLAIN = new SATFactory() {
+		public SATSolver instance() {
+			return SATFactory.DefaultSAT4J.instance();
+		}
+		public String toString() { return "PlainSAT4J"; }
+	};
+
+	private final Relation a = Relation.unary("a");
+	private final Relation b = Relation.unary_variable("b");
+	private int translations;
+
+	private Explorer<Solution> explore(SATFactory factory, Formula formula, int max) {
+		final Universe uni = new Universe("A0", "A1", "B0");
+		final TupleFactory f = uni.factory();
+		final PardinusBounds bounds = new PardinusBounds(uni);
+		bounds.bound(a, f.range(f.tuple("A0"), f.tuple("A1")));
+		bounds.bound(b, f.setOf("B0"));
+
+		final ExtendedOptions opt = new ExtendedOptions();
+		opt.setRunTemporal(true);
+		opt.setRunUnbounded(false);
+		opt.setRunDecomposed(false);
+		opt.setMaxTraceLength(max);
+		opt.setSolver(factory);
+		translations = 0;
+		opt.setReporter(new AbstractReporter() {
+			@Override
+			public void translatingToCNF(BooleanFormula circuit) {
+				translations++;
+			}
+		});
+		return new PardinusSolver(opt).solveAll(formula, bounds);
+	}
+
+	/**
+	 * Enumerates every configuration, and for each every path, and returns the
+	 * number of solutions found for each configuration.
+	 */
+	private List<Integer> configsAndPaths(SATFactory factory) {
+		final Explorer<Solution> sols = explore(factory, a.lone().and(b.some().eventually()), 2);
+		final List<Integer> res = new ArrayList<Integer>();
+		Solution sol = sols.next();
+		while (sol.sat()) {
+			int paths = 1;
+			while (sols.nextP().sat())
+				paths++;
+			assertFalse(sols.hasNextP());
+			assertTrue(sols.hasNextC());
+			res.add(paths);
+			sol = sols.nextC();
+		}
+		return res;
+	}
+
+	@Test
+	public void testConfigsAndPaths() {
+		final List<Integer> plain = configsAndPaths(PLAIN);
+		final int plainTranslations = translations;
+		final List<Integer> live = configsAndPaths(SATFactory.DefaultSAT4J);
+		assertEquals(plain.size(), live.size());
+		int plainPaths = 0, livePaths = 0;
+		for (int i = 0; i < plain.size(); i++) {
+			plainPaths += plain.get(i);
+			livePaths += live.get(i);
+		}
+		assertEquals(plainPaths, livePaths);
+		// each prefix length is translated once
+		assertTrue(translations <= 2);
+		assertTrue(translations < plainTranslations);
+	}
+
+	/**
+	 * Iterates segments starting at a later state, then at an earlier one, and
+	 * returns whether each step is sat and its prefix length.
+	 */
+	private List<Integer> segments(SATFactory factory) {
+		final Explorer<Solution> sols = explore(factory, a.some().and(b.some().eventually()), 3);
+		final List<Integer> res = new ArrayList<Integer>();
+		Solution sol = sols.next();
+		res.add(((TemporalInstance) sol.instance()).prefixLength());
+		for (int state : new int[] { 2, 2, 1, 1, 1, 0 }) {
+			sol = sols.nextS(state, 1, Collections.singleton(b));
+			res.add(sol.sat() ? ((TemporalInstance) sol.instance()).prefixLength() : 0);
+		}
+		while (sols.nextC().sat())
+			res.add(-1);
+		return res;
+	}
+
+	@Test
+	public void testSegments() {
+		final List<Integer> plain = segments(PLAIN);
+		final int plainTranslations = translations;
+		final List<Integer> live = segments(SATFactory.DefaultSAT4J);
+		assertEquals(plain.size(), live.size());
+		for (int i = 0; i < plain.size(); i++)
+			assertEquals(plain.get(i) > 0, live.get(i) > 0);
+		assertTrue(translations <= plainTranslations);
+	}
+
+	@Test
+	public void testAssumptions() {
+		final SATSolver solver = SATFactory.DefaultSAT4J.instance();
+		assertTrue(SATFactory.DefaultSAT4J.assumptions());
+		assertFalse(PLAIN.assumptions());
+		solver.addVariables(3);
+		solver.addClause(new int[] { -3, 1 });
+		solver.addClause(new int[] { -3, -1 });
+		solver.addClause(new int[] { 1, 2 });
+		assertFalse(solver.solve(new int[] { 3 }));
+		assertTrue(solver.solve(new int[] { -1 }));
+		assertTrue(solver.valueOf(2));
+		assertTrue(solver.solve());
+		solver.free();
+	}
+
+	/**
+	 * Enumerates every configuration and its paths for a formula that needs a
+	 * prefix of at least three states, returning the number of solutions.
+	 */
+	private int shortestThree(SATFactory factory) {
+		final Formula f = b.no().and(b.no().after()).and(b.some().after().after());
+		final Explorer<Solution> sols = explore(factory, a.lone().and(f), 4);
+		int count = 0;
+		for (Solution sol = sols.next(); sol.sat(); sol = sols.nextC()) {
+			assertEquals(3, ((TemporalInstance) sol.instance()).prefixLength());
+			count++;
+			while (sols.nextP().sat())
+				count++;
+		}
+		sols.free();
+		assertFalse(sols.hasNext());
+		return count;
+	}
+
+	@Test
+	public void testUnsatLengthsAreFreed() {
+		final int plain = shortestThree(PLAIN);
+		final int plainTranslations = translations;
+		assertEquals(plain, shortestThree(SATFactory.DefaultSAT4J));
+		// lengths 1 and 2 are translated once, and skipped once every config is reset
+		assertTrue(translations < plainTranslations);
+	}
+}
@@ -0,0 +1,152 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.pardinus.temporal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import kodkod.ast.Expression;
+import kodkod.ast.Formula;
+import kodkod.ast.IntConstant;
+import kodkod.ast.Relation;
+import kodkod.engine.Evaluator;
+import kodkod.engine.PardinusSolver;
+import kodkod.engine.Solution;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.TemporalInstance;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+/**
+ * Tests whether exploring trace lengths concurrently produces the same outcomes
+ * and shortest trace lengths as the regular iteration.
+ * 
+ * @author Nuno Macedo // [HASLab] temporal model finding
+ */
+public class ParallelTraceTests {
+
+	private PardinusBounds bounds;
+	private Relation a, b, s;
+
+	@Before
+	public void setup() {
+		a = Relation.unary_variable("a");
+		b = Relation.unary_variable("b");
+		s = Relation.unary("s");
+		Universe uni = new Universe("A0", "A1", "A2", "A3");
+		TupleFactory f = uni.factory();
+		bounds = new PardinusBounds(uni);
+		bounds.bound(a, f.allOf(1));
+		bounds.bound(b, f.allOf(1));
+		bounds.bound(s, f.allOf(1));
+	}
+
+	private Solution solve(Formula formula, int threads, int min, int max) {
+		ExtendedOptions opt = new ExtendedOptions();
+		opt.setSolver(SATFactory.DefaultSAT4J);
+		opt.setRunTemporal(true);
+		opt.setRunDecomposed(false);
+		opt.setMinTraceLength(min);
+		opt.setMaxTraceLength(max);
+		opt.setTraceThreads(threads);
+		PardinusSolver solver = new PardinusSolver(opt);
+		Solution sol = solver.solve(formula, bounds);
+		solver.free();
+		return sol;
+	}
+
+	private void check(Formula formula, int min, int max) {
+		Solution reg = solve(formula, 1, min, max);
+		Solution par = solve(formula, 3, min, max);
+		assertEquals(reg.sat(), par.sat());
+		if (reg.sat()) {
+			int len = ((TemporalInstance) reg.instance()).prefixLength();
+			assertEquals(len, ((TemporalInstance) par.instance()).prefixLength());
+			assertTrue(len >= min);
+			assertTrue(new Evaluator(par.instance()).evaluate(formula));
+		}
+	}
+
+	@Test
+	public void testSatFirst() {
+		check(a.some().always(), 1, 10);
+	}
+
+	@Test
+	public void testSatDeep() {
+		// a grows strictly until it covers the universe
+		Formula grow = a.no().and(a.eq(s).not().implies(a.in(a.prime()).and(a.eq(a.prime()).not())).always())
+				.and(a.eq(s).eventually()).and(s.count().gte(IntConstant.constant(3)));
+		check(grow, 1, 10);
+	}
+
+	@Test
+	public void testSatMinLength() {
+		check(a.some().always(), 3, 10);
+		check(a.no().and(a.some().after()).and(b.some().after().after()), 2, 10);
+	}
+
+	@Test
+	public void testUnsat() {
+		Formula f = a.some().always().and(a.no().eventually());
+		check(f, 1, 8);
+		assertFalse(solve(f, 4, 1, 8).sat());
+	}
+
+	@Test
+	public void testManyThreads() {
+		// a grows one atom at a time until it covers the universe
+		Formula grow = a.no().and(a.eq(s).not().implies(a.in(a.prime())
+				.and(a.prime().count().eq(a.count().plus(IntConstant.constant(1))))).always())
+				.and(a.eq(s).eventually()).and(s.count().eq(IntConstant.constant(4)));
+		Solution sol = solve(grow, 8, 1, 8);
+		assertTrue(sol.sat());
+		assertEquals(5, ((TemporalInstance) sol.instance()).prefixLength());
+	}
+
+	@Test
+	public void testAbortLosingLengths() {
+		// every length from 2 up is sat, so the longer lengths lose and are aborted
+		Formula f = a.no().and(a.some().after()).and(b.some().always());
+		for (int threads : new int[] { 2, 8 }) {
+			Solution sol = solve(f, threads, 1, 12);
+			assertTrue(sol.sat());
+			assertEquals(2, ((TemporalInstance) sol.instance()).prefixLength());
+		}
+	}
+
+	@Test
+	public void testUniv() {
+		// state atoms not in the trace must not leak into univ
+		Formula f = Expression.UNIV.in(s).and(b.eq(s).eventually()).and(b.no().after().after());
+		check(f, 1, 6);
+		check(Expression.UNIV.in(s).not().and(a.some().always()), 1, 6);
+	}
+
+}
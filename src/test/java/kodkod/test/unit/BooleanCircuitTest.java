@@ -48,7 +48,7 @@ public class BooleanCircuitTest {
 	}
 	
 	private void init() {
-		f = BooleanFactory.factory(size, new Options());
+		f = BooleanFactory.factory(size, options());
 		v = new BooleanVariable[size];
 		for(int i = 0; i < size; i++) {
 			v[i] = f.variable(i+1);
@@ -56,6 +56,15 @@ public class BooleanCircuitTest {
 		}
 	}
 	
+	/**
+	 * Returns the options used to create the factory under test.
+	 * @return the options used to create the factory under test
+	 */
+	// [HASLab]
+	protected Options options() {
+		return new Options();
+	}
+	
 	private static interface Composer {
 		BooleanValue compose(BooleanFactory f, BooleanValue v0, BooleanValue v1);
 	}
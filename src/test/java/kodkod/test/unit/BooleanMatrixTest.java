@@ -23,6 +23,7 @@ import kodkod.engine.bool.Operator;
 import kodkod.engine.config.Options;
 import kodkod.util.ints.IndexedEntry;
 import kodkod.util.ints.IntRange;
+import kodkod.util.ints.IntSet;
 import kodkod.util.ints.Ints;
 
 import org.junit.Before;
@@ -483,4 +484,77 @@ public class BooleanMatrixTest {
 		assertTrue(equivalent(mT324c.override(mT324), mToT));
 
 	}
+
+	/**
+	 * Returns a constant matrix with the given dimensions whose TRUE entries are 
+	 * at the indices i such that (i*step) % mod < cut.
+	 */
+	private final BooleanMatrix constant(Dimensions dims, int step, int mod, int cut) {
+		final IntSet indices = Ints.bestSet(dims.capacity());
+		for(int i = 0; i < dims.capacity(); i++) {
+			if ((i*step) % mod < cut) indices.add(i);
+		}
+		return f.matrix(dims, indices, indices);
+	}
+
+	/**
+	 * Returns a matrix that can store any value, with the same entries as the given matrix.
+	 */
+	private final BooleanMatrix general(BooleanMatrix m) {
+		final BooleanMatrix ret = f.matrix(m.dimensions());
+		for(IndexedEntry<BooleanValue> e : m) {
+			ret.set(e.index(), e.value());
+		}
+		return ret;
+	}
+
+	private final void checkConstantOperations(int n) {
+		final Dimensions dim2 = Dimensions.square(n, 2), dim1 = Dimensions.square(n, 1);
+		final BooleanMatrix a = constant(dim2, 7, 11, 3), b = constant(dim2, 5, 13, 2),
+				c = constant(dim2, 3, 17, 9), u = constant(dim1, 1, 3, 2);
+		final BooleanMatrix ga = general(a), gb = general(b), gc = general(c), gu = general(u);
+
+		assertTrue(equivalent(ga.and(gb), a.and(b)));
+		assertTrue(equivalent(ga.and(gb, gc), a.and(b, c)));
+		assertTrue(equivalent(ga.or(gb), a.or(b)));
+		assertTrue(equivalent(ga.or(gb, gc), a.or(b, c)));
+		assertTrue(equivalent(ga.difference(gb), a.difference(b)));
+		assertTrue(equivalent(ga.dot(gb), a.dot(b)));
+		assertTrue(equivalent(gu.dot(ga), u.dot(a)));
+		assertTrue(equivalent(ga.dot(gu), a.dot(u)));
+		assertTrue(equivalent(ga.closure(), a.closure()));
+		assertTrue(equivalent(gb.closure(), b.closure()));
+		assertTrue(equivalent(ga.transpose(), a.transpose()));
+		assertTrue(equivalent(gu.cross(gb), u.cross(b)));
+		assertTrue(equivalent(gu.cross(gu), u.cross(u)));
+
+		// a chain through every atom closes into a full upper triangle
+		final IntSet next = Ints.bestSet(dim2.capacity());
+		for(int i = 0; i < n-1; i++) next.add(i*n + i + 1);
+		final BooleanMatrix closed = f.matrix(dim2, next, next).closure();
+		assertEquals(n*(n-1)/2, closed.density());
+		assertTrue(equivalent(general(f.matrix(dim2, next, next)).closure(), closed));
+	}
+
+	@Test
+	public final void testConstantOperations() {
+		// bit set indices, within a single word and across words
+		checkConstantOperations(5);
+		checkConstantOperations(30);
+		// tree set indices, with rows that span several words
+		checkConstantOperations(70);
+	}
+
+	@Test
+	public final void testSparseConstantOperations() {
+		// too sparse for row bit sets, which would take 40 words per row of b
+		final int n = 50;
+		final Dimensions dim2 = Dimensions.square(n, 2), dim3 = Dimensions.square(n, 3);
+		final IntSet ai = Ints.bestSet(dim2.capacity()), bi = Ints.bestSet(dim3.capacity());
+		for(int i = 0; i < n; i += 3) ai.add(i*n + (i*7) % n);
+		for(int i = 0; i < n; i += 2) bi.add(i*n*n + (i*13) % (n*n));
+		final BooleanMatrix a = f.matrix(dim2, ai, ai), b = f.matrix(dim3, bi, bi);
+		assertTrue(equivalent(general(a).dot(general(b)), a.dot(b)));
+		assertTrue(equivalent(general(a).closure(), a.closure()));
+	}
 }
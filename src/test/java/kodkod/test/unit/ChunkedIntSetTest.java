@@ -0,0 +1,216 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import kodkod.instance.TupleFactory;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+import kodkod.util.ints.ChunkedIntSet;
+import kodkod.util.ints.IntIterator;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.IntTreeSet;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ChunkedIntSet} against {@link IntTreeSet}, over sparse, dense 
+ * and run-like chunks.  Iterators are checked against a {@link TreeSet}.
+ */
+public class ChunkedIntSetTest {
+	private static final int RANGE = 1 << 18;
+	private final Random random = new Random(1729);
+	
+	/**
+	 * Fills the given sets with the same elements: a sparse chunk, a dense 
+	 * chunk, a chunk of long runs, and a few negative elements.
+	 */
+	private void fill(IntSet s1, IntSet s2) {
+		for(int i = 0; i < 300; i++) {
+			final int v = random.nextInt(1 << 16);
+			assertEquals(s1.add(v), s2.add(v));
+		}
+		for(int i = 0; i < 40000; i++) {
+			final int v = (1 << 16) + random.nextInt(1 << 16);
+			assertEquals(s1.add(v), s2.add(v));
+		}
+		for(int run = 0; run < 20; run++) {
+			final int start = (2 << 16) + random.nextInt((1 << 16) - 2000);
+			for(int v = start, len = random.nextInt(2000); v < start + len; v++) 
+				assertEquals(s1.add(v), s2.add(v));
+		}
+		for(int i = 0; i < 10; i++) {
+			final int v = -random.nextInt(RANGE);
+			assertEquals(s1.add(v), s2.add(v));
+		}
+	}
+	
+	private void assertSame(IntSet expected, IntSet actual) {
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected, actual);
+		assertEquals(actual, expected);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		if (!expected.isEmpty()) {
+			assertEquals(expected.min(), actual.min());
+			assertEquals(expected.max(), actual.max());
+		}
+	}
+	
+	private void assertIterators(IntSet expected, IntSet actual, int from, int to) {
+		final TreeSet<Integer> reference = new TreeSet<Integer>();
+		for(IntIterator itr = expected.iterator(); itr.hasNext(); )
+			reference.add(itr.next());
+		final Iterator<Integer> e = from <= to ? 
+				reference.subSet(from, true, to, true).iterator() : 
+				reference.subSet(to, true, from, true).descendingIterator();
+		final IntIterator a = actual.iterator(from, to);
+		while(e.hasNext()) {
+			assertTrue(a.hasNext());
+			assertEquals((int) e.next(), a.next());
+		}
+		assertFalse(a.hasNext());
+	}
+	
+	@Test
+	public void testQueries() {
+		final IntSet tree = new IntTreeSet(), chunked = new ChunkedIntSet();
+		fill(tree, chunked);
+		assertSame(tree, chunked);
+		
+		for(int i = 0; i < 5000; i++) {
+			final int v = random.nextInt(2 * RANGE) - RANGE;
+			assertEquals(tree.contains(v), chunked.contains(v));
+			if (v <= tree.max())
+				assertEquals(tree.ceil(v), chunked.ceil(v));
+			if (v >= tree.min())
+				assertEquals(tree.floor(v), chunked.floor(v));
+		}
+		
+		try {
+			chunked.ceil(chunked.max() + 1);
+			assertTrue(false);
+		} catch (NoSuchElementException ex) { }
+		try {
+			chunked.floor(chunked.min() - 1);
+			assertTrue(false);
+		} catch (NoSuchElementException ex) { }
+		
+		assertIterators(tree, chunked, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		assertIterators(tree, chunked, Integer.MAX_VALUE, Integer.MIN_VALUE);
+		for(int i = 0; i < 50; i++) {
+			final int from = random.nextInt(RANGE), to = random.nextInt(RANGE);
+			assertIterators(tree, chunked, from, to);
+		}
+	}
+	
+	@Test
+	public void testUpdates() {
+		final IntSet tree = new IntTreeSet(), chunked = new ChunkedIntSet();
+		fill(tree, chunked);
+		
+		for(int i = 0; i < 60000; i++) {
+			final int v = random.nextInt(3 << 16);
+			assertEquals(tree.remove(v), chunked.remove(v));
+		}
+		assertSame(tree, chunked);
+		
+		for(IntIterator itr = chunked.iterator(RANGE, 0); itr.hasNext(); ) {
+			final int v = itr.next();
+			if (v % 3 == 0) {
+				itr.remove();
+				tree.remove(v);
+			}
+		}
+		assertSame(tree, chunked);
+		
+		chunked.clear();
+		assertTrue(chunked.isEmpty());
+		assertFalse(chunked.iterator().hasNext());
+	}
+	
+	@Test
+	public void testBulkOperations() {
+		final IntSet tree1 = new IntTreeSet(), tree2 = new IntTreeSet();
+		final ChunkedIntSet chunked1 = new ChunkedIntSet(), chunked2 = new ChunkedIntSet();
+		fill(tree1, chunked1);
+		fill(tree2, chunked2);
+		
+		final IntSet union = new IntTreeSet(tree1), chunkedUnion = chunked1.clone();
+		union.addAll(tree2);
+		chunkedUnion.addAll(chunked2);
+		assertSame(union, chunkedUnion);
+		assertTrue(chunkedUnion.containsAll(chunked1));
+		assertTrue(chunkedUnion.containsAll(chunked2));
+		assertFalse(chunked1.containsAll(chunkedUnion));
+		
+		final IntSet inter = new IntTreeSet(tree1), chunkedInter = chunked1.clone();
+		inter.retainAll(tree2);
+		chunkedInter.retainAll(chunked2);
+		assertSame(inter, chunkedInter);
+		
+		final IntSet diff = new IntTreeSet(tree1), chunkedDiff = chunked1.clone();
+		diff.removeAll(tree2);
+		chunkedDiff.removeAll(chunked2);
+		assertSame(diff, chunkedDiff);
+		
+		// the operands are unaffected by the operations on their clones
+		assertSame(tree1, chunked1);
+		assertSame(tree2, chunked2);
+		
+		// and shared chunks are copied before being modified
+		chunked2.clear();
+		chunked1.removeAll(chunked1.clone());
+		assertTrue(chunked1.isEmpty());
+		assertSame(union, chunkedUnion);
+	}
+	
+	@Test
+	public void testTupleFactory() {
+		final Object[] atoms = new Object[70];
+		for(int i = 0; i < atoms.length; i++) 
+			atoms[i] = "A" + i;
+		final TupleFactory f = new Universe(atoms).factory();
+		f.setChunkedIndices(true);
+		final TupleSet all = f.allOf(3), some = f.range(f.tuple("A1", "A2", "A3"), f.tuple("A60", "A2", "A3"));
+		assertEquals(70 * 70 * 70, all.size());
+		assertTrue(all.containsAll(some));
+		
+		final TupleSet copy = all.clone();
+		copy.removeAll(some);
+		assertEquals(all.size() - some.size(), copy.size());
+		assertEquals(70 * 70 * 70, all.size());
+		
+		f.setChunkedIndices(false);
+		final TupleSet tree = f.allOf(3);
+		tree.removeAll(some);
+		assertEquals(tree, copy);
+	}
+}
@@ -0,0 +1,183 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import kodkod.ast.Expression;
+import kodkod.ast.Formula;
+import kodkod.ast.IntConstant;
+import kodkod.ast.IntExpression;
+import kodkod.ast.Relation;
+import kodkod.ast.Variable;
+import kodkod.ast.operator.IntOperator;
+import kodkod.engine.Evaluator;
+import kodkod.engine.config.Options;
+import kodkod.instance.Instance;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the {@link EvaluatorTest evaluator tests} over compiled evaluators, and
+ * compares compiled evaluation against the translator on integer and
+ * relational operators.
+ */
+public class CompiledEvaluatorTest extends EvaluatorTest {
+
+	private final Relation r, s, t;
+	private Evaluator reference, compiled;
+
+	public CompiledEvaluatorTest() {
+		r = Relation.binary("r");
+		s = Relation.unary("s");
+		t = Relation.ternary("t");
+	}
+
+	@Override
+	protected Evaluator evaluator(Instance instance) {
+		final Evaluator evaluator = new Evaluator(instance, new Options(), true);
+		assertTrue(evaluator.compiled());
+		return evaluator;
+	}
+
+	@Before
+	public void setUpInts() {
+		final List<Object> atoms = new ArrayList<Object>();
+		atoms.add("a0"); atoms.add("a1"); atoms.add("a2");
+		for(int i = -4; i < 4; i++)
+			atoms.add(i);
+		final Universe u = new Universe(atoms);
+		final TupleFactory f = u.factory();
+		final Instance inst = new Instance(u);
+		for(int i = -4; i < 4; i++)
+			inst.add(i, f.setOf(i));
+		inst.add(r, f.setOf(f.tuple("a0", "a1"), f.tuple("a1", "a2"), f.tuple("a2", 1),
+						    f.tuple((Object) 1, -2), f.tuple(-2, "a1"), f.tuple((Object) 3, 3)));
+		inst.add(s, f.setOf(-4, -1, 1, 2, 3));
+		inst.add(t, f.setOf(f.tuple("a0", "a1", 1), f.tuple("a0", "a2", 2), f.tuple("a1", "a1", -4),
+						    f.tuple(2, "a0", "a0")));
+		final Options options = new Options();
+		options.setBitwidth(4);
+		reference = new Evaluator(inst, options);
+		compiled = new Evaluator(inst, options, true);
+		assertTrue(compiled.compiled());
+	}
+
+	private void check(Formula formula) {
+		assertEquals(formula.toString(), reference.evaluate(formula), compiled.evaluate(formula));
+	}
+
+	private void check(Expression expr) {
+		assertEquals(expr.toString(), reference.evaluate(expr), compiled.evaluate(expr));
+	}
+
+	private void check(IntExpression intExpr) {
+		assertEquals(intExpr.toString(), reference.evaluate(intExpr), compiled.evaluate(intExpr));
+	}
+
+	@Test
+	public final void testIntOperators() {
+		final int[] values = { -8, -3, -1, 0, 1, 2, 5, 7 };
+		final IntOperator[] binary = { IntOperator.PLUS, IntOperator.MINUS, IntOperator.MULTIPLY,
+				IntOperator.DIVIDE, IntOperator.MODULO, IntOperator.AND, IntOperator.OR, IntOperator.XOR,
+				IntOperator.SHL, IntOperator.SHR, IntOperator.SHA };
+		final IntOperator[] unary = { IntOperator.NEG, IntOperator.NOT, IntOperator.ABS, IntOperator.SGN };
+		for(int a : values) {
+			final IntExpression left = IntConstant.constant(a);
+			for(IntOperator op : unary) {
+				check(left.apply(op));
+			}
+			for(int b : values) {
+				final IntExpression right = IntConstant.constant(b);
+				for(IntOperator op : binary) {
+					final IntExpression e = left.compose(op, right);
+					check(e);
+					check(e.toExpression());
+					check(e.toBitset());
+					check(e.lt(right));
+					check(e.gte(left));
+				}
+			}
+		}
+	}
+
+	@Test
+	public final void testIntCasts() {
+		check(s.sum());
+		check(s.count());
+		check(r.count());
+		check(s.sum().toExpression());
+		check(s.sum().plus(r.count()).toBitset());
+		check(Expression.INTS.sum());
+		check(r.join(Expression.INTS).sum());
+		final Variable x = Variable.unary("x");
+		check(x.sum().multiply(IntConstant.constant(3)).sum(x.oneOf(s)));
+		check(x.count().sum(x.oneOf(Expression.UNIV)));
+		check(x.sum().gt(IntConstant.constant(0)).thenElse(x.sum(), x.sum().negate()).sum(x.oneOf(s)));
+	}
+
+	@Test
+	public final void testRelationalOperators() {
+		check(r.closure());
+		check(r.reflexiveClosure());
+		check(r.transpose().join(r));
+		check(r.override(s.product(Expression.UNIV)));
+		check(t.override(r.join(s).product(r)));
+		check(Expression.product(s, r, s));
+		check(t.join(r));
+		check(r.join(t));
+		check(s.join(t).join(r));
+		check(t.project(IntConstant.constant(2), IntConstant.constant(0)));
+		check(t.project(IntConstant.constant(1), IntConstant.constant(1), IntConstant.constant(0)));
+		check(t.project(IntConstant.constant(3), IntConstant.constant(0)));
+		check(r.project(IntConstant.constant(0)));
+		check(Expression.IDEN.intersection(r));
+		check(Expression.INTS.difference(s));
+		check(s.some().thenElse(r, Expression.IDEN));
+		check(r.totalOrder(s, s, s));
+		check(r.function(Expression.UNIV, Expression.UNIV));
+		check(r.acyclic());
+	}
+
+	@Test
+	public final void testBoundVariables() {
+		final Variable x = Variable.unary("x"), y = Variable.unary("y");
+		// x.r occurs in different scopes, and must not be memoized
+		final Expression xr = x.join(r);
+		check(xr.some().forAll(x.oneOf(s)));
+		check(xr.some().forSome(x.oneOf(s)));
+		check(y.in(r.join(x)).comprehension(x.oneOf(Expression.UNIV).and(y.oneOf(xr))));
+		check(xr.in(y.join(r.closure())).forSome(y.oneOf(Expression.UNIV)).forAll(x.oneOf(Expression.UNIV)));
+		// x is shadowed by an inner declaration ranging over the outer x.r
+		check(xr.some().forSome(x.oneOf(xr)).forAll(x.oneOf(Expression.UNIV)));
+		check(xr.no().forAll(x.oneOf(xr)).forSome(x.oneOf(Expression.UNIV)));
+		// the closed r.r is shared across bindings
+		final Expression rr = r.join(r);
+		check(x.in(rr.join(Expression.UNIV)).forAll(x.oneOf(rr.join(Expression.UNIV))));
+		check(rr.some().and(x.join(rr).count().lte(IntConstant.constant(1)).forAll(x.oneOf(Expression.UNIV))));
+	}
+
+	@Test
+	public final void testRepeatedQueries() {
+		final Expression closure = r.closure();
+		for(int i = 0; i < 3; i++) {
+			check(closure);
+			check(closure.join(s).some());
+			check(closure.count());
+		}
+	}
+
+	@Test
+	public final void testFallback() {
+		final Options options = new Options();
+		options.setNoOverflow(true);
+		assertFalse(new Evaluator(compiled.instance(), options, true).compiled());
+		assertFalse(new Evaluator(compiled.instance()).compiled());
+	}
+}
@@ -0,0 +1,139 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import kodkod.ast.Relation;
+import kodkod.engine.unbounded.ElectrodReader;
+import kodkod.engine.unbounded.InvalidUnboundedSolution;
+import kodkod.instance.Instance;
+import kodkod.instance.PardinusBounds;
+import kodkod.instance.TemporalInstance;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+import org.junit.Test;
+
+/**
+ * Tests the streaming reader of Electrod solutions.
+ */
+public class ElectrodReaderTest {
+	private final Universe universe = new Universe("A0", "A1", "A2");
+	private final TupleFactory factory = universe.factory();
+	private final Relation r = Relation.unary("r");
+	private final Relation s = Relation.binary_variable("s");
+	private final PardinusBounds bounds = new PardinusBounds(universe);
+	
+	public ElectrodReaderTest() {
+		bounds.bound(r, factory.allOf(1));
+		bounds.bound(s, factory.allOf(2));
+	}
+
+	private static File write(String xml) throws IOException {
+		final File file = File.createTempFile("electrod", ".xml");
+		file.deleteOnExit();
+		try (Writer w = new FileWriter(file)) {
+			w.write(xml);
+		}
+		return file;
+	}
+
+	private static final String TRACE = 
+			"<?xml version=\"1.0\"?>\n" +
+			"<solution nbvars=\"12\" conversion-time=\"3\" analysis-time=\"4\">\n" +
+			"  <st loop-target=\"false\">\n" +
+			"    <rel name=\"r\"><t><a>A0</a></t><t><a>A2</a></t></rel>\n" +
+			"    <rel name=\"ignored\"><t><a>A1</a></t></rel>\n" +
+			"  </st>\n" +
+			"  <st loop-target=\"true\">\n" +
+			"    <rel name=\"r\"><t><a>A0</a></t><t><a>A2</a></t></rel>\n" +
+			"    <rel name=\"s\"><t><a>A1</a><a>A2</a></t></rel>\n" +
+			"  </st>\n" +
+			"</solution>\n";
+
+	@Test
+	public void testRead() throws IOException {
+		final ElectrodReader rd = new ElectrodReader(bounds);
+		final TemporalInstance inst = rd.read(write(TRACE));
+		assertEquals(12, rd.nbvars);
+		assertEquals(3, rd.ctime);
+		assertEquals(4, rd.atime);
+		assertEquals(1, inst.loop);
+		assertEquals(2, inst.prefixLength());
+		assertEquals(factory.setOf("A0", "A2"), inst.state(0).tuples(r));
+		assertTrue(inst.state(0).tuples(s).isEmpty());
+		assertEquals(factory.setOf(factory.tuple("A1", "A2")), inst.state(1).tuples(s));
+	}
+
+	@Test
+	public void testLazyStates() throws IOException {
+		final ElectrodReader rd = new ElectrodReader(bounds);
+		try (ElectrodReader.StateIterator it = rd.states(write(TRACE))) {
+			assertEquals(12, rd.nbvars);
+			assertTrue(it.hasNext());
+			final Instance first = it.next();
+			assertEquals(factory.setOf("A0", "A2"), first.tuples(r));
+			assertEquals(-1, rd.loop());
+		}
+	}
+
+	@Test
+	public void testUnsat() throws IOException {
+		final ElectrodReader rd = new ElectrodReader(bounds);
+		assertNull(rd.read(write("<solution nbvars=\"0\" conversion-time=\"1\" analysis-time=\"2\"/>")));
+		assertEquals(2, rd.atime);
+	}
+
+	@Test
+	public void testMalformed() throws IOException {
+		final ElectrodReader rd = new ElectrodReader(bounds);
+		final File bad = write(TRACE.replace("<a>A1</a><a>A2</a>", "<a>B1</a><a>A2</a>"));
+		final ElectrodReader.StateIterator it = rd.states(bad);
+		assertTrue(it.hasNext());
+		it.next();
+		try {
+			it.hasNext();
+			fail("Expected an InvalidUnboundedSolution for an unknown atom.");
+		} catch (InvalidUnboundedSolution e) {
+			// fine
+		}
+		assertFalse(it.hasNext());
+		try {
+			rd.read(write(TRACE.substring(0, TRACE.length() / 2)));
+			fail("Expected an InvalidUnboundedSolution for a truncated file.");
+		} catch (InvalidUnboundedSolution e) {
+			// fine
+		}
+	}
+
+}
@@ -5,7 +5,9 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.Before;
@@ -18,6 +20,7 @@ import kodkod.ast.Formula;
 import kodkod.ast.Relation;
 import kodkod.ast.Variable;
 import kodkod.engine.Evaluator;
+import kodkod.engine.config.Options;
 import kodkod.instance.Instance;
 import kodkod.instance.Tuple;
 import kodkod.instance.TupleFactory;
@@ -110,7 +113,14 @@ public class EvaluatorTest {
 								 f.tuple("Person_7", "Person_3"),
 								 f.tuple("Person_7", "Person_4"),
 								 f.tuple("Person_7", "Person_5")));
-		evaluator = new Evaluator(inst);
+		evaluator = evaluator(inst);
+	}
+
+	/**
+	 * Returns the evaluator under test for the given instance.
+	 */
+	protected Evaluator evaluator(Instance instance) {
+		return new Evaluator(instance);
 	}
 
 
@@ -428,5 +438,33 @@ public class EvaluatorTest {
 				eval(person.product(univ.difference(shaken.join(person))).product(person)));
 	}
 
+	@Test
+	public final void testCompiledLongIndices() {
+		final List<String> atoms = new ArrayList<String>(100);
+		for (int i = 0; i < 100; i++)
+			atoms.add("a" + i);
+		final Universe u = new Universe(atoms);
+		final TupleFactory f = u.factory();
+		final Instance inst = new Instance(u);
+		final Relation r = Relation.unary("r");
+		inst.add(r, f.setOf("a99"));
+		final String[] qs = { "a14", "a10", "a6", "a54", "a7" };
+		Expression q = null, r5 = null;
+		for (int i = 0; i < qs.length; i++) {
+			final Relation qi = Relation.unary("q" + i);
+			inst.add(qi, f.setOf(qs[i]));
+			q = q == null ? qi : q.product(qi);
+			r5 = r5 == null ? r : r5.product(r);
+		}
+		// the 5-ary tuples are long-indexed, and a99^5 and the q tuple collide modulo 2^32
+		final Options opts = new Options();
+		final Evaluator compiled = new Evaluator(inst, opts, true);
+		assertTrue(compiled.compiled());
+		assertEquals(new Evaluator(inst, opts).evaluate(r5.eq(q)), compiled.evaluate(r5.eq(q)));
+		assertFalse(compiled.evaluate(r5.eq(q)));
+		final TupleSet value = compiled.evaluate(r5);
+		assertEquals(1, value.size());
+		assertEquals(f.tuple("a99", "a99", "a99", "a99", "a99"), value.iterator().next());
+	}
 
 }
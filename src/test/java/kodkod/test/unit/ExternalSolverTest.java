@@ -0,0 +1,137 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import kodkod.engine.satlab.SATAbortedException;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.engine.satlab.SATSolver;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the streaming mode of external solvers, using shell scripts that 
+ * mimic a SAT solver.
+ */
+public class ExternalSolverTest {
+
+	private static final String SH = "/bin/sh";
+	
+	@Before
+	public void checkShell() {
+		assumeTrue(new File(SH).canExecute());
+	}
+	
+	private static SATSolver solver(SATFactory factory) {
+		final SATSolver solver = factory.instance();
+		solver.addVariables(3);
+		solver.addClause(new int[] { 1, -2 });
+		solver.addClause(new int[] { -1, 3 });
+		solver.addClause(new int[] { 2 });
+		return solver;
+	}
+	
+	@Test
+	public void testStreaming() {
+		// fails when given a file, so only succeeds through stdin
+		final String script = "case \"$0\" in *kodkod*) exit 1;; esac; "
+				+ "read h; [ \"$h\" = \"p cnf 3 3\" ] || exit 1; "
+				+ "read c1; [ \"$c1\" = \"1 -2 0\" ] || exit 1; "
+				+ "cat > /dev/null; "
+				+ "echo 'c streamed'; echo 's SATISFIABLE'; echo 'v 1 2'; echo 'v 3 0'";
+		final SATSolver solver = solver(SATFactory.externalStreamingFactory(SH, false, false, "-c", script));
+		assertTrue(solver.solve());
+		assertTrue(solver.valueOf(1));
+		assertTrue(solver.valueOf(2));
+		assertTrue(solver.valueOf(3));
+		assertEquals(3, solver.numberOfClauses());
+		solver.free();
+	}
+	
+	@Test
+	public void testStreamingUnsat() {
+		final String script = "cat > /dev/null; echo 's UNSATISFIABLE'";
+		final SATSolver solver = solver(SATFactory.externalStreamingFactory(SH, false, false, "-c", script));
+		assertFalse(solver.solve());
+		solver.free();
+	}
+	
+	@Test
+	public void testFileFallback() {
+		// ignores stdin and only answers when given a file
+		final String script = "case \"$0\" in *kodkod*) ;; *) exit 1;; esac; "
+				+ "grep -q '^p cnf 3 3$' \"$0\" || exit 1; "
+				+ "echo 's SATISFIABLE'; echo 'v -1 -2 3 0'";
+		final SATSolver solver = solver(SATFactory.externalStreamingFactory(SH, false, false, "-c", script));
+		assertTrue(solver.solve());
+		assertFalse(solver.valueOf(1));
+		assertFalse(solver.valueOf(2));
+		assertTrue(solver.valueOf(3));
+		solver.free();
+	}
+	
+	@Test
+	public void testFileMode() {
+		final String script = "grep -q '^p cnf 3 3' \"$0\" || exit 1; echo 's SATISFIABLE'; echo 'v 1 -2 -3 0'";
+		final SATSolver solver = solver(SATFactory.externalFactory(SH, null, false, false, "-c", script));
+		assertTrue(solver.solve());
+		assertTrue(solver.valueOf(1));
+		assertFalse(solver.valueOf(2));
+		assertFalse(solver.valueOf(3));
+		solver.free();
+	}
+	
+	@Test
+	public void testMalformedOutput() throws Exception {
+		// reports a malformed solution and keeps running
+		final File pid = File.createTempFile("solver", ".pid");
+		pid.deleteOnExit();
+		final String script = "echo $$ > " + pid.getAbsolutePath() + "; "
+				+ "echo 's SATISFIABLE'; echo 'v 1 x 0'; exec sleep 60";
+		final SATSolver solver = solver(SATFactory.externalStreamingFactory(SH, false, false, "-c", script));
+		try {
+			solver.solve();
+			fail();
+		} catch (SATAbortedException e) { }
+		solver.free();
+		final String id = new String(Files.readAllBytes(pid.toPath())).trim();
+		// the solver process must have been destroyed
+		boolean alive = true;
+		for (int i = 0; alive && i < 50; i++) {
+			alive = new ProcessBuilder(SH, "-c", "kill -0 " + id).start().waitFor() == 0;
+			if (alive)
+				Thread.sleep(100);
+		}
+		assertFalse(alive);
+	}
+	
+}
@@ -0,0 +1,169 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import kodkod.ast.Expression;
+import kodkod.ast.Formula;
+import kodkod.ast.QuantifiedFormula;
+import kodkod.ast.Relation;
+import kodkod.ast.Variable;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.config.AbstractReporter;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.instance.Bounds;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that quantifiers are only grounded on demand, skipping the translation 
+ * of bodies that are determined by constant guards, and that the grounding of 
+ * each quantified formula is reported.
+ */
+public class GroundingTest {
+	private static final int SIZE = 6;
+	
+	private final Relation next = Relation.binary("next"), r = Relation.binary("r");
+	private final Variable x = Variable.unary("x"), y = Variable.unary("y");
+	private final Map<QuantifiedFormula, int[]> groundings = new IdentityHashMap<QuantifiedFormula, int[]>();
+	private Bounds bounds;
+	private Solver solver;
+	
+	@Before
+	public void setUp() {
+		final List<String> atoms = new ArrayList<String>();
+		for(int i = 0; i < SIZE; i++) 
+			atoms.add("A" + i);
+		final Universe u = new Universe(atoms);
+		final TupleFactory f = u.factory();
+		bounds = new Bounds(u);
+		final TupleSet succ = f.noneOf(2);
+		for(int i = 0; i < SIZE - 1; i++)
+			succ.add(f.tuple("A" + i, "A" + (i + 1)));
+		bounds.boundExactly(next, succ);
+		bounds.bound(r, f.allOf(2));
+		
+		solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		solver.options().setSkolemDepth(-1);
+		solver.options().setReporter(new AbstractReporter() {
+			@Override
+			public void reportGrounding(QuantifiedFormula quant, int bindings, int trivial) {
+				groundings.put(quant, new int[] { bindings, trivial });
+			}
+		});
+	}
+	
+	private Solution solve(Formula formula) {
+		groundings.clear();
+		return solver.solve(formula, bounds);
+	}
+	
+	@Test
+	public final void testGuardedAll() {
+		final Formula guarded = x.product(y).in(next).implies(x.product(y).in(r));
+		final QuantifiedFormula all = (QuantifiedFormula) guarded.forAll(x.oneOf(Expression.UNIV).and(y.oneOf(Expression.UNIV)));
+		final Solution sol = solve(all.and(r.no().not()));
+		assertTrue(sol.sat());
+		assertTrue(sol.instance().tuples(r).containsAll(sol.instance().tuples(next)));
+		final int[] counts = groundings.get(all);
+		// only the bindings in next are not determined by the guard
+		assertEquals(SIZE * SIZE, counts[0]);
+		assertEquals(SIZE * SIZE - (SIZE - 1), counts[1]);
+	}
+	
+	@Test
+	public final void testGuardedSome() {
+		final Formula guarded = x.product(y).in(next).and(y.product(x).in(r));
+		final QuantifiedFormula some = (QuantifiedFormula) guarded.forSome(x.oneOf(Expression.UNIV).and(y.oneOf(Expression.UNIV)));
+		final Solution sol = solve(some.and(r.lone()));
+		assertTrue(sol.sat());
+		final int[] counts = groundings.get(some);
+		assertEquals(SIZE * SIZE, counts[0]);
+		assertEquals(SIZE * SIZE - (SIZE - 1), counts[1]);
+		assertFalse(solve(some.and(r.no())).sat());
+	}
+	
+	/**
+	 * Asserts that the given bodies, which only differ in the position of the 
+	 * guard, are translated into the same number of variables, since the 
+	 * operands of a body that are determined by its guard are not translated.
+	 */
+	private void assertGuardedFirst(Formula guardFirst, Formula guardLast, boolean some) {
+		final Formula first = some ? guardFirst.forSome(x.oneOf(Expression.UNIV).and(y.oneOf(Expression.UNIV))) :
+			guardFirst.forAll(x.oneOf(Expression.UNIV).and(y.oneOf(Expression.UNIV)));
+		final QuantifiedFormula last = (QuantifiedFormula) (some ? guardLast.forSome(x.oneOf(Expression.UNIV).and(y.oneOf(Expression.UNIV))) :
+			guardLast.forAll(x.oneOf(Expression.UNIV).and(y.oneOf(Expression.UNIV))));
+		final Solution expected = solve(first);
+		final Solution sol = solve(last);
+		assertEquals(expected.sat(), sol.sat());
+		assertEquals(expected.stats().variables(), sol.stats().variables());
+		assertEquals(expected.stats().clauses(), sol.stats().clauses());
+		final int[] counts = groundings.get(last);
+		assertEquals(SIZE * SIZE, counts[0]);
+		assertEquals(SIZE * SIZE - (SIZE - 1), counts[1]);
+	}
+	
+	@Test
+	public final void testTrailingGuard() {
+		final Formula guard = x.product(y).in(next), body = x.join(r).intersection(y.join(r)).some();
+		assertGuardedFirst(guard.implies(body), body.or(guard.not()), false);
+		assertGuardedFirst(guard.and(body), body.and(guard), true);
+	}
+	
+	@Test
+	public final void testNaryGuard() {
+		final Formula guard = x.product(y).in(next), body = x.join(r).intersection(y.join(r)).some();
+		final Formula other = x.product(x).in(r).not();
+		assertGuardedFirst(Formula.and(guard, body, other), Formula.and(body, guard, other), true);
+		assertGuardedFirst(Formula.or(guard.not(), body, other), Formula.or(body, other, guard.not()), false);
+	}
+	
+	@Test
+	public final void testNestedCounts() {
+		final QuantifiedFormula inner = (QuantifiedFormula) x.product(y).in(r).forSome(y.oneOf(x.join(next)));
+		final QuantifiedFormula outer = (QuantifiedFormula) x.join(next).some().implies(inner).forAll(x.oneOf(Expression.UNIV));
+		final Solution sol = solve(outer);
+		assertTrue(sol.sat());
+		assertTrue(sol.instance().tuples(r).containsAll(sol.instance().tuples(next)));
+		// the last atom has no successor, so that its binding is trivially true
+		assertEquals(SIZE, groundings.get(outer)[0]);
+		assertEquals(1, groundings.get(outer)[1]);
+		// the inner quantifier is only grounded for the atoms with a successor
+		assertEquals(SIZE - 1, groundings.get(inner)[0]);
+		assertEquals(0, groundings.get(inner)[1]);
+	}
+}
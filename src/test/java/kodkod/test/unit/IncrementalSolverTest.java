@@ -263,4 +263,67 @@ public final class IncrementalSolverTest {
 	}
 
 
+	// [HASLab]
+	@Test
+	public void testScopedUnsatisfiableStep() {
+		if (!solver.options().solver().assumptions()) return;
+		final Bounds b = new Bounds(new Universe("A0", "A1", "A2"));
+		final TupleFactory t = b.universe().factory();
+		final Relation r0 = Relation.unary("r0");
+		final Relation r1 = Relation.unary("r1");
+		b.bound(r0, t.setOf("A0","A1"));
+		b.bound(r1, t.setOf("A1","A2"));
+		final Formula[] f = { r0.some(), r1.some(), r0.intersection(r1).some(), r0.intersection(r1).no(), r0.eq(r1) };
+
+		checkModel(solver.solve(f[0], b), f[0]);
+		b.relations().clear();
+		checkModel(solver.solve(f[1], b), f[0], f[1]);
+
+		solver.push();
+		assertEquals(1, solver.scopes());
+		checkModel(solver.solve(f[2], b), f[0], f[1], f[2]);
+		assertEquals(UNSATISFIABLE, solver.solve(f[3], b).outcome());
+		assertTrue(solver.usable());
+		solver.pop();
+		assertEquals(0, solver.scopes());
+
+		// the formulas of the popped scope are retracted
+		checkModel(solver.solve(f[3], b), f[0], f[1], f[3]);
+		solver.push();
+		assertEquals(UNSATISFIABLE, solver.solve(f[4], b).outcome());
+		solver.pop();
+		checkModel(solver.solve(Formula.TRUE, b), f[0], f[1], f[3]);
+
+		try {
+			solver.pop();
+			fail("Expected an IllegalStateException when popping without an open scope.");
+		} catch (IllegalStateException ise) {
+			// fine
+		}
+		
+		assertEquals(UNSATISFIABLE, solver.solve(f[4], b).outcome());
+		assertFalse(solver.usable());
+	}
+
+	// [HASLab]
+	@Test
+	public void testScopeOverTriviallySatisfiableStep() {
+		if (!solver.options().solver().assumptions()) return;
+		final Bounds b = new Bounds(new Universe("A0", "A1"));
+		final TupleFactory t = b.universe().factory();
+		final Relation r0 = Relation.unary("r0");
+		final Relation r1 = Relation.unary("r1");
+		b.bound(r0, t.setOf("A0","A1"));
+		assertEquals(TRIVIALLY_SATISFIABLE, solver.solve(Formula.TRUE, b).outcome());
+
+		b.relations().clear();
+		b.bound(r1, t.setOf("A0","A1"));
+		solver.push();
+		assertEquals(UNSATISFIABLE, solver.solve(r0.some().and(r1.eq(r0)).and(r1.no()), b).outcome());
+		solver.pop();
+		
+		b.relations().clear();
+		checkModel(solver.solve(r0.some().and(r1.eq(r0)), b), r0.some(), r1.eq(r0));
+	}
+
 }
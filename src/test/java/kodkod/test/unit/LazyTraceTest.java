@@ -0,0 +1,465 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import kodkod.engine.satlab.Clause;
+import kodkod.engine.satlab.LazyTrace;
+import kodkod.engine.satlab.ResolutionTrace;
+import kodkod.util.ints.IntBitSet;
+import kodkod.util.ints.IntIterator;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.Ints;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LazyTrace} on fixed resolution traces, whose cores, antecedents
+ * and reachability sets are given, and on seeded random traces, which are checked
+ * against a model that keeps the antecedents of each clause in an array.
+ * The traces need no SAT solver, so these tests run without native libraries.
+ */
+public class LazyTraceTest {
+
+	/*
+	 * 0: 1 2   1: -1 2   2: 1 -2   3: -1 -2   4: -2 3
+	 * 5 = 0,1: 2   6 = 2,3: -2   7 = 5,4: 3 (unreachable)   8 = 5,6: conflict
+	 */
+	private static final int[][] REFUTATION = {
+		{1, 2}, {-1, 2}, {1, -2}, {-1, -2}, {-2, 3},
+		{0, 1}, {2, 3}, {5, 4}, {5, 6}
+	};
+
+	/*
+	 * 0: 1 2 3   1: -1 2   2: -2 3   3: -3   4: 1 -3
+	 * 5 = 0,1,2: 3   6 = 5,3: conflict
+	 */
+	private static final int[][] CHAIN = {
+		{1, 2, 3}, {-1, 2}, {-2, 3}, {-3}, {1, -3},
+		{0, 1, 2}, {5, 3}
+	};
+
+	@Test
+	public void testRefutation() {
+		final LazyTrace trace = new LazyTrace(copy(REFUTATION), 5);
+		// the unreachable resolvent 7 is dropped, so the conflict moves to 7
+		assertEquals(8, trace.size());
+		assertEquals(setOf(0, 1, 2, 3), trace.core());
+		assertEquals(setOf(0, 1, 2, 3, 4), trace.axioms());
+		assertEquals(setOf(5, 6, 7), trace.resolvents());
+		assertEquals(setOf(2, 3, 6), trace.reachable(setOf(6)));
+		assertEquals(setOf(0, 1, 2, 3, 5, 6, 7), trace.reachable(setOf(7)));
+		assertEquals(setOf(0, 5, 7), trace.backwardReachable(setOf(0)));
+		assertEquals(setOf(4), trace.backwardReachable(setOf(4)));
+		assertEquals(setOf(0, 1, 5), trace.learnable(setOf(0, 1)));
+		assertEquals(setOf(0, 1, 2, 3, 5, 6, 7), trace.learnable(setOf(0, 1, 2, 3)));
+		assertEquals(setOf(0, 1, 2, 3, 5, 6), trace.directlyLearnable(setOf(0, 1, 2, 3)));
+		assertAntecedents(trace, 5, 0, 1);
+		assertAntecedents(trace, 6, 2, 3);
+		assertAntecedents(trace, 7, 5, 6);
+		assertArrayEquals(new int[] {-2, 3}, trace.get(4).toArray());
+		assertArrayEquals(new int[] {2}, trace.get(5).toArray());
+		assertArrayEquals(new int[] {-2}, trace.get(6).toArray());
+		assertArrayEquals(new int[0], trace.get(7).toArray());
+		assertTrace(new Model(REFUTATION, 5), trace);
+	}
+
+	@Test
+	public void testChainResolution() {
+		final LazyTrace trace = new LazyTrace(copy(CHAIN), 5);
+		assertEquals(7, trace.size());
+		assertEquals(setOf(0, 1, 2, 3), trace.core());
+		assertEquals(setOf(0, 1, 2, 5), trace.reachable(setOf(5)));
+		assertEquals(setOf(3, 6), trace.backwardReachable(setOf(3)));
+		assertEquals(setOf(0, 1, 2, 5), trace.learnable(setOf(0, 1, 2)));
+		assertEquals(setOf(3, 5, 6), trace.directlyLearnable(setOf(3, 5)));
+		assertAntecedents(trace, 5, 0, 1, 2);
+		assertAntecedents(trace, 6, 5, 3);
+		assertEquals(3, trace.get(5).numberOfAntecedents());
+		assertArrayEquals(new int[] {3}, trace.get(5).toArray());
+		assertEquals(3, trace.get(5).maxVariable());
+		assertArrayEquals(new int[0], trace.get(6).toArray());
+		assertTrace(new Model(CHAIN, 5), trace);
+	}
+
+	@Test
+	public void testSubtrace() {
+		final LazyTrace trace = new LazyTrace(copy(REFUTATION), 5);
+		// {1 2, -1 2, 1 -2, -1 -2, 2} refuted by 5 = 2,3: -2 and 6 = 4,5: conflict
+		final IntSet next = setOf(0, 1, 2, 3, 5);
+		// MiniSatProver reads the subtrace's clauses before refuting them
+		for(Iterator<Clause> itr = trace.iterator(next); itr.hasNext(); ) { itr.next().toArray(); }
+		final int[][] partial = { null, null, null, null, null, {2, 3}, {4, 5} };
+		final LazyTrace subtrace = new LazyTrace(trace, next, copy(partial));
+		assertEquals(7, subtrace.size());
+		assertEquals(setOf(0, 1, 2, 3), subtrace.core());
+		assertEquals(setOf(0, 1, 2, 3), subtrace.axioms());
+		assertEquals(setOf(2, 3, 5), subtrace.reachable(setOf(5)));
+		assertEquals(setOf(1, 4, 6), subtrace.backwardReachable(setOf(1)));
+		assertEquals(setOf(0, 1, 4), subtrace.learnable(setOf(0, 1)));
+		// the copied resolvent keeps its antecedents
+		assertAntecedents(subtrace, 4, 0, 1);
+		assertAntecedents(subtrace, 5, 2, 3);
+		assertAntecedents(subtrace, 6, 4, 5);
+		assertEquals(2, subtrace.get(4).numberOfAntecedents());
+		assertArrayEquals(new int[] {2}, subtrace.get(4).toArray());
+		assertArrayEquals(new int[] {-2}, subtrace.get(5).toArray());
+		assertTrace(new Model(REFUTATION, 5).subtrace(next, partial), subtrace);
+	}
+
+	@Test
+	public void testSeededTraces() {
+		for(long seed = 0; seed < 50; seed++) {
+			final Random rand = new Random(seed);
+			final List<int[]> literals = new ArrayList<int[]>();
+			for(int i = 0; i < 16; i++) {
+				literals.add(clause(rand, 10));
+			}
+			final List<int[]> resolvents = resolvents(rand, literals, 20);
+			assertTrue("seed " + seed, !resolvents.isEmpty());
+
+			final int[][] raw = new int[16 + resolvents.size()][];
+			for(int i = 0; i < 16; i++) {
+				raw[i] = literals.get(i);
+			}
+			for(int i = 0; i < resolvents.size(); i++) {
+				raw[16 + i] = resolvents.get(i);
+			}
+			LazyTrace trace = new LazyTrace(copy(raw), 16);
+			Model model = new Model(raw, 16);
+			assertTrace(model, trace);
+
+			// reduce twice, so that the second subtrace copies resolvents of the first
+			for(int round = 0; round < 2 && !trace.resolvents().isEmpty(); round++) {
+				final IntSet resolved = trace.resolvents();
+				final IntSet next = trace.reachable(Ints.singleton(resolved.min() + rand.nextInt(resolved.size())));
+				final int[][] partial = partial(rand, trace, next);
+				trace = new LazyTrace(trace, next, copy(partial));
+				model = model.subtrace(next, partial);
+				assertTrace(model, trace);
+			}
+		}
+	}
+
+	/**
+	 * The clauses of a resolution trace, kept in arrays:  the literals of every
+	 * clause, computed by resolving the antecedents of the resolvents in order,
+	 * and the antecedents of the resolvents.  Only the resolvents reachable from
+	 * the conflict, the last clause, are kept, as in {@link LazyTrace}.
+	 */
+	private static final class Model {
+		final int axioms;
+		final int[][] lits, antes;
+
+		/**
+		 * Constructs the model of the given raw trace, as specified by
+		 * {@link LazyTrace#LazyTrace(int[][], int)}.
+		 */
+		Model(int[][] raw, int axioms) {
+			this.axioms = axioms;
+			final boolean[] reachable = new boolean[raw.length];
+			reachable[raw.length-1] = true;
+			int size = axioms;
+			for(int i = raw.length-1; i >= axioms; i--) {
+				if (reachable[i]) {
+					size++;
+					for(int ante : raw[i]) reachable[ante] = true;
+				}
+			}
+			this.lits = new int[size][];
+			this.antes = new int[size][];
+			final int[] position = new int[raw.length];
+			for(int i = 0, k = 0; i < raw.length; i++) {
+				if (i < axioms) {
+					position[i] = k;
+					antes[k] = new int[0];
+					lits[k++] = raw[i].clone();
+				} else if (reachable[i]) {
+					position[i] = k;
+					antes[k] = new int[raw[i].length];
+					for(int j = 0; j < raw[i].length; j++) {
+						antes[k][j] = position[raw[i][j]];
+					}
+					int[] resolvent = lits[antes[k][0]];
+					for(int j = 1; j < antes[k].length; j++) {
+						resolvent = resolve(resolvent, lits[antes[k][j]]);
+					}
+					lits[k++] = resolvent;
+				}
+			}
+		}
+
+		/**
+		 * Returns the model of the trace obtained by refuting the self-contained
+		 * subtrace of this model at the given indices, as specified by
+		 * {@link LazyTrace#LazyTrace(LazyTrace, IntSet, int[][])}.
+		 */
+		Model subtrace(IntSet indices, int[][] partial) {
+			final int[][] raw = new int[partial.length][];
+			final int[] position = new int[lits.length];
+			int subAxioms = 0, i = 0;
+			for(IntIterator itr = indices.iterator(); itr.hasNext(); i++) {
+				final int index = itr.next();
+				position[index] = i;
+				if (index < axioms) {
+					subAxioms++;
+					raw[i] = lits[index];
+				} else {
+					raw[i] = new int[antes[index].length];
+					for(int j = 0; j < raw[i].length; j++) {
+						raw[i][j] = position[antes[index][j]];
+					}
+				}
+			}
+			for(; i < partial.length; i++) {
+				raw[i] = partial[i];
+			}
+			return new Model(raw, subAxioms);
+		}
+
+		IntSet core() {
+			final IntSet ret = reachable(Ints.singleton(lits.length-1));
+			ret.removeAll(Ints.rangeSet(Ints.range(axioms, lits.length-1)));
+			return ret;
+		}
+
+		IntSet reachable(IntSet indices) {
+			final IntSet ret = new IntBitSet(lits.length);
+			ret.addAll(indices);
+			for(int i = lits.length-1; i >= 0; i--) {
+				if (ret.contains(i)) {
+					for(int ante : antes[i]) ret.add(ante);
+				}
+			}
+			return ret;
+		}
+
+		IntSet backwardReachable(IntSet indices) {
+			final IntSet ret = new IntBitSet(lits.length);
+			ret.addAll(indices);
+			for(int i = axioms; i < lits.length; i++) {
+				for(int ante : antes[i]) {
+					if (ret.contains(ante)) ret.add(i);
+				}
+			}
+			return ret;
+		}
+
+		IntSet learnable(IntSet indices, boolean directly) {
+			final IntSet ret = new IntBitSet(lits.length);
+			ret.addAll(indices);
+			for(int i = axioms; i < lits.length; i++) {
+				boolean learned = true;
+				for(int ante : antes[i]) {
+					learned &= (directly ? indices : ret).contains(ante);
+				}
+				if (learned) ret.add(i);
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Asserts that the given trace has the clauses, antecedents, core, and reachability
+	 * sets of the given model, both before and after its resolvent literals are computed.
+	 */
+	private static void assertTrace(Model expected, ResolutionTrace actual) {
+		final int size = expected.lits.length;
+		assertEquals(size, actual.size());
+		assertEquals(Ints.rangeSet(Ints.range(0, expected.axioms-1)), actual.axioms());
+		assertEquals(expected.core(), actual.core());
+		assertQueries(expected, actual);
+
+		for(int i = 0; i < size; i++) {
+			final Clause clause = actual.get(i);
+			assertArrayEquals(expected.lits[i], clause.toArray());
+			assertEquals(expected.lits[i].length, clause.size());
+			if (clause.size() > 0) {
+				assertEquals(StrictMath.abs(expected.lits[i][clause.size()-1]), clause.maxVariable());
+			}
+			assertAntecedents(actual, i, expected.antes[i]);
+			final Iterator<Clause> antes = clause.antecedents();
+			for(int ante : expected.antes[i]) {
+				assertArrayEquals(expected.lits[ante], antes.next().toArray());
+			}
+		}
+		final Iterator<Clause> itr = actual.iterator();
+		for(int i = 0; i < size; i++) {
+			assertArrayEquals(expected.lits[i], itr.next().toArray());
+		}
+		assertFalse(itr.hasNext());
+		final Iterator<Clause> rev = actual.reverseIterator(Ints.rangeSet(Ints.range(0, size-1)));
+		for(int i = size-1; i >= 0; i--) {
+			assertArrayEquals(expected.lits[i], rev.next().toArray());
+		}
+		assertFalse(rev.hasNext());
+
+		assertQueries(expected, actual);
+	}
+
+	/**
+	 * Asserts that the given trace answers the reachability queries for every single
+	 * clause and for a few seeded sets of clauses as the given model.
+	 */
+	private static void assertQueries(Model expected, ResolutionTrace actual) {
+		final int size = expected.lits.length;
+		final List<IntSet> queries = new ArrayList<IntSet>();
+		for(int i = 0; i < size; i++) {
+			queries.add(Ints.singleton(i));
+		}
+		final Random rand = new Random(size);
+		for(int i = 0; i < 8; i++) {
+			final IntSet query = new IntBitSet(size);
+			for(int j = 0; j < size; j++) {
+				if (rand.nextInt(3) == 0) query.add(j);
+			}
+			queries.add(query);
+		}
+		queries.add(actual.core());
+		for(IntSet query : queries) {
+			assertEquals(expected.reachable(query), actual.reachable(query));
+			assertEquals(expected.backwardReachable(query), actual.backwardReachable(query));
+			assertEquals(expected.learnable(query, false), actual.learnable(query));
+			assertEquals(expected.learnable(query, true), actual.directlyLearnable(query));
+		}
+	}
+
+	/**
+	 * Asserts that the clause at the given index of the trace has the given antecedents:
+	 * it can be learned directly from them, but not from any of their proper subsets.
+	 */
+	private static void assertAntecedents(ResolutionTrace trace, int index, int... antes) {
+		assertEquals(antes.length, trace.get(index).numberOfAntecedents());
+		if (antes.length == 0) return;
+		final IntSet expected = setOf(antes);
+		assertTrue(trace.directlyLearnable(expected).contains(index));
+		for(int ante : antes) {
+			final IntSet fewer = setOf(antes);
+			fewer.remove(ante);
+			assertFalse(trace.directlyLearnable(fewer).contains(index));
+		}
+	}
+
+	private static IntSet setOf(int... ints) {
+		final IntSet ret = new IntBitSet(256);
+		for(int i : ints) ret.add(i);
+		return ret;
+	}
+
+	/**
+	 * Returns the raw partial trace of a refutation of the given subtrace:  the clauses
+	 * of the subtrace, whose contents are ignored, followed by their new resolvents.
+	 */
+	private static int[][] partial(Random rand, ResolutionTrace trace, IntSet next) {
+		final List<int[]> literals = new ArrayList<int[]>();
+		for(IntIterator itr = next.iterator(); itr.hasNext(); ) {
+			literals.add(trace.get(itr.next()).toArray());
+		}
+		final int copied = literals.size();
+		final List<int[]> added = resolvents(rand, literals, 8);
+		final int[][] partial = new int[copied + added.size()][];
+		for(int i = 0; i < added.size(); i++) {
+			partial[copied + i] = added.get(i);
+		}
+		return partial;
+	}
+
+	/**
+	 * Returns a random clause over the variables 1..vars, sorted in the increasing order of
+	 * absolute values.
+	 */
+	private static int[] clause(Random rand, int vars) {
+		final IntSet chosen = new IntBitSet(vars + 1);
+		for(int i = 1 + rand.nextInt(4); i > 0; i--) {
+			chosen.add(1 + rand.nextInt(vars));
+		}
+		final int[] clause = chosen.toArray();
+		for(int i = 0; i < clause.length; i++) {
+			if (rand.nextBoolean()) clause[i] = -clause[i];
+		}
+		return clause;
+	}
+
+	/**
+	 * Resolves the given clauses into at most the given number of new resolvents, each
+	 * of which is a chain of up to three resolution steps.  The literals of the new
+	 * resolvents are appended to the given list.
+	 * @return antecedent indices of the new resolvents
+	 */
+	private static List<int[]> resolvents(Random rand, List<int[]> literals, int max) {
+		final List<int[]> resolvents = new ArrayList<int[]>();
+		for(int tries = 0; tries < 50 * max && resolvents.size() < max; tries++) {
+			final List<Integer> antes = new ArrayList<Integer>();
+			antes.add(rand.nextInt(literals.size()));
+			int[] lits = literals.get(antes.get(0));
+			for(int steps = 1 + rand.nextInt(3); steps > 0; steps--) {
+				final int start = rand.nextInt(literals.size());
+				for(int i = 0; i < literals.size(); i++) {
+					final int candidate = (start + i) % literals.size();
+					final int[] resolvent = resolve(lits, literals.get(candidate));
+					if (resolvent != null && !antes.contains(candidate)) {
+						antes.add(candidate);
+						lits = resolvent;
+						break;
+					}
+				}
+			}
+			if (antes.size() > 1) {
+				final int[] resolvent = new int[antes.size()];
+				for(int i = 0; i < resolvent.length; i++) {
+					resolvent[i] = antes.get(i);
+				}
+				resolvents.add(resolvent);
+				literals.add(lits);
+			}
+		}
+		return resolvents;
+	}
+
+	/**
+	 * Returns the resolvent of the given sorted clauses, or null if they do not clash on
+	 * exactly one variable.
+	 */
+	private static int[] resolve(int[] c1, int[] c2) {
+		final int[] tmp = new int[c1.length + c2.length];
+		int i = 0, j = 0, k = 0, clashes = 0;
+		while(i < c1.length && j < c2.length) {
+			final int var1 = StrictMath.abs(c1[i]), var2 = StrictMath.abs(c2[j]);
+			if (var1 == var2) {
+				if (c1[i] == c2[j]) tmp[k++] = c1[i];
+				else clashes++;
+				i++;
+				j++;
+			} else if (var1 < var2) {
+				tmp[k++] = c1[i++];
+			} else {
+				tmp[k++] = c2[j++];
+			}
+		}
+		while(i < c1.length) tmp[k++] = c1[i++];
+		while(j < c2.length) tmp[k++] = c2[j++];
+		if (clashes != 1) return null;
+		final int[] ret = new int[k];
+		System.arraycopy(tmp, 0, ret, 0, k);
+		return ret;
+	}
+
+	/**
+	 * Returns a deep copy of the given raw trace, so that the trace under test
+	 * cannot share arrays with the model.
+	 */
+	private static int[][] copy(int[][] raw) {
+		final int[][] copy = new int[raw.length][];
+		for(int i = 0; i < raw.length; i++) {
+			copy[i] = raw[i] == null ? null : raw[i].clone();
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,220 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import kodkod.ast.Decls;
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.ast.Variable;
+import kodkod.engine.CapacityExceededException;
+import kodkod.engine.Evaluator;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.instance.Bounds;
+import kodkod.instance.Tuple;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+
+import org.junit.Test;
+
+/**
+ * Tests tuples and tuple sets whose capacity exceeds the range of an int.
+ */
+public class LongTupleSetTest {
+	private final Universe universe;
+	private final TupleFactory factory;
+	
+	public LongTupleSetTest() {
+		final List<String> atoms = new ArrayList<String>(100);
+		for(int i = 0; i < 100; i++) atoms.add("A" + i);
+		universe = new Universe(atoms);
+		factory = universe.factory();
+	}
+	
+	@Test
+	public void testTuples() {
+		final Tuple t = factory.tuple("A99", "A1", "A0", "A42", "A7");
+		assertEquals(5, t.arity());
+		assertEquals(9901004207L, t.longIndex());
+		assertEquals("A42", t.atom(3));
+		assertEquals(0, t.atomIndex(2));
+		assertTrue(t.contains("A0"));
+		assertFalse(t.contains("A2"));
+		assertEquals(t, factory.tuple(5, 9901004207L));
+		assertEquals(t, factory.tuple("A99", "A1").product(factory.tuple("A0", "A42", "A7")));
+		assertEquals(3, factory.tuple(5, 3).longIndex());
+		try {
+			t.index();
+			fail();
+		} catch (CapacityExceededException e) { }
+	}
+	
+	@Test
+	public void testTupleSets() {
+		final TupleSet unary = factory.range(factory.tuple("A0"), factory.tuple("A3"));
+		final TupleSet s = unary.product(unary).product(factory.setOf("A5")).product(unary).product(unary);
+		assertEquals(256, s.size());
+		assertEquals(10000000000L, s.longCapacity());
+		assertTrue(s.contains(factory.tuple("A3", "A0", "A5", "A2", "A1")));
+		assertFalse(s.contains(factory.tuple("A3", "A0", "A4", "A2", "A1")));
+		assertEquals(factory.setOf("A5"), s.project(2));
+		
+		long last = -1;
+		for(Tuple t : s) {
+			assertTrue(t.longIndex() > last);
+			last = t.longIndex();
+		}
+		
+		final TupleSet copy = s.clone();
+		assertEquals(s, copy);
+		assertEquals(s.hashCode(), copy.hashCode());
+		final TupleSet range = factory.range(factory.tuple("A0", "A0", "A5", "A0", "A0"), factory.tuple("A0", "A0", "A5", "A3", "A3"));
+		assertEquals(304, range.size());
+		assertTrue(copy.removeAll(range));
+		assertEquals(240, copy.size());
+		assertTrue(range.retainAll(s));
+		assertEquals(16, range.size());
+		assertTrue(copy.addAll(range));
+		assertEquals(s, copy);
+		
+		for(Iterator<Tuple> itr = copy.iterator(); itr.hasNext(); ) {
+			if (itr.next().atomIndex(0)==0) itr.remove();
+		}
+		assertEquals(192, copy.size());
+		assertTrue(s.containsAll(copy));
+		assertFalse(copy.containsAll(s));
+	}
+	
+	@Test
+	public void testViews() {
+		final TupleSet s = factory.noneOf(5);
+		s.add(factory.tuple("A1", "A2", "A3", "A4", "A5"));
+		final TupleSet view = s.unmodifiableView();
+		s.add(factory.tuple("A5", "A4", "A3", "A2", "A1"));
+		assertEquals(2, view.size());
+		try {
+			view.add(factory.tuple("A0", "A0", "A0", "A0", "A0"));
+			fail();
+		} catch (UnsupportedOperationException e) { }
+		try {
+			view.clear();
+			fail();
+		} catch (UnsupportedOperationException e) { }
+		try {
+			s.indexView();
+			fail();
+		} catch (CapacityExceededException e) { }
+	}
+	
+	@Test
+	public void testRanges() {
+		final TupleSet all = factory.allOf(5);
+		assertEquals(10000000000L, all.longSize());
+		assertEquals(Integer.MAX_VALUE, all.size());
+		assertTrue(all.contains(factory.tuple("A99", "A1", "A0", "A42", "A7")));
+		assertEquals(factory.allOf(1), all.project(3));
+		
+		final TupleSet range = factory.range(factory.tuple("A0", "A0", "A0", "A0", "A0"), factory.tuple("A49", "A99", "A99", "A99", "A99"));
+		assertEquals(5000000000L, range.longSize());
+		assertEquals(factory.range(factory.tuple("A0"), factory.tuple("A49")), range.project(0));
+		assertTrue(all.containsAll(range));
+		assertFalse(range.containsAll(all));
+		
+		final TupleSet rest = all.clone();
+		assertTrue(rest.removeAll(range));
+		assertEquals(5000000000L, rest.longSize());
+		assertFalse(rest.contains(factory.tuple("A49", "A99", "A99", "A99", "A99")));
+		assertTrue(rest.contains(factory.tuple("A50", "A0", "A0", "A0", "A0")));
+		assertTrue(rest.addAll(range));
+		assertEquals(all, rest);
+		assertEquals(all.hashCode(), rest.hashCode());
+		
+		final TupleSet product = factory.allOf(2).product(factory.allOf(3));
+		assertEquals(all, product);
+		final TupleSet row = factory.setOf("A7").product(factory.allOf(4));
+		assertEquals(100000000L, row.longSize());
+		assertEquals(factory.setOf("A7"), row.project(0));
+	}
+	
+	@Test
+	public void testTranslation() {
+		final Relation r = Relation.nary("r", 5), s = Relation.unary("s");
+		final Bounds bounds = new Bounds(universe);
+		final TupleSet lower = factory.setOf(factory.tuple("A0", "A0", "A0", "A0", "A0"));
+		final TupleSet upper = lower.clone();
+		upper.add(factory.tuple("A1", "A2", "A3", "A4", "A5"));
+		upper.add(factory.tuple("A1", "A5", "A5", "A1", "A5"));
+		upper.add(factory.tuple("A9", "A9", "A9", "A9", "A9"));
+		bounds.bound(r, lower, upper);
+		bounds.bound(s, factory.setOf("A1", "A5"));
+		assertEquals(upper, bounds.upperBound(r));
+		
+		final Solver solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		
+		final Formula f = s.join(r).some().and(r.difference(s.product(s).product(s).product(s).product(s)).one());
+		final Solution sol = solver.solve(f, bounds);
+		assertEquals(Solution.Outcome.SATISFIABLE, sol.outcome());
+		final TupleSet rs = sol.instance().tuples(r);
+		assertTrue(rs.contains(factory.tuple("A0", "A0", "A0", "A0", "A0")));
+		assertTrue(rs.contains(factory.tuple("A1", "A5", "A5", "A1", "A5")));
+		assertEquals(2, rs.size());
+		
+		final Evaluator eval = new Evaluator(sol.instance());
+		assertTrue(eval.evaluate(f));
+		assertEquals(rs, eval.evaluate(r.union(r)));
+		
+		final Formula g = r.in(s.product(s).product(s).product(s).product(s));
+		assertFalse(solver.solve(g, bounds).sat());
+		
+		Decls decls = Variable.unary("v0").oneOf(s);
+		for(int i = 1; i < 5; i++) 
+			decls = decls.and(Variable.unary("v" + i).oneOf(s));
+		final Formula h = r.intersection(Formula.TRUE.comprehension(decls)).some();
+		final Solution hsol = solver.solve(h, bounds);
+		assertTrue(hsol.sat());
+		assertTrue(hsol.instance().tuples(r).contains(factory.tuple("A1", "A5", "A5", "A1", "A5")));
+	}
+	
+	@Test
+	public void testTranslationLimit() {
+		final Relation r = Relation.nary("r", 5);
+		final Bounds bounds = new Bounds(universe);
+		bounds.bound(r, factory.allOf(5));
+		try {
+			new Solver().solve(r.some(), bounds);
+			fail();
+		} catch (CapacityExceededException e) { }
+	}
+}
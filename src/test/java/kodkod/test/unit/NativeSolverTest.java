@@ -7,8 +7,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -125,6 +127,62 @@ public class NativeSolverTest {
 		}
 	}
 	
+	// [HASLab]
+	@Test
+	public void testFailedAssumptionsSAT4J() {
+		failedAssumptions(SATFactory.DefaultSAT4J);
+	}
+	
+	// [HASLab]
+	@Test
+	public void testFailedAssumptionsMiniSat() {
+		assumeTrue(SATFactory.available(SATFactory.MiniSat));
+		failedAssumptions(SATFactory.MiniSat);
+	}
+	
+	// [HASLab]
+	@Test
+	public void testFailedAssumptionsGlucose() {
+		assumeTrue(SATFactory.available(SATFactory.Glucose));
+		failedAssumptions(SATFactory.Glucose);
+	}
+	
+	// [HASLab]
+	@Test
+	public void testFailedAssumptionsLingeling() {
+		assumeTrue(SATFactory.available(SATFactory.Lingeling));
+		failedAssumptions(SATFactory.Lingeling);
+	}
+	
+	/**
+	 * Solves a small CNF under assumptions with a solver from the given factory, 
+	 * checking the failed assumptions that it reports.
+	 */
+	// [HASLab]
+	private static void failedAssumptions(SATFactory factory) {
+		assertTrue(factory.assumptions());
+		final SATSolver solver = factory.instance();
+		solver.addVariables(4);
+		solver.addClause(new int[]{-1, -2});
+		solver.addClause(new int[]{3, 4});
+		assertFalse(solver.solve(new int[]{1, 2, 3}));
+		final List<Integer> failed = new ArrayList<Integer>();
+		for(int lit : solver.failedAssumptions()) failed.add(lit);
+		assertTrue(failed.contains(1) && failed.contains(2));
+		assertTrue(Arrays.asList(1, 2, 3).containsAll(failed));
+		assertTrue(solver.solve(new int[]{1, -3}));
+		assertTrue(solver.valueOf(4));
+		try {
+			solver.failedAssumptions();
+			fail();
+		} catch (IllegalStateException e) { }
+		solver.addClause(new int[]{-4});
+		assertFalse(solver.solve(new int[]{-3}));
+		assertEquals(1, solver.failedAssumptions().length);
+		assertTrue(solver.solve());
+		solver.free();
+	}
+	
 	@Test(expected=IllegalArgumentException.class)
 	public void testPlingelingBadThreadInput() {
 		final SATFactory pl = SATFactory.plingeling(0, true);
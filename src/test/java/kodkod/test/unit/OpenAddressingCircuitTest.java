@@ -0,0 +1,58 @@
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.bool.BooleanFactory;
+import kodkod.engine.bool.BooleanValue;
+import kodkod.engine.config.Options;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.examples.alloy.CeilingsAndFloors;
+
+import org.junit.Test;
+
+/**
+ * Runs the {@link BooleanCircuitTest boolean circuit tests} over 
+ * factories that cache gates in open addressing tables.
+ */
+public class OpenAddressingCircuitTest extends BooleanCircuitTest {
+
+	@Override
+	protected Options options() {
+		final Options opt = new Options();
+		opt.setGateTable(Options.GateTable.OPEN_ADDRESSING);
+		return opt;
+	}
+	
+	@Test
+	public final void testManyGates() {
+		final int vars = 200;
+		final BooleanFactory f = BooleanFactory.factory(vars, options());
+		final BooleanValue[] ands = new BooleanValue[vars*vars];
+		for(int i = 0; i < vars; i++) {
+			for(int j = 0; j < vars; j++) {
+				ands[i*vars+j] = f.and(f.variable(i+1), f.not(f.variable(j+1)));
+			}
+		}
+		final int gates = f.maxFormula();
+		for(int i = 0; i < vars; i++) {
+			for(int j = 0; j < vars; j++) {
+				assertSame(ands[i*vars+j], f.and(f.not(f.variable(j+1)), f.variable(i+1)));
+			}
+		}
+		assertEquals(gates, f.maxFormula());
+	}
+	
+	@Test
+	public final void testSolving() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		final Solver solver = new Solver(options());
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		final Solution unsat = solver.solve(prob.checkBelowTooDoublePrime(), prob.bounds(5, 5));
+		assertEquals(false, unsat.sat());
+		final Solution sat = solver.solve(prob.checkBelowTooAssertion(), prob.bounds(5, 5));
+		assertEquals(true, sat.sat());
+	}
+}
@@ -0,0 +1,193 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import kodkod.ast.Expression;
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.ast.Variable;
+import kodkod.engine.Evaluator;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.bool.BooleanFactory;
+import kodkod.engine.bool.BooleanValue;
+import kodkod.engine.config.ExtendedOptions;
+import kodkod.engine.config.Options;
+import kodkod.engine.fol2sat.HigherOrderDeclException;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.examples.alloy.CeilingsAndFloors;
+import kodkod.instance.Bounds;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+import org.junit.Test;
+
+/**
+ * Tests the concurrent translation of top-level conjuncts, by comparing it
+ * against the sequential one.
+ */
+public class ParallelTranslationTest {
+
+	private static Solution solve(Formula formula, Bounds bounds, int threads) {
+		final Solver solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		solver.options().setTranslationThreads(threads);
+		return solver.solve(formula, bounds);
+	}
+	
+	private static void check(Formula formula, Bounds bounds) {
+		final Solution sequential = solve(formula, bounds, 1);
+		for(int threads : new int[] { 2, 4, 8 }) {
+			final Solution concurrent = solve(formula, bounds, threads);
+			assertEquals(sequential.sat(), concurrent.sat());
+			if (concurrent.sat()) 
+				assertTrue(new Evaluator(concurrent.instance()).evaluate(formula));
+		}
+	}
+	
+	@Test
+	public void testUnsat() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		check(prob.checkBelowTooDoublePrime(), prob.bounds(5, 5));
+	}
+	
+	@Test
+	public void testSat() {
+		final CeilingsAndFloors prob = new CeilingsAndFloors();
+		check(prob.checkBelowTooAssertion(), prob.bounds(5, 5));
+		check(prob.declarations().and(prob.paulSimon()).and(prob.noSharing()), prob.bounds(6, 6));
+	}
+	
+	@Test
+	public void testManyConjuncts() {
+		final int n = 40;
+		final Relation[] rs = new Relation[n];
+		final Universe u = new Universe("A0", "A1", "A2", "A3", "A4");
+		final TupleFactory f = u.factory();
+		final Bounds b = new Bounds(u);
+		Formula formula = Formula.TRUE;
+		for(int i = 0; i < n; i++) {
+			rs[i] = Relation.binary("r" + i);
+			b.bound(rs[i], f.allOf(2));
+			formula = formula.and(rs[i].function(Expression.UNIV, Expression.UNIV));
+			if (i > 0) 
+				formula = formula.and(rs[i].join(rs[i-1]).in(rs[i-1].join(rs[i])));
+		}
+		check(formula, b);
+		// a falsified conjunct
+		check(formula.and(rs[n/2].no()), b);
+	}
+	
+	@Test
+	public void testDeepConjuncts() throws Throwable {
+		// deeply nested conjuncts that translate on a caller with a large stack 
+		// must not overflow the stack of the worker threads
+		final Universe u = new Universe("A0", "A1", "A2");
+		final Bounds b = new Bounds(u);
+		final Relation r = Relation.unary("r"), s = Relation.unary("s");
+		b.bound(r, u.factory().allOf(1));
+		b.bound(s, u.factory().allOf(1));
+		Formula deep0 = r.some(), deep1 = s.some();
+		for(int i = 0; i < 2000; i++) {
+			deep0 = deep0.or(r.eq(s).not()).and(s.some());
+			deep1 = deep1.and(r.in(s).or(r.some()));
+		}
+		final Formula deep = deep0.and(deep1);
+		final Throwable[] failure = new Throwable[1];
+		final Thread caller = new Thread(null, () -> {
+			try {
+				check(deep, b);
+			} catch (Throwable t) {
+				failure[0] = t;
+			}
+		}, "deep", 1L << 26);
+		caller.start();
+		caller.join();
+		if (failure[0] != null)
+			throw failure[0];
+	}
+	
+	@Test(expected = HigherOrderDeclException.class)
+	public void testWorkerFailure() {
+		final Universe u = new Universe("A0", "A1");
+		final Bounds b = new Bounds(u);
+		final Relation r = Relation.binary("r"), s = Relation.unary("s");
+		b.bound(r, u.factory().allOf(2));
+		b.bound(s, u.factory().allOf(1));
+		final Variable x = Variable.nary("x", 2);
+		solve(s.some().and(x.in(r).forAll(x.setOf(r))), b, 2);
+	}
+	
+	@Test
+	public void testConcurrentFactory() throws InterruptedException {
+		// threads assembling the same gates at once must agree on them
+		final int vars = 61, threads = 4;
+		final BooleanFactory f = BooleanFactory.factory(vars, new Options());
+		final BooleanValue[][] gates = new BooleanValue[threads][];
+		final Thread[] workers = new Thread[threads];
+		f.setConcurrent(true);
+		for(int t = 0; t < threads; t++) {
+			final int id = t;
+			workers[t] = new Thread(() -> {
+				final BooleanValue[] res = new BooleanValue[vars*vars];
+				for(int k = 0; k < res.length; k++) {
+					// each thread visits the gates in a different order
+					final int n = (k * (2*id + 1)) % res.length, i = n / vars, j = n % vars;
+					res[n] = f.or(f.and(f.variable(i+1), f.not(f.variable(j+1))), f.variable((i+j) % vars + 1));
+				}
+				gates[id] = res;
+			});
+			workers[t].start();
+		}
+		for(Thread worker : workers)
+			worker.join();
+		f.setConcurrent(false);
+		final int max = f.maxFormula();
+		for(int n = 0; n < vars*vars; n++) {
+			for(int t = 1; t < threads; t++)
+				assertSame(gates[0][n], gates[t][n]);
+			final int i = n / vars, j = n % vars;
+			assertSame(gates[0][n], f.or(f.and(f.not(f.variable(j+1)), f.variable(i+1)), f.variable((i+j) % vars + 1)));
+		}
+		assertEquals(max, f.maxFormula());
+	}
+	
+	@Test
+	public void testOptions() {
+		final ExtendedOptions opt = new ExtendedOptions();
+		opt.setTranslationThreads(3);
+		assertEquals(3, opt.clone().translationThreads());
+		assertEquals(3, new Options(opt).translationThreads());
+		assertEquals(3, new ExtendedOptions(opt).translationThreads());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidThreads() {
+		new Options().setTranslationThreads(0);
+	}
+	
+}
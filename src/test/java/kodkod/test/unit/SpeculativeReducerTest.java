@@ -0,0 +1,216 @@
+/*
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kodkod.engine.satlab.ResolutionTrace;
+import kodkod.engine.satlab.SpeculativeReducer;
+import kodkod.engine.satlab.SpeculativeReductionStrategy;
+import kodkod.util.ints.IntSet;
+import kodkod.util.ints.IntTreeSet;
+import kodkod.util.ints.Ints;
+
+import org.junit.Test;
+
+/**
+ * Tests the batch and state bookkeeping of {@link SpeculativeReducer}, on clauses
+ * that are refuted by a stub rather than a prover:  a set of clauses is unsatisfiable
+ * iff it contains one of the given cores.  The stub needs no SAT solver, so these
+ * tests always run.
+ */
+public class SpeculativeReducerTest {
+	private static final int SIZE = 12;
+
+	/**
+	 * A reducer of the clauses [0..SIZE), whose refutations record the
+	 * threads that run them, and when they are created and finish.
+	 */
+	private static class StubReducer extends SpeculativeReducer {
+		final List<IntSet> cores;
+		final IntSet trace = new IntTreeSet();
+		final List<IntSet> retained = new ArrayList<IntSet>();
+		final AtomicInteger created = new AtomicInteger(0), running = new AtomicInteger(0), maxRunning = new AtomicInteger(0);
+		final Set<Thread> workers = Collections.synchronizedSet(new HashSet<Thread>());
+		final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+		StubReducer(IntSet... cores) {
+			this.cores = Arrays.asList(cores);
+			reset();
+		}
+
+		void reset() {
+			trace.clear();
+			trace.addAll(Ints.rangeSet(Ints.range(0, SIZE-1)));
+			retained.clear();
+		}
+
+		/** Called by the refutation of the given subtrace, which was the index-th one created. */
+		void refuting(IntSet next, int index) throws InterruptedException { }
+
+		protected ResolutionTrace trace() { return null; }
+
+		protected Callable<int[][]> refutation(IntSet next) {
+			final IntSet clauses = new IntTreeSet(next);
+			final int index = created.getAndIncrement();
+			events.add("+" + index);
+			return new Callable<int[][]>() {
+				public int[][] call() throws InterruptedException {
+					workers.add(Thread.currentThread());
+					final int now = running.incrementAndGet();
+					for(int max = maxRunning.get(); now > max && !maxRunning.compareAndSet(max, now); max = maxRunning.get());
+					try {
+						refuting(clauses, index);
+						for(IntSet core : cores) {
+							if (clauses.containsAll(core)) return new int[0][];
+						}
+						return null;
+					} finally {
+						running.decrementAndGet();
+						events.add("-" + index);
+					}
+				}
+			};
+		}
+
+		protected void retain(IntSet next, int[][] refutation) {
+			retained.add(new IntTreeSet(next));
+			trace.retainAll(next);
+		}
+	}
+
+	/**
+	 * Tries to remove each clause in turn from the trace of the given reducer.
+	 */
+	private static final class DeletionStrategy implements SpeculativeReductionStrategy {
+		private final StubReducer reducer;
+		private int next;
+
+		DeletionStrategy(StubReducer reducer) { this(reducer, 0); }
+
+		private DeletionStrategy(StubReducer reducer, int next) {
+			this.reducer = reducer;
+			this.next = next;
+		}
+
+		public IntSet next(ResolutionTrace trace) {
+			while (next < SIZE) {
+				final int clause = next++;
+				if (reducer.trace.contains(clause)) {
+					final IntSet ret = new IntTreeSet(reducer.trace);
+					ret.remove(clause);
+					return ret;
+				}
+			}
+			return Ints.EMPTY_SET;
+		}
+
+		public SpeculativeReductionStrategy copy() {
+			return new DeletionStrategy(reducer, next);
+		}
+	}
+
+	private static IntSet setOf(int... ints) {
+		final IntSet ret = new IntTreeSet();
+		for(int i : ints)
+			ret.add(i);
+		return ret;
+	}
+
+	@Test
+	public final void testSameAsSequential() {
+		final IntSet first = setOf(1, 4, 7), second = setOf(2, 3, 9, 10);
+		final StubReducer sequential = new StubReducer(first, second);
+		sequential.reduce(new DeletionStrategy(sequential), 1);
+		assertEquals(second, sequential.trace);
+
+		final Random random = new Random(7);
+		for(int threads = 2; threads <= 8; threads++) {
+			final StubReducer reducer = new StubReducer(first, second) {
+				void refuting(IntSet next, int index) throws InterruptedException {
+					Thread.sleep(random.nextInt(3));
+				}
+			};
+			reducer.reduce(new DeletionStrategy(reducer), threads);
+			assertEquals(sequential.trace, reducer.trace);
+			assertEquals(sequential.retained, reducer.retained);
+			assertTrue(reducer.maxRunning.get() <= threads);
+		}
+	}
+
+	@Test
+	public final void testPoolReused() {
+		final StubReducer reducer = new StubReducer(setOf(1, 4, 7), setOf(2, 3, 9, 10)) {
+			void refuting(IntSet next, int index) throws InterruptedException {
+				Thread.sleep(1);
+			}
+		};
+		for(int i = 0; i < 3; i++) {
+			reducer.reset();
+			reducer.reduce(new DeletionStrategy(reducer), 3);
+			assertEquals(setOf(2, 3, 9, 10), reducer.trace);
+		}
+		assertTrue(reducer.workers.size() <= 3);
+		assertTrue(reducer.maxRunning.get() <= 3);
+	}
+
+	@Test(timeout = 10000)
+	public final void testSupersededStillRunning() throws InterruptedException {
+		// the second subtrace is superseded by the first, but its refutation
+		// keeps its worker until the second one is retained
+		final CountDownLatch gate = new CountDownLatch(1);
+		final StubReducer reducer = new StubReducer(setOf(1, 5)) {
+			void refuting(IntSet next, int index) throws InterruptedException {
+				if (index == 1) gate.await();
+				if (index == 2) Thread.sleep(50);
+			}
+			protected void retain(IntSet next, int[][] refutation) {
+				super.retain(next, refutation);
+				if (retained.size() == 2) gate.countDown();
+			}
+		};
+		try {
+			reducer.reduce(new DeletionStrategy(reducer), 2);
+		} finally {
+			gate.countDown();
+		}
+		assertEquals(setOf(1, 5), reducer.trace);
+		// so the subtraces in between were refuted one at a time, on the free worker
+		assertTrue(reducer.events.toString(), reducer.events.indexOf("-2") < reducer.events.indexOf("+3"));
+		assertEquals(setOf(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), reducer.retained.get(0));
+		assertEquals(setOf(1, 3, 4, 5, 6, 7, 8, 9, 10, 11), reducer.retained.get(1));
+		assertTrue(reducer.maxRunning.get() <= 2);
+	}
+}
@@ -1,19 +1,23 @@
 package kodkod.test.unit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map.Entry;
 
 import kodkod.ast.Formula;
 import kodkod.ast.Relation;
 import kodkod.engine.Solution;
 import kodkod.engine.Solver;
 import kodkod.engine.Statistics;
+import kodkod.engine.config.AbstractReporter;
 import kodkod.instance.Bounds;
 import kodkod.instance.Instance;
+import kodkod.instance.Tuple;
 import kodkod.instance.TupleFactory;
 import kodkod.instance.TupleSet;
 import kodkod.instance.Universe;
@@ -188,4 +192,48 @@ public class SymmetryBreakingTest  {
 		assertPrimVarNum(bounds.upperBound(ac1).size());
 	}
 	
+	/**
+	 * Tests that the lex leader chains reported while generating the symmetry
+	 * breaking predicate relate each tuple to its image under a transposition.
+	 */
+	// [HASLab]
+	@Test
+	public final void testLexLeader() {
+		final List<List<Entry<Relation, Tuple>>> originals = new ArrayList<List<Entry<Relation, Tuple>>>();
+		final List<List<Entry<Relation, Tuple>>> permuted = new ArrayList<List<Entry<Relation, Tuple>>>();
+		solver.options().setReporter(new AbstractReporter() {
+			@Override
+			public void reportLex(List<Entry<Relation, Tuple>> original, List<Entry<Relation, Tuple>> perm) {
+				originals.add(new ArrayList<Entry<Relation, Tuple>>(original));
+				permuted.add(new ArrayList<Entry<Relation, Tuple>>(perm));
+			}
+		});
+		solver.options().setSymmetryBreaking(20);
+		try {
+			bounds.bound(r1, factory.allOf(1));
+			bounds.bound(r2, factory.allOf(2));
+			assertNotNull(solve(r2.join(r1).some()));
+		} finally {
+			solver.options().setReporter(new AbstractReporter() {});
+		}
+		// a chain between each pair of consecutive atoms of the single symmetry class
+		assertEquals(USIZE - 1, originals.size());
+		for (int i = 0; i < originals.size(); i++) {
+			final List<Entry<Relation, Tuple>> o = originals.get(i), p = permuted.get(i);
+			assertEquals(o.size(), p.size());
+			assertFalse(o.isEmpty());
+			final Object a0 = factory.universe().atom(i), a1 = factory.universe().atom(i + 1);
+			for (int j = 0; j < o.size(); j++) {
+				final Tuple t0 = o.get(j).getValue(), t1 = p.get(j).getValue();
+				assertEquals(o.get(j).getKey(), p.get(j).getKey());
+				assertEquals(o.get(j).getKey().arity(), t0.arity());
+				assertFalse(t0.equals(t1));
+				for (int k = 0; k < t0.arity(); k++) {
+					final Object atom = t0.atom(k);
+					assertEquals(atom.equals(a0) ? a1 : atom.equals(a1) ? a0 : atom, t1.atom(k));
+				}
+			}
+		}
+	}
+	
 }
@@ -0,0 +1,105 @@
+/* 
+ * Kodkod -- Copyright (c) 2005-present, Emina Torlak
+ * Pardinus -- Copyright (c) 2013-present, Nuno Macedo, INESC TEC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package kodkod.test.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import kodkod.ast.Expression;
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.ast.Variable;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.config.AbstractReporter;
+import kodkod.engine.fol2sat.TranslationMetrics;
+import kodkod.engine.fol2sat.TranslationMetrics.Phase;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.instance.Bounds;
+import kodkod.instance.TupleFactory;
+import kodkod.instance.Universe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the metrics of each translation phase are recorded and reported.
+ */
+public class TranslationMetricsTest {
+	private final Relation r = Relation.binary("r");
+	private final Variable x = Variable.unary("x");
+	private final List<Phase> phases = new ArrayList<Phase>();
+	private Bounds bounds;
+	private Solver solver;
+	
+	@Before
+	public void setUp() {
+		final Universe u = new Universe("A0", "A1", "A2", "A3");
+		final TupleFactory f = u.factory();
+		bounds = new Bounds(u);
+		bounds.bound(r, f.allOf(2));
+		solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		solver.options().setReporter(new AbstractReporter() {
+			public void translatedPhase(Phase phase, TranslationMetrics metrics) {
+				phases.add(phase);
+			}
+		});
+	}
+	
+	@Test
+	public void testPhases() {
+		final Formula f = x.join(r).some().forAll(x.oneOf(Expression.UNIV));
+		final Solution sol = solver.solve(f, bounds);
+		assertTrue(sol.sat());
+		assertEquals(Arrays.asList(Phase.ANNOTATION, Phase.SYMMETRY_DETECTION, Phase.INLINING, 
+				Phase.SKOLEMIZATION, Phase.FOL2BOOL, Phase.SBP, Phase.BOOL2CNF), phases);
+		
+		final TranslationMetrics metrics = sol.stats().translationMetrics();
+		assertNotNull(metrics);
+		assertTrue(metrics.gates(Phase.FOL2BOOL) > 0);
+		assertEquals(0, metrics.gates(Phase.ANNOTATION));
+		assertTrue(metrics.totalTime() > 0);
+		assertTrue(metrics.toJSON().startsWith("{\"phases\":[{\"phase\":\"ANNOTATION\""));
+	}
+	
+	@Test
+	public void testCacheHits() {
+		final Expression xr = x.join(r);
+		final Formula f = xr.some().and(xr.lone()).forAll(x.oneOf(Expression.UNIV));
+		final Solution sol = solver.solve(f, bounds);
+		assertTrue(sol.sat());
+		
+		final TranslationMetrics metrics = sol.stats().translationMetrics();
+		// the shared x.r is looked up twice for each of the 4 bindings of x, hitting on the second
+		assertEquals(8, metrics.cacheLookups());
+		assertEquals(4, metrics.cacheHits());
+		assertEquals(0.5, metrics.cacheHitRate(), 0);
+	}
+	
+}
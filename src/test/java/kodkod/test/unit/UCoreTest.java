@@ -397,4 +397,20 @@ public final class UCoreTest  {
 		testProofExtractor(HARD, RCEStrategy.class, HARD_MAX);
 	}
 	
+	// [HASLab] parallel core minimization
+	@Test
+	public final void testEasySCE0Parallel() {
+		solver.options().setCoreGranularity(0);
+		solver.options().setCoreThreads(4);
+		testProofExtractor(EASY, SCEStrategy.class, EASY_MAX);
+	}
+	
+	// [HASLab] parallel core minimization
+	@Test
+	public final void testMediumRCE0Parallel() {
+		solver.options().setCoreGranularity(0);
+		solver.options().setCoreThreads(4);
+		testProofExtractor(MEDIUM, RCEStrategy.class, MED_MAX);
+	}
+	
 }